@@ -20,6 +20,7 @@ import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.text.DefaultCaret;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
@@ -55,7 +56,7 @@ public class MinimizeButton  extends JButton {
     final var pane = new JScrollPane(info);
     pane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
     pane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-    final var doneButton = new JButton(S.get("minimizeDone"));
+    final var doneButton = new JButton(S.get("minimizeCancel"));
     final var infoPanel = new JDialog(
           parent,
           S.get("minimizeFunctionTitle"),
@@ -63,13 +64,30 @@ public class MinimizeButton  extends JButton {
     infoPanel.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
     infoPanel.add(pane, BorderLayout.CENTER);
     infoPanel.add(doneButton, BorderLayout.SOUTH);
-    doneButton.setVisible(false);
     infoPanel.setLocationRelativeTo(parent);
     infoPanel.pack();
+    // only touched on the AWT thread
+    final var optimized = new boolean[] {false};
+    final var optimizeThread = new Thread(
+        new Runnable() {
+            public void run() {
+                model.getOutputExpressions().forcedOptimize(info, format);
+                SwingUtilities.invokeLater(() -> {
+                  optimized[0] = true;
+                  doneButton.setText(S.get("minimizeDone"));
+                });
+            }
+        }
+    );
     final var dialogThread = new Thread(
           new Runnable() {
               void done() {
-                infoPanel.dispose();
+                // while optimizing, the button cancels, and the minimal forms are left as they were
+                if (!optimized[0]) {
+                  optimizeThread.interrupt();
+                } else {
+                  infoPanel.dispose();
+                }
               }
 
               public void run() {
@@ -79,14 +97,6 @@ public class MinimizeButton  extends JButton {
           }
     );
     dialogThread.start();
-    final var optimizeThread = new Thread(
-        new Runnable() {
-            public void run() {
-                model.getOutputExpressions().forcedOptimize(info, format);
-                doneButton.setVisible(true);
-            }
-        }
-    );
     optimizeThread.start();
   }
 }
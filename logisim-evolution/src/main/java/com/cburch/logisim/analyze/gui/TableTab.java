@@ -71,6 +71,15 @@ class TableTab extends AnalyzerTab implements Entry.EntryChangedListener {
 
     @Override
     public void cellsChanged(TruthTableEvent event) {
+      final var dc = event.getDcMask();
+      if (dc != -1) {
+        // repaint only the visible row holding the changed entries, if there is one
+        final var row = table.findVisibleRowContaining(event.getIndex());
+        if ((table.getVisibleRowDcMask(row) & dc) == dc) {
+          body.repaint(0, getY(row), body.getWidth(), cellHeight);
+          return;
+        }
+      }
       repaint();
     }
 
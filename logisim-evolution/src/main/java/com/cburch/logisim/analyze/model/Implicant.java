@@ -12,6 +12,7 @@ package com.cburch.logisim.analyze.model;
 import static com.cburch.logisim.analyze.Strings.S;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -20,6 +21,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 import javax.swing.JTextArea;
 
@@ -61,329 +64,536 @@ public class Implicant implements Comparable<Implicant> {
     }
   }
 
-  private static int getNrOfOnes(int value, int nrOfBits) {
-    var nrOfOnes = 0;
-    var mask = 1;
-    for (var bitIndex = 0; bitIndex < nrOfBits; bitIndex++) {
-      if ((value & mask) != 0) nrOfOnes++;
-      mask <<= 1;
+  /**
+   * Finds a minimal sum of products (or product of sums) for an output of the truth table. The
+   * rows and implicants are kept as bit masks and the coverage tables as bit sets.
+   *
+   * <p>Functions of up to MAXIMAL_NR_OF_INPUTS_FOR_EXACT_MINIMAL_FORM inputs are minimized with
+   * the Quine-McCluskey method: all primes are generated, the essential ones are picked and the
+   * dominated ones dropped, and the remaining cyclic core is covered by a branch and bound search
+   * that starts from a greedy cover and gives up after SEARCH_LIMIT steps. Wider functions have
+   * too many primes, so an Espresso-like heuristic is used instead: every row is expanded into a
+   * prime, redundant primes are dropped, and the cover is reduced and expanded again as long as
+   * it improves.
+   *
+   * <p>The computation is abandoned with a CancellationException when the calling thread is
+   * interrupted, as the cover found so far need not be minimal.
+   */
+  private static final class Minimizer {
+    private final int nrOfInputs;
+    private final BitSet on; // the rows that must be covered
+    private final BitSet allowed; // the rows that may be covered: the former and the don't cares
+    private final Consumer<String> progress;
+    private List<Implicant> best = new ArrayList<>();
+
+    Minimizer(int nrOfInputs, BitSet on, BitSet allowed, Consumer<String> progress) {
+      this.nrOfInputs = nrOfInputs;
+      this.on = on;
+      this.allowed = allowed;
+      this.progress = progress;
     }
-    return nrOfOnes;
-  }
-
-  private static void report(JTextArea out, String info) {
-    if (out != null) out.append(info);
-  }
 
-  private static String getGroupRepresentation(int value, int dontCares, int nrOfBits) {
-    final var result = new StringBuffer();
-    var mask = 1 << (nrOfBits - 1);
-    while (mask > 0) {
-      if ((dontCares & mask) != 0) {
-        result.append("-");
-      } else {
-        result.append((value & mask) != 0 ? "1" : "0");
+    List<Implicant> run() {
+      for (var row = on.nextSetBit(0); row >= 0; row = on.nextSetBit(row + 1)) {
+        best.add(new Implicant(0, row));
       }
-      mask >>= 1;
+      try {
+        if (nrOfInputs <= MAXIMAL_NR_OF_INPUTS_FOR_EXACT_MINIMAL_FORM) {
+          minimizeExact();
+        } else {
+          minimizeHeuristic();
+        }
+      } catch (CancellationException e) {
+        report(String.format("\n%s", S.get("implicantCanceled")));
+        throw e;
+      }
+      final var ret = new ArrayList<>(best);
+      Collections.sort(ret);
+      return ret;
     }
-    return result.toString();
-  }
 
-  static List<Implicant> computeMinimal(int format, AnalyzerModel model, String variable, JTextArea outputArea) {
-    final var table = model.getTruthTable();
-    final var outputVariableIndex = model.getOutputs().bits.indexOf(variable);
-    if (outputVariableIndex < 0) return Collections.emptyList();
-    // first we do some house keeping
-    final var desiredTerm = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
-    final var skippedTerm = desiredTerm == Entry.ONE ? Entry.ZERO : Entry.ONE;
-    final var nrOfInputs = table.getInputColumnCount();
-    final var oneHotTable = new HashSet<Integer>();
-    var mask = 1;
-    for (var bitIndex = 0; bitIndex < nrOfInputs; bitIndex++) {
-      oneHotTable.add(mask);
-      mask <<= 1;
-    }
-
-    // Here we define the first table with all desired terms (minterms or maxterms) and we add also the don´t cares
-    // for the primes we have the group (key) and the min/maxterms in this group (HashSet)
-    final var primes = new HashMap<Implicant, HashSet<Implicant>>();
-    final var essentialPrimes = new ArrayList<Implicant>();
-    // for the currentTable and the nextTable the key is the number of ones in the min/maxterms (groupid)
-    // the HashMap keeps track of the group (key) implicant and the number of min/max terms in this group (HashSet)
-    final var currentTable = new HashMap<Integer, HashMap<Implicant, HashSet<Implicant>>>();
-    final var newTable = new HashMap<Integer, HashMap<Implicant, HashSet<Implicant>>>();
-    // for terms to cover is the "key" the min/maxterms that need to be covered, and the ArrayList
-    // the set of prime covers that cover the key
-    final var termsToCover = new HashMap<Implicant, ArrayList<Implicant>>();
-    var allDontCare = true;
-    for (var inputCombination = 0; inputCombination < table.getRowCount(); inputCombination++) {
-      final var term = table.getOutputEntry(inputCombination, outputVariableIndex);
-      if (term == skippedTerm) {
-        allDontCare = false;
-        continue;
-      }
-      final var nrOfOnes = getNrOfOnes(inputCombination, nrOfInputs);
-      final var isDontCare = term != desiredTerm;
-      final var implicant = new Implicant(inputCombination, isDontCare);
-      final var implicantsSet = new HashSet<Implicant>();
-      if (!isDontCare) {
-        termsToCover.put(implicant, new ArrayList<>());
-        implicantsSet.add(implicant);
-        allDontCare = false;
-      }
-      if (!newTable.containsKey(nrOfOnes)) {
-        newTable.put(nrOfOnes, new HashMap<>());
+    void report(String info) {
+      if (progress == null) return;
+      // appending to a text area clears the interrupt status, which would lose a cancellation
+      final var interrupted = Thread.interrupted();
+      progress.accept(info);
+      if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void checkCanceled() {
+      if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+    }
+
+    private int getCost(Implicant implicant) {
+      return nrOfInputs - implicant.getUnknownCount();
+    }
+
+    private int getCost(List<Implicant> cover) {
+      var cost = 0;
+      for (final var implicant : cover) cost += getCost(implicant);
+      return cost;
+    }
+
+    private boolean isBetter(List<Implicant> cover, List<Implicant> other) {
+      if (cover.size() != other.size()) return cover.size() < other.size();
+      return getCost(cover) < getCost(other);
+    }
+
+    /** Returns whether all rows of the implicant with these unknowns and values are allowed. */
+    private boolean isAllowed(int unknowns, int values) {
+      for (var sub = unknowns; ; sub = (sub - 1) & unknowns) {
+        if (!allowed.get(values | sub)) return false;
+        if (sub == 0) return true;
       }
-      newTable.get(nrOfOnes).put(implicant, implicantsSet);
     }
 
-    if (allDontCare) return Collections.emptyList();
-    // In case the number of inputs is bigger than approx. 8 inputs, this
-    // algorithm takes a long time. To prevent "freezing" of logisim, we
-    // only perform an optimization for systems with more than 6 inputs on
-    // user request. Otherwise we exit here and return the set of min/maxterms
-    if ((nrOfInputs > MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM) && (outputArea == null)) {
-      return Collections.emptyList();
+    private static long getKey(int unknowns, int values) {
+      return ((long) unknowns << 32) | (values & 0xffffffffL);
     }
-    report(outputArea, String.format("\n%s\n", S.fmt("implicantOutputName", variable)));
-    // Here the real work starts, we determine all primes
-    var couldMerge = false;
-    var groupSize = 2;
-    do {
-      report(outputArea, String.format("\n%s", S.fmt("implicantGroupSize", groupSize)));
-      var nrOfPrimes = 0L;
-      couldMerge = false;
-      currentTable.clear();
-      currentTable.putAll(newTable);
-      newTable.clear();
-      var minimalKey = Integer.MAX_VALUE;
-      var maximalKey = 0;
-      for (var key : currentTable.keySet()) {
-        if (key < minimalKey) minimalKey = key;
-        if (key > maximalKey) maximalKey = key;
-      }
-      for (var key = minimalKey; key < maximalKey; key++) {
-        if (currentTable.containsKey(key) && currentTable.containsKey(key + 1)) {
-          // we see if we can merge terms
-          for (var termGroup1 : currentTable.get(key).keySet()) {
-            for (var termGroup2 : currentTable.get(key + 1).keySet()) {
-              if (termGroup1.unknowns != termGroup2.unknowns) continue;
-              final var differenceMask = termGroup1.values ^ termGroup2.values;
-              if (oneHotTable.contains(differenceMask)) {
-                final var dontCareMask = termGroup1.unknowns | differenceMask;
-                final var newValue = (termGroup1.values & differenceMask) == 0 ? termGroup1.values : termGroup2.values;
-                final var isDontCareGroup = termGroup1.isDontCare && termGroup2.isDontCare;
-                final var newImplicant = new Implicant(dontCareMask, newValue, isDontCareGroup);
-                final var newImplicantTerms = new HashSet<Implicant>();
-                couldMerge = true;
-                termGroup1.isPrime = termGroup2.isPrime = false;
-                newImplicantTerms.addAll(currentTable.get(key).get(termGroup1));
-                newImplicantTerms.addAll(currentTable.get(key + 1).get(termGroup2));
-                var found = false;
-                if (newTable.containsKey(key)) {
-                  // see if the new implicant already is in the set
-                  for (final var implicant : newTable.get(key).keySet()) {
-                    found |= (implicant.values == newValue) && (implicant.unknowns == dontCareMask);
-                  }
-                  if (!found) newTable.get(key).put(newImplicant, newImplicantTerms);
-                } else {
-                  newTable.put(key, new HashMap<>());
-                  newTable.get(key).put(newImplicant, newImplicantTerms);
-                }
-              }
+
+    // Quine-McCluskey
+
+    private List<Implicant> findPrimes() {
+      final var primes = new ArrayList<Implicant>();
+      var current = new HashMap<Long, Implicant>();
+      for (var row = allowed.nextSetBit(0); row >= 0; row = allowed.nextSetBit(row + 1)) {
+        current.put(getKey(0, row), new Implicant(row, !on.get(row)));
+      }
+      var groupSize = 1;
+      while (!current.isEmpty()) {
+        checkCanceled();
+        report(String.format("\n%s", S.fmt("implicantGroupSize", groupSize)));
+        final var next = new HashMap<Long, Implicant>();
+        for (final var implicant : current.values()) {
+          for (var bit = 1; bit < (1 << nrOfInputs); bit <<= 1) {
+            if (((implicant.unknowns | implicant.values) & bit) != 0) continue;
+            final var other = current.get(getKey(implicant.unknowns, implicant.values | bit));
+            if (other == null) continue;
+            implicant.isPrime = other.isPrime = false;
+            final var key = getKey(implicant.unknowns | bit, implicant.values);
+            if (!next.containsKey(key)) {
+              next.put(key, new Implicant(implicant.unknowns | bit, implicant.values,
+                  implicant.isDontCare && other.isDontCare));
             }
           }
         }
-      }
-      // now we add the primes to the set
-      for (final var key : currentTable.keySet()) {
-        for (final var implicant : currentTable.get(key).keySet()) {
+        var nrOfPrimes = 0L;
+        for (final var implicant : current.values()) {
           if (implicant.isPrime && !implicant.isDontCare) {
-            primes.put(implicant, currentTable.get(key).get(implicant));
-            if ((nrOfPrimes % 16L) == 0L) report(outputArea, "\n");
-            report(outputArea, String.format("%s ",
-                  getGroupRepresentation(implicant.values, implicant.unknowns, nrOfInputs)));
+            primes.add(implicant);
+            if ((nrOfPrimes % 16L) == 0L) report("\n");
+            report(String.format("%s ",
+                getGroupRepresentation(implicant.values, implicant.unknowns, nrOfInputs)));
             nrOfPrimes++;
           }
         }
+        if (nrOfPrimes == 0) report(String.format("\n%s", S.get("implicantNoneFound")));
+        current = next;
+        groupSize <<= 1;
       }
-      if (nrOfPrimes == 0) report(outputArea, String.format("\n%s", S.get("implicantNoneFound")));
-      groupSize <<= 1;
-    } while (couldMerge);
-
-    // we build now the table, with for each term which prime it covers
-    for (final var prime : primes.keySet()) {
-      for (final var term : termsToCover.keySet()) {
-        if (primes.get(prime).contains(term)) termsToCover.get(term).add(prime);
-      }
-    }
-    // finally we have to find the essential primes
-    var couldDoRowReduction = false;
-    var couldDoColumnReduction = false;
-
-    report(outputArea, String.format("\n%s", S.get("implicantColumRowReduction")));
-    var nrEssentialPrimes = 0L;
-    do {
-      couldDoRowReduction = false;
-      couldDoColumnReduction = false;
-      final var termsToRemove = new ArrayList<Implicant>();
-      // we first try a column reduction
-      for (final var term : termsToCover.keySet()) {
-        final var termInfo = termsToCover.get(term);
-        if (termInfo.size() == 1) {
-          // we found a prime cover, as this cover only covers this term
-          final var prime = termInfo.get(0);
-          if (!primes.containsKey(prime)) continue;
-          for (final var terms : primes.get(prime)) {
-            for (final var currentPrime : primes.keySet()) {
-              if (currentPrime.equals(prime)) continue;
-              couldDoColumnReduction |= primes.get(currentPrime).contains(terms);
-              primes.get(currentPrime).remove(terms);
-            }
-            termsToRemove.add(terms);
-          }
-          essentialPrimes.add(prime);
-          primes.remove(prime);
-          if ((nrEssentialPrimes++ % 16L) == 0) report(outputArea, "\n");
-          report(outputArea, String.format(" %s", getGroupRepresentation(prime.values, prime.unknowns, nrOfInputs)));
-        }
+      return primes;
+    }
+
+    private void minimizeExact() {
+      final var primes = findPrimes();
+      final var nrOfTerms = on.cardinality();
+      final var termIndex = new int[1 << nrOfInputs];
+      var nrOfTermsIndexed = 0;
+      for (var row = on.nextSetBit(0); row >= 0; row = on.nextSetBit(row + 1)) {
+        termIndex[row] = nrOfTermsIndexed++;
       }
-      // we do the cleanup
-      for (final var term : termsToRemove) termsToCover.remove(term);
-      // now we perform the row reduction
-      // first we look for empty primes
-      final var primesToRemove = new HashSet<Implicant>();
-      final var primeHierarchy = new HashMap<Integer, HashSet<Implicant>>();
-      final var nrOfElementGroups = new ArrayList<Integer>();
-      for (final var prime : primes.keySet()) {
-        final var primeElements = primes.get(prime);
-        if (primeElements.isEmpty()) {
-          primesToRemove.add(prime);
-          couldDoRowReduction = true;
-        } else {
-          final var nrOfElements = primeElements.size();
-          if (!primeHierarchy.containsKey(nrOfElements)) {
-            primeHierarchy.put(nrOfElements, new HashSet<>());
-          }
-          primeHierarchy.get(nrOfElements).add(prime);
-          if (!nrOfElementGroups.contains(nrOfElements)) {
-            nrOfElementGroups.add(nrOfElements);
+      // the terms covered by each prime, and the primes covering each term
+      final var covers = new BitSet[primes.size()];
+      final var coveredBy = new BitSet[nrOfTerms];
+      for (var t = 0; t < nrOfTerms; t++) coveredBy[t] = new BitSet();
+      for (var p = 0; p < covers.length; p++) {
+        covers[p] = new BitSet(nrOfTerms);
+        final var prime = primes.get(p);
+        for (var sub = prime.unknowns; ; sub = (sub - 1) & prime.unknowns) {
+          final var row = prime.values | sub;
+          if (on.get(row)) {
+            covers[p].set(termIndex[row]);
+            coveredBy[termIndex[row]].set(p);
           }
+          if (sub == 0) break;
         }
       }
-      Collections.sort(nrOfElementGroups);
-      if (!nrOfElementGroups.isEmpty()) {
-        for (var mergeGroupId = nrOfElementGroups.size() - 1; mergeGroupId > 0; mergeGroupId--) {
-          for (final var bigPrime : primeHierarchy.get(nrOfElementGroups.get(mergeGroupId))) {
-            if (primesToRemove.contains(bigPrime)) continue;
-            for (var checkGroupId = mergeGroupId - 1; checkGroupId >= 0; checkGroupId--) {
-              for (final var smallPrime : primeHierarchy.get(nrOfElementGroups.get(checkGroupId))) {
-                if (primesToRemove.contains(smallPrime)) continue;
-                if (primes.get(bigPrime).containsAll(primes.get(smallPrime))) {
-                  couldDoRowReduction = true;
-                  primesToRemove.add(smallPrime);
-                }
-              }
-            }
-          }
+
+      final var chosen = new ArrayList<Implicant>();
+      final var active = new BitSet();
+      active.set(0, primes.size());
+      final var uncovered = new BitSet();
+      uncovered.set(0, nrOfTerms);
+      report(String.format("\n%s", S.get("implicantColumRowReduction")));
+      var nrOfEssentialPrimes = 0L;
+      var changed = true;
+      while (changed && !uncovered.isEmpty()) {
+        checkCanceled();
+        changed = false;
+        // a term covered by a single prime makes it essential
+        final var candidates = new BitSet();
+        for (var t = uncovered.nextSetBit(0); t >= 0; t = uncovered.nextSetBit(t + 1)) {
+          candidates.clear();
+          candidates.or(coveredBy[t]);
+          candidates.and(active);
+          if (candidates.cardinality() != 1) continue;
+          final var p = candidates.nextSetBit(0);
+          final var prime = primes.get(p);
+          chosen.add(prime);
+          active.clear(p);
+          uncovered.andNot(covers[p]);
+          if ((nrOfEssentialPrimes++ % 16L) == 0) report("\n");
+          report(String.format(" %s",
+              getGroupRepresentation(prime.values, prime.unknowns, nrOfInputs)));
+          changed = true;
         }
+        changed |= removeDominatedPrimes(primes, covers, coveredBy, active, uncovered);
       }
-      for (final var prime : primesToRemove) {
-        primes.remove(prime);
-        for (final var element : termsToCover.keySet()) termsToCover.get(element).remove(prime);
+      if (uncovered.isEmpty()) {
+        best = chosen;
+        return;
       }
-    } while (couldDoRowReduction || couldDoColumnReduction);
 
-    // It is possible that we still have multiple covers left.
-    // The minimal cover can be found using Petrick's method
-    if (!termsToCover.isEmpty()) {
-      final var simplificationExpression = new ArrayList<HashSet<HashSet<Implicant>>>();
+      // the cyclic core
+      final var greedy = coverGreedy(primes, covers, active, uncovered);
+      final var cover = new ArrayList<>(chosen);
+      for (final var p : greedy) cover.add(primes.get(p));
+      best = cover;
+      final var search = new CoreSearch(primes, covers, coveredBy, active, greedy);
+      search.search(new ArrayList<>(), uncovered);
+      if (search.steps > SEARCH_LIMIT) report(String.format("\n%s", S.get("implicantGreedy")));
+      for (final var p : search.best) chosen.add(primes.get(p));
+      best = chosen;
+    }
 
-      // Populate the HashSet in order to begin Petrick's method
-      for (final var term : termsToCover.keySet()) {
-        final var group = new HashSet<HashSet<Implicant>>();
-        for (final var impl : termsToCover.get(term)) {
-          final var impli = new HashSet<Implicant>();
-          impli.add(impl);
-          group.add(impli);
+    /**
+     * Drops the primes that cover nothing more than another prime that is not more expensive, as
+     * well as those that cover nothing left.
+     */
+    private boolean removeDominatedPrimes(
+        List<Implicant> primes, BitSet[] covers, BitSet[] coveredBy, BitSet active,
+        BitSet uncovered) {
+      var changed = false;
+      final var remaining = new BitSet[covers.length];
+      for (var p = active.nextSetBit(0); p >= 0; p = active.nextSetBit(p + 1)) {
+        remaining[p] = (BitSet) covers[p].clone();
+        remaining[p].and(uncovered);
+      }
+      final var diff = new BitSet();
+      for (var p = active.nextSetBit(0); p >= 0; p = active.nextSetBit(p + 1)) {
+        final var mine = remaining[p];
+        if (mine.isEmpty()) {
+          active.clear(p);
+          changed = true;
+          continue;
+        }
+        // a dominating prime covers in particular the first term of this one
+        final var others = (BitSet) coveredBy[mine.nextSetBit(0)].clone();
+        others.and(active);
+        for (var q = others.nextSetBit(0); q >= 0; q = others.nextSetBit(q + 1)) {
+          if (q == p) continue;
+          final var theirs = remaining[q];
+          final var costP = getCost(primes.get(p));
+          final var costQ = getCost(primes.get(q));
+          if (costQ > costP || theirs.cardinality() < mine.cardinality()) continue;
+          diff.clear();
+          diff.or(mine);
+          diff.andNot(theirs);
+          if (!diff.isEmpty()) continue;
+          if (theirs.cardinality() == mine.cardinality() && costQ == costP && q > p) continue;
+          active.clear(p);
+          changed = true;
+          break;
         }
-        simplificationExpression.add(group);
       }
+      return changed;
+    }
 
-      do {
-        for (int i = 0; i < simplificationExpression.size(); i++) {
-          final var first = simplificationExpression.get(i);
-          if (i + 1 >= simplificationExpression.size()) { // If there is only one left, skip it
-            break;
+    /**
+     * Covers the terms by repeatedly taking the prime covering most of them, then drops the
+     * needless ones.
+     */
+    private List<Integer> coverGreedy(
+        List<Implicant> primes, BitSet[] covers, BitSet active, BitSet uncovered) {
+      final var ret = new ArrayList<Integer>();
+      final var left = (BitSet) uncovered.clone();
+      final var gain = new BitSet();
+      while (!left.isEmpty()) {
+        var bestPrime = -1;
+        var bestGain = 0;
+        for (var p = active.nextSetBit(0); p >= 0; p = active.nextSetBit(p + 1)) {
+          gain.clear();
+          gain.or(covers[p]);
+          gain.and(left);
+          final var g = gain.cardinality();
+          if (g > bestGain
+              || (g == bestGain && g > 0
+                  && getCost(primes.get(p)) < getCost(primes.get(bestPrime)))) {
+            bestPrime = p;
+            bestGain = g;
           }
-          final var second = simplificationExpression.remove(i + 1);
-
-          // If there are two elements left, then combine them
-          final var group = new HashSet<HashSet<Implicant>>();
-          for (final var firstConj : first) {
-            for (final var secondConj : second) {
-              final var conj = new HashSet<Implicant>();
-              conj.addAll(firstConj);
-              conj.addAll(secondConj);
-              group.add(conj);
-            }
-          }
-          simplificationExpression.set(i, group);
         }
+        ret.add(bestPrime);
+        left.andNot(covers[bestPrime]);
+      }
+      // drop the most expensive primes first if the others cover their terms
+      ret.sort((a, b) -> getCost(primes.get(b)) - getCost(primes.get(a)));
+      for (var i = 0; i < ret.size(); i++) {
+        final var others = new BitSet();
+        for (var j = 0; j < ret.size(); j++) {
+          if (j != i) others.or(covers[ret.get(j)]);
+        }
+        final var needed = (BitSet) uncovered.clone();
+        needed.andNot(others);
+        if (needed.isEmpty()) ret.remove(i--);
+      }
+      return ret;
+    }
 
-        // After combining elements, apply reductions
-        for (final var group : simplificationExpression) {
-          final var implGrpToRemove = new ArrayList<HashSet<Implicant>>();
-          for (final var conj1 : group) {
-            if (implGrpToRemove.contains(conj1)) continue;
-            for (final var conj2 : group) {
-              if (conj1 == conj2 || implGrpToRemove.contains(conj2)) continue;
-              if (conj2.containsAll(conj1)) {
-                implGrpToRemove.add(conj2);
-                continue;
-              }
-              if (conj1.containsAll(conj2)) {
-                implGrpToRemove.add(conj1);
-                break;
-              }
-            }
+    /** A branch and bound search for the cheapest cover of the cyclic core. */
+    private final class CoreSearch {
+      final List<Implicant> primes;
+      final BitSet[] covers;
+      final BitSet[] coveredBy;
+      final int[] coveredByCount;
+      List<Integer> best;
+      int bestCost;
+      long steps = 0;
+
+      CoreSearch(List<Implicant> primes, BitSet[] covers, BitSet[] coveredBy, BitSet active,
+          List<Integer> initial) {
+        this.primes = primes;
+        this.covers = covers;
+        // the primes left are the same during the whole search
+        this.coveredBy = new BitSet[coveredBy.length];
+        this.coveredByCount = new int[coveredBy.length];
+        for (var t = 0; t < coveredBy.length; t++) {
+          this.coveredBy[t] = (BitSet) coveredBy[t].clone();
+          this.coveredBy[t].and(active);
+          coveredByCount[t] = this.coveredBy[t].cardinality();
+        }
+        best = initial;
+        bestCost = getCost(initial);
+      }
+
+      int getCost(List<Integer> selection) {
+        var cost = 0;
+        for (final var p : selection) cost += Minimizer.this.getCost(primes.get(p));
+        return cost;
+      }
+
+      void search(ArrayList<Integer> selection, BitSet uncovered) {
+        steps += uncovered.cardinality() + 1;
+        if (steps > SEARCH_LIMIT) return;
+        checkCanceled();
+        if (uncovered.isEmpty()) {
+          final var cost = getCost(selection);
+          if (selection.size() < best.size()
+              || (selection.size() == best.size() && cost < bestCost)) {
+            best = new ArrayList<>(selection);
+            bestCost = cost;
           }
-          if (!implGrpToRemove.isEmpty()) {
-            group.removeAll(implGrpToRemove);
+          return;
+        }
+        // terms that share no prime need one prime each: a lower bound on what is left
+        var bound = 0;
+        var branchTerm = -1;
+        var branchCount = Integer.MAX_VALUE;
+        final var used = new BitSet();
+        for (var t = uncovered.nextSetBit(0); t >= 0; t = uncovered.nextSetBit(t + 1)) {
+          if (coveredByCount[t] < branchCount) {
+            branchCount = coveredByCount[t];
+            branchTerm = t;
           }
+          if (!coveredBy[t].intersects(used)) {
+            bound++;
+            used.or(coveredBy[t]);
+          }
+        }
+        if (selection.size() + bound > best.size()) return;
+        final var candidates = coveredBy[branchTerm];
+        for (var p = candidates.nextSetBit(0); p >= 0; p = candidates.nextSetBit(p + 1)) {
+          final var left = (BitSet) uncovered.clone();
+          left.andNot(covers[p]);
+          selection.add(p);
+          search(selection, left);
+          selection.remove(selection.size() - 1);
+          if (steps > SEARCH_LIMIT) return;
         }
-      } while (simplificationExpression.size() > 1);
+      }
+    }
+
+    // Espresso-like heuristic
+
+    private int[] count; // the number of implicants of the cover containing each row of the on set
+
+    private void mark(Implicant implicant, int delta) {
+      for (var sub = implicant.unknowns; ; sub = (sub - 1) & implicant.unknowns) {
+        final var row = implicant.values | sub;
+        if (on.get(row)) count[row] += delta;
+        if (sub == 0) break;
+      }
+    }
 
-      // Get the possible covers, only one can element can be left in the ArrayList here
-      final var resGroup = simplificationExpression.get(0);
+    /** Returns whether all rows of the on set in the implicant are covered by others as well. */
+    private boolean isRedundant(Implicant implicant) {
+      for (var sub = implicant.unknowns; ; sub = (sub - 1) & implicant.unknowns) {
+        final var row = implicant.values | sub;
+        if (on.get(row) && count[row] < 2) return false;
+        if (sub == 0) return true;
+      }
+    }
 
-      final var results = new HashMap<Integer, ArrayList<HashSet<Implicant>>>();
-      for (final var grp : resGroup) {
-        if (results.get(grp.size()) == null) {
-          results.put(grp.size(), new ArrayList<>());
+    /** Widens the implicant one input at a time, in an order that depends on the pass. */
+    private Implicant expand(Implicant implicant, int pass) {
+      var unknowns = implicant.unknowns;
+      var values = implicant.values;
+      for (var i = 0; i < nrOfInputs; i++) {
+        final var bit = 1 << ((i + pass) % nrOfInputs);
+        if ((unknowns & bit) != 0) continue;
+        // the implicant doubles with the rows that differ in this input
+        if (isAllowed(unknowns, values ^ bit)) {
+          unknowns |= bit;
+          values &= ~bit;
         }
-        results.get(grp.size()).add(grp);
       }
+      return new Implicant(unknowns, values);
+    }
 
-      final var minimumPrimes = results.get(Collections.min(results.keySet()));
-      // Select cheapest prime covers now, meaning the ones with most total unknowns
-      final var costMap = new HashMap<Integer, ArrayList<HashSet<Implicant>>>();
+    private void expandAll(List<Implicant> cover, int pass) {
+      for (var i = 0; i < cover.size(); i++) {
+        checkCanceled();
+        final var old = cover.get(i);
+        final var wide = expand(old, pass);
+        if (wide.unknowns != old.unknowns) {
+          mark(old, -1);
+          mark(wide, 1);
+          cover.set(i, wide);
+        }
+      }
+      for (var row = on.nextSetBit(0); row >= 0; row = on.nextSetBit(row + 1)) {
+        if (count[row] > 0) continue;
+        checkCanceled();
+        final var wide = expand(new Implicant(0, row), pass);
+        mark(wide, 1);
+        cover.add(wide);
+      }
+    }
 
-      for (final var cover : minimumPrimes) {
-        final var unknown = cover.stream().mapToInt(i -> i.getUnknownCount()).sum();
-        if (!costMap.keySet().contains(unknown)) {
-          costMap.put(unknown, new ArrayList<>());
+    /** Drops implicants whose rows are all covered by others, the smallest ones first. */
+    private void removeRedundant(List<Implicant> cover) {
+      cover.sort((a, b) -> getCost(b) - getCost(a));
+      for (var i = 0; i < cover.size(); i++) {
+        if (isRedundant(cover.get(i))) {
+          mark(cover.get(i), -1);
+          cover.remove(i--);
         }
-        costMap.get(unknown).add(cover);
       }
+    }
+
+    /**
+     * Shrinks each implicant, the largest ones first, to the smallest one containing the rows
+     * that no other implicant covers, so that the next expansion may take another direction.
+     */
+    private void reduce(List<Implicant> cover) {
+      cover.sort((a, b) -> getCost(a) - getCost(b));
+      for (var i = 0; i < cover.size(); i++) {
+        checkCanceled();
+        final var implicant = cover.get(i);
+        mark(implicant, -1);
+        var first = -1;
+        var unknowns = 0;
+        for (var sub = implicant.unknowns; ; sub = (sub - 1) & implicant.unknowns) {
+          final var row = implicant.values | sub;
+          if (on.get(row) && count[row] == 0) {
+            if (first < 0) first = row;
+            unknowns |= row ^ first;
+          }
+          if (sub == 0) break;
+        }
+        if (first < 0) {
+          cover.remove(i--);
+        } else {
+          final var reduced = new Implicant(unknowns, first & ~unknowns);
+          mark(reduced, 1);
+          cover.set(i, reduced);
+        }
+      }
+    }
+
+    private void minimizeHeuristic() {
+      report(String.format("\n%s", S.get("implicantHeuristic")));
+      count = new int[1 << nrOfInputs];
+      final var cover = new ArrayList<Implicant>();
+      for (var pass = 0; pass < HEURISTIC_PASSES; pass++) {
+        if (pass > 0) reduce(cover);
+        expandAll(cover, pass);
+        removeRedundant(cover);
+        report(String.format("\n%s",
+            S.fmt("implicantHeuristicPass", pass + 1, cover.size(), getCost(cover))));
+        if (pass > 0 && !isBetter(cover, best)) break;
+        best = new ArrayList<>(cover);
+      }
+    }
+  }
 
-      final var cheapestCovers = costMap.get(Collections.max(costMap.keySet()));
-      // TODO: Return all possible covers.
-      essentialPrimes.addAll(cheapestCovers.get(0));
+  private static String getGroupRepresentation(int value, int dontCares, int nrOfBits) {
+    final var result = new StringBuffer();
+    var mask = 1 << (nrOfBits - 1);
+    while (mask > 0) {
+      if ((dontCares & mask) != 0) {
+        result.append("-");
+      } else {
+        result.append((value & mask) != 0 ? "1" : "0");
+      }
+      mask >>= 1;
     }
+    return result.toString();
+  }
+
+  static List<Implicant> computeMinimal(int format, AnalyzerModel model, String variable, JTextArea outputArea) {
+    return computeMinimal(format, model, variable,
+        outputArea == null ? null : outputArea::append, outputArea != null);
+  }
 
-    // TODO: Return multiple minimal covers if present (Petrick's method)
-    return essentialPrimes;
+  /**
+   * Computes a minimal cover of an output of the truth table, on the calling thread.
+   *
+   * @param progress receives the report of the progress, or null.
+   * @param force whether to minimize functions of more inputs than
+   *     MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM, for which an empty list is returned otherwise.
+   * @throws CancellationException if the thread is interrupted, the cover found so far being
+   *     possibly not minimal.
+   */
+  public static List<Implicant> computeMinimal(int format, AnalyzerModel model, String variable,
+      Consumer<String> progress, boolean force) {
+    final var table = model.getTruthTable();
+    final var outputVariableIndex = model.getOutputs().bits.indexOf(variable);
+    if (outputVariableIndex < 0) return Collections.emptyList();
+    // first we do some house keeping
+    final var desiredTerm = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
+    final var skippedTerm = desiredTerm == Entry.ONE ? Entry.ZERO : Entry.ONE;
+    final var nrOfInputs = table.getInputColumnCount();
+    // the desired terms (minterms or maxterms), and those together with the don't cares
+    final var on = new BitSet(table.getRowCount());
+    final var allowed = new BitSet(table.getRowCount());
+    for (var inputCombination = 0; inputCombination < table.getRowCount(); inputCombination++) {
+      final var term = table.getOutputEntry(inputCombination, outputVariableIndex);
+      if (term == skippedTerm) continue;
+      allowed.set(inputCombination);
+      if (term == desiredTerm) on.set(inputCombination);
+    }
+    if (on.isEmpty()) return Collections.emptyList();
+    // In case the number of inputs is bigger than approx. 8 inputs, this
+    // algorithm takes a long time. To prevent "freezing" of logisim, we
+    // only perform an optimization for systems with more than 6 inputs on
+    // user request. Otherwise we exit here and return the set of min/maxterms
+    if ((nrOfInputs > MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM) && !force) {
+      return Collections.emptyList();
+    }
+    final var minimizer = new Minimizer(nrOfInputs, on, allowed, progress);
+    minimizer.report(String.format("\n%s\n", S.fmt("implicantOutputName", variable)));
+    return minimizer.run();
   }
 
   public static Expression toExpression(int format, AnalyzerModel model, List<Implicant> implicants) {
@@ -407,6 +617,12 @@ public class Implicant implements Comparable<Implicant> {
   static final Implicant MINIMAL_IMPLICANT = new Implicant(0, -1);
   static final List<Implicant> MINIMAL_LIST = Collections.singletonList(MINIMAL_IMPLICANT);
   public static final int MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM = 6;
+  public static final int MAXIMAL_NR_OF_INPUTS_FOR_EXACT_MINIMAL_FORM = 12;
+  // work allowed to the search for a minimal cover of the cyclic core, counted in terms looked
+  // at, after which the best cover found is kept
+  private static final long SEARCH_LIMIT = 20_000_000L;
+  // passes of the heuristic at most, when each one improves the cover
+  private static final int HEURISTIC_PASSES = 8;
 
   final int unknowns;
   final int values;
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import javax.swing.JTextArea;
 
@@ -161,8 +162,7 @@ public class OutputExpressions {
           final var table = model.getTruthTable();
           final var outputColumn = computeColumn(model.getTruthTable(), expr);
           final var outputIndex = model.getOutputs().bits.indexOf(output);
-          final var currentColumn = table.getOutputColumn(outputIndex);
-          if (!columnsMatch(currentColumn, outputColumn)
+          if (!columnMatches(table, outputIndex, outputColumn)
               || isAllUndefined(outputColumn)
               || formatChanged) {
             // if not, then we need to change the expression to
@@ -259,12 +259,13 @@ public class OutputExpressions {
     }
   }
 
-  private static boolean columnsMatch(Entry[] a, Entry[] b) {
-    if (a.length != b.length) return false;
-    for (var i = 0; i < a.length; i++) {
-      if (a[i] != b[i]) {
+  private static boolean columnMatches(TruthTable table, int col, Entry[] b) {
+    if (table.getRowCount() != b.length) return false;
+    for (var i = 0; i < b.length; i++) {
+      final var a = table.getOutputEntry(i, col);
+      if (a != b[i]) {
         final var bothDefined =
-            (a[i] == Entry.ZERO || a[i] == Entry.ONE) && (b[i] == Entry.ZERO || b[i] == Entry.ONE);
+            (a == Entry.ZERO || a == Entry.ONE) && (b[i] == Entry.ZERO || b[i] == Entry.ONE);
         if (bothDefined) return false;
       }
     }
@@ -326,11 +327,19 @@ public class OutputExpressions {
     model.getTruthTable().addTruthTableListener(myListener);
   }
 
+  /**
+   * Minimizes all outputs, however many inputs they have. If the thread is interrupted, this
+   * stops, and the output being minimized keeps its former minimal expression.
+   */
   public void forcedOptimize(JTextArea outtextArea, int format) {
     for (final var output : outputData.keySet()) {
       final var data = outputData.get(output);
-      data.setMinimizedFormat(format);
-      data.invalidate(false, false, outtextArea);
+      try {
+        data.setMinimizedFormat(format);
+        data.invalidate(false, false, outtextArea);
+      } catch (CancellationException e) {
+        return;
+      }
     }
   }
 
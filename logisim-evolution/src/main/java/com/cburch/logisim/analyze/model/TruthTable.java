@@ -9,13 +9,23 @@
 
 package com.cburch.logisim.analyze.model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * The truth table of the analyzer: one output column per output bit, and the visible rows.
+ *
+ * <p>Output columns are packed with two bits per entry, a column that was never written holding
+ * only don't cares without being allocated. The visible rows partition the input indexes, each
+ * row being the indexes that match its base index outside of its don't care mask. While all rows
+ * are visible, which is the usual case, they are not stored but computed when asked for; else
+ * their base indexes and masks are stored in arrays, rather than as one object per row.
+ */
 public class TruthTable {
 
   private static final Entry DEFAULT_ENTRY = Entry.DONT_CARE;
@@ -24,52 +34,57 @@ public class TruthTable {
   private final List<TruthTableListener> listeners = new ArrayList<>();
 
   private final AnalyzerModel model;
-  private ArrayList<Row> rows = new ArrayList<>(); // visible input rows
-  private final ArrayList<Entry[]> columns = new ArrayList<>(); // output columns
+  private RowList rows = null; // visible input rows, null if all are visible
+  private final ArrayList<Column> columns = new ArrayList<>(); // output columns
   private static final CompareInputs sortByInputs = new CompareInputs();
 
   private static class Row implements Iterable<Integer> {
-    // TODO: probably more efficient to store this in baseIdx/dcMask format.
-    final Entry[] inputs;
+    final int base;
+    final int dcMask;
+    final int numInputs;
 
     Row(int idx, int numInputs, int mask) {
-      inputs = new Entry[numInputs];
-      for (var i = numInputs - 1; i >= 0; i--) {
-        inputs[i] = (mask & 1) == 0 ? (idx & 1) == 0 ? Entry.ZERO : Entry.ONE : Entry.DONT_CARE;
-        idx = idx >> 1;
-        mask = mask >> 1;
-      }
+      final var all = (1 << numInputs) - 1;
+      this.numInputs = numInputs;
+      dcMask = mask & all;
+      base = idx & all & ~dcMask;
     }
 
     Row(Entry[] entries, int numInputs) {
-      inputs = new Entry[numInputs];
-      System.arraycopy(entries, 0, inputs, 0, numInputs);
+      var idx = 0;
+      var mask = 0;
+      for (var i = 0; i < numInputs; i++) {
+        idx = (idx << 1) | (entries[i] == Entry.ONE ? 1 : 0);
+        mask = (mask << 1) | (entries[i] == Entry.DONT_CARE ? 1 : 0);
+      }
+      this.numInputs = numInputs;
+      dcMask = mask;
+      base = idx & ~mask;
+    }
+
+    public Entry input(int col) {
+      final var bit = 1 << (numInputs - 1 - col);
+      return (dcMask & bit) != 0 ? Entry.DONT_CARE : (base & bit) != 0 ? Entry.ONE : Entry.ZERO;
     }
 
     public int baseIndex() {
-      var idx = 0;
-      for (final var input : inputs) idx = (idx << 1) | (input == Entry.ONE ? 1 : 0);
-      return idx;
+      return base;
     }
 
     public int dcMask() {
-      var mask = 0;
-      for (final var input : inputs) mask = (mask << 1) | (input == Entry.DONT_CARE ? 1 : 0);
-      return mask;
+      return dcMask;
     }
 
     public int duplicity() {
-      int count = 1;
-      for (Entry input : inputs) count *= (input == Entry.DONT_CARE ? 2 : 1);
-      return count;
+      return 1 << Integer.bitCount(dcMask);
     }
 
     @Override
     public String toString() {
       final var s = new StringBuilder("row[");
-      for (var i = 0; i < inputs.length; i++) {
+      for (var i = 0; i < numInputs; i++) {
         if (i != 0) s.append(" ");
-        s.append(inputs[i].getDescription());
+        s.append(input(i).getDescription());
       }
       s.append("]");
       s.append(" dup=").append(duplicity());
@@ -82,7 +97,7 @@ public class TruthTable {
       var i = 0;
       for (final var variable : vars) {
         s.append(" ");
-        for (var j = 0; j < variable.width; j++) s.append(inputs[i++].toBitString());
+        for (var j = 0; j < variable.width; j++) s.append(input(i++).toBitString());
       }
       return s.toString();
     }
@@ -95,17 +110,12 @@ public class TruthTable {
       return contains(other.baseIndex()) && (other.dcMask() & ~dcMask()) == 0;
     }
 
-    public boolean intersects(Row other) {
-      final var dc = dcMask() | other.dcMask();
-      return (other.baseIndex() & ~dc) == (baseIndex() & ~dc);
-    }
-
     @Override
     public Iterator<Integer> iterator() {
       return new Iterator<>() {
         final int base = baseIndex();
         final int mask = dcMask();
-        final int nbits = inputs.length;
+        final int nbits = numInputs;
         final int count = duplicity();
         int iter = 0;
 
@@ -136,6 +146,128 @@ public class TruthTable {
     }
   }
 
+  /**
+   * An output column, with two bits per entry. Both kinds of error share a code, the oscillation
+   * errors, which are rare, being told apart by the set of their indexes.
+   */
+  private static final class Column {
+    private static final int ZERO = 0;
+    private static final int ONE = 1;
+    private static final int DONT_CARE = 2;
+    private static final int ERROR = 3;
+    private static final long ALL_DONT_CARE = 0xaaaaaaaaaaaaaaaaL;
+
+    final int size;
+    final long[] words;
+    BitSet oscillating = null; // indexes of oscillation errors, null if there are none
+
+    Column(int size) {
+      this.size = size;
+      words = new long[(size + 31) >>> 5];
+      Arrays.fill(words, ALL_DONT_CARE);
+    }
+
+    Entry get(int idx) {
+      return switch ((int) (words[idx >>> 5] >>> ((idx & 31) << 1)) & 3) {
+        case ZERO -> Entry.ZERO;
+        case ONE -> Entry.ONE;
+        case DONT_CARE -> Entry.DONT_CARE;
+        default -> oscillating != null && oscillating.get(idx)
+            ? Entry.OSCILLATE_ERROR
+            : Entry.BUS_ERROR;
+      };
+    }
+
+    /** Sets the entry, and returns whether it changed. */
+    boolean set(int idx, Entry value) {
+      final int code;
+      if (value == Entry.ZERO) code = ZERO;
+      else if (value == Entry.ONE) code = ONE;
+      else if (value == Entry.DONT_CARE) code = DONT_CARE;
+      else code = ERROR;
+      final var shift = (idx & 31) << 1;
+      final var word = words[idx >>> 5];
+      final var old = (int) (word >>> shift) & 3;
+      var changed = old != code;
+      if (changed) words[idx >>> 5] = (word & ~(3L << shift)) | ((long) code << shift);
+      if (code == ERROR || old == ERROR) {
+        final var oscillates = value == Entry.OSCILLATE_ERROR;
+        if (oscillating == null && oscillates) oscillating = new BitSet();
+        if (oscillating != null) {
+          changed |= oscillating.get(idx) != oscillates;
+          oscillating.set(idx, oscillates);
+        }
+      }
+      return changed;
+    }
+
+    /** Sets the entries of the row to the entry at from, and returns whether any changed. */
+    boolean copy(int from, Row to) {
+      final var value = get(from);
+      var changed = false;
+      for (final int idx : to) changed |= set(idx, value);
+      return changed;
+    }
+  }
+
+  /** Visible rows, sorted by base index. */
+  private static final class RowList {
+    final int numInputs;
+    int size = 0;
+    int[] bases;
+    int[] dcMasks;
+
+    RowList(int numInputs, int capacity) {
+      this.numInputs = numInputs;
+      bases = new int[Math.max(1, capacity)];
+      dcMasks = new int[bases.length];
+    }
+
+    int size() {
+      return size;
+    }
+
+    Row get(int pos) {
+      return new Row(bases[pos], numInputs, dcMasks[pos]);
+    }
+
+    int baseIndex(int pos) {
+      return bases[pos];
+    }
+
+    int dcMask(int pos) {
+      return dcMasks[pos];
+    }
+
+    /** Returns the position of the row with the base index, or -(insertion point) - 1. */
+    int find(int base) {
+      return Arrays.binarySearch(bases, 0, size, base);
+    }
+
+    /** Adds a row after the others, which must all have smaller base indexes. */
+    void add(int base, int dcMask) {
+      add(size, base, dcMask);
+    }
+
+    void add(int pos, int base, int dcMask) {
+      if (size == bases.length) {
+        bases = Arrays.copyOf(bases, 2 * size);
+        dcMasks = Arrays.copyOf(dcMasks, 2 * size);
+      }
+      System.arraycopy(bases, pos, bases, pos + 1, size - pos);
+      System.arraycopy(dcMasks, pos, dcMasks, pos + 1, size - pos);
+      bases[pos] = base;
+      dcMasks[pos] = dcMask;
+      size++;
+    }
+
+    void remove(int pos) {
+      System.arraycopy(bases, pos + 1, bases, pos, size - pos - 1);
+      System.arraycopy(dcMasks, pos + 1, dcMasks, pos, size - pos - 1);
+      size--;
+    }
+  }
+
   public static class CompareInputs implements Comparator<Row> {
     @Override
     public int compare(Row r1, Row r2) {
@@ -144,11 +276,7 @@ public class TruthTable {
   }
 
   private void initRows() {
-    final var inputs = getInputColumnCount();
-    final var n = getRowCount();
-    rows.clear();
-    rows.ensureCapacity(n);
-    for (int i = 0; i < n; i++) rows.add(new Row(i, inputs, 0));
+    rows = null;
   }
 
   private void initColumns() {
@@ -158,6 +286,29 @@ public class TruthTable {
     for (int i = 0; i < outputs; i++) columns.add(null /* created lazily */);
   }
 
+  /** Uses the rows, which must be sorted, as visible rows; not stored if they are all the rows. */
+  private void setRows(ArrayList<Row> newRows, int numInputs) {
+    if (newRows.size() == 1 << numInputs) {
+      rows = null;
+      return;
+    }
+    rows = new RowList(numInputs, newRows.size());
+    for (final var row : newRows) rows.add(row.baseIndex(), row.dcMask());
+  }
+
+  private Row getRow(int row) {
+    return rows == null ? new Row(row, getInputColumnCount(), 0) : rows.get(row);
+  }
+
+  private Column getColumn(int col) {
+    var column = columns.get(col);
+    if (column == null) {
+      column = new Column(getRowCount());
+      columns.set(col, column);
+    }
+    return column;
+  }
+
   public TruthTable(AnalyzerModel model) {
     this.model = model;
     initRows();
@@ -167,14 +318,17 @@ public class TruthTable {
   }
 
   public void expandVisibleRows() {
-    if (getVisibleRowCount() == getRowCount()) return;
+    if (getVisibleRowCount() == getRowCount()) {
+      rows = null;
+      return;
+    }
     initRows();
     fireRowsChanged();
   }
 
   public void compactVisibleRows() {
     final var partition = Implicant.computePartition(model);
-    rows.clear();
+    final var newRows = new ArrayList<Row>(partition.size());
     initColumns();
     final var ni = getInputColumnCount();
     final var no = getOutputColumnCount();
@@ -182,17 +336,17 @@ public class TruthTable {
       final var imp = it.getKey();
       final var val = it.getValue();
       final var r = new Row(imp.values, ni, imp.unknowns);
-      rows.add(r);
+      newRows.add(r);
       for (var col = 0; col < no; col++) {
         final var value = Entry.parse("" + val.charAt(col));
-        var column = columns.get(col);
-        if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
+        if (columns.get(col) == null && value == DEFAULT_ENTRY) continue;
+        final var column = getColumn(col);
         for (Integer idx : r) {
-          column[idx] = value;
+          column.set(idx, value);
         }
       }
     }
+    setRows(newRows, ni);
     fireRowsChanged();
     for (var col = 0; col < no; col++) {
       if (columns.get(col) != null) fireCellsChanged(col);
@@ -201,22 +355,21 @@ public class TruthTable {
 
   public void setOutputColumn(int col, Entry[] values) {
     if (values.length != getRowCount()) throw new IllegalArgumentException("bad column length");
-    final var oldValues = columns.set(col, values);
-    if (oldValues == values) return;
+    final var column = new Column(values.length);
+    for (var i = 0; i < values.length; i++) column.set(i, values[i]);
+    columns.set(col, column);
     // Expand rows as dictated by column inconsistencies
     var rowsChanged = false;
-    for (var i = rows.size() - 1; i >= 0; i--) {
-      final var r = rows.get(i);
-      final var base = r.baseIndex();
-      final var v = values[base];
-      var split = true;
-      while (split) {
-        split = false;
+    if (rows != null) {
+      final var pending = new ArrayDeque<Row>(rows.size());
+      for (var i = 0; i < rows.size(); i++) pending.add(rows.get(i));
+      while (!pending.isEmpty()) {
+        final var r = pending.pop();
+        final var v = values[r.baseIndex()];
         for (final var idx : r) {
           if (v != values[idx]) {
-            splitRow(r, idx);
+            pending.addAll(splitRow(r, idx));
             rowsChanged = true;
-            split = true;
             break;
           }
         }
@@ -226,64 +379,62 @@ public class TruthTable {
     fireCellsChanged(col);
   }
 
-  void splitRow(Row r, int idx) {
+  /** Splits the row in two along the bits where idx differs from its base, and returns both. */
+  List<Row> splitRow(Row r, int idx) {
     final var base = r.baseIndex();
     if (idx == base || !r.contains(idx)) throw new IllegalArgumentException("bad row split");
     final var diff = idx ^ base;
     final var n = r.duplicity();
     if (n <= 1) throw new IllegalStateException("row duplicity should be at least 2");
-    final var splits = new Row(base, r.inputs.length, diff);
+    final var splits = new Row(base, r.numInputs, diff);
+    final var ret = new ArrayList<Row>(2);
     var m = 0;
-    rows.remove(r);
+    rows.remove(rows.find(base));
     for (final var other : splits) {
-      final var s = new Row(other, r.inputs.length, r.dcMask() & ~diff);
+      final var s = new Row(other, r.numInputs, r.dcMask() & ~diff);
       m += s.duplicity();
-      int pos = Collections.binarySearch(rows, s, sortByInputs);
-      if (pos < 0) rows.add(-pos - 1, s);
+      final var pos = rows.find(s.baseIndex());
+      if (pos < 0) rows.add(-pos - 1, s.baseIndex(), s.dcMask());
       else throw new IllegalStateException("unexpected row split");
+      ret.add(s);
     }
     if (m != n) throw new IllegalStateException("assertion failed in row split");
+    return ret;
   }
 
   public Entry getVisibleOutputEntry(int row, int col) {
-    final var r = rows.get(row);
-    final var idx = r.baseIndex();
-    return getOutputEntry(idx, col);
+    return getOutputEntry(getVisibleRowIndex(row), col);
   }
 
   public Entry getOutputEntry(int idx, int col) {
     if (idx < 0 || col < 0) return DEFAULT_ENTRY;
     final var column = columns.get(col);
-    return (column == null ? DEFAULT_ENTRY : idx < column.length ? column[idx] : DEFAULT_ENTRY);
+    return (column == null ? DEFAULT_ENTRY : idx < column.size ? column.get(idx) : DEFAULT_ENTRY);
   }
 
   public String getVisibleOutputs(int row) {
-    final var r = rows.get(row);
-    final var idx = r.baseIndex();
+    final var idx = getVisibleRowIndex(row);
     final var s = new StringBuilder();
-    for (Entry[] column : columns) {
-      s.append((column == null ? DEFAULT_ENTRY : column[idx]).getDescription());
+    for (final var column : columns) {
+      s.append((column == null ? DEFAULT_ENTRY : column.get(idx)).getDescription());
     }
     return s.toString();
   }
 
   public Entry getVisibleInputEntry(int row, int col) {
-    final var r = rows.get(row);
-    return r.inputs[col];
+    return getRow(row).input(col);
   }
 
   public int getVisibleRowDcMask(int row) {
-    final var r = rows.get(row);
-    return r.dcMask();
+    return rows == null ? 0 : rows.dcMask(row);
   }
 
   public int getVisibleRowIndex(int row) {
-    final var r = rows.get(row);
-    return r.baseIndex();
+    return rows == null ? row : rows.baseIndex(row);
   }
 
   public Iterable<Integer> getVisibleRowIndexes(int row) {
-    return rows.get(row);
+    return getRow(row);
   }
 
   public Entry getInputEntry(int idx, int col) {
@@ -297,23 +448,20 @@ public class TruthTable {
     return (idx & (1 << (inputs - col - 1))) != 0;
   }
 
+  /** Returns a copy of the output column, with one entry per input index. */
   public Entry[] getOutputColumn(int col) {
-    var column = columns.get(col);
-    if (column == null) {
-      if (col < 0 || col >= getOutputColumnCount())
-        throw new IndexOutOfBoundsException("bad output column index");
-      column = new Entry[getRowCount()];
-      Arrays.fill(column, DEFAULT_ENTRY);
-      columns.set(col, column);
-    }
-    return column;
+    if (col < 0 || col >= getOutputColumnCount())
+      throw new IndexOutOfBoundsException("bad output column index");
+    final var ret = new Entry[getRowCount()];
+    for (var i = 0; i < ret.length; i++) ret[i] = getOutputEntry(i, col);
+    return ret;
   }
 
   private boolean identicalOutputs(int idx1, int idx2) {
     if (idx1 == idx2) return true;
     for (final var column : columns) {
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) return false;
+      if (column.get(idx1) != column.get(idx2)) return false;
     }
     return true;
   }
@@ -323,59 +471,71 @@ public class TruthTable {
     for (var col = 0; col < columns.size(); col++) {
       final var column = columns.get(col);
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) {
-        column[idx2] = column[idx1];
-        changed[col] = true;
-      }
+      if (column.set(idx2, column.get(idx1))) changed[col] = true;
     }
   }
 
   private boolean setDontCare(Row r, int dc, boolean force, boolean[] changed) {
-    final var newRow = new Row(r.baseIndex(), r.inputs.length, r.dcMask() | dc);
+    final var newRow = new Row(r.baseIndex(), r.numInputs, r.dcMask() | dc);
     final var base = newRow.baseIndex();
     if (!force) {
       for (final var idx : newRow) {
         if (!identicalOutputs(base, idx)) return false;
       }
     }
+    if (rows == null) {
+      // all rows hold a single index: those of the new row are merged, the others kept as they are
+      for (var col = 0; col < columns.size(); col++) {
+        final var column = columns.get(col);
+        if (column != null && column.copy(base, newRow)) changed[col] = true;
+      }
+      final var n = getRowCount();
+      rows = new RowList(r.numInputs, n - newRow.duplicity() + 1);
+      for (var i = 0; i < n; i++) {
+        if (i == base) rows.add(base, newRow.dcMask());
+        else if (!newRow.contains(i)) rows.add(i, 0);
+      }
+      return true;
+    }
     for (var i = 0; i < rows.size(); i++) {
+      final var either = newRow.dcMask() | rows.dcMask(i);
+      if ((rows.baseIndex(i) & ~either) != (base & ~either)) continue; // no intersection
       final var row = rows.get(i);
-      if (!newRow.intersects(row)) continue;
       if (newRow.contains(row)) {
         for (final var idx : row) mergeOutputs(base, idx, changed);
         rows.remove(i);
       } else {
         // find a bit we can flip in s so it doesn't conflict
         int pos;
-        for (pos = row.inputs.length - 1; pos >= 0; pos--) {
-          if (row.inputs[pos] == Entry.DONT_CARE && newRow.inputs[pos] != Entry.DONT_CARE) break;
+        for (pos = row.numInputs - 1; pos >= 0; pos--) {
+          if (row.input(pos) == Entry.DONT_CARE && newRow.input(pos) != Entry.DONT_CARE) break;
         }
         if (pos < 0) throw new IllegalStateException("failed row merge");
-        int bit = (1 << (row.inputs.length - 1 - pos));
+        int bit = (1 << (row.numInputs - 1 - pos));
         splitRow(row, row.baseIndex() ^ bit);
       }
       i--; // back up, may need a second split
     }
-    final var pos = Collections.binarySearch(rows, newRow, sortByInputs);
-    if (pos < 0) rows.add(-pos - 1, newRow);
+    final var pos = rows.find(base);
+    if (pos < 0) rows.add(-pos - 1, base, newRow.dcMask());
     else throw new IllegalStateException("failed row merge");
     return true;
   }
 
   public boolean setVisibleInputEntry(int row, int col, Entry value, boolean force) {
-    final var r = rows.get(row);
-    if (r.inputs[col] == value) return false;
-    final var dc = (1 << (r.inputs.length - 1 - col));
+    final var r = getRow(row);
+    if (r.input(col) == value) return false;
+    final var dc = (1 << (r.numInputs - 1 - col));
     if (value == Entry.DONT_CARE) {
       final var changed = new boolean[columns.size()];
       if (!setDontCare(r, dc, force, changed)) return false;
       fireRowsChanged();
       for (int ocol = 0; ocol < columns.size(); ocol++) {
-        if (changed[ocol]) fireCellsChanged(ocol);
+        if (changed[ocol]) fireCellsChanged(ocol, r.baseIndex() & ~dc, r.dcMask() | dc);
       }
       return true;
     } else if (value == Entry.ONE || value == Entry.ZERO) {
-      if (r.inputs[col] != Entry.DONT_CARE) return false;
+      if (r.input(col) != Entry.DONT_CARE) return false;
       splitRow(r, r.baseIndex() | dc);
       fireRowsChanged();
       return true;
@@ -385,31 +545,27 @@ public class TruthTable {
   }
 
   public void setVisibleOutputEntry(int row, int col, Entry value) {
-    final var r = rows.get(row);
-    var column = columns.get(col);
-    if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
+    final var r = getRow(row);
+    if (columns.get(col) == null && value == DEFAULT_ENTRY) return;
+    final var column = getColumn(col);
     var changed = false;
     for (Integer idx : r) {
-      if (column[idx] == value) continue;
-      changed = true;
-      column[idx] = value;
+      if (column.set(idx, value)) changed = true;
     }
-    if (changed) fireCellsChanged(col);
+    if (changed) fireCellsChanged(col, r.baseIndex(), r.dcMask());
   }
 
   Row findRow(int idx) {
-    for (var i = rows.size() - 1; i >= 0; i--) {
-      final var r = rows.get(i);
-      if (r.contains(idx)) return r;
-    }
-    throw new IllegalStateException("missing row");
+    return getRow(findVisibleRowContaining(idx));
   }
 
   public int findVisibleRowContaining(int idx) {
+    if (rows == null) {
+      if (idx < 0 || idx >= getRowCount()) throw new IllegalStateException("missing row");
+      return idx;
+    }
     for (var i = rows.size() - 1; i >= 0; i--) {
-      final var r = rows.get(i);
-      if (r.contains(idx)) return i;
+      if ((idx & ~rows.dcMask(i)) == rows.baseIndex(i)) return i;
     }
     throw new IllegalStateException("missing row");
   }
@@ -469,18 +625,16 @@ public class TruthTable {
     }
 
     newRows.sort(sortByInputs);
-    rows.clear();
-    rows = newRows;
+    setRows(newRows, ni);
     initColumns();
 
     for (Entry[] values : newEntries) {
       final var r = new Row(values, ni);
       for (var col = 0; col < no; col++) {
         final var value = values[ni + col];
-        var column = columns.get(col);
-        if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
-        for (final var idx : r) column[idx] = value;
+        if (columns.get(col) == null && value == DEFAULT_ENTRY) continue;
+        final var column = getColumn(col);
+        for (final var idx : r) column.set(idx, value);
       }
     }
     fireRowsChanged();
@@ -490,17 +644,15 @@ public class TruthTable {
   }
 
   public void setOutputEntry(int idx, int col, Entry value) {
-    var column = columns.get(col);
-    if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
-    if (column[idx] == value) return;
-    column[idx] = value;
+    if (columns.get(col) == null && value == DEFAULT_ENTRY) return;
+    if (!getColumn(col).set(idx, value)) return;
     final var r = findRow(idx);
     if (r.duplicity() > 1) {
-      splitRow(r, idx);
+      // split the row into single entries, the others keeping their value
+      splitRow(r, r.baseIndex() | r.dcMask());
       fireRowsChanged();
     }
-    fireCellsChanged(col);
+    fireCellsChanged(col, idx, 0);
   }
 
   private class MyListener implements VariableListListener {
@@ -509,12 +661,6 @@ public class TruthTable {
     public void listChanged(VariableListEvent event) {
       if (event.getSource() == model.getInputs()) {
         inputsChanged(event);
-        for (var col = 0; col < columns.size(); col++) {
-          var column = columns.get(col);
-          if (column == null) continue;
-          column = inputsChangedForOutput(column, event);
-          columns.set(col, column);
-        }
         fireRowsChanged();
       } else {
         outputsChanged(event);
@@ -595,7 +741,34 @@ public class TruthTable {
       }
     }
 
+    // rows and columns are changed together for each bit, as merging rows changes the columns
+
     private void moveInput(int oldIndex, int newIndex) {
+      moveInputForRows(oldIndex, newIndex);
+      for (var col = 0; col < columns.size(); col++) {
+        final var column = columns.get(col);
+        if (column != null) columns.set(col, moveInputForOutput(column, oldIndex, newIndex));
+      }
+    }
+
+    private void addInput(int index, int oldCount) {
+      addInputForRows(index, oldCount);
+      for (var col = 0; col < columns.size(); col++) {
+        final var column = columns.get(col);
+        if (column != null) columns.set(col, addInputForOutput(column, index, oldCount));
+      }
+    }
+
+    private void removeInput(int index, int oldCount) {
+      removeInputForRows(index, oldCount);
+      for (var col = 0; col < columns.size(); col++) {
+        final var column = columns.get(col);
+        if (column != null) columns.set(col, removeInputForOutput(column, index, oldCount));
+      }
+    }
+
+    private void moveInputForRows(int oldIndex, int newIndex) {
+      if (rows == null) return; // still all visible
       final var inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
@@ -608,10 +781,10 @@ public class TruthTable {
       final var moveDist = Math.abs(newIndex - oldIndex);
       final var moveLeft = newIndex > oldIndex;
       final var blockMask = allMask ^ sameMask ^ moveMask; // bits that move by one
-      ArrayList<Row> ret = new ArrayList<>(2 * rows.size());
-      for (final var row : rows) {
-        final var i = row.baseIndex();
-        final var dc = row.dcMask();
+      ArrayList<Row> ret = new ArrayList<>(rows.size());
+      for (var pos = 0; pos < rows.size(); pos++) {
+        final var i = rows.baseIndex(pos);
+        final var dc = rows.dcMask(pos);
         int idx0;
         int dc0;
         if (moveLeft) {
@@ -624,15 +797,16 @@ public class TruthTable {
         ret.add(new Row(idx0, inputs, dc0));
       }
       ret.sort(sortByInputs);
-      rows = ret;
+      setRows(ret, inputs);
     }
 
-    private void addInput(int index, int oldCount) {
+    private void addInputForRows(int index, int oldCount) {
+      if (rows == null) return; // still all visible
       // add another Entry column to each row.input
       final var ret = new ArrayList<Row>(2 * rows.size());
-      for (final var row : rows) {
-        final var i = row.baseIndex();
-        final var dc = row.dcMask();
+      for (var pos = 0; pos < rows.size(); pos++) {
+        final var i = rows.baseIndex(pos);
+        final var dc = rows.dcMask(pos);
         final var b = 1 << (oldCount - index); // _0001000
         var mask = b - 1; // _0000111
         final var idx0 = ((i & ~mask) << 1) | 0 | (i & mask); // xxxx0yyy
@@ -641,10 +815,11 @@ public class TruthTable {
         ret.add(new Row(idx0 | b, oldCount + 1, dc0)); // xxxx1yyy
       }
       ret.sort(sortByInputs);
-      rows = ret;
+      setRows(ret, oldCount + 1);
     }
 
-    private void removeInput(int index, int oldCount) {
+    private void removeInputForRows(int index, int oldCount) {
+      if (rows == null) return; // still all visible, removeInputForOutput merges the outputs
       // force an Entry column of each row.input to 'x', then remove it
       final var b = (1 << (oldCount - 1 - index)); // _0001000
       final var changed = new boolean[columns.size()];
@@ -652,106 +827,66 @@ public class TruthTable {
       //noinspection ForLoopReplaceableByForEach
       for (var i = 0; i < rows.size(); ++i) {
         final var r = rows.get(i);
-        if (r.inputs[index] == Entry.DONT_CARE) continue;
+        if (r.input(index) == Entry.DONT_CARE) continue;
         setDontCare(r, b, true, changed); // mutates row
       }
       final var mask = b - 1; // _0000111
       final var ret = new ArrayList<Row>(rows.size());
-      for (final var r : rows) {
-        final var i = r.baseIndex();
-        final var dc = r.dcMask();
+      for (var pos = 0; pos < rows.size(); pos++) {
+        final var i = rows.baseIndex(pos);
+        final var dc = rows.dcMask(pos);
         final var idx0 = ((i >> 1) & ~mask) | (i & mask); // __xxxyyy
         final var dc0 = ((dc >> 1) & ~mask) | (dc & mask); // wwww0zzz
         ret.add(new Row(idx0, oldCount - 1, dc0));
       }
       ret.sort(sortByInputs);
-      rows = ret;
+      setRows(ret, oldCount - 1);
     }
 
-    private Entry[] inputsChangedForOutput(Entry[] column, VariableListEvent event) {
-      final var v = event.getVariable();
-      final var action = event.getType();
-      if (action == VariableListEvent.ADD) {
-        var bitIndex = event.getBitIndex();
-        var oldCount = getInputColumnCount() - v.width;
-        for (int b = v.width - 1; b >= 0; b--)
-          column = addInputForOutput(column, bitIndex - b, oldCount++);
-      } else if (action == VariableListEvent.REMOVE) {
-        final var bitIndex = event.getBitIndex();
-        var oldCount = getInputColumnCount() + v.width;
-        for (int b = 0; b < v.width; b++)
-          column = removeInputForOutput(column, bitIndex - b, oldCount--);
-      } else if (action == VariableListEvent.MOVE) {
-        final var delta = event.getBitIndex();
-        final var newIndex = getInputIndex(v.bitName(0));
-        if (delta > 0) {
-          for (int b = 0; b < v.width; b++)
-            column = moveInputForOutput(column, newIndex - delta - b, newIndex - b);
-        } else if (delta < 0) {
-          for (var b = v.width - 1; b >= 0; b--)
-            column = moveInputForOutput(column, newIndex - delta - b, newIndex - b);
-        }
-      } else if (action == VariableListEvent.REPLACE) {
-        final var bitIndex = event.getBitIndex();
-        final var newVar = getInputVariable(event.getIndex());
-        var lost = v.width - newVar.width;
-        var oldCount = getInputColumnCount() + lost;
-        final var pos = bitIndex + 1 - v.width;
-        if (lost > 0) {
-          while (lost-- != 0) column = removeInputForOutput(column, pos, oldCount--);
-        } else if (lost < 0) {
-          while (lost++ != 0) column = addInputForOutput(column, pos, oldCount++);
-        }
-      }
-      return column;
-    }
-
-    private Entry[] moveInputForOutput(Entry[] old, int oldIndex, int newIndex) {
+    private Column moveInputForOutput(Column old, int oldIndex, int newIndex) {
       final var inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
-      final var ret = new Entry[old.length];
+      final var ret = new Column(old.size);
       final var sameMask =
-          (old.length - 1)
+          (old.size - 1)
               ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
               ^ ((1 << Math.min(oldIndex, newIndex)) - 1); // bits that don't change
       final var moveMask = 1 << oldIndex; // bit that moves
       final var moveDist = Math.abs(newIndex - oldIndex);
       final var moveLeft = newIndex > oldIndex;
-      final var blockMask = (old.length - 1) ^ sameMask ^ moveMask; // bits that move by one
-      for (var i = 0; i < old.length; i++) {
+      final var blockMask = (old.size - 1) ^ sameMask ^ moveMask; // bits that move by one
+      for (var i = 0; i < old.size; i++) {
         int j; // new index
         if (moveLeft) {
           j = (i & sameMask) | ((i & moveMask) << moveDist) | ((i & blockMask) >> 1);
         } else {
           j = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
         }
-        ret[j] = old[i];
+        ret.set(j, old.get(i));
       }
       return ret;
     }
 
-    private Entry[] removeInputForOutput(Entry[] old, int index, int oldCount) {
-      var ret = new Entry[old.length / 2];
+    private Column removeInputForOutput(Column old, int index, int oldCount) {
+      // keeps the outputs where the input is 0, as removeInputForRows does when merging rows
+      final var ret = new Column(old.size / 2);
       var j = 0;
       final var mask = 1 << (oldCount - 1 - index);
-      for (var i = 0; i < old.length; i++) {
-        if ((i & mask) == 0) {
-          Entry e0 = old[i];
-          Entry e1 = old[i | mask];
-          ret[j++] = (e0 == e1 ? e0 : Entry.DONT_CARE);
-        }
+      for (var i = 0; i < old.size; i++) {
+        if ((i & mask) == 0) ret.set(j++, old.get(i));
       }
       return ret;
     }
 
-    private Entry[] addInputForOutput(Entry[] old, int index, int oldCount) {
-      final var ret = new Entry[2 * old.length];
+    private Column addInputForOutput(Column old, int index, int oldCount) {
+      final var ret = new Column(2 * old.size);
       final var b = 1 << (oldCount - index); // _0001000
       final var mask = b - 1; // _0000111
-      for (var i = 0; i < old.length; i++) {
-        ret[((i & ~mask) << 1) | 0 | (i & mask)] = old[i]; // xxxx0yyy
-        ret[((i & ~mask) << 1) | b | (i & mask)] = old[i]; // xxxx1yyy
+      for (var i = 0; i < old.size; i++) {
+        final var value = old.get(i);
+        ret.set(((i & ~mask) << 1) | 0 | (i & mask), value); // xxxx0yyy
+        ret.set(((i & ~mask) << 1) | b | (i & mask), value); // xxxx1yyy
       }
       return ret;
     }
@@ -779,6 +914,14 @@ public class TruthTable {
     }
   }
 
+  /** Tells that only the entries of the column that match idx outside of dcMask changed. */
+  private void fireCellsChanged(int col, int idx, int dcMask) {
+    final var event = new TruthTableEvent(this, col, idx, dcMask);
+    for (TruthTableListener l : listeners) {
+      l.cellsChanged(event);
+    }
+  }
+
   private void fireStructureChanged(VariableListEvent cause) {
     final var event = new TruthTableEvent(this, cause);
     for (TruthTableListener l : listeners) {
@@ -831,6 +974,6 @@ public class TruthTable {
   }
 
   public int getVisibleRowCount() {
-    return rows.size();
+    return rows == null ? getRowCount() : rows.size();
   }
 }
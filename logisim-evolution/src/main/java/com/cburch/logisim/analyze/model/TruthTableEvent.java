@@ -12,14 +12,21 @@ package com.cburch.logisim.analyze.model;
 // NOTE: silly members' names are mostly to avoid refactoring of the whole codebase due to record's
 // getters not using Bean naming convention (so i.e. `foo()` instead of `getFoo()`. We may change
 // that in future, but for now it looks stupid in this file only.
-public record TruthTableEvent(TruthTable getSource, int getColumn, VariableListEvent getData) {
+//
+// For cell changes, the changed entries of the column are those whose index matches getIndex on
+// all bits outside of getDcMask; a mask of -1 stands for the whole column.
+public record TruthTableEvent(
+    TruthTable getSource, int getColumn, VariableListEvent getData, int getIndex, int getDcMask) {
 
   public TruthTableEvent(TruthTable source, int column) {
-    this(source, column, null);
+    this(source, column, null, 0, -1);
   }
 
-  public TruthTableEvent(TruthTable source, VariableListEvent data) {
-    this(source, 0, data);
+  public TruthTableEvent(TruthTable source, int column, int index, int dcMask) {
+    this(source, column, null, index, dcMask);
   }
 
+  public TruthTableEvent(TruthTable source, VariableListEvent data) {
+    this(source, 0, data, 0, -1);
+  }
 }
@@ -15,8 +15,8 @@ import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
-import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.Var;
+import com.cburch.logisim.circuit.TruthTableSimulator.RowListener;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
@@ -26,6 +26,7 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.base.Text;
 import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.UniquelyNamedThread;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -35,8 +36,13 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import javax.swing.SwingUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Analyze {
+  static final Logger logger = LoggerFactory.getLogger(Analyze.class);
+
   public static class LocationBit {
     final Location loc;
     final int bit;
@@ -111,11 +117,42 @@ public class Analyze {
    * difficulties arise.
    */
   public static void computeExpression(AnalyzerModel model, Circuit circuit, Map<Instance, String> pinNames) throws AnalyzeException {
-    final var expressionMap = new ExpressionMap(circuit);
-
     final var inputVars = new ArrayList<Var>();
     final var outputVars = new ArrayList<Var>();
     final var outputPins = new ArrayList<Instance>();
+    for (final var entry : pinNames.entrySet()) {
+      final var pin = entry.getKey();
+      final var label = entry.getValue();
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      if (Pin.FACTORY.isInputPin(pin)) {
+        inputVars.add(new Var(label, width));
+      } else {
+        outputPins.add(pin);
+        outputVars.add(new Var(label, width));
+      }
+    }
+
+    final var expressionMap = computeExpressionMap(circuit, pinNames);
+
+    model.setVariables(inputVars, outputVars);
+    for (final var pin : outputPins) {
+      final var label = pinNames.get(pin);
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      for (var b = 0; b < width; b++) {
+        final var loc = new LocationBit(pin.getLocation(), b);
+        final var name = (width > 1 ? label + "[" + b + "]" : label);
+        model.getOutputExpressions().setExpression(name, expressionMap.get(loc));
+      }
+    }
+  }
+
+  /**
+   * Computes the expression of every point of the circuit, with each bit of an input pin being a
+   * variable named after its label in pinNames (with a "[bit]" suffix for multi-bit pins). Raises
+   * AnalyzeException if the circuit is not purely combinational.
+   */
+  static Map<LocationBit, Expression> computeExpressionMap(Circuit circuit, Map<Instance, String> pinNames) throws AnalyzeException {
+    final var expressionMap = new ExpressionMap(circuit);
     for (final var entry : pinNames.entrySet()) {
       final var pin = entry.getKey();
       final var label = entry.getValue();
@@ -126,10 +163,6 @@ public class Analyze {
           final var e = Expressions.variable(width > 1 ? label + "[" + b + "]" : label);
           expressionMap.put(new LocationBit(pin.getLocation(), b), e);
         }
-        inputVars.add(new Var(label, width));
-      } else {
-        outputPins.add(pin);
-        outputVars.add(new Var(label, width));
       }
     }
 
@@ -150,23 +183,17 @@ public class Analyze {
       final var expr = checkForCircularExpressions(expressionMap);
       if (expr != null) throw new AnalyzeException.Circular();
     }
-
-    model.setVariables(inputVars, outputVars);
-    for (final var pin : outputPins) {
-      final var label = pinNames.get(pin);
-      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-      for (var b = 0; b < width; b++) {
-        final var loc = new LocationBit(pin.getLocation(), b);
-        final var name = (width > 1 ? label + "[" + b + "]" : label);
-        model.getOutputExpressions().setExpression(name, expressionMap.get(loc));
-      }
-    }
+    return expressionMap;
   }
 
   //
   // ComputeTable
   //
-  /** Returns a truth table corresponding to the circuit. */
+  /**
+   * Computes the truth table of the circuit into the model. Called on the AWT thread, which only
+   * prepares the simulation: the rows are simulated on a background thread, and the table is set
+   * in the model, back on the AWT thread, once they are all done.
+   */
   public static void computeTable(AnalyzerModel model, Project proj, Circuit circuit, Map<Instance, String> pinLabels) {
     final var inputPins = new ArrayList<Instance>();
     final var inputVars = new ArrayList<Var>();
@@ -193,58 +220,50 @@ public class Analyze {
     final var rowCount = 1 << inputCount;
     final var columns = new Entry[outputNames.size()][rowCount];
 
-    for (var i = 0; i < rowCount; i++) {
-      final var circuitState = CircuitState.createRootState(proj, circuit, Thread.currentThread());
-      final var prop = circuitState.getPropagator();
-      var incol = 0;
-      for (final var pin : inputPins) {
-        final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-        final var v = new Value[width];
-        for (var b = width - 1; b >= 0; b--) {
-          var value = TruthTable.isInputSet(i, incol++, inputCount);
-          v[b] = value ? Value.TRUE : Value.FALSE;
-        }
-        final var pinState = circuitState.getInstanceState(pin);
-        Pin.FACTORY.driveInputPin(pinState, Value.create(v));
-      }
-
-      prop.propagate();
-      /*
-       * TODO for the SimulatorPrototype class do { prop.step(); } while
-       * (prop.isPending());
-       */
-      // TODO: Search for circuit state
-
-      if (prop.isOscillating()) {
+    final var simulator = new TruthTableSimulator(proj, circuit, inputPins, outputPins);
+    final RowListener listener = (row, inputs, outputs, oscillating) -> {
+      if (oscillating) {
         for (var j = 0; j < columns.length; j++) {
-          columns[j][i] = Entry.OSCILLATE_ERROR;
+          columns[j][row] = Entry.OSCILLATE_ERROR;
         }
-      } else {
-        var outcol = 0;
-        for (final var pin : outputPins) {
-          int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-          final var pinState = circuitState.getInstanceState(pin);
-          Entry out;
-          for (int b = width - 1; b >= 0; b--) {
-            final var outValue = Pin.FACTORY.getValue(pinState).get(b);
-            if (outValue == Value.TRUE)
-              out = Entry.ONE;
-            else if (outValue == Value.FALSE)
-              out = Entry.ZERO;
-            else if (outValue == Value.ERROR)
-              out = Entry.BUS_ERROR;
-            else
-              out = Entry.DONT_CARE;
-            columns[outcol++][i] = out;
-          }
+        return;
+      }
+      var outcol = 0;
+      for (final var outValue : outputs) {
+        for (var b = outValue.getWidth() - 1; b >= 0; b--) {
+          final var bit = outValue.get(b);
+          final Entry out;
+          if (bit == Value.TRUE)
+            out = Entry.ONE;
+          else if (bit == Value.FALSE)
+            out = Entry.ZERO;
+          else if (bit == Value.ERROR)
+            out = Entry.BUS_ERROR;
+          else
+            out = Entry.DONT_CARE;
+          columns[outcol++][row] = out;
         }
       }
-    }
-
-    model.setVariables(inputVars, outputVars);
-    for (var i = 0; i < columns.length; i++) {
-      model.getTruthTable().setOutputColumn(i, columns[i]);
-    }
+    };
+
+    final var thread = new UniquelyNamedThread(() -> {
+      try {
+        simulator.run(listener);
+      } catch (RuntimeException e) {
+        logger.error("Truth table simulation failed: {}", e.getMessage());
+        SwingUtilities.invokeLater(simulator::dispose);
+        return;
+      }
+      SwingUtilities.invokeLater(() -> {
+        simulator.dispose();
+        model.setVariables(inputVars, outputVars);
+        for (var i = 0; i < columns.length; i++) {
+          model.getTruthTable().setOutputColumn(i, columns[i]);
+        }
+      });
+    }, "TruthTableSimulator-run");
+    thread.setDaemon(true);
+    thread.start();
   }
 
   // computes outputs of affected components
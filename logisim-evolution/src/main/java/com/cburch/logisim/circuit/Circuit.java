@@ -102,15 +102,22 @@ public class Circuit {
   private class MyComponentListener implements ComponentListener {
     @Override
     public void componentInvalidated(ComponentEvent e) {
+      compGrid.update(e.getSource());
       fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
     }
 
+    @Override
+    public void boundsChanged(ComponentEvent e) {
+      compGrid.update(e.getSource());
+    }
+
     @Override
     public void endChanged(ComponentEvent e) {
       locker.checkForWritePermission("ends changed", Circuit.this);
       isAnnotated = false;
       myNetList.clear();
       final var comp = e.getSource();
+      compGrid.update(comp);
       final var toRemove = toMap(e.getOldData());
       final var toAdd = toMap(e.getData());
       final var xn = new EndChangedTransaction(comp, toRemove, toAdd);
@@ -134,6 +141,7 @@ public class Circuit {
 
     @Override
     public void labelChanged(ComponentEvent e) {
+      compGrid.update(e.getSource());
       final var attrEvent = (AttributeEvent) e.getData();
       if (attrEvent.getSource() == null || attrEvent.getValue() == null) return;
       final var newLabel = (String) attrEvent.getValue();
@@ -219,6 +227,8 @@ public class Circuit {
   }
 
   private static final int maxTimeoutTestBenchSec = 60000;
+  // components are drawn if their area is this close to the clip, for strokes and highlights
+  private static final int DRAW_MARGIN = 10;
   private final MyComponentListener myComponentListener = new MyComponentListener();
   private final CircuitAppearance appearance;
   private final AttributeSet staticAttrs;
@@ -226,6 +236,9 @@ public class Circuit {
   private final EventSourceWeakSupport<CircuitListener> listeners = new EventSourceWeakSupport<>();
   private LinkedHashSet<Component> comps = new LinkedHashSet<>(); // doesn't include wires
   CircuitWires wires = new CircuitWires();
+  // spatial indexes of comps and of the wires, for drawing and lookups
+  private final ComponentGrid compGrid = new ComponentGrid();
+  private final ComponentGrid wireGrid = new ComponentGrid();
   private final List<Component> clocks = new ArrayList<>();
   private final CircuitLocker locker;
 
@@ -236,6 +249,17 @@ public class Circuit {
   private boolean isAnnotated;
   private Project proj;
   private final SocSimulationManager socSim = new SocSimulationManager();
+  /** Compiled form used by the levelized engine, null until needed or after any change. */
+  private volatile LevelizedCircuit levelized;
+  private volatile int levelizedChanges;
+  /** Thread safety of this circuit's own components, null until needed or after any change. */
+  private volatile ThreadSafety threadSafety;
+
+  /**
+   * Whether the factories of a circuit's components, subcircuits aside, are all thread-safe, and
+   * the circuits of its subcircuits.
+   */
+  private record ThreadSafety(boolean components, Set<Circuit> subcircuits) {}
 
   private final LogisimFile logiFile;
 
@@ -469,8 +493,12 @@ public class Circuit {
     context.setGraphics(gCopy);
     wires.draw(context, hidden);
 
+    // only the components that may show within the clip are drawn
+    final var clip = g.getClipBounds();
+    final Collection<Component> visible =
+        clip == null ? comps : compGrid.find(Bounds.create(clip).expand(DRAW_MARGIN));
     if (CollectionUtil.isNullOrEmpty(hidden)) {
-      for (final var c : comps) {
+      for (final var c : visible) {
         final var gNew = g.create();
         context.setGraphics(gNew);
         gCopy.dispose();
@@ -479,7 +507,7 @@ public class Circuit {
         c.draw(context);
       }
     } else {
-      for (final var c : comps) {
+      for (final var c : visible) {
         if (!hidden.contains(c)) {
           final var gNew = g.create();
           context.setGraphics(gNew);
@@ -500,6 +528,11 @@ public class Circuit {
   }
 
   private void fireEvent(CircuitEvent event) {
+    if (event.getAction() != CircuitEvent.ACTION_DISPLAY_CHANGE) {
+      levelizedChanges++;
+      levelized = null;
+      threadSafety = null;
+    }
     for (final var l : listeners) {
       l.circuitChanged(event);
     }
@@ -513,9 +546,98 @@ public class Circuit {
     fireEvent(CircuitEvent.ACTION_DISPLAY_CHANGE, null);
   }
 
+  /**
+   * Tells whether states of this circuit can be simulated on a parallel worker, alongside sibling
+   * states. Every component, down through the subcircuits, must have a thread-safe factory, which
+   * rules out SoC components: they share this circuit's simulation manager and static assemblers.
+   * Subcircuits are ruled out while the levelized engine is on, since all instances of a circuit
+   * share its compiled form. Returns false, without caching anything, while the circuit is being
+   * changed.
+   */
+  boolean isThreadSafe() {
+    return isThreadSafe(new HashSet<>());
+  }
+
+  private boolean isThreadSafe(Set<Circuit> visited) {
+    if (!visited.add(this)) return true;
+    var safety = threadSafety;
+    if (safety == null) {
+      final var lock = locker.tryReadLock();
+      if (lock == null) return false;
+      try {
+        final var changes = levelizedChanges;
+        var components = true;
+        final var subcircuits = new HashSet<Circuit>();
+        for (final var comp : getNonWires()) {
+          if (comp.getFactory() instanceof SubcircuitFactory sub) {
+            subcircuits.add(sub.getSubcircuit());
+          } else if (!comp.getFactory().isThreadSafe()) {
+            components = false;
+            break;
+          }
+        }
+        safety = new ThreadSafety(components, subcircuits);
+        if (changes == levelizedChanges) threadSafety = safety;
+      } finally {
+        lock.unlock();
+      }
+    }
+    if (!safety.components()) return false;
+    if (!safety.subcircuits().isEmpty() && LevelizedCircuit.isEnabled()) {
+      return false;
+    }
+    for (final var sub : safety.subcircuits()) {
+      if (!sub.isThreadSafe(visited)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the compiled form of this circuit for the levelized simulation engine, or null if the
+   * circuit is not purely combinational or can't be compiled at the moment. The result is cached
+   * until the circuit changes.
+   */
+  LevelizedCircuit getLevelizedCircuit() {
+    var ret = levelized;
+    if (ret == null) {
+      final var changes = levelizedChanges;
+      ret = LevelizedCircuit.compile(this);
+      if (ret == null) return null;
+      if (changes == levelizedChanges) levelized = ret;
+    }
+    return ret == LevelizedCircuit.NOT_COMBINATIONAL ? null : ret;
+  }
+
+  /**
+   * Tells whether the circuit is purely combinational, its outputs depending on nothing but its
+   * inputs. Unlike getLevelizedCircuit(), this always gives the same answer for the same circuit,
+   * but may wait for the AWT thread; see LevelizedCircuit.compileNow(). Gives false if
+   * interrupted while waiting.
+   */
+  boolean isCombinational() {
+    var ret = levelized;
+    if (ret == null) {
+      final var changes = levelizedChanges;
+      ret = LevelizedCircuit.compileNow(this);
+      if (ret == null) return false;
+      if (changes == levelizedChanges) levelized = ret;
+    }
+    return ret != LevelizedCircuit.NOT_COMBINATIONAL;
+  }
+
+  /**
+   * Returns the components and wires that may lie in the rectangle, components first, as
+   * getComponents() lists them.
+   */
+  private List<Component> getCandidates(Bounds bds) {
+    final var ret = compGrid.find(bds);
+    ret.addAll(wireGrid.find(bds));
+    return ret;
+  }
+
   public Collection<Component> getAllContaining(Location pt) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : getCandidates(Bounds.create(pt).expand(1))) {
       if (comp.contains(pt)) ret.add(comp);
     }
     return ret;
@@ -523,7 +645,7 @@ public class Circuit {
 
   public Collection<Component> getAllContaining(Location pt, Graphics g) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : getCandidates(Bounds.create(pt).expand(1))) {
       if (comp.contains(pt, g)) ret.add(comp);
     }
     return ret;
@@ -531,7 +653,7 @@ public class Circuit {
 
   public Collection<Component> getAllWithin(Bounds bds) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : getCandidates(bds)) {
       if (bds.contains(comp.getBounds())) ret.add(comp);
     }
     return ret;
@@ -539,7 +661,7 @@ public class Circuit {
 
   public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
     final var ret = new LinkedHashSet<Component>();
-    for (final var comp : getComponents()) {
+    for (final var comp : getCandidates(bds)) {
       if (bds.contains(comp.getBounds(g))) ret.add(comp);
     }
     return ret;
@@ -771,6 +893,7 @@ public class Circuit {
       if (wire.getEnd0().equals(wire.getEnd1())) return;
       var added = wires.add(wire);
       if (!added) return;
+      wireGrid.add(wire);
     } else {
       // add it into the circuit
       var added = comps.add(c);
@@ -808,6 +931,7 @@ public class Circuit {
         final var vhdl = vhdlEntity;
         vhdl.addCircuitUsing(c, this);
       }
+      compGrid.add(c);
       c.addComponentListener(myComponentListener);
     }
     removeWrongLabels(c.getFactory().getName());
@@ -820,6 +944,8 @@ public class Circuit {
     final var oldComps = comps;
     comps = new LinkedHashSet<>();
     wires = new CircuitWires();
+    compGrid.clear();
+    wireGrid.clear();
     clocks.clear();
     myNetList.clear();
     isAnnotated = false;
@@ -838,9 +964,11 @@ public class Circuit {
     myNetList.clear();
     if (c instanceof Wire) {
       wires.remove(c);
+      wireGrid.remove(c);
     } else {
       wires.remove(c);
       comps.remove(c);
+      compGrid.remove(c);
       socSim.removeComponent(c);
       final var factory = c.getFactory();
       factory.removeComponent(this, c, proj.getCircuitState(this));
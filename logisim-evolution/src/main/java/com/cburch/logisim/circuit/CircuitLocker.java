@@ -117,6 +117,21 @@ public class CircuitLocker {
     }
   }
 
+  /**
+   * Takes the read lock without waiting, for readers on the simulation thread, which must not
+   * block on a transaction in progress. Returns null if the lock is not available.
+   */
+  Lock tryReadLock() {
+    final var lock = circuitLock.readLock();
+    return lock.tryLock() ? lock : null;
+  }
+
+  Lock readLock() {
+    final var lock = circuitLock.readLock();
+    lock.lock();
+    return lock;
+  }
+
   CircuitMutatorImpl getMutator() {
     return mutatingMutator;
   }
@@ -32,7 +32,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -105,10 +104,6 @@ public class CircuitState implements InstanceData {
           }
         }
         componentData.clear();
-        synchronized (valuesLock) {
-          slowpathValues.clear(); // slow path
-          clearFastpathGrid(); // fast path
-        }
         synchronized (dirtyLock) {
           dirtyComponents.clear();
           dirtyPoints.clear();
@@ -168,28 +163,23 @@ public class CircuitState implements InstanceData {
 
   /** subcircuit component containing this */
   private Component parentComp = null;
+
+  /** Set while the user looks at the values inside this substate, see markObserved() */
+  private volatile boolean observed = false;
   // state
 
-  private CircuitWires.State wireData = null;
+  // wireData holds the values resulting from propagation *within* this
+  // circuit, i.e. the outputs of components in this circuit together with the
+  // values carried on wires and buses in this circuit. When components embedded
+  // in this circuit are called upon to re-calculate / propagate, the components
+  // will call getValue() to pick out values from the buses. These are the values
+  // you would see if you stick a probe at some location on the circuit sheet.
+  // Only the propagation thread writes them; each bus publishes its value
+  // through a volatile field, so getValue() never takes a lock, and it costs
+  // the same anywhere on the canvas.
+  private volatile CircuitWires.State wireData = null;
   private final HashMap<Component, Object> componentData = new HashMap<>();
 
-  private static final int FASTPATH_GRID_WIDTH = 200;
-  private static final int FASTPATH_GRID_HEIGHT = 200;
-
-  // slowpathValues and fastpathValues store values resulting from propagation
-  // *within* this circuit, i.e. the outputs of componnents in this circuit
-  // together with the values carried on wires and buses in this circuit. When
-  // components embedded in this circuit are called upon to re-calculate /
-  // propagate, the components will call getValue() to pick out values from
-  // these data structures. These are the values you would see if you stick a
-  // probe at some location on the circuit sheet. They are protected by valuesLock.
-  /** values propagated in this circuit. Protected by valuesLock */
-  private Map<Location, Value> slowpathValues = new HashMap<>();
-  /** values propagated in this circuit. Protected by valuesLock */
-  private Value[][] fastpathValues = new Value[FASTPATH_GRID_HEIGHT][FASTPATH_GRID_WIDTH];
-  /** Protects slowPathValues and fastPathValues */
-  private final Object valuesLock = new Object();
-
   // dirtyComponents, dirtyPoints, and substates are components being marked as dirty.
   // They will later be shifted to the working sets to be processed.
   // They are protected by dirtyLock
@@ -286,27 +276,20 @@ public class CircuitState implements InstanceData {
         this.componentData.put(key, newValue);
       }
     }
-    // note: we don't bother with our this.valuesLock here: it isn't needed
-    // (b/c no other threads have a reference to this yet), and to avoid the
-    // possibility of deadlock (though that shouldn't happen either since no
-    // other threads have references to this yet).
-    this.slowpathValues.clear(); // slow path
-    synchronized (src.valuesLock) {
-      this.slowpathValues.putAll(src.slowpathValues); // slow path
-      for (var y = 0; y < FASTPATH_GRID_HEIGHT; y++) { // fast path
-        System.arraycopy(src.fastpathValues[y], 0, this.fastpathValues[y], 0, FASTPATH_GRID_WIDTH);
-      }
-    }
     synchronized (src.dirtyLock) {
       // note: we don't bother with our this.dirtyLock here: it isn't needed
       // (b/c no other threads have a reference to this yet), and to avoid the
       // possibility of deadlock (though that shouldn't happen either since no
       // other threads have references to this yet).
       this.dirtyComponents.addAll(src.dirtyComponents);
-      this.dirtyPoints.addAll(src.dirtyPoints);
+      // events are owned (and eventually recycled) by the Propagator that created them
+      for (final var ev : src.dirtyPoints) {
+        this.dirtyPoints.add(ev.cloneFor(this));
+      }
     }
     if (src.wireData != null) {
-      this.wireData = circuit.wires.newState(this); // all buses will be marked as dirty
+      // all buses will be marked as dirty, but keep showing the values of src until recomputed
+      this.wireData = circuit.wires.newState(src);
     }
   }
 
@@ -379,34 +362,41 @@ public class CircuitState implements InstanceData {
     return parentComp;
   }
 
+  /**
+   * Called when the values inside this substate are displayed or logged. The levelized engine
+   * computes the outputs of purely combinational subcircuits without updating their substates, so
+   * an observed substate is propagated normally until releaseObserved() is called, and its
+   * subcircuit component is marked dirty to bring it up to date with the current inputs.
+   *
+   * @return true if the state was not observed before, in which case the simulator should be
+   *     nudged.
+   */
+  public boolean markObserved() {
+    if (observed || parentState == null) return false;
+    observed = true;
+    parentState.markComponentAsDirty(parentComp);
+    return true;
+  }
+
+  /**
+   * Called when the values inside this substate are no longer displayed, so that the levelized
+   * engine may compute its outputs again. The substate then falls behind its inputs until it is
+   * observed again.
+   */
+  public void releaseObserved() {
+    observed = false;
+  }
+
+  boolean isObserved() {
+    return observed;
+  }
+
   public Set<CircuitState> getSubstates() { // returns Set of CircuitStates
     return substates;
   }
 
   public Value getValue(Location p) {
-    Value value = null;
-    if (p.x >= 0 && p.y >= 0
-        && p.x % 10 == 0 && p.y % 10 == 0
-        && p.x < FASTPATH_GRID_WIDTH * 10
-        && p.y < FASTPATH_GRID_HEIGHT * 10) {
-      // fast path
-      final var x = p.x / 10;
-      final var y = p.y / 10;
-      synchronized (valuesLock) {
-        value = fastpathValues[y][x];
-        if (value == null) {
-          value = CircuitWires.getBusValue(this, p);
-        }
-      }
-    } else {
-      // slow path
-      synchronized (valuesLock) {
-        value = slowpathValues.get(p);
-        if (value == null) {
-          value = CircuitWires.getBusValue(this, p);
-        }
-      }
-    }
+    final var value = CircuitWires.getBusValue(this, p);
     return value != null ? value : Value.createUnknown(circuit.getWidth(p));
   }
 
@@ -443,6 +433,16 @@ public class CircuitState implements InstanceData {
   }
 
   void processDirtyComponents() {
+    processDirtyComponents(false);
+  }
+
+  /**
+   * Propagates all dirty components of this state and its substates.
+   *
+   * @param concurrent true when running on a worker of a parallel propagation, in which case
+   *     sibling states of this one may be processed at the same time by other workers.
+   */
+  void processDirtyComponents(boolean concurrent) {
     if (!dirtyComponentsWorking.isEmpty()) {
       throw new IllegalStateException("INTERNAL ERROR: dirtyComponentsWorking not empty");
     }
@@ -460,19 +460,36 @@ public class CircuitState implements InstanceData {
         comp.propagate(this);
         // pin values also get propagated to parent state
         if (comp.getFactory() instanceof Pin && parentState != null) {
-          parentComp.propagate(parentState);
+          if (concurrent) {
+            // the parent's reusable InstanceState may be in use by a sibling's worker
+            ((InstanceFactory) parentComp.getFactory()).propagate(parentState.getInstanceState(parentComp));
+          } else {
+            parentComp.propagate(parentState);
+          }
         }
       }
     } finally {
       dirtyComponentsWorking.clear();
     }
+    if (!concurrent && base.processInParallel(substatesWorking, false)) return;
     for (final var substate : substatesWorking) {
       if (substate == null) break;
-      substate.processDirtyComponents();
+      substate.processDirtyComponents(concurrent);
     }
   }
 
   void processDirtyPoints() {
+    processDirtyPoints(null);
+  }
+
+  /**
+   * Propagates the values of all dirty points of this state and its substates.
+   *
+   * @param processed null when running on the propagation thread. Otherwise, this runs on a worker
+   *     of a parallel propagation and the processed events are added to this list, for the
+   *     propagation thread to recycle them.
+   */
+  void processDirtyPoints(ArrayList<Propagator.SimulatorEvent> processed) {
     if (!dirtyPointsWorking.isEmpty()) {
       throw new IllegalStateException("INTERNAL ERROR: dirtyPointsWorking not empty");
     }
@@ -496,11 +513,17 @@ public class CircuitState implements InstanceData {
     // the wire map itself when it is created (which is done by CircuitWires
     // carefully in a thread-safe way).
     circuit.wires.propagate(this, dirtyPointsWorking);
+    if (processed == null) {
+      base.recycleEvents(dirtyPointsWorking);
+    } else {
+      processed.addAll(dirtyPointsWorking);
+    }
     dirtyPointsWorking.clear();
 
+    if (processed == null && base.processInParallel(substatesWorking, true)) return;
     for (final var substate : substatesWorking) {
       if (substate == null) break;
-      substate.processDirtyPoints();
+      substate.processDirtyPoints(processed);
     }
   }
 
@@ -519,10 +542,6 @@ public class CircuitState implements InstanceData {
         componentData.put(comp, null);
       }
     }
-    synchronized (valuesLock) {
-      slowpathValues.clear(); // slow path
-      clearFastpathGrid(); // fast path
-    }
     synchronized (dirtyLock) {
       dirtyComponents.clear();
       dirtyPoints.clear();
@@ -596,33 +615,23 @@ public class CircuitState implements InstanceData {
   }
 
   public void setValue(Location pt, Value val, Component cause, int delay) {
-    base.setValue(this, pt, val, cause, delay);
+    base.setValue(this, pt, val, cause, -1, delay);
   }
 
-  /** precondition: valuesLock held */
-  private void clearFastpathGrid() {
-    for (var y = 0; y < FASTPATH_GRID_HEIGHT; y++) {
-      for (var x = 0; x < FASTPATH_GRID_WIDTH; x++) {
-        fastpathValues[y][x] = null;
-      }
-    }
+  /**
+   * Same as setValue at the location of the given end of cause, but lets the wires find the bus
+   * connection of that end without searching for it.
+   */
+  public void setPortValue(Component cause, int port, Value val, int delay) {
+    base.setValue(this, cause.getEnd(port).getLocation(), val, cause, port, delay);
   }
 
-  /** for CircuitWires - to set value at point */
+  /**
+   * for CircuitWires - to notify that the value of a bus changed. The value itself has already
+   * been published on the bus.
+   */
   void setValueByWire(Value v, Location[] points, CircuitWires.BusConnection[] connections) {
     for (final var p : points) {
-      if (p.x >= 0 && p.y >= 0
-          && p.x % 10 == 0 && p.y % 10 == 0
-          && p.x < FASTPATH_GRID_WIDTH * 10
-          && p.y < FASTPATH_GRID_HEIGHT * 10) {
-        synchronized (valuesLock) {
-          fastpath(p, v);
-        }
-      } else {
-        synchronized (valuesLock) {
-          slowpath(p, v);
-        }
-      }
       base.locationTouched(this, p);
     }
     for (final var bc : connections) {
@@ -632,46 +641,6 @@ public class CircuitState implements InstanceData {
     }
   }
 
-  /** for CircuitWires - to set value at point */
-  void clearValuesByWire() {
-    synchronized (valuesLock) {
-      slowpathValues.clear(); // slow path
-      clearFastpathGrid(); // fast path
-    }
-  }
-
-  /** precondition: valuesLock held */
-  private boolean fastpath(Location p, Value v) {
-    final var x = p.x / 10;
-    final var y = p.y / 10;
-    if (v == Value.NIL) {
-      if (fastpathValues[y][x] != null) {
-        fastpathValues[y][x] = null;
-        return true;
-      } else {
-        return false;
-      }
-    } else {
-      if (!v.equals(fastpathValues[y][x])) {
-        fastpathValues[y][x] = v;
-        return true;
-      } else {
-        return false;
-      }
-    }
-  }
-
-  /** precondition: valuesLock held */
-  private boolean slowpath(Location p, Value v) {
-    if (v == Value.NIL) {
-      final var old = slowpathValues.remove(p);
-      return (old != null && old != Value.NIL);
-    } else {
-      final var old = slowpathValues.put(p, v);
-      return !v.equals(old);
-    }
-  }
-
   void setWireData(CircuitWires.State data) {
     wireData = data;
   }
@@ -29,9 +29,11 @@ import com.cburch.logisim.util.IteratorUtil;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Set;
 import javax.swing.SwingUtilities;
@@ -91,6 +93,28 @@ public class CircuitWires {
     /** Given a location, returns a list of Components that have a port at that location. */
     HashMap<Location, ArrayList<Component>> componentsAtLocations = new HashMap<>();
 
+    /**
+     * All bundles, each at the position given by its index, so that a State can keep its
+     * ValuedBuses in an array rather than a map. Set by numberConnections().
+     */
+    WireBundle[] bundleList = new WireBundle[0];
+
+    /** For each bundle, the locations among its xpoints where some component has a port. */
+    Location[][] bundleLocations = new Location[0][];
+
+    /**
+     * Each pair of (component, location) where a component connects to a bundle gets an integer
+     * handle. The handles of bundle i run from firstConnection[i] to firstConnection[i + 1] - 1.
+     */
+    int[] firstConnection = new int[1];
+
+    /** Component and location of each connection handle. */
+    Component[] connectionComponent = new Component[0];
+    Location[] connectionLocation = new Location[0];
+
+    /** For each component connected to some bundle, the connection handle of each end, or -1. */
+    IdentityHashMap<Component, int[]> endConnections = new IdentityHashMap<>();
+
     /** The isValid flag remains true unless something goes wrong during initialization. */
     volatile boolean isValid = true;
 
@@ -138,6 +162,61 @@ public class CircuitWires {
       isValid = false;
     }
 
+    /**
+     * Numbers the bundles and the component connections on them. To be called once all bundles
+     * are complete and componentsAtLocations is known, or once the map is invalidated, in which
+     * case the bundles built so far are numbered. Nothing is changed if this fails.
+     */
+    void numberConnections() {
+      final var n = bundles.size();
+      final var list = bundles.toArray(new WireBundle[n]);
+      final var locations = new Location[n][];
+      final var first = new int[n + 1];
+      final var comps = new ArrayList<Component>();
+      final var locs = new ArrayList<Location>();
+      final var endHandles = new IdentityHashMap<Component, int[]>();
+      for (var i = 0; i < n; i++) {
+        final var b = list[i];
+        first[i] = comps.size();
+        // an invalidated map may have bundles that were never finished
+        final var points = b.xpoints == null ? new Location[0] : b.xpoints;
+        final var here = new ArrayList<Location>();
+        for (final var point : points) {
+          if (pointBundles.get(point) != b) {
+            if (!isValid) continue;
+            throw new IllegalStateException("oops, two wires occupy same location");
+          }
+          final var atPoint = componentsAtLocations.get(point);
+          if (atPoint == null) continue;
+          here.add(point);
+          for (final var comp : atPoint) {
+            final var handle = comps.size();
+            comps.add(comp);
+            locs.add(point);
+            final var ends = comp.getEnds();
+            var handles = endHandles.get(comp);
+            if (handles == null) {
+              handles = new int[ends.size()];
+              Arrays.fill(handles, -1);
+              endHandles.put(comp, handles);
+            }
+            for (var e = 0; e < handles.length; e++) {
+              if (ends.get(e).getLocation().equals(point)) handles[e] = handle;
+            }
+          }
+        }
+        locations[i] = here.size() == points.length ? points : here.toArray(new Location[0]);
+      }
+      first[n] = comps.size();
+      for (var i = 0; i < n; i++) list[i].index = i;
+      bundleLocations = locations;
+      firstConnection = first;
+      connectionComponent = comps.toArray(new Component[0]);
+      connectionLocation = locs.toArray(new Location[0]);
+      endConnections = endHandles;
+      bundleList = list;
+    }
+
     boolean isValid() {
       return isValid;
     }
@@ -174,13 +253,13 @@ public class CircuitWires {
      */
     Value threadVal;
 
-    ValuedThread(WireThread t, HashMap<WireBundle, ValuedBus> allBuses) {
+    ValuedThread(WireThread t, ValuedBus[] allBuses) {
       steps = t.steps;
       position = t.position;
       bus = new ValuedBus[steps];
       for (var i = 0; i < steps; i++) {
         WireBundle b = t.bundle[i];
-        bus[i] = allBuses.get(b);
+        bus[i] = allBuses[b.index];
         Value pullHere = b.getPullValue();
         pullUp |= (pullHere == Value.TRUE);
         pullDown |= (pullHere == Value.FALSE);
@@ -228,13 +307,16 @@ public class CircuitWires {
     public final Location location;
     public final boolean isSink, isBidirectional;
 
+    /** Bus this connection belongs to */
+    final ValuedBus bus;
+
     /** Value this component is driving onto the bus (null for sinks) */
     public Value drivenValue;
-    // todo: maybe also keep point number, or EndData, etc.?
 
-    BusConnection(Component comp, Location loc) {
+    BusConnection(Component comp, Location loc, ValuedBus bus) {
       component = comp;
       location = loc;
+      this.bus = bus;
       final var e = comp.getEnd(loc);
       // Special case: Pin is treated as a sink, because it needs notifications
       // of any changes to inputs in order to set the UI color properly.
@@ -283,6 +365,12 @@ public class CircuitWires {
     /** Cached, resolved value carried by this bus (or error for conflicts, etc.) */
     Value busVal;
 
+    /**
+     * Last busVal posted to the circuit state. Unlike busVal, this is never reset to null while
+     * the bus is being recomputed, so other threads can read it at any time without locking.
+     */
+    volatile Value publishedVal;
+
     /** Whether localDrivenValue and busVal and valid */
     boolean dirty;
 
@@ -292,31 +380,27 @@ public class CircuitWires {
     /** Only used if dependentBuses is empty */
     Value pullVal;
 
-    ValuedBus(int i, WireBundle wb, Connectivity cmap) {
+    /**
+     * Creates the bus for bundle i of the connectivity map, and stores its connections in
+     * allConnections at their handles.
+     */
+    ValuedBus(int i, WireBundle wb, Connectivity cmap, BusConnection[] allConnections) {
       idx = i;
-      filterComponents(cmap, wb.xpoints); // initializes locations[] and connections[]
+      locations = cmap.bundleLocations[i];
+      final var first = cmap.firstConnection[i];
+      connections = new BusConnection[cmap.firstConnection[i + 1] - first];
+      for (var k = 0; k < connections.length; k++) {
+        final var handle = first + k;
+        connections[k] = new BusConnection(cmap.connectionComponent[handle],
+            cmap.connectionLocation[handle], this);
+        allConnections[handle] = connections[k];
+      }
       width = wb.threads == null ? -1 : wb.getWidth().getWidth();
       pullVal = wb.getPullValue();
       dirty = true;
     }
 
-    void filterComponents(Connectivity cmap, Location[] xpoints) {
-      final var locs = new ArrayList<Location>();
-      final var conns = new ArrayList<BusConnection>();
-      for (final var point : xpoints) {
-        final var allComponents = cmap.componentsAtLocations.get(point);
-        if (allComponents == null) continue;
-        locs.add(point);
-        for (final var comp : allComponents) {
-          conns.add(new BusConnection(comp, point));
-        }
-      }
-      final var size = locs.size();
-      locations = size == xpoints.length ? xpoints : locs.toArray(new Location[size]);
-      connections = conns.toArray(new BusConnection[conns.size()]);
-    }
-
-    void makeThreads(WireThread[] wbthreads, HashMap<WireBundle, ValuedBus> allBuses,
+    void makeThreads(WireThread[] wbthreads, ValuedBus[] allBuses,
                      HashMap<WireThread, ValuedThread> allThreads) {
       if (width <= 0) return;
       var degenerate = true;
@@ -383,7 +467,11 @@ public class CircuitWires {
   static class State {
     /** Original source of connectivity info */
     private Connectivity connectivity; // original source of connectivity info
-    HashMap<Location, ValuedBus> busAt = new HashMap<>();
+    /** ValuedBus of each bundle, at the bundle's index */
+    final ValuedBus[] busByIndex;
+    /** BusConnection of each connection handle of the connectivity map */
+    final BusConnection[] connectionByHandle;
+    /** Same buses as busByIndex, dirty ones first; see markDirty and markClean */
     ValuedBus[] buses;
     int numDirty;
     static final ValuedBus[] EMPTY_DEPENDENCIES = new ValuedBus[0];
@@ -391,27 +479,18 @@ public class CircuitWires {
 
     State(Connectivity cm, State prev) {
       connectivity = cm;
-      HashMap<WireBundle, ValuedBus> allBuses = new HashMap<>();
-      HashMap<ValuedBus, WireBundle> srcBuses = new HashMap<>();
-      // initialize buses[] and busAt<>
-      buses = new ValuedBus[connectivity.bundles.size()];
-      int idx = 0;
-      for (final var wb : connectivity.bundles) {
-        final var vb = new ValuedBus(idx++, wb, connectivity);
-        buses[vb.idx] = vb;
-        for (final var loc : wb.xpoints) {
-          ValuedBus old = busAt.put(loc, vb);
-          if (old != null) {
-            throw new IllegalStateException("oops, two wires occupy same location");
-          }
-        }
-        allBuses.put(wb, vb);
-        srcBuses.put(vb, wb);
+      final var bundleList = connectivity.bundleList;
+      // initialize buses[] and busByIndex[]
+      busByIndex = new ValuedBus[bundleList.length];
+      connectionByHandle = new BusConnection[connectivity.connectionComponent.length];
+      for (var i = 0; i < bundleList.length; i++) {
+        busByIndex[i] = new ValuedBus(i, bundleList[i], connectivity, connectionByHandle);
       }
+      buses = busByIndex.clone();
       // create threads for all buses that need them
       HashMap<WireThread, ValuedThread> allThreads = new HashMap<>();
-      for (final var vb : buses) {
-        vb.makeThreads(srcBuses.get(vb).threads, allBuses, allThreads);
+      for (var i = 0; i < bundleList.length; i++) {
+        busByIndex[i].makeThreads(bundleList[i].threads, busByIndex, allThreads);
       }
       // initialize BusConnection driven values from previous State, if any,
       // but only if they are not sinks (or pins, which always count as sinks)
@@ -423,6 +502,12 @@ public class CircuitWires {
             }
           }
         }
+        // buses are the same if the connectivity is: keep showing their old values
+        if (prev.connectivity == connectivity) {
+          for (var i = 0; i < busByIndex.length; i++) {
+            busByIndex[i].publishedVal = prev.busByIndex[i].publishedVal;
+          }
+        }
       }
       // compute bus dependencies
       for (final var vb : buses) {
@@ -447,15 +532,41 @@ public class CircuitWires {
       numDirty = buses.length;
     }
 
-    Value getDrivenValue(Component c, Location loc) {
-      final var vb = busAt.get(loc);
-      if (vb == null) return null;
-      for (final var bc : vb.connections) {
-        if (bc.component.equals(c) && bc.location.equals(loc)) {
-          return bc.drivenValue;
+    /** Returns the bus at the given location, or null if there is none. */
+    ValuedBus busAt(Location loc) {
+      final var wb = connectivity.pointBundles.get(loc);
+      return wb == null || wb.index < 0 ? null : busByIndex[wb.index];
+    }
+
+    /**
+     * Returns the connection through which a component drives a location, or null if that
+     * location isn't on a bus. Port is the index of the component's end at that location, or -1
+     * if unknown, in which case the end is looked up.
+     */
+    BusConnection getConnection(Component c, int port, Location loc) {
+      final var handles = connectivity.endConnections.get(c);
+      if (handles == null) return null;
+      if (port < 0 || port >= handles.length) {
+        port = -1;
+        final var ends = c.getEnds();
+        for (var e = 0; e < handles.length && e < ends.size(); e++) {
+          if (ends.get(e).getLocation().equals(loc)) {
+            port = e;
+            break;
+          }
         }
+        if (port < 0) return null;
       }
-      return null;
+      final var handle = handles[port];
+      if (handle < 0) return null;
+      final var bc = connectionByHandle[handle];
+      // the port may have moved since the value was emitted
+      return bc.location.x == loc.x && bc.location.y == loc.y ? bc : null;
+    }
+
+    Value getDrivenValue(Component c, Location loc) {
+      final var bc = getConnection(c, -1, loc);
+      return bc == null ? null : bc.drivenValue;
     }
 
     void markClean(ValuedBus vb) {
@@ -737,6 +848,9 @@ public class CircuitWires {
         ret.addWidthIncompatibilityData(e);
       }
     }
+
+    // Hand out the integer handles used by State and propagate().
+    ret.numberConnections();
   }
 
   private void connectPullResistors(Connectivity ret) {
@@ -836,11 +950,11 @@ public class CircuitWires {
     if (s == null) {
       return Value.NIL; // fallback, probably wrong, who cares
     }
-    final var vb = s.busAt.get(loc);
+    final var vb = s.busAt(loc);
     if (vb == null) {
       return Value.NIL; // fallback, probably wrong, who cares
     }
-    final var v = vb.busVal;
+    final var v = vb.publishedVal;
     if (v == null) {
       return Value.NIL; // fallback, probably wrong, who cares
     }
@@ -1017,6 +1131,13 @@ public class CircuitWires {
       } catch (Exception t) {
         ret.invalidate();
         logger.error(t.getLocalizedMessage());
+        // computing stopped before or while numbering: number what was built, so that the
+        // bundle indexes and connection handles a State relies on agree with each other
+        try {
+          ret.numberConnections();
+        } catch (Exception e) {
+          logger.error(e.getLocalizedMessage());
+        }
       }
       return ret;
     } else {
@@ -1034,6 +1155,11 @@ public class CircuitWires {
     }
   }
 
+  /** Tells whether the connectivity map is available without having to ask the AWT thread. */
+  boolean hasConnectivity() {
+    return masterConnectivity != null;
+  }
+
   Iterator<? extends Component> getComponents() {
     return IteratorUtil.createJoinedIterator(splitters.iterator(), wires.iterator());
   }
@@ -1096,7 +1222,6 @@ public class CircuitWires {
       // might no longer be connected to those same buses (or might not
       // be connected to any bus), and vice versa. So we should mark all
       // components as dirty.
-      circState.clearValuesByWire();
       circState.markComponentsDirty(map.allComponents);
     }
 
@@ -1104,32 +1229,23 @@ public class CircuitWires {
     var npoints = dirtyPoints.size();
     for (var k = 0; k < npoints; k++) { // for each point of interest
       final var ev = dirtyPoints.get(k);
-      final var p = ev.loc;
-      final var cause = ev.cause;
       final var val = ev.val;
 
-      final var vb = s.busAt.get(p);
-      if (vb == null) {
+      final var bc = s.getConnection(ev.cause, ev.port, ev.loc);
+      if (bc == null) {
         // todo: we could keep track of the affected components here
-      } else if (vb.width <= 0) {
+      } else if (bc.bus.width <= 0) {
         // point is wired to a bus with invalid width: ignore new value
         // propagate NIL across entire bundle
-      } else {
+      } else if (!Value.equal(bc.drivenValue, val)) {
         // common case... it is wired to a normal bus: update the stored value
         // of this point on the bus, mark the bus as dirty, and (if not
         // degenerate) mark as dirty any related buses.
-        // fixme: sort the connections list, sources first, then bidir, then sinks
-        for (final var bc : vb.connections) {
-          if (bc.location.equals(p) && bc.component.equals(cause)) {
-            final var old = bc.drivenValue;
-            if (Value.equal(old, val)) continue;
-            bc.drivenValue = val;
-            s.markDirty(vb);
-            for (final var dep : vb.dependentBuses) {
-              s.markDirty(dep);
-            }
-            break;
-          }
+        final var vb = bc.bus;
+        bc.drivenValue = val;
+        s.markDirty(vb);
+        for (final var dep : vb.dependentBuses) {
+          s.markDirty(dep);
         }
       }
     }
@@ -1155,6 +1271,7 @@ public class CircuitWires {
       final var old = vb.busVal;
       final var val = vb.recalculate();
       if (Value.equal(old, val)) continue;
+      vb.publishedVal = val;
       circState.setValueByWire(val, vb.locations, vb.connections);
     }
     s.numDirty = 0;
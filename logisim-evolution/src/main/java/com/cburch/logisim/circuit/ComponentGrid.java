@@ -0,0 +1,188 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.instance.StdAttr;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A uniform grid over the components of a circuit, to find those that may lie in a rectangle
+ * without looking at all of them.
+ *
+ * <p>Each component is entered in the cells covered by its area: its bounds, widened by an upper
+ * estimate of the size of its label, since labels are drawn and clicked outside the bounds. The
+ * area must be updated whenever the bounds or the label may have changed. A query returns the
+ * components whose area intersects the rectangle, in the order they were added, and callers test
+ * each of them exactly.
+ */
+final class ComponentGrid {
+  private static final int CELL_SHIFT = 7; // cells of 128 x 128
+
+  // components covering more cells than this are checked on every query instead
+  private static final int MAX_CELLS = 256;
+
+  private static final Comparator<Entry> BY_ORDER = Comparator.comparingLong(e -> e.order);
+
+  private static class Entry {
+    final Component comp;
+    final long order;
+    Bounds area;
+    boolean large;
+
+    Entry(Component comp, long order) {
+      this.comp = comp;
+      this.order = order;
+    }
+  }
+
+  private final HashMap<Long, ArrayList<Entry>> cells = new HashMap<>();
+  private final HashMap<Component, Entry> entries = new HashMap<>();
+  private final ArrayList<Entry> large = new ArrayList<>();
+  private long nextOrder = 0;
+
+  void add(Component comp) {
+    if (entries.containsKey(comp)) return;
+    final var entry = new Entry(comp, nextOrder++);
+    entries.put(comp, entry);
+    insert(entry, areaOf(comp));
+  }
+
+  void remove(Component comp) {
+    final var entry = entries.remove(comp);
+    if (entry != null) delete(entry);
+  }
+
+  /** Enters the component anew if its area changed. Components not in the grid are ignored. */
+  void update(Component comp) {
+    final var entry = entries.get(comp);
+    if (entry == null) return;
+    final var area = areaOf(comp);
+    if (area.equals(entry.area)) return;
+    delete(entry);
+    insert(entry, area);
+  }
+
+  void clear() {
+    cells.clear();
+    entries.clear();
+    large.clear();
+  }
+
+  /** Returns the components whose area intersects the rectangle, in the order they were added. */
+  List<Component> find(Bounds bds) {
+    final var x0 = bds.getX() >> CELL_SHIFT;
+    final var y0 = bds.getY() >> CELL_SHIFT;
+    final var x1 = (bds.getX() + bds.getWidth()) >> CELL_SHIFT;
+    final var y1 = (bds.getY() + bds.getHeight()) >> CELL_SHIFT;
+    final var found = new ArrayList<Entry>();
+    if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > cells.size()) {
+      // more cells than are occupied: faster to look at all components
+      for (final var entry : entries.values()) {
+        if (intersects(entry.area, bds)) found.add(entry);
+      }
+    } else {
+      final var seen = new IdentityHashMap<Entry, Boolean>();
+      for (var x = x0; x <= x1; x++) {
+        for (var y = y0; y <= y1; y++) {
+          final var cell = cells.get(key(x, y));
+          if (cell == null) continue;
+          for (final var entry : cell) {
+            if (intersects(entry.area, bds) && seen.put(entry, Boolean.TRUE) == null) {
+              found.add(entry);
+            }
+          }
+        }
+      }
+      for (final var entry : large) {
+        if (intersects(entry.area, bds)) found.add(entry);
+      }
+    }
+    found.sort(BY_ORDER);
+    final var ret = new ArrayList<Component>(found.size());
+    for (final var entry : found) ret.add(entry.comp);
+    return ret;
+  }
+
+  private void insert(Entry entry, Bounds area) {
+    entry.area = area;
+    final var x0 = area.getX() >> CELL_SHIFT;
+    final var y0 = area.getY() >> CELL_SHIFT;
+    final var x1 = (area.getX() + area.getWidth()) >> CELL_SHIFT;
+    final var y1 = (area.getY() + area.getHeight()) >> CELL_SHIFT;
+    entry.large = (long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS;
+    if (entry.large) {
+      large.add(entry);
+      return;
+    }
+    for (var x = x0; x <= x1; x++) {
+      for (var y = y0; y <= y1; y++) {
+        cells.computeIfAbsent(key(x, y), k -> new ArrayList<>(4)).add(entry);
+      }
+    }
+  }
+
+  private void delete(Entry entry) {
+    if (entry.large) {
+      large.remove(entry);
+      return;
+    }
+    final var area = entry.area;
+    final var x0 = area.getX() >> CELL_SHIFT;
+    final var y0 = area.getY() >> CELL_SHIFT;
+    final var x1 = (area.getX() + area.getWidth()) >> CELL_SHIFT;
+    final var y1 = (area.getY() + area.getHeight()) >> CELL_SHIFT;
+    for (var x = x0; x <= x1; x++) {
+      for (var y = y0; y <= y1; y++) {
+        final var k = key(x, y);
+        final var cell = cells.get(k);
+        if (cell == null) continue;
+        cell.remove(entry);
+        if (cell.isEmpty()) cells.remove(k);
+      }
+    }
+  }
+
+  private static long key(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+
+  private static boolean intersects(Bounds a, Bounds b) {
+    return a.getX() <= b.getX() + b.getWidth()
+        && b.getX() <= a.getX() + a.getWidth()
+        && a.getY() <= b.getY() + b.getHeight()
+        && b.getY() <= a.getY() + a.getHeight();
+  }
+
+  /**
+   * The bounds of the component, widened on all sides by the size its label could have if every
+   * character were as wide as the font is high.
+   */
+  private static Bounds areaOf(Component comp) {
+    var bds = comp.getBounds();
+    if (bds == null) bds = Bounds.create(comp.getLocation());
+    if (comp instanceof Wire) return bds;
+    final var attrs = comp.getAttributeSet();
+    if (attrs == null || !attrs.containsAttribute(StdAttr.LABEL)) return bds;
+    final var label = attrs.getValue(StdAttr.LABEL);
+    if (label == null || label.isEmpty()) return bds;
+    var size = StdAttr.DEFAULT_LABEL_FONT.getSize();
+    if (attrs.containsAttribute(StdAttr.LABEL_FONT)) {
+      final var font = attrs.getValue(StdAttr.LABEL_FONT);
+      if (font != null) size = font.getSize();
+    }
+    return bds.expand(size * (label.length() + 1));
+  }
+}
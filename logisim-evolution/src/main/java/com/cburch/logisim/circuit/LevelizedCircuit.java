@@ -0,0 +1,312 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.std.wiring.Pin;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+/**
+ * LevelizedCircuit is a compiled form of a purely combinational circuit, used by the levelized
+ * simulation engine to compute the outputs of a subcircuit instance in a single pass instead of
+ * running the event queue through all of its gates.
+ *
+ * <p>The circuit is analyzed with the same ExpressionComputer machinery as the Analyzer, so only
+ * circuits the Analyzer can turn into expressions are compiled: anything with feedback, tristate
+ * buses, tunnels, stateful components or nested subcircuits is rejected, and those instances keep
+ * using the event-driven engine. The expressions are flattened into arrays of nodes in
+ * topological order, sharing common subexpressions, and evaluated from first to last node.
+ *
+ * <p>The compiled form only knows about two-valued logic, so it is only used when all input ports
+ * carry fully defined values. Otherwise, the caller falls back to propagating through the
+ * subcircuit state, which handles unknown and error values exactly. Since all gates are evaluated
+ * at once, glitches and gate delays inside the subcircuit are not reproduced, only the settled
+ * values.
+ *
+ * <p>Since circuits with nested subcircuits are rejected, only the innermost combinational
+ * subcircuits are ever accelerated, and only while their substates are not observed, see
+ * CircuitState.markObserved().
+ */
+final class LevelizedCircuit {
+  private static final byte OP_INPUT = 0;
+  private static final byte OP_CONST = 1;
+  private static final byte OP_NOT = 2;
+  private static final byte OP_AND = 3;
+  private static final byte OP_OR = 4;
+  private static final byte OP_XOR = 5;
+  private static final byte OP_XNOR = 6;
+
+  /** Whether the levelized engine is on, kept up to date with the preference. */
+  private static volatile boolean enabled = AppPreferences.SIMULATION_LEVELIZED.getBoolean();
+
+  static {
+    AppPreferences.SIMULATION_LEVELIZED.addPropertyChangeListener(
+        event -> enabled = AppPreferences.SIMULATION_LEVELIZED.getBoolean());
+  }
+
+  /** Marker cached by Circuit for circuits that can't be compiled. */
+  static final LevelizedCircuit NOT_COMBINATIONAL = new LevelizedCircuit();
+
+  /** Operation of each node; arguments always precede the node using them. */
+  private final byte[] ops;
+  private final int[] argA;
+  private final int[] argB;
+
+  /** For each input or output pin of the circuit, the node holding each of its bits. */
+  private final IdentityHashMap<Instance, int[]> pinNodes;
+
+  /** Scratch node values, one array per simulation thread. */
+  private final ThreadLocal<int[]> values;
+
+  private LevelizedCircuit() {
+    ops = new byte[0];
+    argA = argB = new int[0];
+    pinNodes = new IdentityHashMap<>();
+    values = null;
+  }
+
+  private LevelizedCircuit(Compiler compiler, IdentityHashMap<Instance, int[]> pinNodes) {
+    final var n = compiler.ops.size();
+    ops = new byte[n];
+    argA = new int[n];
+    argB = new int[n];
+    for (var i = 0; i < n; i++) {
+      ops[i] = compiler.ops.get(i);
+      argA[i] = compiler.argA.get(i);
+      argB[i] = compiler.argB.get(i);
+    }
+    this.pinNodes = pinNodes;
+    values = ThreadLocal.withInitial(() -> new int[n]);
+  }
+
+  /** Builds the node arrays from the Expressions of the output pins. */
+  private static class Compiler implements Expression.Visitor<Integer> {
+    final ArrayList<Byte> ops = new ArrayList<>();
+    final ArrayList<Integer> argA = new ArrayList<>();
+    final ArrayList<Integer> argB = new ArrayList<>();
+    final IdentityHashMap<Expression, Integer> compiled = new IdentityHashMap<>();
+    final HashMap<String, Integer> inputs = new HashMap<>();
+
+    int add(byte op, int a, int b) {
+      ops.add(op);
+      argA.add(a);
+      argB.add(b);
+      return ops.size() - 1;
+    }
+
+    int addInput(String name) {
+      final var node = add(OP_INPUT, 0, 0);
+      inputs.put(name, node);
+      return node;
+    }
+
+    int compile(Expression e) {
+      var node = compiled.get(e);
+      if (node == null) {
+        node = e.visit(this);
+        compiled.put(e, node);
+      }
+      return node;
+    }
+
+    @Override
+    public Integer visitVariable(String name) {
+      final var node = inputs.get(name);
+      if (node == null) throw new IllegalStateException("unknown variable " + name);
+      return node;
+    }
+
+    @Override
+    public Integer visitConstant(int value) {
+      return add(OP_CONST, value & 1, 0);
+    }
+
+    @Override
+    public Integer visitNot(Expression a) {
+      return add(OP_NOT, compile(a), 0);
+    }
+
+    @Override
+    public Integer visitBinary(Expression a, Expression b, Expression.Op op) {
+      final var opcode = switch (op) {
+        case AND -> OP_AND;
+        case OR -> OP_OR;
+        case XOR -> OP_XOR;
+        case XNOR, EQ -> OP_XNOR;
+        default -> throw new IllegalStateException("unexpected operator " + op);
+      };
+      final var nodeA = compile(a);
+      final var nodeB = compile(b);
+      return add(opcode, nodeA, nodeB);
+    }
+  }
+
+  /** Tells whether the levelized engine is on, without asking the preferences each time. */
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Compiles the circuit, returning NOT_COMBINATIONAL if it is not purely combinational, or null if
+   * it can't be compiled right now. This runs on the simulation thread, which must never wait for
+   * the AWT thread (that one may itself be waiting for simulation results), so the circuit is only
+   * read under its read lock, and only if no transaction holds it and the wire connectivity has
+   * already been computed. Otherwise the caller uses the event-driven engine this time and tries
+   * again later.
+   */
+  static LevelizedCircuit compile(Circuit circuit) {
+    final var lock = circuit.getLocker().tryReadLock();
+    if (lock == null) return null;
+    try {
+      if (!SwingUtilities.isEventDispatchThread() && !circuit.wires.hasConnectivity()) return null;
+      return compileLocked(circuit);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Compiles the circuit as compile does, but always gives an answer: the circuit is compiled on
+   * the AWT thread, which computes the wire connectivity itself, and waits for the read lock if a
+   * transaction holds it. So this must not be called by a thread the AWT thread may be waiting
+   * for, such as the simulation thread. Returns null if interrupted while waiting.
+   */
+  static LevelizedCircuit compileNow(Circuit circuit) {
+    if (!SwingUtilities.isEventDispatchThread()) {
+      final var ret = new AtomicReference<LevelizedCircuit>();
+      try {
+        SwingUtilities.invokeAndWait(() -> ret.set(compileNow(circuit)));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (InvocationTargetException e) {
+        final var cause = e.getCause();
+        if (cause instanceof RuntimeException re) throw re;
+        if (cause instanceof Error err) throw err;
+        throw new IllegalStateException(cause);
+      }
+      return ret.get();
+    }
+    final var lock = circuit.getLocker().readLock();
+    try {
+      return compileLocked(circuit);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static LevelizedCircuit compileLocked(Circuit circuit) {
+    // tristate and open-collector outputs produce floating values, which two-valued nodes can't
+    // represent, and the Analyzer happily turns such gates into plain expressions
+    for (final var comp : circuit.getNonWires()) {
+      if (comp.getFactory().hasThreeStateDrivers(comp.getAttributeSet())) return NOT_COMBINATIONAL;
+    }
+    final var pinLabels = Analyze.getPinLabels(circuit);
+    final Map<Analyze.LocationBit, Expression> expressions;
+    try {
+      expressions = Analyze.computeExpressionMap(circuit, pinLabels);
+    } catch (AnalyzeException e) {
+      return NOT_COMBINATIONAL;
+    }
+
+    final var compiler = new Compiler();
+    final var pinNodes = new IdentityHashMap<Instance, int[]>();
+    // input bits come first, so that their nodes precede every node using them
+    for (final var entry : pinLabels.entrySet()) {
+      final var pin = entry.getKey();
+      if (!Pin.FACTORY.isInputPin(pin)) continue;
+      final var label = entry.getValue();
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      final var nodes = new int[width];
+      for (var b = 0; b < width; b++) {
+        nodes[b] = compiler.addInput(width > 1 ? label + "[" + b + "]" : label);
+      }
+      pinNodes.put(pin, nodes);
+    }
+    for (final var pin : pinLabels.keySet()) {
+      if (Pin.FACTORY.isInputPin(pin)) continue;
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      final var nodes = new int[width];
+      for (var b = 0; b < width; b++) {
+        final var expr = expressions.get(new Analyze.LocationBit(pin.getLocation(), b));
+        if (expr == null) return NOT_COMBINATIONAL; // floating output
+        try {
+          nodes[b] = compiler.compile(expr);
+        } catch (IllegalStateException e) {
+          return NOT_COMBINATIONAL;
+        }
+      }
+      pinNodes.put(pin, nodes);
+    }
+    return new LevelizedCircuit(compiler, pinNodes);
+  }
+
+  /**
+   * Computes the outputs of a subcircuit instance from the values on its input ports and drives
+   * them onto its output ports.
+   *
+   * @param state the state of the subcircuit instance in its parent circuit.
+   * @param pins the pins of the subcircuit, in the order of the instance's ports.
+   * @return false, without touching any port, if some input is not fully defined (or the pins
+   *     don't match this compiled circuit), in which case the caller must propagate the values
+   *     through the subcircuit state instead.
+   */
+  boolean propagate(InstanceState state, Instance[] pins) {
+    final var vals = values.get();
+    for (var i = 0; i < pins.length; i++) {
+      final var pin = pins[i];
+      final var nodes = pinNodes.get(pin);
+      if (nodes == null) return false;
+      if (!Pin.FACTORY.isInputPin(pin)) continue;
+      final var v = state.getPortValue(i);
+      if (v.getWidth() != nodes.length || !v.isFullyDefined()) return false;
+      final var bits = v.toLongValue();
+      for (var b = 0; b < nodes.length; b++) {
+        vals[nodes[b]] = (int) (bits >>> b) & 1;
+      }
+    }
+
+    final var n = ops.length;
+    for (var i = 0; i < n; i++) {
+      switch (ops[i]) {
+        case OP_CONST -> vals[i] = argA[i];
+        case OP_NOT -> vals[i] = vals[argA[i]] ^ 1;
+        case OP_AND -> vals[i] = vals[argA[i]] & vals[argB[i]];
+        case OP_OR -> vals[i] = vals[argA[i]] | vals[argB[i]];
+        case OP_XOR -> vals[i] = vals[argA[i]] ^ vals[argB[i]];
+        case OP_XNOR -> vals[i] = vals[argA[i]] ^ vals[argB[i]] ^ 1;
+        default -> { } // inputs were set above
+      }
+    }
+
+    for (var i = 0; i < pins.length; i++) {
+      final var pin = pins[i];
+      if (Pin.FACTORY.isInputPin(pin)) continue;
+      final var nodes = pinNodes.get(pin);
+      var bits = 0L;
+      for (var b = 0; b < nodes.length; b++) {
+        bits |= (long) vals[nodes[b]] << b;
+      }
+      state.setPort(i, Value.createKnown(nodes.length, bits), 1);
+    }
+    return true;
+  }
+}
@@ -22,10 +22,18 @@ import com.cburch.logisim.util.QNodeQueue;
 import com.cburch.logisim.util.QueueOfQueues;
 import com.cburch.logisim.util.SplayQueue;
 import com.cburch.logisim.util.QNode;
+import com.cburch.logisim.util.UniquelyNamedThread;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.PriorityQueue;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class Propagator {
   private static class Listener implements AttributeListener {
@@ -55,30 +63,51 @@ public class Propagator {
 
   public static class SimulatorEvent extends QNode {
     /** State of circuit containing component */
-    final CircuitState state;
+    CircuitState state;
 
     /** The location at which value is emitted */
-    final Location loc;
+    Location loc;
 
     /** Component emitting the value */
-    final Component cause;
+    Component cause;
+
+    /** Index of the cause's end at loc, or -1 if unknown; lets CircuitWires skip the lookup */
+    int port;
 
     /** Value being emitted */
     Value val;
 
-    private SimulatorEvent(int time, int serialNumber,
-                           CircuitState state, Location loc, Component cause, Value val) {
+    /** Link to the next unused event while this event sits in a Propagator's free list */
+    private SimulatorEvent nextFree;
+
+    private SimulatorEvent(int time, int serialNumber, CircuitState state,
+                           Location loc, Component cause, int port, Value val) {
       super(time, serialNumber);
       this.state = state;
       this.cause = cause;
+      this.port = port;
       this.loc = loc;
       this.val = val;
     }
 
+    private void reinit(int time, int serialNumber, CircuitState state,
+                        Location loc, Component cause, int port, Value val) {
+      reinit(time, serialNumber);
+      this.state = state;
+      this.cause = cause;
+      this.port = port;
+      this.loc = loc;
+      this.val = val;
+    }
+
+    /**
+     * Copies this event for a cloned state. May be called by any thread, so the copy is allocated
+     * rather than taken from the free list of newState's propagator.
+     */
     public SimulatorEvent cloneFor(CircuitState newState) {
       final var newProp = newState.getPropagator();
       final var dtime = newProp.clock - state.getPropagator().clock;
-      return new SimulatorEvent(timeKey + dtime, newProp.eventSerialNumber++, newState, loc, cause, val);
+      return new SimulatorEvent(timeKey + dtime, newProp.eventSerialNumber++, newState, loc, cause, port, val);
     }
 
     @Override
@@ -114,6 +143,60 @@ public class Propagator {
    *  but it can be another thread if the simulator is not being used (e.g. command line testing) */
   private final Thread propagatorThread;
 
+  /**
+   * Workers shared by all propagators running in parallel mode. Sibling substates are processed
+   * on these threads while the propagation thread waits for them. They are daemon threads, which
+   * end once they have been idle for a while.
+   */
+  private static ExecutorService parallelPool = null;
+
+  /** Seconds a parallel worker waits for work before it ends. */
+  private static final int PARALLEL_IDLE_SECONDS = 30;
+
+  /** Siblings below this count are not worth handing out to the workers. */
+  private static final int MIN_PARALLEL_SUBSTATES = 4;
+
+  /** Whether sibling substates are processed on the parallel workers. */
+  private boolean parallel;
+
+  /**
+   * While a worker processes a substate, the events it generates are captured here, in the order
+   * the single-threaded engine would have generated them. They are merged into toProcess by the
+   * propagation thread afterwards, substate by substate, so serial numbers (and random noise)
+   * come out exactly as with the single-threaded engine.
+   */
+  private final ThreadLocal<ArrayList<SimulatorEvent>> capturedEvents = new ThreadLocal<>();
+
+  /** A substate (and its own substates) processed by one parallel worker. */
+  private class SubstateTask implements Callable<Void> {
+    final CircuitState state;
+    final boolean points;
+    /** Events generated while processing components */
+    final ArrayList<SimulatorEvent> generated = new ArrayList<>();
+    /** Dirty point events consumed while processing points */
+    final ArrayList<SimulatorEvent> processed = new ArrayList<>();
+
+    SubstateTask(CircuitState state, boolean points) {
+      this.state = state;
+      this.points = points;
+    }
+
+    @Override
+    public Void call() {
+      capturedEvents.set(generated);
+      try {
+        if (points) {
+          state.processDirtyPoints(processed);
+        } else {
+          state.processDirtyComponents(true);
+        }
+      } finally {
+        capturedEvents.remove();
+      }
+      return null;
+    }
+  }
+
   /** Used to handle events generated by threads other than the propagation thread. */
   private final ArrayList<SimulatorEvent> nonPropThreadEvents = new ArrayList<SimulatorEvent>();
   private volatile boolean nonPropThreadEventsAvailable = false;
@@ -129,13 +212,33 @@ public class Propagator {
   private int eventSerialNumber = 0;
   static int lastId = 0;
 
+  /** SimulatorEvents that have been fully processed, linked through nextFree, ready to be reused. */
+  private static class FreeList {
+    SimulatorEvent head;
+    int size;
+  }
+
+  /**
+   * Free list of events, so that steady-state propagation does not allocate any events. Created by
+   * the propagation thread when it first recycles an event, and only ever touched by that thread.
+   */
+  private FreeList freeEvents = null;
+  private long eventsAllocated = 0;
+  private long eventsRecycled = 0;
+
+  /** Upper bound on the free list, so a single burst of events is not retained forever. */
+  private static final int MAX_FREE_EVENTS = 1 << 16;
+
   final int id = lastId++;
 
+  /** Follows the simulation options of the project, until dispose() is called. */
+  private final Listener optionsListener;
+
   public Propagator(CircuitState root, Thread propagatorThread) {
     this.root = root;
     this.propagatorThread = propagatorThread;
-    final var l = new Listener(this);
-    root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
+    optionsListener = new Listener(this);
+    root.getProject().getOptions().getAttributeSet().addAttributeListener(optionsListener);
     final var simQueueType = AppPreferences.SIMULATION_QUEUE.get();
     toProcess = switch (simQueueType) {
       case AppPreferences.SIM_QUEUE_LIST_OF_QUEUES, AppPreferences.SIM_QUEUE_TREE_OF_QUEUES
@@ -145,10 +248,21 @@ public class Propagator {
       // case AppPreferences.SIM_QUEUE_PRIORITY  -> new PriorityEventQueue<>();
       default -> new PriorityEventQueue<>();
     };
+    parallel = AppPreferences.SIMULATION_PARALLEL.getBoolean();
     updateRandomness();
     updateSimLimit();
   }
 
+  /**
+   * Stops following the simulation options of the project. Called when the state is no longer
+   * simulated, so that short-lived states, such as those of worker threads, don't leave their
+   * listeners behind until they are garbage collected. Like other changes to the project's
+   * listeners, this must not run concurrently with another thread adding or removing one.
+   */
+  public void dispose() {
+    root.getProject().getOptions().getAttributeSet().removeAttributeListener(optionsListener);
+  }
+
   public void drawOscillatingPoints(ComponentDrawContext context) {
     if (isOscillating) oscPoints.draw(context);
   }
@@ -165,6 +279,19 @@ public class Propagator {
     return isOscillating;
   }
 
+  /**
+   * Returns the number of SimulatorEvents this propagator had to allocate. Once the free list
+   * has warmed up this number stays constant, whatever the number of events processed.
+   */
+  public long getEventAllocationCount() {
+    return eventsAllocated;
+  }
+
+  /** Returns the number of SimulatorEvents that were taken from the free list instead of allocated. */
+  public long getEventReuseCount() {
+    return eventsRecycled;
+  }
+
   boolean isPending() {
     return !toProcess.isEmpty();
   }
@@ -216,7 +343,7 @@ public class Propagator {
   }
 
   /** Must be called by the propagation thread */
-  void reset() {
+  public void reset() {
     if (Thread.currentThread() != propagatorThread) {
       throw new RuntimeException("Reset called with incorrect thread");
     }
@@ -225,6 +352,7 @@ public class Propagator {
     synchronized (nonPropThreadEvents) {
       nonPropThreadEvents.clear();
     }
+    freeEvents = null;
     root.reset();
     isOscillating = false;
   }
@@ -240,7 +368,8 @@ public class Propagator {
     if (nonPropThreadEventsAvailable) {
       synchronized (nonPropThreadEvents) {
         for (final var ev : nonPropThreadEvents) {
-          setValueWithPropThread(ev.state, ev.loc, ev.val, ev.cause, ev.timeKey);
+          setValueWithPropThread(ev.state, ev.loc, ev.val, ev.cause, ev.port, ev.timeKey);
+          recycleEvent(ev);
         }
         nonPropThreadEvents.clear();
         nonPropThreadEventsAvailable = false;
@@ -248,24 +377,33 @@ public class Propagator {
     }
   }
 
-  /** May be called by any thread. */
-  void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
+  /**
+   * May be called by any thread. Port is the index of the cause's end at pt, or -1 if the caller
+   * doesn't know it.
+   */
+  void setValue(CircuitState state, Location pt, Value val, Component cause, int port, int delay) {
     if (cause instanceof Wire || cause instanceof Splitter) return;
     if (delay <= 0) {
       delay = 1;
     }
     if (Thread.currentThread() == propagatorThread) {
-      setValueWithPropThread(state, pt, val, cause, delay);
+      setValueWithPropThread(state, pt, val, cause, port, delay);
+      return;
+    }
+    final var captured = parallel ? capturedEvents.get() : null;
+    if (captured != null) {
+      captured.add(new SimulatorEvent(delay, 0, state, pt, cause, port, val));
     } else {
       synchronized (nonPropThreadEvents) {
-        nonPropThreadEvents.add(new SimulatorEvent(delay, 0, state, pt, cause, val));
+        nonPropThreadEvents.add(new SimulatorEvent(delay, 0, state, pt, cause, port, val));
         nonPropThreadEventsAvailable = true;
       }
     }
   }
 
   /** Must be called from the propagation thread. */
-  private void setValueWithPropThread(CircuitState state, Location pt, Value val, Component cause, int delay) {
+  private void setValueWithPropThread(CircuitState state, Location pt, Value val,
+                                      Component cause, int port, int delay) {
     final var randomShift = simRandomShift;
     if (randomShift > 0) { // random noise is turned on
       // multiply the delay by 32 so that the random noise
@@ -280,10 +418,149 @@ public class Propagator {
         }
       }
     }
-    toProcess.add(new SimulatorEvent(clock + delay, eventSerialNumber, state, pt, cause, val));
+    toProcess.add(obtainEvent(clock + delay, eventSerialNumber, state, pt, cause, port, val));
     eventSerialNumber++;
   }
 
+  /** Must be called from the propagation thread. */
+  private SimulatorEvent obtainEvent(int time, int serialNumber, CircuitState state,
+                                    Location pt, Component cause, int port, Value val) {
+    final var free = freeEvents;
+    final var ev = free == null ? null : free.head;
+    if (ev == null) {
+      eventsAllocated++;
+      return new SimulatorEvent(time, serialNumber, state, pt, cause, port, val);
+    }
+    free.head = ev.nextFree;
+    free.size--;
+    eventsRecycled++;
+    ev.nextFree = null;
+    ev.reinit(time, serialNumber, state, pt, cause, port, val);
+    return ev;
+  }
+
+  /**
+   * Returns a processed event to the free list. Must be called from the propagation thread, and
+   * only once nothing refers to the event anymore.
+   */
+  private void recycleEvent(SimulatorEvent ev) {
+    var free = freeEvents;
+    if (free == null) {
+      free = new FreeList();
+      freeEvents = free;
+    } else if (free.size >= MAX_FREE_EVENTS) {
+      return;
+    }
+    // drop references so recycled events don't keep removed components or states alive
+    ev.state = null;
+    ev.loc = null;
+    ev.cause = null;
+    ev.val = null;
+    ev.nextFree = free.head;
+    free.head = ev;
+    free.size++;
+  }
+
+  /**
+   * Returns all processed events of a CircuitState's dirty point list to the free list. Must be
+   * called from the propagation thread; the caller clears the list afterwards.
+   */
+  void recycleEvents(ArrayList<SimulatorEvent> processed) {
+    final var n = processed.size();
+    for (var i = 0; i < n; i++) {
+      recycleEvent(processed.get(i));
+    }
+  }
+
+  private static synchronized ExecutorService getParallelPool() {
+    if (parallelPool == null) {
+      final var threads = Runtime.getRuntime().availableProcessors();
+      final var pool = new ThreadPoolExecutor(threads, threads, PARALLEL_IDLE_SECONDS,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final var thread = new UniquelyNamedThread(r, "Propagator-parallel");
+            thread.setDaemon(true);
+            return thread;
+          });
+      pool.allowCoreThreadTimeOut(true);
+      parallelPool = pool;
+    }
+    return parallelPool;
+  }
+
+  /**
+   * Turns processing sibling substates on the parallel workers on or off, whatever the preference
+   * this propagator was created with. Must be called from the propagation thread, between steps.
+   */
+  void setParallel(boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  /**
+   * Processes the dirty components (or points) of the given sibling substates on the parallel
+   * workers, if parallel mode is on and there are enough of them. Each substate, along with its
+   * own substates, is processed by a single worker. Siblings only read values in their parent,
+   * which only change while processing the parent's points, but sibling instances of a circuit
+   * share its Circuit object, and components may share static state. So this is only done when
+   * the circuits of all siblings are thread-safe, see Circuit.isThreadSafe().
+   *
+   * @return false, without doing anything, if the caller must process the substates itself.
+   */
+  boolean processInParallel(CircuitState[] substates, boolean points) {
+    if (!parallel || Thread.currentThread() != propagatorThread) return false;
+    // oscillation tracking and single stepping record touched points in a shared list
+    if (points && oscAdding) return false;
+    var count = 0;
+    while (count < substates.length && substates[count] != null) count++;
+    if (count < MIN_PARALLEL_SUBSTATES) return false;
+    Circuit checked = null;
+    for (var i = 0; i < count; i++) {
+      final var circuit = substates[i].getCircuit();
+      if (circuit == checked) continue;
+      if (!circuit.isThreadSafe()) return false;
+      checked = circuit;
+    }
+
+    final var tasks = new ArrayList<SubstateTask>(count);
+    for (var i = 0; i < count; i++) {
+      tasks.add(new SubstateTask(substates[i], points));
+    }
+    final var pool = getParallelPool();
+    final var results = new ArrayList<Future<Void>>(count);
+    for (final var task : tasks) {
+      results.add(pool.submit(task));
+    }
+    // wait for every worker, even when interrupted or when one fails, so that none is still
+    // using the states once this returns
+    var interrupted = false;
+    Throwable failure = null;
+    for (final var result : results) {
+      while (true) {
+        try {
+          result.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (failure == null) failure = e.getCause();
+          break;
+        }
+      }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+    if (failure instanceof RuntimeException re) throw re;
+    if (failure instanceof Error err) throw err;
+    if (failure != null) throw new IllegalStateException(failure);
+    // merge in sibling order, so that serial numbers match the single-threaded engine
+    for (final var task : tasks) {
+      for (final var ev : task.generated) {
+        setValueWithPropThread(ev.state, ev.loc, ev.val, ev.cause, ev.port, ev.timeKey);
+        recycleEvent(ev);
+      }
+      recycleEvents(task.processed);
+    }
+    return true;
+  }
+
   /** Must be called from propagation thread */
   boolean step(PropagationPoints changedPoints) {
     if (Thread.currentThread() != propagatorThread) {
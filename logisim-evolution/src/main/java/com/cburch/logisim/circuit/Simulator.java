@@ -33,12 +33,18 @@ public class Simulator {
     private final boolean didTick;
     private final boolean didSingleStep;
     private final boolean didPropagate;
+    private final int tickCount;
 
     public Event(Simulator src, boolean t, boolean s, boolean p) {
+      this(src, t, s, p, t ? 1 : 0);
+    }
+
+    public Event(Simulator src, boolean t, boolean s, boolean p, int ticks) {
       source = src;
       didTick = t;
       didSingleStep = s;
       didPropagate = p;
+      tickCount = ticks;
     }
 
     public Simulator getSource() {
@@ -56,6 +62,11 @@ public class Simulator {
     public boolean didPropagate() {
       return didPropagate;
     }
+
+    /** Returns the number of ticks this event reports, more than one for a batch of auto-ticks. */
+    public int getTickCount() {
+      return tickCount;
+    }
   }
 
   public static interface StatusListener {
@@ -111,7 +122,10 @@ public class Simulator {
   //
   // [auto-tick]   If autoTicking is on and autoPropagation is on, the thread
   //               periodically wakes up and invokes toggleClocks() then
-  //               propagate().
+  //               propagate(). Above 1 kHz, the ticks due since the last
+  //               wake-up are run as one batch of at most a display refresh
+  //               period, reported by a single event unless the chronogram
+  //               listens, which needs each tick.
   //
   // [manual-tick] If the User/GUI requests a tick happen and autoPropagation is
   //               on, the thread wakes up and invokes toggleClocks() then
@@ -130,6 +144,11 @@ public class Simulator {
   //               stable, then toggleClocks() is also called before step().
   private static class SimThread extends UniquelyNamedThread {
 
+    // auto-ticks of a shorter period are run in batches
+    private static final long BATCH_TICK_NANOS = 1_000_000L;
+    // longest batch, in simulated and in real time: about one display refresh
+    private static final long BATCH_MAX_NANOS = 1_000_000_000L / 60;
+
     private final Simulator sim;
 
     private ReentrantLock simStateLock = new ReentrantLock();
@@ -148,6 +167,8 @@ public class Simulator {
     private boolean resetRequested = false;
     private boolean complete = false;
     private double avgTickNanos = -1.0;
+    // incremented on each change of the above, so that a batch of ticks stops for requests
+    private volatile int stateVersion = 0;
 
     // These are copies of some of the above variables that can be read without
     // the lock if synchronization with other variables is not needed.
@@ -212,6 +233,14 @@ public class Simulator {
       return autoPropagatingUnsynchronized ? "" : stepPoints.getSingleStepMessage();
     }
 
+    // Must be called with the lock held.
+    private void stateUpdated() {
+      stateVersion++;
+      if (Thread.currentThread() != this) {
+        simStateUpdated.signalAll();
+      }
+    }
+
     boolean setPropagator(Propagator prop) {
       var smoothFactor = 1;
       if (prop != null) {
@@ -231,9 +260,7 @@ public class Simulator {
         smoothingFactor = smoothFactor;
         manualTicksRequested = 0;
         manualStepsRequested = 0;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
         return true;
       } finally {
         simStateLock.unlock();
@@ -253,9 +280,7 @@ public class Simulator {
         } else {
           nudgeRequested = false;
         }
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
         return true;
       } finally {
         simStateLock.unlock();
@@ -270,9 +295,7 @@ public class Simulator {
         }
         autoTicking = value;
         autoTickingUnsynchronized = value;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
         return true;
       } finally {
         simStateLock.unlock();
@@ -289,9 +312,7 @@ public class Simulator {
         autoTickFreqUnsynchronized = freq;
         autoTickNanos = freq <= 0 ? 0 : Math.round(1.0e9 / autoTickFreq);
         avgTickNanos = -1.0;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
         return true;
       } finally {
         simStateLock.unlock();
@@ -304,9 +325,7 @@ public class Simulator {
         manualStepsRequested++;
         autoPropagating = false;
         autoPropagatingUnsynchronized = false;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
       } finally {
         simStateLock.unlock();
       }
@@ -316,9 +335,7 @@ public class Simulator {
       simStateLock.lock();
       try {
         manualTicksRequested += count;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
       } finally {
         simStateLock.unlock();
       }
@@ -330,9 +347,7 @@ public class Simulator {
         resetRequested = true;
         manualTicksRequested = 0;
         manualStepsRequested = 0;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
       } finally {
         simStateLock.unlock();
       }
@@ -345,9 +360,7 @@ public class Simulator {
           return false;
         }
         nudgeRequested = true;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
         return true;
       } finally {
         simStateLock.unlock();
@@ -361,9 +374,7 @@ public class Simulator {
           requestedTestVectors = new ArrayList<TestVectorEvaluator>();
         }
         requestedTestVectors.add(evaluator);
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
       } finally {
         simStateLock.unlock();
       }
@@ -373,9 +384,7 @@ public class Simulator {
       simStateLock.lock();
       try {
         complete = true;
-        if (Thread.currentThread() != this) {
-          simStateUpdated.signalAll();
-        }
+        stateUpdated();
       } finally {
         simStateLock.unlock();
       }
@@ -391,6 +400,11 @@ public class Simulator {
       var doTickIfStable = false;
       var doStep = false;
       var doProp = false;
+      var batched = false;
+      var tickCount = 1; // more than one for a batch of auto-ticks
+      var tickNanos = 0L;
+      var batchBehind = false;
+      var version = 0;
       var now = 0L;
 
       simStateLock.lock();
@@ -430,7 +444,31 @@ public class Simulator {
             doStep = !autoPropagating;
             ready = true;
           } else {
-            if (autoTicking && autoPropagating && autoTickNanos > 0) {
+            if (autoTicking && autoPropagating && autoTickNanos > 0
+                && autoTickNanos < BATCH_TICK_NANOS) {
+              // run all the auto-ticks due since the last batch, waiting at
+              // least BATCH_TICK_NANOS between batches rather than spinning
+              final var maxBatch = Math.max(1, BATCH_MAX_NANOS / autoTickNanos);
+              final var due = avgTickNanos <= 0 ? 1 : (now - lastTick) / autoTickNanos;
+              if (due >= 1) {
+                if (avgTickNanos <= 0) lastTick = now;
+                avgTickNanos = autoTickNanos;
+                batched = true;
+                tickNanos = autoTickNanos;
+                tickCount = (int) Math.min(due, maxBatch);
+                batchBehind = due > maxBatch;
+                doTick = true;
+                doProp = true;
+                ready = true;
+              } else {
+                try {
+                  simStateUpdated.awaitNanos(
+                      Math.max(lastTick + autoTickNanos - now, BATCH_TICK_NANOS));
+                } catch (InterruptedException e) {
+                  // Do Nothing
+                }
+              }
+            } else if (autoTicking && autoPropagating && autoTickNanos > 0) {
               // see if it is time to do an auto-tick
               final var smooth = smoothingFactor;
               final var lastNanos = now - lastTick;
@@ -448,16 +486,6 @@ public class Simulator {
                   doTick = true;
                   doProp = true;
                   ready = true;
-                } else if (delta < 1000000) {
-                  simStateLock.unlock();
-                  try {
-                    var time = 0L;
-                    do {
-                      time = System.nanoTime();
-                    } while (time < deadline);
-                  } finally {
-                    simStateLock.lock();
-                  }
                 } else {
                   try {
                     simStateUpdated.awaitNanos(delta);
@@ -476,6 +504,7 @@ public class Simulator {
             }
           }
         } while (!ready);
+        version = stateVersion;
       } finally {
         simStateLock.unlock();
       }
@@ -518,28 +547,55 @@ public class Simulator {
         }
       }
 
-      if (doTick || (doTickIfStable && prop != null && !prop.isPending())) {
-        lastTick = now;
-        ticked = true;
-        if (prop != null) {
-          hasClocks = prop.toggleClocks();
+      // A batch is reported by a single event, except to the chronogram,
+      // which records every tick.
+      final var batchStart = System.nanoTime();
+      final var reportEachTick = tickCount > 1 && sim.progressListener != null;
+      var ticks = 0; // not reported yet
+      var ticksRun = 0;
+      for (var i = 0; i < tickCount; i++) {
+        if (i > 0) {
+          // stop the batch early for requests, oscillations or lack of time
+          if (oops || !hasClocks || prop == null || prop.isOscillating()
+              || stateVersion != version || System.nanoTime() - batchStart > BATCH_MAX_NANOS) {
+            break;
+          }
+          if (reportEachTick) {
+            sim.firePropagationCompleted(true, false, propagated, ticks);
+            ticks = 0;
+          }
         }
-      }
 
-      if (doProp || doNudge) {
-        try {
-          propagated = doProp;
-          final var listener = sim.progressListener;
-          final var evt = listener == null ? null : new Event(sim, false, false, false);
-          stepPoints.clear();
+        if (doTick || (doTickIfStable && prop != null && !prop.isPending())) {
+          ticked = true;
+          ticks++;
+          ticksRun++;
           if (prop != null) {
-            propagated |= prop.propagate(listener, evt);
+            hasClocks = prop.toggleClocks();
+          }
+        }
+
+        if (doProp || doNudge) {
+          try {
+            propagated = doProp;
+            final var listener = sim.progressListener;
+            final var evt = listener == null ? null : new Event(sim, false, false, false);
+            stepPoints.clear();
+            if (prop != null) {
+              propagated |= prop.propagate(listener, evt);
+            }
+          } catch (Exception err) {
+            oops = true;
+            err.printStackTrace();
           }
-        } catch (Exception err) {
-          oops = true;
-          err.printStackTrace();
         }
       }
+      if (batched) {
+        // batches keep the phase of the ticks, unless they fall behind
+        lastTick = batchBehind ? now : lastTick + ticksRun * tickNanos;
+      } else if (ticked) {
+        lastTick = now;
+      }
 
       if (doStep) {
         try {
@@ -585,7 +641,7 @@ public class Simulator {
       // accompanied by a tick, step, or propagate. That allows for a repaint in
       // some components.
       if (ticked || stepped || propagated || doNudge) {
-        sim.firePropagationCompleted(ticked, stepped && !propagated, propagated);
+        sim.firePropagationCompleted(ticked && ticks > 0, stepped && !propagated, propagated, ticks);
       }
       if (clockDied) {
         sim.fireSimulatorStateChanged();
@@ -736,8 +792,8 @@ public class Simulator {
   }
 
   // called from simThread
-  private void firePropagationCompleted(boolean t, boolean s, boolean p) {
-    final var event = new Event(this, t, s, p);
+  private void firePropagationCompleted(boolean t, boolean s, boolean p, int ticks) {
+    final var event = new Event(this, t, s, p, ticks);
     var nrListeners = numListeners;
     if (nrListeners < 0) {
       synchronized (lock) {
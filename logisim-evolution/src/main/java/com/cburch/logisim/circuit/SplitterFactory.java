@@ -49,6 +49,12 @@ public class SplitterFactory extends AbstractComponentFactory {
     return new Splitter(loc, attrs);
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    // splitters are simulated by CircuitWires, on the state being propagated
+    return true;
+  }
+
   //
   // user interface methods
   //
@@ -390,6 +390,13 @@ public class SubcircuitFactory extends InstanceFactory {
 
     final var attrs = (CircuitAttributes) stateInContext.getAttributeSet();
     final var pins = attrs.getPinInstances();
+    if (LevelizedCircuit.isEnabled() && !subState.isObserved()) {
+      // Purely combinational subcircuits are evaluated in one pass. The substate is left alone,
+      // so it stays consistent with its own pin values for when we have to fall back to it, or
+      // when the user looks inside and it has to catch up.
+      final var levelized = source.getLevelizedCircuit();
+      if (levelized != null && levelized.propagate(stateInContext, pins)) return;
+    }
     for (var i = 0; i < pins.length; i++) {
       final var pin = pins[i];
       // This reuse is OK since the substate has its own reusable InstanceState, not equal to stateInContext.
@@ -9,24 +9,37 @@ import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.UniquelyNamedThread;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
 
 import static com.cburch.logisim.gui.Strings.S;
 
 /** Evaluates the given TestVector using the requested steps on the given root CircuitState, state. */
 public class TestVectorEvaluator {
+  /** Maximum number of combinational rows handed to a worker at once in parallel mode. */
+  private static final int COMBINATIONAL_ROWS_PER_UNIT = 64;
+
   final CircuitState state;
   final TestVector vector;
   final Instance[] pins;
   ArrayList<Integer> stepsToExecute = null;
   boolean allowReset = true;
   boolean propagateOnLast = true;
-  boolean canceled = false;
+  boolean parallel = false;
+  volatile boolean canceled = false;
+  Boolean combinationalCircuit = null; // whether the circuit is purely combinational, once known
   Consumer<TestVectorEvaluator> callback; // final callback with this evaluator
 
+  /** Result of one step in parallel mode. */
+  private record StepReport(int row, ArrayList<LineReport> report) {}
+
   public record LineReport(int column, String columnName, Value expected, Value computed, boolean oscillating) {
     @Override
     public String toString() {
@@ -76,6 +89,16 @@ public class TestVectorEvaluator {
     this.canceled = canceled;
   }
 
+  /**
+   * In parallel mode, combinational rows and sequential sets are evaluated by worker threads, each
+   * on its own clone of the state, and the state given to this evaluator is left untouched. Line
+   * reports are still made in the order of the steps, on the calling thread. Only used when
+   * resetting is allowed, and not on the AWT thread, which the workers may need.
+   */
+  public void setParallel(boolean parallel) {
+    this.parallel = parallel;
+  }
+
   public ArrayList<Integer> buildSortedIndices() {
     ArrayList<Integer> sortedIndices = new ArrayList<>();
     for (int i = 0; i < vector.data.size(); i++) {
@@ -100,11 +123,15 @@ public class TestVectorEvaluator {
    * @return a 2 element matrix with the number of passing and number of failing lines.
    */
   public int[] evaluate(ArrayList<Integer> stepsToDo, BiConsumer<Integer, ArrayList<LineReport>> lineReportAction) {
+    if (parallel && allowReset && stepsToDo.size() > 1 && !SwingUtilities.isEventDispatchThread()) {
+      return evaluateInParallel(stepsToDo, lineReportAction);
+    }
     Propagator prop = state.getPropagator();
     int numPass = 0;
     int numFails = 0;
     int currentSet = -1; // Track current set.
     int currentSeq = 0; // Track current sequence.
+    boolean afterCombinationalRow = false; // Whether the state holds the result of a combinational row.
     canceled = false;
 
     for (int stepRow : stepsToDo) {
@@ -120,11 +147,18 @@ public class TestVectorEvaluator {
       currentSet = testSet;
       currentSeq = testSeq;
 
-      // Reset circuit state before starting the sequence (if requested)
-      if (allowReset && shouldReset) {
+      // Reset circuit state before starting the sequence (if requested). A purely combinational
+      // circuit doesn't remember anything, so from one combinational row to the next it is enough
+      // to drive the pins that changed.
+      boolean skipReset = false;
+      if (allowReset && shouldReset && testSeq == 0 && afterCombinationalRow && !prop.isOscillating()) {
+        skipReset = isCombinationalCircuit();
+      }
+      if (allowReset && shouldReset && !skipReset) {
         prop.reset();
         prop.propagate();
       }
+      afterCombinationalRow = testSeq == 0;
 
       if (!shouldReset && !prop.isOscillating()) {
         prop.toggleClocks();
@@ -191,6 +225,120 @@ public class TestVectorEvaluator {
     return new int[] {numPass, numFails};
   }
 
+  /** Tells whether the circuit is purely combinational, working it out when first asked. */
+  private boolean isCombinationalCircuit() {
+    if (combinationalCircuit == null) {
+      combinationalCircuit = state.getCircuit().isCombinational();
+    }
+    return combinationalCircuit;
+  }
+
+  /**
+   * Evaluates the steps on worker threads. The steps are split into units that don't depend on
+   * each other: each run of steps of a sequential set, and blocks of combinational rows. Each
+   * worker evaluates the units it takes with an evaluator of its own, on a clone of the state made
+   * on this thread before the workers start.
+   */
+  private int[] evaluateInParallel(ArrayList<Integer> stepsToDo,
+                                   BiConsumer<Integer, ArrayList<LineReport>> lineReportAction) {
+    final var units = new ArrayList<ArrayList<Integer>>();
+    ArrayList<Integer> unit = null;
+    int unitSet = -1;
+    int unitSeq = 0;
+    for (int stepRow : stepsToDo) {
+      if (stepRow < 0 || stepRow >= vector.data.size()) continue; // shouldn't happen.
+      final int testSet = vector.setNumbers[stepRow];
+      final int testSeq = vector.seqNumbers[stepRow];
+      final boolean sameUnit = unit != null
+          && (testSeq == 0
+              ? unitSeq == 0 && unit.size() < COMBINATIONAL_ROWS_PER_UNIT
+              : unitSeq != 0 && testSet == unitSet);
+      if (!sameUnit) {
+        unit = new ArrayList<>();
+        units.add(unit);
+      }
+      unit.add(stepRow);
+      unitSet = testSet;
+      unitSeq = testSeq;
+    }
+
+    canceled = false;
+    // Work out once, here, whether the circuit is combinational, so that all workers agree, and
+    // so that the levelized engine finds the circuit compiled.
+    final var combinational = isCombinationalCircuit();
+
+    final var results = new ArrayList<CompletableFuture<ArrayList<StepReport>>>(units.size());
+    for (var i = 0; i < units.size(); i++) {
+      results.add(new CompletableFuture<>());
+    }
+    final var nextUnit = new AtomicInteger();
+    final var threadCount = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(units.size(), 1));
+    final var threads = new Thread[threadCount];
+    final var workers = new TestVectorEvaluator[threadCount];
+    for (var i = 0; i < threadCount; i++) {
+      final var index = i;
+      threads[i] = new UniquelyNamedThread(() -> {
+        final var worker = workers[index];
+        for (int u; (u = nextUnit.getAndIncrement()) < units.size(); ) {
+          final var reports = new ArrayList<StepReport>();
+          if (!canceled) {
+            try {
+              // Only the last of all the steps may be left unpropagated.
+              worker.propagateOnLast = propagateOnLast || u != units.size() - 1;
+              worker.evaluate(units.get(u), (row, report) -> reports.add(new StepReport(row, report)));
+            } catch (Throwable t) {
+              results.get(u).completeExceptionally(t);
+              continue;
+            }
+          }
+          results.get(u).complete(reports);
+        }
+      }, "TestVectorEvaluator");
+      threads[i].setDaemon(true);
+      try {
+        workers[i] = new TestVectorEvaluator(state.cloneAsNewRootState(threads[i]), vector, null);
+        workers[i].combinationalCircuit = combinational;
+      } catch (TestException e) {
+        throw new IllegalStateException(e); // the clone has the same pins as the state.
+      }
+    }
+    for (final var thread : threads) {
+      thread.start();
+    }
+
+    int numPass = 0;
+    int numFails = 0;
+    try {
+      for (final var result : results) {
+        if (canceled) break;
+        for (final var step : result.get()) {
+          if (lineReportAction != null) {
+            if (step.report().isEmpty()) {
+              numPass++;
+            } else {
+              numFails++;
+            }
+            lineReportAction.accept(step.row(), step.report());
+          }
+          if (canceled) break;
+        }
+      }
+    } catch (InterruptedException e) {
+      canceled = true;
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      canceled = true;
+      final var cause = e.getCause();
+      if (cause instanceof RuntimeException re) throw re;
+      if (cause instanceof Error err) throw err;
+      throw new IllegalStateException(cause);
+    }
+    if (callback != null) {
+      callback.accept(this);
+    }
+    return new int[] {numPass, numFails};
+  }
+
   /**
    * Finds the pin and clock instances in the state for the vec. It does not search substates of state.
    *
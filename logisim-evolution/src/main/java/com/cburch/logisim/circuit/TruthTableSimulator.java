@@ -0,0 +1,244 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.analyze.model.TruthTable;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Ram;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.UniquelyNamedThread;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Computes the truth table of a circuit by simulating every combination of its input pins.
+ *
+ * <p>The rows are split into blocks simulated by worker threads. Each worker keeps a single root
+ * CircuitState, which it resets between rows rather than building a new one, and the results are
+ * handed to the listener in row order as soon as the blocks are done. Only a few blocks per worker
+ * are submitted ahead of the listener, so memory use doesn't grow with the table.
+ *
+ * <p>The states of the workers are created by the constructor, and released by dispose(), both on
+ * the thread the simulator was created on: each state adds a listener to the project's options,
+ * which must not be done from several threads at once. run() can then be called on another
+ * thread, which is how the analyzer keeps the AWT thread free.
+ */
+public final class TruthTableSimulator {
+  /** Rows simulated by a worker in one go. */
+  private static final int ROWS_PER_BLOCK = 256;
+  /** Blocks submitted but not yet handed to the listener, per worker thread. */
+  private static final int BLOCKS_PER_THREAD = 2;
+
+  public interface RowListener {
+    /**
+     * Called once for each row, in order, on the thread that called run().
+     *
+     * @param inputs the values driven on the input pins.
+     * @param outputs the values of the output pins, or errors if the circuit oscillates.
+     */
+    void rowComputed(int row, Value[] inputs, Value[] outputs, boolean oscillating);
+  }
+
+  private final Project proj;
+  private final Circuit circuit;
+  private final Instance[] inputPins;
+  private final Instance[] outputPins;
+  private final int inputCount;
+  private final Worker[] workers;
+  private final LinkedBlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+  private boolean started = false;
+
+  public TruthTableSimulator(Project proj, Circuit circuit, List<Instance> inputPins, List<Instance> outputPins) {
+    this.proj = proj;
+    this.circuit = circuit;
+    this.inputPins = inputPins.toArray(new Instance[0]);
+    this.outputPins = outputPins.toArray(new Instance[0]);
+    var count = 0;
+    for (final var pin : inputPins) {
+      count += pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+    }
+    inputCount = count;
+    final var blockCount = (getRowCount() + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+    workers = new Worker[Math.min(Runtime.getRuntime().availableProcessors(), blockCount)];
+    for (var i = 0; i < workers.length; i++) {
+      workers[i] = new Worker();
+    }
+  }
+
+  /** Returns the number of rows, i.e. 2 to the power of the number of input bits. */
+  public int getRowCount() {
+    return 1 << inputCount;
+  }
+
+  /** The simulation results of a block of rows. */
+  private static class Block {
+    final Value[][] inputs;
+    final Value[][] outputs;
+    final boolean[] oscillating;
+
+    Block(int rows) {
+      inputs = new Value[rows][];
+      outputs = new Value[rows][];
+      oscillating = new boolean[rows];
+    }
+  }
+
+  /** A block of rows to simulate, and the result it completes. */
+  private record Task(int start, int rows, CompletableFuture<Block> result) {}
+
+  /**
+   * A worker thread, simulating the blocks taken from the queue on its circuit state, and whether
+   * the state must be reset before simulating a row.
+   */
+  private final class Worker implements Runnable {
+    final Thread thread = new UniquelyNamedThread(this, "TruthTableSimulator");
+    final CircuitState state = CircuitState.createRootState(proj, circuit, thread);
+    boolean used = false;
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final var task = tasks.take();
+          try {
+            final var block = new Block(task.rows);
+            for (var i = 0; i < task.rows; i++) {
+              if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+              simulate(task.start + i, block, i);
+            }
+            task.result.complete(block);
+          } catch (RuntimeException | Error e) {
+            task.result.completeExceptionally(e);
+          }
+        }
+      } catch (InterruptedException e) {
+        // stopped by run()
+      }
+    }
+
+    void simulate(int row, Block block, int index) {
+      final var prop = state.getPropagator();
+      if (used) {
+        prop.reset();
+        Ram.clearContents(state);
+      }
+      used = true;
+      final var inputs = new Value[inputPins.length];
+      var incol = 0;
+      for (var p = 0; p < inputPins.length; p++) {
+        final var width = inputPins[p].getAttributeValue(StdAttr.WIDTH).getWidth();
+        final var v = new Value[width];
+        for (var b = width - 1; b >= 0; b--) {
+          v[b] = TruthTable.isInputSet(row, incol++, inputCount) ? Value.TRUE : Value.FALSE;
+        }
+        inputs[p] = Value.create(v);
+        Pin.FACTORY.driveInputPin(state.getInstanceState(inputPins[p]), inputs[p]);
+      }
+
+      prop.propagate();
+
+      final var oscillating = prop.isOscillating();
+      final var outputs = new Value[outputPins.length];
+      for (var p = 0; p < outputPins.length; p++) {
+        outputs[p] = oscillating
+            ? Value.createError(outputPins[p].getAttributeValue(StdAttr.WIDTH))
+            : Pin.FACTORY.getValue(state.getInstanceState(outputPins[p]));
+      }
+      block.inputs[index] = inputs;
+      block.outputs[index] = outputs;
+      block.oscillating[index] = oscillating;
+    }
+  }
+
+  /**
+   * Simulates all rows and passes them to the listener. This can only be done once, and not on the
+   * AWT thread, which the workers may need in order to compute the wire connectivity of the
+   * circuits.
+   *
+   * @throws CancellationException if the calling thread is interrupted. The rows passed to the
+   *     listener until then are the only ones computed.
+   */
+  public void run(RowListener listener) {
+    if (started) throw new IllegalStateException("truth table simulation already run");
+    started = true;
+    for (final var worker : workers) {
+      worker.thread.setDaemon(true);
+      worker.thread.start();
+    }
+    final var rowCount = getRowCount();
+    final var window = new ArrayDeque<Future<Block>>();
+    var nextStart = 0;
+    try {
+      var row = 0;
+      while (row < rowCount) {
+        while (nextStart < rowCount && window.size() < workers.length * BLOCKS_PER_THREAD) {
+          final var task = new Task(nextStart, Math.min(ROWS_PER_BLOCK, rowCount - nextStart),
+              new CompletableFuture<>());
+          tasks.add(task);
+          window.add(task.result);
+          nextStart += task.rows;
+        }
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        final var block = window.remove().get();
+        for (var i = 0; i < block.inputs.length; i++, row++) {
+          listener.rowComputed(row, block.inputs[i], block.outputs[i], block.oscillating[i]);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("truth table simulation interrupted");
+    } catch (ExecutionException e) {
+      final var cause = e.getCause();
+      if (cause instanceof RuntimeException re) throw re;
+      throw new IllegalStateException(cause);
+    } finally {
+      stopWorkers();
+    }
+  }
+
+  /**
+   * Stops the workers, each after the row it is simulating, and waits for them, so that their
+   * states are no longer in use. The interrupt status of the calling thread is kept.
+   */
+  private void stopWorkers() {
+    for (final var worker : workers) {
+      worker.thread.interrupt();
+    }
+    var interrupted = Thread.interrupted();
+    for (final var worker : workers) {
+      while (worker.thread.isAlive()) {
+        try {
+          worker.thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+  }
+
+  /**
+   * Removes the listeners of the workers' states from the project. Must be called on the thread
+   * the simulator was created on, once run() has returned.
+   */
+  public void dispose() {
+    for (final var worker : workers) {
+      worker.state.getPropagator().dispose();
+    }
+  }
+}
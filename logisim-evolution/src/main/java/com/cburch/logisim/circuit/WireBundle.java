@@ -22,6 +22,7 @@ class WireBundle {
   private boolean isBus_ = false;
   WireThread[] threads = null; // will be set when Connectivity is done being constructed
   Location[] xpoints = null; // will be set when Connectivity is done being constructed
+  int index = -1; // position in Connectivity.bundleList, set when Connectivity is done
   HashSet<Location> tempPoints = new HashSet<>();
   // bundle
   // hits
@@ -29,7 +29,8 @@ import javax.swing.Icon;
 public abstract class AbstractComponentFactory implements ComponentFactory {
   private static final Icon toolIcon = IconsUtil.getIcon("subcirc.gif");
 
-  private AttributeSet defaultSet;
+  // created when first needed, possibly by several threads loading a file at once
+  private volatile AttributeSet defaultSet;
   private final HdlGeneratorFactory myHDLGenerator;
   private final boolean requiresLabel;
   private final boolean requiresGlobalClockConnection;
@@ -169,6 +170,17 @@ public abstract class AbstractComponentFactory implements ComponentFactory {
     return false;
   }
 
+  /**
+   * Tells whether instances of this factory can be propagated on several threads at once, each in
+   * its own circuit state: propagation only uses the state it is given, and nothing is shared
+   * between instances through the factory or static fields. Only then can a circuit using them be
+   * simulated on the parallel workers.
+   */
+  @Override
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   /* HDL Methods */
   @Override
   public boolean requiresNonZeroLabel() {
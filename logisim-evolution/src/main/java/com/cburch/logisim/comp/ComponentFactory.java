@@ -97,4 +97,7 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 
   /* Added for Soc simulation core */
   boolean isSocComponent();
+
+  /* Added for parallel simulation */
+  boolean isThreadSafe();
 }
@@ -21,4 +21,9 @@ public interface ComponentListener {
   default void labelChanged(ComponentEvent e) {
     // no-op implementation
   }
+
+  // the bounds of the component, or of its label, may have changed
+  default void boundsChanged(ComponentEvent e) {
+    // no-op implementation
+  }
 }
@@ -69,6 +69,14 @@ public abstract class ManagedComponent extends AbstractComponent {
     }
   }
 
+  protected void fireBoundsChanged() {
+    ComponentEvent e = null;
+    for (final var l : listeners) {
+      if (e == null) e = new ComponentEvent(this);
+      l.boundsChanged(e);
+    }
+  }
+
   protected void fireEndChanged(ComponentEvent e) {
     ComponentEvent copy = null;
     for (final var l : listeners) {
@@ -139,6 +147,7 @@ public abstract class ManagedComponent extends AbstractComponent {
 
   protected void recomputeBounds() {
     bounds = null;
+    fireBoundsChanged();
   }
 
   @Override
@@ -156,6 +165,7 @@ public abstract class ManagedComponent extends AbstractComponent {
 
   public void setBounds(Bounds bounds) {
     this.bounds = bounds;
+    fireBoundsChanged();
   }
 
   public void setEnd(int i, EndData data) {
@@ -0,0 +1,278 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.generated.BuildInfo;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.util.XmlUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A cache of project files as they are once parsed and repaired for compatibility, so that opening
+ * an unchanged file again skips both steps.
+ *
+ * <p>Entries are named after the SHA-256 hash of the file content, in the directory given by the
+ * preferences. An entry holds the document in a compact binary form: a table of all the strings
+ * it uses, followed by its elements and texts in document order, each name and value being an
+ * index into the table. It is read through a memory mapping, and only used if its format version,
+ * the build that wrote it and the content hash all match; otherwise, or if it cannot be read,
+ * the entry is deleted, and the file is parsed as usual and the entry written anew. Comments and
+ * processing instructions are not kept, as the loader ignores them.
+ *
+ * <p>The modification time of an entry is updated whenever it is used. After each write, the least
+ * recently used entries are deleted until the directory holds at most {@link #MAX_SIZE} bytes.
+ */
+final class ProjectCache {
+  private static final int MAGIC = 0x4c474343; // "LGCC"
+  private static final int FORMAT_VERSION = 1;
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final String ENTRY_SUFFIX = ".bin";
+  static final long MAX_SIZE = 64L << 20;
+
+  private ProjectCache() {}
+
+  static boolean isEnabled() {
+    return AppPreferences.PROJECT_CACHE.getBoolean();
+  }
+
+  /** Returns the key under which a file with the given content is cached. */
+  static byte[] getKey(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      // all Java platforms are required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static File getDirectory() {
+    return new File(AppPreferences.PROJECT_CACHE_DIR.get());
+  }
+
+  static File getEntry(File dir, byte[] key) {
+    final var name = new StringBuilder();
+    for (final var b : key) name.append(String.format("%02x", b));
+    return new File(dir, name.append(ENTRY_SUFFIX).toString());
+  }
+
+  private static String getBuild() {
+    return BuildInfo.version + " " + BuildInfo.buildId;
+  }
+
+  /** Returns the cached root element, or null if there is no valid entry for the key. */
+  static Element read(byte[] key) {
+    return read(getDirectory(), key);
+  }
+
+  static Element read(File dir, byte[] key) {
+    final var entry = getEntry(dir, key);
+    if (!entry.isFile()) return null;
+    final var root = readEntry(entry, key);
+    try {
+      if (root == null) {
+        entry.delete();
+      } else {
+        entry.setLastModified(System.currentTimeMillis());
+      }
+    } catch (SecurityException e) {
+      // the entry is then only used, or replaced, as it is
+    }
+    return root;
+  }
+
+  private static Element readEntry(File entry, byte[] key) {
+    try (final var channel = FileChannel.open(entry.toPath(), StandardOpenOption.READ)) {
+      final var buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) return null;
+      if (!getBuild().equals(readString(buf))) return null;
+      final var storedKey = new byte[readLength(buf, 1)];
+      buf.get(storedKey);
+      if (!Arrays.equals(key, storedKey)) return null;
+      final var strings = new String[readLength(buf, 4)];
+      for (var i = 0; i < strings.length; i++) strings[i] = readString(buf);
+      final var doc =
+          XmlUtil.getHardenedBuilderFactory().newDocumentBuilder().newDocument();
+      if (buf.get() != ELEMENT) return null;
+      final var root = readElement(buf, doc, strings);
+      doc.appendChild(root);
+      return buf.hasRemaining() ? null : root;
+    } catch (IOException
+        | BufferUnderflowException
+        | IndexOutOfBoundsException
+        | IllegalArgumentException
+        | DOMException
+        | ParserConfigurationException e) {
+      return null;
+    }
+  }
+
+  /** Reads the length of an array, checking that the rest of the entry can hold it. */
+  private static int readLength(ByteBuffer buf, int bytesPerItem) {
+    final var length = buf.getInt();
+    if (length < 0 || length > buf.remaining() / bytesPerItem) {
+      throw new IllegalArgumentException("bad length");
+    }
+    return length;
+  }
+
+  private static String readString(ByteBuffer buf) {
+    final var bytes = new byte[readLength(buf, 1)];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static Element readElement(ByteBuffer buf, Document doc, String[] strings) {
+    final var elt = doc.createElement(strings[buf.getInt()]);
+    final var attrCount = buf.getInt();
+    for (var i = 0; i < attrCount; i++) {
+      final var name = strings[buf.getInt()];
+      elt.setAttribute(name, strings[buf.getInt()]);
+    }
+    final var childCount = buf.getInt();
+    for (var i = 0; i < childCount; i++) {
+      switch (buf.get()) {
+        case ELEMENT -> elt.appendChild(readElement(buf, doc, strings));
+        case TEXT -> elt.appendChild(doc.createTextNode(strings[buf.getInt()]));
+        default -> throw new IllegalArgumentException("bad node type");
+      }
+    }
+    return elt;
+  }
+
+  /**
+   * Writes the entry for the key. The entry is written to a temporary file first, so that another
+   * process never reads a partial entry. Failures are ignored: the file is then parsed next time.
+   */
+  static void write(byte[] key, Element root) {
+    write(getDirectory(), key, root);
+  }
+
+  static void write(File dir, byte[] key, Element root) {
+    final var entry = getEntry(dir, key);
+    File temp = null;
+    try {
+      final var strings = new HashMap<String, Integer>();
+      final var table = new ArrayList<String>();
+      final var tree = new ByteArrayOutputStream();
+      final var treeOut = new DataOutputStream(tree);
+      treeOut.writeByte(ELEMENT);
+      writeElement(treeOut, root, strings, table);
+      treeOut.flush();
+
+      if (!dir.isDirectory() && !dir.mkdirs()) return;
+      temp = File.createTempFile("entry", ".tmp", dir);
+      try (final var out = new DataOutputStream(Files.newOutputStream(temp.toPath()))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, getBuild());
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeInt(table.size());
+        for (final var s : table) writeString(out, s);
+        tree.writeTo(out);
+      }
+      try {
+        Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      temp = null;
+      evict(dir, MAX_SIZE);
+    } catch (IOException | SecurityException e) {
+      // the cache is only an optimization
+    } finally {
+      if (temp != null) temp.delete();
+    }
+  }
+
+  /** Deletes the least recently used entries until the others take at most maxSize bytes. */
+  static void evict(File dir, long maxSize) {
+    final var entries = dir.listFiles((d, name) -> name.endsWith(ENTRY_SUFFIX));
+    if (entries == null) return;
+    final var lastUsed = new HashMap<File, Long>();
+    for (final var entry : entries) lastUsed.put(entry, entry.lastModified());
+    Arrays.sort(entries, Comparator.comparing((File entry) -> lastUsed.get(entry)).reversed());
+    var size = 0L;
+    for (final var entry : entries) {
+      size += entry.length();
+      if (size > maxSize) entry.delete();
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    final var bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static int intern(String s, HashMap<String, Integer> strings, ArrayList<String> table) {
+    var index = strings.get(s);
+    if (index == null) {
+      index = table.size();
+      strings.put(s, index);
+      table.add(s);
+    }
+    return index;
+  }
+
+  private static void writeElement(
+      DataOutputStream out, Element elt, HashMap<String, Integer> strings, ArrayList<String> table)
+      throws IOException {
+    out.writeInt(intern(elt.getTagName(), strings, table));
+    final var attrs = elt.getAttributes();
+    out.writeInt(attrs.getLength());
+    for (var i = 0; i < attrs.getLength(); i++) {
+      final var attr = attrs.item(i);
+      out.writeInt(intern(attr.getNodeName(), strings, table));
+      out.writeInt(intern(attr.getNodeValue(), strings, table));
+    }
+    final var children = new ArrayList<Node>();
+    for (var child = elt.getFirstChild(); child != null; child = child.getNextSibling()) {
+      final var type = child.getNodeType();
+      if (type == Node.ELEMENT_NODE || type == Node.TEXT_NODE
+          || type == Node.CDATA_SECTION_NODE) {
+        children.add(child);
+      }
+    }
+    out.writeInt(children.size());
+    for (final var child : children) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        out.writeByte(ELEMENT);
+        writeElement(out, (Element) child, strings, table);
+      } else {
+        out.writeByte(TEXT);
+        out.writeInt(intern(child.getNodeValue(), strings, table));
+      }
+    }
+  }
+}
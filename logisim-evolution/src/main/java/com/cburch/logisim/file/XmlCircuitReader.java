@@ -19,6 +19,7 @@ import com.cburch.logisim.circuit.CircuitTransaction;
 import com.cburch.logisim.circuit.Wire;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
@@ -57,6 +58,25 @@ public class XmlCircuitReader extends CircuitTransaction {
     this.isEvolution = isThisEvolutionFile;
   }
 
+  /** What a component is made from: its factory, and its location and attributes as written. */
+  static class ComponentDescription {
+    final Element element;
+    final ComponentFactory factory;
+    final String location;
+    final XmlReader.AttributeValues attributes;
+
+    ComponentDescription(
+        Element element,
+        ComponentFactory factory,
+        String location,
+        XmlReader.AttributeValues attributes) {
+      this.element = element;
+      this.factory = factory;
+      this.location = location;
+      this.attributes = attributes;
+    }
+  }
+
   /**
    * @param elt XML element to parse
    * @param reader XML file reader
@@ -66,6 +86,15 @@ public class XmlCircuitReader extends CircuitTransaction {
   static Component getComponent(
       Element elt, XmlReader.ReadContext reader, boolean isHolyCross, boolean isEvolution)
       throws XmlReaderException {
+    return createComponent(describeComponent(elt, reader), reader, isHolyCross, isEvolution);
+  }
+
+  /**
+   * Reads from the XML element all that is needed to create the component, and looks up its
+   * factory.
+   */
+  static ComponentDescription describeComponent(Element elt, XmlReader.ReadContext reader)
+      throws XmlReaderException {
 
     // Determine the factory that creates this element
     final var name = elt.getAttribute("name");
@@ -88,10 +117,27 @@ public class XmlCircuitReader extends CircuitTransaction {
               : S.get("compAbsentError", name, libName);
       throw new XmlReaderException(msg);
     }
-    final var source = ((AddTool) tool).getFactory();
+    return new ComponentDescription(
+        elt,
+        ((AddTool) tool).getFactory(),
+        elt.getAttribute("loc"),
+        reader.readAttributeValues(elt));
+  }
+
+  /**
+   * Creates a component from its description. This does not use the DOM, so components whose
+   * factories do not depend on the rest of the file may be created on several threads at once.
+   */
+  static Component createComponent(
+      ComponentDescription desc,
+      XmlReader.ReadContext reader,
+      boolean isHolyCross,
+      boolean isEvolution)
+      throws XmlReaderException {
+    final var source = desc.factory;
 
     // Determine attributes
-    final var locStr = elt.getAttribute("loc");
+    final var locStr = desc.location;
     final var attrs = source.createAttributeSet();
     var defaults = source;
     if (isHolyCross && source instanceof Ram) {
@@ -100,7 +146,7 @@ public class XmlCircuitReader extends CircuitTransaction {
       ramAttrs.updateAttributes();
       defaults = null;
     }
-    reader.initAttributeSet(elt, attrs, defaults, isHolyCross, isEvolution);
+    reader.initAttributeSet(desc.attributes, attrs, defaults, isHolyCross, isEvolution);
 
     // Create component if location known
     if (StringUtil.isNullOrEmpty(locStr)) {
@@ -16,8 +16,10 @@ import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitMapInfo;
 import com.cburch.logisim.circuit.Splitter;
+import com.cburch.logisim.circuit.SplitterFactory;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeDefaultProvider;
 import com.cburch.logisim.data.AttributeSet;
@@ -30,13 +32,18 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.base.Text;
+import com.cburch.logisim.std.gates.GatesLibrary;
 import com.cburch.logisim.std.wiring.BitExtender;
 import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Constant;
+import com.cburch.logisim.std.wiring.Ground;
 import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Power;
 import com.cburch.logisim.std.wiring.Probe;
 import com.cburch.logisim.std.wiring.ProbeAttributes;
 import com.cburch.logisim.std.wiring.PullResistor;
 import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.EditTool;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.MenuTool;
@@ -48,8 +55,10 @@ import com.cburch.logisim.tools.WiringTool;
 import com.cburch.logisim.util.InputEventUtil;
 import com.cburch.logisim.util.LineBuffer;
 import com.cburch.logisim.util.StringUtil;
+import com.cburch.logisim.util.UniquelyNamedThread;
 import com.cburch.logisim.util.XmlUtil;
 import com.cburch.logisim.vhdl.base.VhdlContent;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -60,7 +69,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
@@ -85,6 +98,35 @@ class XmlReader {
     }
   }
 
+  /**
+   * The values given to attributes by the {@code <a>} children of an element. Elements have few
+   * of them, so they are kept in order and looked up by a scan; as in the file, the last value
+   * given to an attribute is the one that counts.
+   */
+  static class AttributeValues {
+    private String[] names = new String[8];
+    private String[] values = new String[8];
+    private int size = 0;
+    int missingNames = 0;
+
+    void add(String name, String value) {
+      if (size == names.length) {
+        names = Arrays.copyOf(names, 2 * size);
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      names[size] = name;
+      values[size] = value;
+      size++;
+    }
+
+    String get(String name) {
+      for (var i = size - 1; i >= 0; i--) {
+        if (names[i].equals(name)) return values[i];
+      }
+      return null;
+    }
+  }
+
   class ReadContext {
     final LogisimFile file;
     LogisimVersion sourceVersion;
@@ -113,20 +155,12 @@ class XmlReader {
       return ret;
     }
 
-    void initAttributeSet(
-        Element parent,
-        AttributeSet attrs,
-        AttributeDefaultProvider defaults,
-        boolean isHolyCross,
-        boolean isEvolution)
-        throws XmlReaderException {
-      List<String> messages = null;
-
-      final var attrsDefined = new HashMap<String, String>();
+    /** Reads the values given to attributes by the {@code <a>} children of an element. */
+    AttributeValues readAttributeValues(Element parent) {
+      final var values = new AttributeValues();
       for (final var attrElt : XmlIterator.forChildElements(parent, "a")) {
         if (!attrElt.hasAttribute("name")) {
-          if (messages == null) messages = new ArrayList<>();
-          messages.add(S.get("attrNameMissingError"));
+          values.missingNames++;
         } else {
           final var attrName = attrElt.getAttribute("name");
           String attrVal;
@@ -143,7 +177,38 @@ class XmlReader {
           } else {
             attrVal = attrElt.getTextContent();
           }
-          attrsDefined.put(attrName, attrVal);
+          values.add(attrName, attrVal);
+        }
+      }
+      return values;
+    }
+
+    void initAttributeSet(
+        Element parent,
+        AttributeSet attrs,
+        AttributeDefaultProvider defaults,
+        boolean isHolyCross,
+        boolean isEvolution)
+        throws XmlReaderException {
+      initAttributeSet(readAttributeValues(parent), attrs, defaults, isHolyCross, isEvolution);
+    }
+
+    /**
+     * Sets the attributes from values read beforehand. This does not use the DOM, so that it may
+     * run on several threads at once for different attribute sets.
+     */
+    void initAttributeSet(
+        AttributeValues attrsDefined,
+        AttributeSet attrs,
+        AttributeDefaultProvider defaults,
+        boolean isHolyCross,
+        boolean isEvolution)
+        throws XmlReaderException {
+      List<String> messages = null;
+      if (attrsDefined.missingNames > 0) {
+        messages = new ArrayList<>();
+        for (var i = 0; i < attrsDefined.missingNames; i++) {
+          messages.add(S.get("attrNameMissingError"));
         }
       }
 
@@ -152,42 +217,37 @@ class XmlReader {
       LogisimVersion ver = sourceVersion;
       boolean setDefaults = defaults != null && !defaults.isAllDefaultValues(attrs, ver);
       // We need to process this in order, and we have to refetch the
-      // attribute list each time because it may change as we iterate
+      // attribute list after each change because it may change as we iterate
       // (as it will for a splitter).
-      for (var i = 0; true; i++) {
-        final var attrList = attrs.getAttributes();
-        if (i >= attrList.size()) break;
+      var attrList = attrs.getAttributes();
+      for (var i = 0; i < attrList.size(); i++) {
         @SuppressWarnings("unchecked")
         Attribute<Object> attr = (Attribute<Object>) attrList.get(i);
         final var attrName = attr.getName();
         final var attrVal = attrsDefined.get(attrName);
         if (attrVal == null) {
+          Object val = null;
           if (attr.equals(ProbeAttributes.PROBEAPPEARANCE)) {
-            attrs.setValue(ProbeAttributes.PROBEAPPEARANCE, StdAttr.APPEAR_CLASSIC);
+            val = StdAttr.APPEAR_CLASSIC;
           } else if (attr.equals(StdAttr.APPEARANCE)) {
-            if (isHolyCross) attrs.setValue(StdAttr.APPEARANCE, StdAttr.APPEAR_CLASSIC);
-            else if (isEvolution) attrs.setValue(StdAttr.APPEARANCE, StdAttr.APPEAR_EVOLUTION);
-            else {
-              Object val = defaults.getDefaultAttributeValue(attr, ver);
-              if (val != null) {
-                attrs.setValue(attr, val);
-              }
-            }
+            if (isHolyCross) val = StdAttr.APPEAR_CLASSIC;
+            else if (isEvolution) val = StdAttr.APPEAR_EVOLUTION;
+            else val = defaults.getDefaultAttributeValue(attr, ver);
           } else if (setDefaults) {
-            Object val = defaults.getDefaultAttributeValue(attr, ver);
-            if (val != null) {
-              attrs.setValue(attr, val);
-            }
+            val = defaults.getDefaultAttributeValue(attr, ver);
           }
+          if (val == null) continue;
+          attrs.setValue(attr, val);
         } else {
           try {
-            Object val = attr.parse(attrVal);
-            attrs.setValue(attr, val);
+            attrs.setValue(attr, attr.parse(attrVal));
           } catch (NumberFormatException e) {
             if (messages == null) messages = new ArrayList<>();
             messages.add(S.get("attrValueInvalidError", attrVal, attrName));
+            continue;
           }
         }
+        attrList = attrs.getAttributes();
       }
       if (messages != null) {
         throw new XmlReaderException(messages);
@@ -265,11 +325,21 @@ class XmlReader {
       }
     }
 
-    private Map<Element, Component> loadKnownComponents(Element elt, boolean isHolyCross, boolean isEvolution) {
+    /**
+     * Creates the components of a circuit ahead of building it, since the appearance needs the
+     * pins. Components already created by {@link #createStatelessComponents} are taken from
+     * {@code created}. Components that cannot be created are left out, and are tried again,
+     * reporting the errors, when the circuit is built.
+     */
+    private Map<Element, Component> loadKnownComponents(
+        Element elt, Map<Element, Component> created, boolean isHolyCross, boolean isEvolution) {
       final var known = new HashMap<Element, Component>();
       for (final var sub : XmlIterator.forChildElements(elt, "comp")) {
         try {
-          final var comp = XmlCircuitReader.getComponent(sub, this, isHolyCross, isEvolution);
+          var comp = created.get(sub);
+          if (comp == null) {
+            comp = XmlCircuitReader.getComponent(sub, this, isHolyCross, isEvolution);
+          }
           if (comp != null) known.put(sub, comp);
         } catch (XmlReaderException ignored) {
         }
@@ -277,6 +347,109 @@ class XmlReader {
       return known;
     }
 
+    /**
+     * Creates, in parallel when there are enough of them, the components of all circuits whose
+     * factories are known to only touch the component they create (see {@link
+     * #PARALLEL_FACTORIES}). The elements are read first, on this thread, as the DOM may not be
+     * used from several threads. The other components are created later, in order, on this
+     * thread.
+     *
+     * <p>The first component of each factory is created on this thread, before the others, so
+     * that whatever a factory sets up when first used is set up once, on a single thread.
+     */
+    private Map<Element, Component> createStatelessComponents(
+        Element root, boolean isHolyCross, boolean isEvolution) {
+      final var descriptions = new ArrayList<XmlCircuitReader.ComponentDescription>();
+      for (final var circElt : XmlIterator.forChildElements(root, "circuit")) {
+        for (final var sub : XmlIterator.forChildElements(circElt, "comp")) {
+          if (!isCreatedInParallel(sub)) continue;
+          try {
+            descriptions.add(XmlCircuitReader.describeComponent(sub, this));
+          } catch (XmlReaderException ignored) {
+          }
+        }
+      }
+      final var comps = createComponents(descriptions, isHolyCross, isEvolution);
+      final var created = new HashMap<Element, Component>();
+      for (var i = 0; i < comps.length; i++) {
+        if (comps[i] != null) created.put(descriptions.get(i).element, comps[i]);
+      }
+      return created;
+    }
+
+    private boolean isCreatedInParallel(Element comp) {
+      // the file's own circuits and VHDL entities have no library
+      final var libName = comp.getAttribute("lib");
+      if (StringUtil.isNullOrEmpty(libName)) return false;
+      final var lib = libs.get(libName);
+      return lib != null
+          && lib.getTool(comp.getAttribute("name")) instanceof AddTool tool
+          && XmlReader.isCreatedInParallel(tool.getFactory());
+    }
+
+    private Component[] createComponents(
+        List<XmlCircuitReader.ComponentDescription> descriptions,
+        boolean isHolyCross,
+        boolean isEvolution) {
+      final var comps = new Component[descriptions.size()];
+      final var taskCount = (comps.length + COMPONENTS_PER_TASK - 1) / COMPONENTS_PER_TASK;
+      final var threads = Math.min(Runtime.getRuntime().availableProcessors(), taskCount);
+      if (threads <= 1) {
+        for (var i = 0; i < comps.length; i++) {
+          comps[i] = tryCreateComponent(descriptions.get(i), isHolyCross, isEvolution);
+        }
+        return comps;
+      }
+      final var created = new boolean[comps.length];
+      final var factories = new HashSet<ComponentFactory>();
+      for (var i = 0; i < comps.length; i++) {
+        if (factories.add(descriptions.get(i).factory)) {
+          comps[i] = tryCreateComponent(descriptions.get(i), isHolyCross, isEvolution);
+          created[i] = true;
+        }
+      }
+      final var pool = Executors.newFixedThreadPool(threads, r -> {
+        final var thread = new UniquelyNamedThread(r, "XmlReader");
+        thread.setDaemon(true);
+        return thread;
+      });
+      try {
+        final var tasks = new ArrayList<Future<?>>(taskCount);
+        for (var start = 0; start < comps.length; start += COMPONENTS_PER_TASK) {
+          final var taskStart = start;
+          final var taskEnd = Math.min(comps.length, start + COMPONENTS_PER_TASK);
+          tasks.add(pool.submit(() -> {
+            for (var i = taskStart; i < taskEnd; i++) {
+              if (created[i]) continue;
+              comps[i] = tryCreateComponent(descriptions.get(i), isHolyCross, isEvolution);
+            }
+          }));
+        }
+        for (final var task : tasks) task.get();
+      } catch (InterruptedException e) {
+        // the components will be created when the circuits are built
+        Thread.currentThread().interrupt();
+        return new Component[comps.length];
+      } catch (ExecutionException e) {
+        final var cause = e.getCause();
+        if (cause instanceof RuntimeException re) throw re;
+        if (cause instanceof Error err) throw err;
+        throw new IllegalStateException(cause);
+      } finally {
+        pool.shutdownNow();
+      }
+      return comps;
+    }
+
+    private Component tryCreateComponent(
+        XmlCircuitReader.ComponentDescription desc, boolean isHolyCross, boolean isEvolution) {
+      try {
+        return XmlCircuitReader.createComponent(desc, this, isHolyCross, isEvolution);
+      } catch (XmlReaderException e) {
+        return null;
+      }
+    }
+
     void loadMap(Element board, String boardName, Circuit circ) {
       final var map = new HashMap<String, CircuitMapInfo>();
       for (final var cmap : XmlIterator.forChildElements(board, "mc")) {
@@ -454,6 +627,7 @@ class XmlReader {
       }
 
       // second, create the circuits - empty for now - and the vhdl entities
+      final var created = createStatelessComponents(elt, isHolyCrossFile, isEvolutionFile);
       final var circuitsData = new ArrayList<CircuitData>();
       for (final var circElt : XmlIterator.forChildElements(elt)) {
         String name;
@@ -476,8 +650,8 @@ class XmlReader {
             }
             final var circData = new CircuitData(circElt, new Circuit(name, file, proj));
             file.addCircuit(circData.circuit);
-            circData.knownComponents = loadKnownComponents(circElt, isHolyCrossFile,
-                isEvolutionFile);
+            circData.knownComponents =
+                loadKnownComponents(circElt, created, isHolyCrossFile, isEvolutionFile);
             for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
               loadAppearance(appearElt, circData, name + ".appear");
             }
@@ -559,6 +733,46 @@ class XmlReader {
   }
 
   public static final Logger logger = LoggerFactory.getLogger(XmlReader.class);
+
+  /** Components created by a worker in one go when loading. */
+  private static final int COMPONENTS_PER_TASK = 256;
+
+  /**
+   * The built-in factories whose components may be created on several threads at once: creating
+   * and configuring one of their components only touches that component. Others, such as pins
+   * and probes, which register listeners on shared preferences, are created on the loading thread.
+   * The gates are not visible from here, so they are named.
+   */
+  private static final Set<String> PARALLEL_FACTORIES;
+
+  static {
+    final var gates = GatesLibrary.class.getPackageName() + ".";
+    PARALLEL_FACTORIES = Set.of(
+        gates + "AndGate",
+        gates + "OrGate",
+        gates + "NandGate",
+        gates + "NorGate",
+        gates + "XorGate",
+        gates + "XnorGate",
+        gates + "OddParityGate",
+        gates + "EvenParityGate",
+        gates + "NotGate",
+        gates + "Buffer",
+        gates + "ControlledBuffer",
+        Constant.class.getName(),
+        Tunnel.class.getName(),
+        Ground.class.getName(),
+        Power.class.getName(),
+        PullResistor.class.getName(),
+        BitExtender.class.getName(),
+        Clock.class.getName(),
+        SplitterFactory.class.getName());
+  }
+
+  static boolean isCreatedInParallel(ComponentFactory factory) {
+    return PARALLEL_FACTORIES.contains(factory.getClass().getName());
+  }
+
   private final LibraryLoader loader;
 
   /**
@@ -1123,12 +1337,30 @@ class XmlReader {
     return builder.parse(is);
   }
 
-  LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
+  /**
+   * Parses the document and repairs it for compatibility, or takes the result of both from the
+   * project cache if it is enabled and has an entry for the same content.
+   */
+  private Element loadRepairedXmlFrom(InputStream is) throws SAXException, IOException {
+    byte[] key = null;
+    if (ProjectCache.isEnabled()) {
+      final var content = is.readAllBytes();
+      key = ProjectCache.getKey(content);
+      final var cached = ProjectCache.read(key);
+      if (cached != null) return cached;
+      is = new ByteArrayInputStream(content);
+    }
     final var doc = loadXmlFrom(is);
     var elt = doc.getDocumentElement();
     elt = ensureLogisimCompatibility(elt);
 
     considerRepairs(doc, elt);
+    if (key != null) ProjectCache.write(key, elt);
+    return elt;
+  }
+
+  LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
+    final var elt = loadRepairedXmlFrom(is);
     final var file = new LogisimFile((Loader) loader);
     final var context = new ReadContext(file);
 
@@ -430,14 +430,43 @@ public class RightPanel extends JPanel {
       final var labelWidth = Math.max(fm.stringWidth(max), fm.stringWidth(min));
 
       final var z = tickWidth / model.getTimeScale();
+      final var bus = signal.getWidth() > 1;
+      final var summary = new Signal.Summary();
       var prevHi = false;
       var prevLo = false;
       Color prevFill = null;
       while (cur.value != null) {
-        final var v = cur.getFormattedValue();
         final var x0 = (int) (z * (cur.time - t0));
         final var x1 = (int) (z * (cur.time + cur.duration - t0));
 
+        if (x1 == x0) {
+          // The value ends within this pixel column, possibly followed by many more: draw the
+          // whole column from a summary of its values, then skip to the next column, so that
+          // zoomed-out drawing depends on the width in pixels rather than the number of values.
+          // A bus is drawn in bus style, at full height, as its values cannot be told apart within
+          // a pixel; a single bit is drawn high, low or both, depending on the values it takes.
+          final var tEnd = t0 + (long) Math.ceil((x0 + 1) / z);
+          signal.summarize(cur.time, tEnd, summary);
+          final var undefined = !summary.known || summary.unknown || summary.error;
+          final var hi = bus || undefined || summary.max != 0;
+          final var lo = bus || undefined || summary.min == 0;
+          final var fillColor = summary.error ? colors[3] : summary.unknown ? colors[5] : colors[1];
+          final var lineColor = summary.error ? colors[4] : summary.unknown ? colors[6] : colors[2];
+          if (hi) {
+            g.setColor(fillColor);
+            g.fillRect(x0, HIGH, 1, LOW - HIGH + 1);
+          }
+          g.setColor(lineColor);
+          g.drawLine(x0, hi ? HIGH : LOW, x0, lo ? LOW : HIGH);
+          prevHi = hi;
+          prevLo = lo;
+          prevFill = fillColor;
+          cur = signal.new Iterator(tEnd);
+          continue;
+        }
+
+        final var v = cur.getFormattedValue();
+
         var hi = true;
         var lo = true;
         Color lineColor;
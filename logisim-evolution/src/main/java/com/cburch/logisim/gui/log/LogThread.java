@@ -26,6 +26,7 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
   private final Object lock = new Object();
   private boolean canceled = false;
   private PrintWriter writer = null;
+  private VcdWriter vcd = null; // used instead of writer for ".vcd" files
   private boolean modeDirty = true;
   private boolean headerDirty = true;
   private long lastWrite = 0;
@@ -40,6 +41,10 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
 
   // precondition: lock held and writing()==true
   private void writeSignals() {
+    if (VcdWriter.isVcdFile(model.getFile())) {
+      writeVcd();
+      return;
+    }
     if (writer == null) {
       try {
         writer = new PrintWriter(new FileWriter(model.getFile(), true));
@@ -91,13 +96,45 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
     lastWrite = System.currentTimeMillis();
   }
 
+  // precondition: lock held and writing()==true
+  private void writeVcd() {
+    if (vcd == null) {
+      // a dump can't be appended to, so each one starts a new file
+      try {
+        vcd = VcdWriter.open(model, model.getFile());
+      } catch (IOException e) {
+        model.setFile(null);
+        return;
+      }
+    } else {
+      vcd.signalsExtended(null);
+    }
+    if (vcd.getError() != null) {
+      model.setFile(null);
+      return;
+    }
+    lastWrite = System.currentTimeMillis();
+  }
+
+  // precondition: lock held
+  private void closeFile() {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+    if (vcd != null) {
+      try {
+        vcd.close();
+      } catch (IOException ignored) {
+      }
+      vcd = null;
+    }
+  }
+
   public void cancel() {
     synchronized (lock) {
       canceled = true;
-      if (writer != null) {
-        writer.close();
-        writer = null;
-      }
+      closeFile();
     }
   }
 
@@ -107,6 +144,7 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
       if (writing()) {
         timeNextWrite = 0;
         cursors.clear();
+        if (vcd != null) vcd.signalsReset(event);
         writeSignals();
       }
     }
@@ -123,12 +161,9 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
   public void filePropertyChanged(Model.Event event) {
     synchronized (lock) {
       if (writing()) {
-        if (writer == null) writeSignals();
+        if (writer == null && vcd == null) writeSignals();
       } else {
-        if (writer != null) {
-          writer.close();
-          writer = null;
-        }
+        closeFile();
       }
     }
   }
@@ -149,6 +184,13 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
             writer.flush();
           }
         }
+        if (vcd != null) {
+          // kept open, as reopening would start a new dump
+          try {
+            vcd.flush();
+          } catch (IOException ignored) {
+          }
+        }
       }
       try {
         Thread.sleep(FLUSH_FREQUENCY);
@@ -156,10 +198,7 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
       }
     }
     synchronized (lock) {
-      if (writer != null) {
-        writer.close();
-        writer = null;
-      }
+      closeFile();
     }
   }
 
@@ -11,6 +11,7 @@ package com.cburch.logisim.gui.log;
 
 import static com.cburch.logisim.gui.Strings.S;
 
+import com.cburch.logisim.Main;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
@@ -120,7 +121,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     if (clocks != null && clocks.size() == 1) {
       // If one clock is present, we use CLOCK mode with that as the source.
       clockSource = clocks.get(0);
-    } else if (clocks != null && clocks.size() > 1) {
+    } else if (clocks != null && clocks.size() > 1 && !Main.headless) {
       // If multiple are present, ask user to select, with STEP as fallback.
       clockSource = ClockSource.doClockMultipleObserverDialog(circ);
       if (clockSource != null
@@ -15,10 +15,31 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ * The recorded waveform of one signal: a list of values, each with its duration, optionally
+ * limited to the maxSize most recent values by wrapping around.
+ *
+ * <p>Besides the durations themselves, a Fenwick tree of the durations by array position is kept
+ * up to date, so that the value at a given time, or an Iterator starting at a given time, are
+ * found in O(log n) rather than by walking the whole list. The end time is kept up to date too.
+ *
+ * <p>For zoomed-out drawing, a pyramid of summaries of the values is kept as well: each node of
+ * the lowest level summarizes LOD_FANOUT consecutive positions, and each node above it
+ * LOD_FANOUT nodes of the level below (whether some value is unknown or has errors, and the
+ * smallest and largest fully defined values). It is updated as values are added, and lets
+ * summarize() describe any time range in O(log n), however many transitions it holds.
+ */
 public class Signal {
 
   private static final int CHUNK = 512;
+  private static final int LOD_FANOUT = 16;
+
+  // Summary flags
+  private static final byte LOD_KNOWN = 1; // some value is fully defined, min and max are valid
+  private static final byte LOD_UNKNOWN = 2; // some value has unknown bits
+  private static final byte LOD_ERROR = 4; // some value has error bits
 
   // Signal position in list, name, etc.
   public int idx;
@@ -32,6 +53,11 @@ public class Signal {
   private int curSize;
   private int maxSize; // limit, or zero for unlimited
   private short firstIndex; // for wrapping, only when limited
+  private long endTime; // timeStart plus all durations
+  private long[] durTree; // Fenwick tree of dur by position, 1-based, size a power of two plus one
+  private byte[][] lodFlags; // summaries by level, then node, see LOD_FANOUT
+  private long[][] lodMin;
+  private long[][] lodMax;
 
   public Signal(
       int idx, SignalInfo info, Value initialValue, long duration, long timeStart, int maxSize) {
@@ -43,6 +69,9 @@ public class Signal {
     this.dur = new long[1][maxSize == 0 || maxSize > CHUNK ? CHUNK : maxSize];
     this.curSize = 0;
     this.firstIndex = 0;
+    this.endTime = timeStart;
+    this.durTree = new long[CHUNK + 1];
+    rebuildSummaries(CHUNK);
     extend(initialValue, duration);
   }
 
@@ -51,12 +80,163 @@ public class Signal {
   }
 
   public long getEndTime() {
-    var t = timeStart;
-    for (var p = 0; p < curSize; p++) {
-      var i = (firstIndex + p) % curSize;
-      t += dur[i / CHUNK][i % CHUNK];
+    return endTime;
+  }
+
+  // Sets the duration at position i, keeping durTree up to date.
+  private void setDur(int i, long d) {
+    final var old = dur[i / CHUNK][i % CHUNK];
+    dur[i / CHUNK][i % CHUNK] = d;
+    treeAdd(i, d - old);
+  }
+
+  private void addDur(int i, long d) {
+    dur[i / CHUNK][i % CHUNK] += d;
+    treeAdd(i, d);
+  }
+
+  private void treeAdd(int i, long delta) {
+    if (delta == 0) return;
+    if (i + 1 >= durTree.length) {
+      var n = durTree.length - 1;
+      while (n <= i) n *= 2;
+      rebuildTree(n);
+    }
+    for (var k = i + 1; k < durTree.length; k += k & -k) durTree[k] += delta;
+  }
+
+  // Rebuilds durTree from the durations of positions [0, curSize), with room for n positions.
+  private void rebuildTree(int n) {
+    final var tree = new long[n + 1];
+    for (var i = 0; i < curSize; i++) tree[i + 1] = dur[i / CHUNK][i % CHUNK];
+    for (var k = 1; k <= n; k++) {
+      final var parent = k + (k & -k);
+      if (parent <= n) tree[parent] += tree[k];
+    }
+    durTree = tree;
+    rebuildSummaries(n);
+  }
+
+  // Rebuilds the summary pyramid from the values of positions [0, curSize), with room for n
+  // positions.
+  private void rebuildSummaries(int n) {
+    var levels = 0;
+    for (var len = n; len > 1; len = (len + LOD_FANOUT - 1) / LOD_FANOUT) levels++;
+    lodFlags = new byte[levels][];
+    lodMin = new long[levels][];
+    lodMax = new long[levels][];
+    var len = n;
+    for (var level = 0; level < levels; level++) {
+      len = (len + LOD_FANOUT - 1) / LOD_FANOUT;
+      lodFlags[level] = new byte[len];
+      lodMin[level] = new long[len];
+      lodMax[level] = new long[len];
     }
-    return t;
+    for (var i = 0; i < curSize; i++) appendSummary(i);
+  }
+
+  private static byte flagsOf(Value v) {
+    if (v.isFullyDefined()) return LOD_KNOWN;
+    return v.isErrorValue() ? LOD_ERROR : LOD_UNKNOWN;
+  }
+
+  // Merges a node or value summary into node k of the given level.
+  private void mergeSummary(int level, int k, byte flags, long min, long max) {
+    final var f = lodFlags[level][k];
+    if ((flags & LOD_KNOWN) != 0) {
+      if ((f & LOD_KNOWN) == 0 || Long.compareUnsigned(min, lodMin[level][k]) < 0) {
+        lodMin[level][k] = min;
+      }
+      if ((f & LOD_KNOWN) == 0 || Long.compareUnsigned(max, lodMax[level][k]) > 0) {
+        lodMax[level][k] = max;
+      }
+    }
+    lodFlags[level][k] = (byte) (f | flags);
+  }
+
+  // Adds the value at position i, the last one, to the summaries.
+  private void appendSummary(int i) {
+    final var v = val[i / CHUNK][i % CHUNK];
+    final var flags = flagsOf(v);
+    final var x = v.isFullyDefined() ? v.toLongValue() : 0;
+    var span = 1;
+    for (var level = 0; level < lodFlags.length; level++) {
+      span *= LOD_FANOUT;
+      final var k = i / span;
+      if (i % span == 0) lodFlags[level][k] = 0; // first value of this node
+      mergeSummary(level, k, flags, x, x);
+    }
+  }
+
+  // Recomputes the summaries covering position i, after its value changed or was removed.
+  private void updateSummary(int i) {
+    var k = i / LOD_FANOUT;
+    lodFlags[0][k] = 0;
+    final var end = Math.min(curSize, (k + 1) * LOD_FANOUT);
+    for (var p = k * LOD_FANOUT; p < end; p++) {
+      final var v = val[p / CHUNK][p % CHUNK];
+      final var x = v.isFullyDefined() ? v.toLongValue() : 0;
+      mergeSummary(0, k, flagsOf(v), x, x);
+    }
+    for (var level = 1; level < lodFlags.length; level++) {
+      final var child = k;
+      k /= LOD_FANOUT;
+      lodFlags[level][k] = 0;
+      final var last = Math.min(lodFlags[level - 1].length, (k + 1) * LOD_FANOUT);
+      for (var c = k * LOD_FANOUT; c < last; c++) {
+        mergeSummary(level, k, lodFlags[level - 1][c], lodMin[level - 1][c], lodMax[level - 1][c]);
+      }
+    }
+  }
+
+  // Adds the values at positions [a, b) to a summary, using the largest nodes possible.
+  private void summarizePositions(int a, int b, Summary s) {
+    var level = -1;
+    while (a < b) {
+      while (a < b && a % LOD_FANOUT != 0) s.add(this, level, a++);
+      while (a < b && b % LOD_FANOUT != 0) s.add(this, level, --b);
+      if (a >= b || level == lodFlags.length - 1) {
+        while (a < b) s.add(this, level, a++);
+        break;
+      }
+      a /= LOD_FANOUT;
+      b /= LOD_FANOUT;
+      level++;
+    }
+  }
+
+  // Returns the sum of the durations at positions [0, n).
+  private long treePrefix(int n) {
+    var sum = 0L;
+    for (var k = n; k > 0; k -= k & -k) sum += durTree[k];
+    return sum;
+  }
+
+  // Returns the first position at which the sum of the durations so far exceeds target.
+  private int treeFind(long target) {
+    var pos = 0;
+    for (var step = durTree.length - 1; step > 0; step >>= 1) {
+      if (pos + step < durTree.length && durTree[pos + step] <= target) {
+        pos += step;
+        target -= durTree[pos];
+      }
+    }
+    return pos;
+  }
+
+  // Returns the position of the value at time timeStart + offset, which must be before endTime.
+  private int positionAt(long offset) {
+    // the values from firstIndex to the end of the arrays come first, then those before it
+    final var before = treePrefix(firstIndex);
+    final var head = endTime - timeStart - before;
+    return offset < head ? treeFind(before + offset) : treeFind(offset - head);
+  }
+
+  // Returns the time at which the value at position i starts.
+  private long startTimeOf(int i) {
+    return i >= firstIndex
+        ? timeStart + treePrefix(i) - treePrefix(firstIndex)
+        : endTime - treePrefix(firstIndex) + treePrefix(i);
   }
 
   public void extend(long duration) {
@@ -64,8 +244,9 @@ public class Signal {
       timeStart += duration;
     } else {
       final var i = (firstIndex + curSize - 1) % curSize;
-      dur[i / CHUNK][i % CHUNK] += duration;
+      addDur(i, duration);
     }
+    endTime += duration;
   }
 
   public void extend(Value v, long duration) {
@@ -73,9 +254,10 @@ public class Signal {
       System.out.printf(
           "*** notice: value width mismatch for %s: width=%d bits, newVal=%s (%d bits)\n",
           info, info.getWidth(), v, v.getWidth());
+    endTime += duration;
     if (last != null && last.equals(v)) {
       final var i = (firstIndex + curSize - 1) % curSize;
-      dur[i / CHUNK][i % CHUNK] += duration;
+      addDur(i, duration);
       return;
     }
     last = v;
@@ -84,8 +266,9 @@ public class Signal {
     if (curSize < cap) {
       // fits in an existing chunk
       val[curSize / CHUNK][curSize % CHUNK] = v;
-      dur[curSize / CHUNK][curSize % CHUNK] = duration;
+      setDur(curSize, duration);
       curSize++;
+      appendSummary(curSize - 1);
     } else if (curSize < maxSize || maxSize <= 0) {
       // allocate another chunk
       final var val2 = new Value[c + 1][];
@@ -97,13 +280,15 @@ public class Signal {
       val = val2;
       dur = dur2;
       val[curSize / CHUNK][curSize % CHUNK] = v;
-      dur[curSize / CHUNK][curSize % CHUNK] = duration;
+      setDur(curSize, duration);
       curSize++;
+      appendSummary(curSize - 1);
     } else {
       // limited size is filled, wrap around, and adjust start offset
       timeStart += dur[firstIndex / CHUNK][firstIndex % CHUNK];
       val[firstIndex / CHUNK][firstIndex % CHUNK] = v;
-      dur[firstIndex / CHUNK][firstIndex % CHUNK] = duration;
+      setDur(firstIndex, duration);
+      updateSummary(firstIndex);
       firstIndex++;
       if (firstIndex >= maxSize) firstIndex = 0;
     }
@@ -112,14 +297,22 @@ public class Signal {
   public void replaceRecent(Value v, long duration) {
     if (last == null || curSize == 0)
       throw new IllegalStateException("signal should have at least " + duration + " ns of data");
-    final var i = (firstIndex + curSize - 1) % curSize;
+    var i = (firstIndex + curSize - 1) % curSize;
     if (dur[i / CHUNK][i % CHUNK] == duration) {
       val[i / CHUNK][i % CHUNK] = v;
       last = v;
-      final var j = (i + curSize - 1) % curSize;
+      var j = (i + curSize - 1) % curSize;
       if (curSize > 1 && val[j / CHUNK][j % CHUNK].equals(v)) {
-        dur[j / CHUNK][j % CHUNK] += duration;
+        if (firstIndex != 0) {
+          // wrapped around: shift all values left, so the one removed is at the end of the arrays
+          retainOnly(0, curSize, maxSize);
+          i = curSize - 1;
+          j = i - 1;
+        }
+        addDur(j, duration);
+        setDur(i, 0);
         curSize--;
+        updateSummary(i);
         // special case: last chunk is now entirely empty, must be removed
         if (i % CHUNK == 0) {
           int c = val.length - 1;
@@ -130,14 +323,18 @@ public class Signal {
           val = valueNew;
           dur = durNew;
         }
+      } else {
+        updateSummary(i);
       }
     } else if (dur[i / CHUNK][i % CHUNK] > duration) {
-      dur[i / CHUNK][i % CHUNK] -= duration;
+      addDur(i, -duration);
+      endTime -= duration;
       extend(v, duration);
     } else if (curSize == 1 && dur[i / CHUNK][i % CHUNK] + timeStart >= duration) {
       timeStart -= (duration - dur[i / CHUNK][i % CHUNK]);
       val[i / CHUNK][i % CHUNK] = v;
-      dur[i / CHUNK][i % CHUNK] = duration;
+      setDur(i, duration);
+      updateSummary(i);
       last = v;
     } else {
       throw new IllegalStateException(
@@ -170,15 +367,16 @@ public class Signal {
     dur = d;
     firstIndex = 0;
     curSize = amt;
+    rebuildTree(durTree.length - 1);
   }
 
   public void resize(int newMaxSize) {
     if (newMaxSize == maxSize) return;
-    if (newMaxSize == 0 || newMaxSize > maxSize) {
+    if (newMaxSize == 0 || (maxSize != 0 && newMaxSize > maxSize)) {
       // growing
       retainOnly(0, curSize, newMaxSize); // keeps all data, but shifts it left
     } else {
-      // shrinking: newMaxSize < maxSize
+      // shrinking: newMaxSize < maxSize, or maxSize was unlimited
       if (curSize <= newMaxSize) {
         // Mostly empty, keep all data, but maybe truncate last chunk if needed
         // to get capacity below new max size.
@@ -212,7 +410,7 @@ public class Signal {
         }
       } else { // curSize > newMaxSize
         // too much data, keep only most recent data and shift it left
-        final var discard = (maxSize - newMaxSize);
+        final var discard = curSize - newMaxSize;
         for (var p = 0; p < discard; p++) {
           final var i = (firstIndex + p) % curSize;
           timeStart += dur[i / CHUNK][i % CHUNK];
@@ -232,9 +430,13 @@ public class Signal {
       val = val2;
       dur = dur2;
     }
+    Arrays.fill(dur[0], 0);
+    Arrays.fill(durTree, 0);
+    for (final var flags : lodFlags) Arrays.fill(flags, (byte) 0);
     last = null;
     curSize = 0;
     firstIndex = 0;
+    endTime = timeStart;
     extend(v, duration);
   }
 
@@ -256,7 +458,21 @@ public class Signal {
 
     public Iterator(long t) {
       this();
-      if (t > time) advance(t - time);
+      if (t <= time) return;
+      if (t >= endTime) {
+        // past the end, as if advanced beyond the last value
+        position = curSize - 1;
+        final var i = (firstIndex + position) % curSize;
+        time = endTime - dur[i / CHUNK][i % CHUNK];
+        value = null;
+        duration = 0;
+        return;
+      }
+      final var i = positionAt(t - timeStart);
+      position = (i - firstIndex + curSize) % curSize;
+      value = val[i / CHUNK][i % CHUNK].extendWidth(info.getWidth(), Value.FALSE);
+      duration = dur[i / CHUNK][i % CHUNK] - (t - startTimeOf(i));
+      time = t;
     }
 
     public String getFormattedValue() {
@@ -293,18 +509,70 @@ public class Signal {
     }
   }
 
-  // TODO: easily optimized
-  public Value getValue(long t) { // always current width, even when width changes
-    if (t < timeStart) return null;
-    final var width = info.getWidth();
-    var tt = timeStart;
-    for (int p = 0; p < curSize; p++) {
-      final var i = (firstIndex + p) % curSize;
-      final var d = dur[i / CHUNK][i % CHUNK];
-      if (t < tt + d) return val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      tt += d;
+  /** A summary of the values in a time range, see summarize(). */
+  public static class Summary {
+    public boolean known; // some value is fully defined
+    public boolean unknown; // some value has unknown bits
+    public boolean error; // some value has error bits
+    public long min; // smallest fully defined value, as unsigned, if known
+    public long max; // largest fully defined value, as unsigned, if known
+
+    void clear() {
+      known = unknown = error = false;
+      min = max = 0;
+    }
+
+    // Adds a node of the given level of s's pyramid, or a single value if level is -1.
+    void add(Signal s, int level, int k) {
+      byte flags;
+      long lo;
+      long hi;
+      if (level < 0) {
+        final var v = s.val[k / CHUNK][k % CHUNK];
+        flags = flagsOf(v);
+        lo = hi = v.isFullyDefined() ? v.toLongValue() : 0;
+      } else {
+        flags = s.lodFlags[level][k];
+        lo = s.lodMin[level][k];
+        hi = s.lodMax[level][k];
+      }
+      if ((flags & LOD_KNOWN) != 0) {
+        if (!known || Long.compareUnsigned(lo, min) < 0) min = lo;
+        if (!known || Long.compareUnsigned(hi, max) > 0) max = hi;
+        known = true;
+      }
+      unknown |= (flags & LOD_UNKNOWN) != 0;
+      error |= (flags & LOD_ERROR) != 0;
     }
-    return null;
+  }
+
+  /**
+   * Summarizes the values from time t0 (inclusive) to t1 (exclusive), in O(log n) whatever the
+   * number of values in between. Used to draw zoomed-out waveforms one pixel at a time.
+   *
+   * @return false, leaving s cleared, if there is no data in that range.
+   */
+  public boolean summarize(long t0, long t1, Summary s) {
+    s.clear();
+    t0 = Math.max(t0, timeStart);
+    t1 = Math.min(t1, endTime);
+    if (t0 >= t1) return false;
+    final var a = positionAt(t0 - timeStart);
+    final var b = positionAt(t1 - 1 - timeStart);
+    if (a <= b) {
+      summarizePositions(a, b + 1, s);
+    } else {
+      // wrapped around the end of the arrays
+      summarizePositions(a, curSize, s);
+      summarizePositions(0, b + 1, s);
+    }
+    return true;
+  }
+
+  public Value getValue(long t) { // always current width, even when width changes
+    if (t < timeStart || t >= endTime) return null;
+    final var i = positionAt(t - timeStart);
+    return val[i / CHUNK][i % CHUNK].extendWidth(info.getWidth(), Value.FALSE);
   }
 
   public String getFormattedValue(long t) {
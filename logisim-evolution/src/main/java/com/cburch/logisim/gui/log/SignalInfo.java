@@ -243,6 +243,7 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
     if (log == null) return Value.NIL;
     var cur = root;
     for (var i = 0; i < n - 1; i++) cur = circ[i].getSubcircuitFactory().getSubstate(cur, path[i]);
+    cur.markObserved();
     return log.getLogValue(cur, option);
   }
 
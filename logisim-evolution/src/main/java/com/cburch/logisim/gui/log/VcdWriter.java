@@ -0,0 +1,221 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import com.cburch.logisim.data.Value;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the signals of a logging Model as a Value Change Dump (IEEE 1364), which waveform
+ * viewers like GTKWave can open. The signals are those of the model when the writer is created.
+ *
+ * <p>The dump is streamed: each time the model is extended, only the signals whose value changed
+ * are written, under the time of the change, so the file grows with the activity of the circuit
+ * rather than with the number of signals times the number of steps. Files whose name ends in
+ * ".gz" are compressed as they are written.
+ *
+ * <p>The writer is a Model.Listener, but does not register itself: either add it to the model, or
+ * forward the events to it. Model times restart at zero on reset, so each reset shifts the
+ * following times past the end of what was written before.
+ */
+public class VcdWriter implements Model.Listener, Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Model model;
+  private final Writer out;
+  private final Signal[] signals;
+  private final String[] ids;
+  private final int[] widths;
+  private final Value[] lastWritten;
+  private final StringBuilder line = new StringBuilder();
+  private long timeNextWrite = 0; // done writing up to this model time, exclusive
+  private long timeOffset = 0; // dump time of model time zero
+  private IOException error = null;
+
+  public VcdWriter(Model model, OutputStream stream) throws IOException {
+    this.model = model;
+    out = new BufferedWriter(
+        new OutputStreamWriter(stream, StandardCharsets.US_ASCII), BUFFER_SIZE);
+    final var n = model.getSignalCount();
+    signals = new Signal[n];
+    ids = new String[n];
+    widths = new int[n];
+    lastWritten = new Value[n];
+    for (var i = 0; i < n; i++) {
+      signals[i] = model.getSignal(i);
+      ids[i] = identifier(i);
+      widths[i] = Math.max(1, signals[i].info.getWidth());
+    }
+    writeHeader();
+  }
+
+  /** Creates a file and a writer for it, compressed if the name ends in ".gz". */
+  public static VcdWriter open(Model model, File file) throws IOException {
+    OutputStream stream = new FileOutputStream(file);
+    try {
+      if (file.getName().endsWith(".gz")) stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+      return new VcdWriter(model, stream);
+    } catch (IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /** Returns whether the file is one that should be written as a Value Change Dump. */
+  public static boolean isVcdFile(File file) {
+    final var name = file.getName().toLowerCase();
+    return name.endsWith(".vcd") || name.endsWith(".vcd.gz");
+  }
+
+  /** Short identifiers, in base 94 using the printable ASCII characters. */
+  private static String identifier(int index) {
+    final var id = new StringBuilder();
+    do {
+      id.append((char) ('!' + index % 94));
+      index = index / 94 - 1;
+    } while (index >= 0);
+    return id.toString();
+  }
+
+  /** Names may not contain whitespace. */
+  private static String reference(String name) {
+    final var ref = name.trim().replaceAll("\\s+", "_");
+    return ref.isEmpty() ? "_" : ref;
+  }
+
+  private void writeHeader() throws IOException {
+    out.write("$date " + new Date() + " $end\n");
+    out.write("$version Logisim-evolution $end\n");
+    out.write("$timescale 1ns $end\n");
+    out.write("$scope module " + reference(model.getCircuitState().getCircuit().getName())
+        + " $end\n");
+    for (var i = 0; i < signals.length; i++) {
+      out.write("$var wire " + widths[i] + " " + ids[i] + " "
+          + reference(signals[i].info.getDisplayName()));
+      if (widths[i] > 1) out.write(" [" + (widths[i] - 1) + ":0]");
+      out.write(" $end\n");
+    }
+    out.write("$upscope $end\n");
+    out.write("$enddefinitions $end\n");
+    writeUpTo(model.getEndTime());
+  }
+
+  /**
+   * Writes the changes from timeNextWrite up to timeStop. The cursors are placed anew each time,
+   * since the signals may have dropped old values to stay within their history limit.
+   */
+  private void writeUpTo(long timeStop) throws IOException {
+    // values dropped before they could be written are lost
+    if (timeNextWrite < model.getStartTime()) timeNextWrite = model.getStartTime();
+    final var cur = new Signal.Iterator[signals.length];
+    for (var i = 0; i < signals.length; i++) {
+      cur[i] = signals[i].new Iterator(timeNextWrite);
+    }
+    while (timeNextWrite < timeStop) {
+      var duration = timeStop - timeNextWrite;
+      line.setLength(0);
+      for (var i = 0; i < cur.length; i++) {
+        final var v = cur[i].value;
+        if (v == null) continue;
+        if (!v.equals(lastWritten[i])) {
+          appendValue(v, i);
+          lastWritten[i] = v;
+        }
+        if (cur[i].duration < duration) duration = cur[i].duration;
+      }
+      if (line.length() > 0) {
+        out.write("#" + (timeOffset + timeNextWrite) + "\n");
+        out.append(line);
+      }
+      for (final var c : cur) c.advance(duration);
+      timeNextWrite += duration;
+    }
+  }
+
+  private void appendValue(Value v, int i) {
+    final var width = widths[i];
+    if (width == 1) {
+      line.append(bitChar(v.get(0)));
+    } else {
+      // leading zeros may be left out, the value being extended with zeros, but only up to a 1:
+      // a value starting with x or z would be extended with x or z instead
+      line.append('b');
+      var msb = width - 1;
+      while (msb > 0 && v.get(msb) == Value.FALSE) msb--;
+      if (msb < width - 1 && v.get(msb) != Value.TRUE && v.get(msb) != Value.FALSE) msb++;
+      for (var b = msb; b >= 0; b--) line.append(bitChar(v.get(b)));
+      line.append(' ');
+    }
+    line.append(ids[i]).append('\n');
+  }
+
+  private static char bitChar(Value bit) {
+    if (bit == Value.TRUE) return '1';
+    if (bit == Value.FALSE) return '0';
+    if (bit == Value.UNKNOWN) return 'z';
+    return 'x';
+  }
+
+  /** Returns the first error met while writing, after which nothing more is written. */
+  public IOException getError() {
+    return error;
+  }
+
+  public void flush() throws IOException {
+    if (error == null) out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      out.close();
+    } catch (IOException e) {
+      if (error == null) error = e;
+    }
+    if (error != null) throw error;
+  }
+
+  @Override
+  public void signalsReset(Model.Event event) {
+    if (error != null) return;
+    try {
+      out.write("$comment reset $end\n");
+    } catch (IOException e) {
+      error = e;
+      return;
+    }
+    timeOffset += timeNextWrite;
+    timeNextWrite = 0;
+    // all values are written again at the time of the reset
+    Arrays.fill(lastWritten, null);
+    signalsExtended(event);
+  }
+
+  @Override
+  public void signalsExtended(Model.Event event) {
+    if (error != null) return;
+    try {
+      writeUpTo(model.getEndTime());
+    } catch (IOException e) {
+      error = e;
+    }
+  }
+}
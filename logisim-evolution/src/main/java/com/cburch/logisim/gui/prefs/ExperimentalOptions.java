@@ -25,6 +25,9 @@ class ExperimentalOptions extends OptionsPanel {
   private final PrefOptionList accel;
   private final JLabel simRestart = new JLabel();
   private final PrefOptionList simQueue;
+  private final PrefBoolean simLevelized;
+  private final PrefBoolean simParallel;
+  private final PrefBoolean projectCache;
 
   public ExperimentalOptions(PreferencesFrame window) {
     super(window);
@@ -73,7 +76,22 @@ class ExperimentalOptions extends OptionsPanel {
     final var simPanel2 = new JPanel();
     simPanel2.add(simPanel);
 
+    simLevelized = new PrefBoolean(AppPreferences.SIMULATION_LEVELIZED, S.getter("simLevelized"));
+    final var levelizedPanel = new JPanel();
+    levelizedPanel.add(simLevelized);
+
+    simParallel = new PrefBoolean(AppPreferences.SIMULATION_PARALLEL, S.getter("simParallel"));
+    final var parallelPanel = new JPanel();
+    parallelPanel.add(simParallel);
+
+    projectCache = new PrefBoolean(AppPreferences.PROJECT_CACHE, S.getter("projectCache"));
+    final var cachePanel = new JPanel();
+    cachePanel.add(projectCache);
+
     add(simPanel2);
+    add(levelizedPanel);
+    add(parallelPanel);
+    add(cachePanel);
     add(Box.createGlue());
   }
 
@@ -92,5 +110,8 @@ class ExperimentalOptions extends OptionsPanel {
     accel.localeChanged();
     accelRestart.setText(S.get("accelRestartLabel"));
     simRestart.setText(S.get("simRestartLabel"));
+    simLevelized.localeChanged();
+    simParallel.localeChanged();
+    projectCache.localeChanged();
   }
 }
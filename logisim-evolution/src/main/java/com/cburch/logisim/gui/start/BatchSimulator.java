@@ -0,0 +1,315 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.start;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Ram;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.UniquelyNamedThread;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many simulations of the same circuit in one JVM, for "--tty batch". The file is loaded
+ * once, and each worker thread keeps its own root CircuitState, which is reset between jobs
+ * rather than rebuilt. The states are all created up front by the thread creating the simulator,
+ * since each one adds a listener to the project's options, and released by close().
+ *
+ * <p>Jobs are read one per line from stdin, or from each connection to a local port when
+ * "--batch-port" is given. A job is a list of space separated settings:
+ *
+ * <pre>
+ *   id=NAME          echoed at the start of the result line (default: the job's line number)
+ *   load=FILE        image file loaded into the RAMs before the first propagation
+ *   save=FILE        image file the RAM contents are saved to after the run
+ *   ticks=N          maximum number of clock ticks to simulate (default: 0)
+ *   halt=PIN         output pin that stops the simulation once it is 1 (default: "halt")
+ *   PIN=VALUE        value driven on an input pin, e.g. a=1, data=0x3f
+ * </pre>
+ *
+ * <p>For each job, one line is written in the order the jobs were received: the id, the
+ * reason the simulation stopped (halt, ticks, oscillation or error), the number of ticks, then
+ * PIN=VALUE for each output pin.
+ */
+class BatchSimulator {
+  static final Logger logger = LoggerFactory.getLogger(BatchSimulator.class);
+
+  /** Marks the end of a stream's results for its writer thread. */
+  private static final Future<String> END_OF_JOBS = new CompletableFuture<>();
+
+  /** A job waiting for a worker, and the result line it completes. */
+  private record Job(String id, String line, CompletableFuture<String> result) {}
+
+  /** Tells a worker to stop. */
+  private static final Job STOP = new Job(null, null, null);
+
+  private final Project proj;
+  private final Circuit circuit;
+  private final int format;
+  private final HashMap<String, Instance> inputPins = new HashMap<>();
+  private final HashMap<String, Instance> outputPins = new HashMap<>();
+  private final ArrayList<String> outputNames = new ArrayList<>();
+  private final LinkedBlockingQueue<Job> jobs = new LinkedBlockingQueue<>();
+  private final Worker[] workers;
+
+  /** A worker thread, taking jobs from the queue, and the root state it runs them on. */
+  private final class Worker implements Runnable {
+    final Thread thread = new UniquelyNamedThread(this, "BatchSimulator");
+    final CircuitState state = CircuitState.createRootState(proj, circuit, thread);
+    /** Whether the state has been propagated since it was created or last failed. */
+    boolean started;
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final var job = jobs.take();
+          if (job == STOP) break;
+          try {
+            job.result.complete(runJob(this, job.id, job.line));
+          } catch (Throwable e) {
+            started = false;
+            job.result.completeExceptionally(e);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  BatchSimulator(Project proj, Circuit circuit, Map<Instance, String> pinLabels, int format) {
+    this.proj = proj;
+    this.circuit = circuit;
+    this.format = format;
+    for (final var entry : pinLabels.entrySet()) {
+      if (Pin.FACTORY.isInputPin(entry.getKey())) {
+        inputPins.put(entry.getValue(), entry.getKey());
+      } else {
+        outputPins.put(entry.getValue(), entry.getKey());
+        outputNames.add(entry.getValue());
+      }
+    }
+    workers = new Worker[Runtime.getRuntime().availableProcessors()];
+    for (var i = 0; i < workers.length; i++) {
+      workers[i] = new Worker();
+    }
+    for (final var worker : workers) {
+      worker.thread.setDaemon(true);
+      worker.thread.start();
+    }
+  }
+
+  /**
+   * Stops the workers once the jobs given so far are done, and releases their states. The
+   * simulator can't be used afterwards.
+   */
+  void close() throws InterruptedException {
+    for (final var ignored : workers) {
+      jobs.put(STOP);
+    }
+    for (final var worker : workers) {
+      worker.thread.join();
+      worker.state.getPropagator().dispose();
+    }
+  }
+
+  /** Reads jobs from stdin until it is closed. */
+  void serveStdin() throws InterruptedException {
+    try {
+      serve(System.in, System.out);
+    } finally {
+      close();
+    }
+  }
+
+  /** Accepts connections on a local port, each one a stream of jobs, until the JVM is killed. */
+  void serveSocket(int port) throws IOException, InterruptedException {
+    try (final var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+      logger.info("Accepting batch simulation jobs on port {}", server.getLocalPort());
+      while (true) {
+        final var socket = server.accept();
+        final var connection = new UniquelyNamedThread(() -> {
+          try (socket) {
+            serve(socket.getInputStream(), socket.getOutputStream());
+          } catch (IOException | InterruptedException e) {
+            logger.error("Batch connection failed: {}", e.getMessage());
+          }
+        }, "BatchSimulator-connection");
+        connection.setDaemon(true);
+        connection.start();
+      }
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Runs the jobs of one stream on the worker pool. Results are written by a separate thread,
+   * in the order of the jobs, so a slow job only holds back the lines that follow it.
+   */
+  void serve(InputStream in, OutputStream out) throws InterruptedException {
+    final var pending = new LinkedBlockingQueue<Future<String>>();
+    final var writer = new UniquelyNamedThread(() -> {
+      final var pw = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), true);
+      try {
+        while (true) {
+          final var result = pending.take();
+          if (result == END_OF_JOBS) break;
+          pw.println(result.get());
+        }
+      } catch (InterruptedException | ExecutionException e) {
+        logger.error("Batch job failed: {}", e.getMessage());
+      }
+      pw.flush();
+    }, "BatchSimulator-writer");
+    writer.start();
+
+    try (final var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      var lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank() || line.startsWith("#")) continue;
+        final var job = new Job(Integer.toString(lineNumber), line, new CompletableFuture<>());
+        pending.put(job.result);
+        jobs.put(job);
+      }
+    } catch (IOException e) {
+      logger.error("Error reading batch jobs: {}", e.getMessage());
+    }
+    pending.put(END_OF_JOBS);
+    writer.join();
+  }
+
+  /** Runs one job on the given worker, from its thread, and returns its result line. */
+  private String runJob(Worker worker, String defaultId, String job) {
+    var id = defaultId;
+    File loadFile = null;
+    File saveFile = null;
+    var maxTicks = 0L;
+    var haltPin = outputPins.get("halt");
+    final var inputs = new HashMap<Instance, Value>();
+    try {
+      for (final var setting : job.trim().split("\\s+")) {
+        final var eq = setting.indexOf('=');
+        if (eq <= 0) throw new IllegalArgumentException("expected NAME=VALUE: " + setting);
+        final var name = setting.substring(0, eq);
+        final var value = setting.substring(eq + 1);
+        switch (name) {
+          case "id" -> id = value;
+          case "load" -> loadFile = new File(value);
+          case "save" -> saveFile = new File(value);
+          case "ticks" -> maxTicks = Long.parseLong(value);
+          case "halt" -> {
+            haltPin = outputPins.get(value);
+            if (haltPin == null) throw new IllegalArgumentException("no output pin " + value);
+          }
+          default -> {
+            final var pin = inputPins.get(name);
+            if (pin == null) throw new IllegalArgumentException("no input pin " + name);
+            inputs.put(pin, Value.fromLogString(pin.getAttributeValue(StdAttr.WIDTH), value));
+          }
+        }
+      }
+    } catch (Exception e) {
+      return id + " error " + e.getMessage();
+    }
+
+    try {
+      final var circState = obtainState(worker);
+      final var prop = circState.getPropagator();
+      if (loadFile != null && !TtyInterface.loadRam(circState, loadFile)) {
+        return id + " error no RAM to load";
+      }
+      for (final var entry : inputs.entrySet()) {
+        Pin.FACTORY.driveInputPin(circState.getInstanceState(entry.getKey()), entry.getValue());
+      }
+      prop.propagate();
+
+      var reason = "ticks";
+      var ticks = 0L;
+      while (true) {
+        if (prop.isOscillating()) {
+          reason = "oscillation";
+          break;
+        }
+        if (haltPin != null
+            && Pin.FACTORY.getValue(circState.getInstanceState(haltPin)).equals(Value.TRUE)) {
+          reason = "halt";
+          break;
+        }
+        if (ticks >= maxTicks) break;
+        prop.toggleClocks();
+        prop.propagate();
+        ticks++;
+      }
+
+      final var result = new StringBuilder(id).append(' ').append(reason).append(' ').append(ticks);
+      for (final var name : outputNames) {
+        final var pin = outputPins.get(name);
+        if (pin == haltPin) continue;
+        final var val = prop.isOscillating()
+            ? Value.createError(pin.getAttributeValue(StdAttr.WIDTH))
+            : Pin.FACTORY.getValue(circState.getInstanceState(pin));
+        result.append(' ').append(name).append('=').append(TtyInterface.valueFormat(val, format));
+      }
+      if (saveFile != null && !TtyInterface.saveRam(circState, saveFile)) {
+        return id + " error no RAM to save";
+      }
+      return result.toString();
+    } catch (Exception e) {
+      // don't reuse a state that failed halfway without starting it over
+      worker.started = false;
+      return id + " error " + e;
+    }
+  }
+
+  /**
+   * Returns the root state of the worker, reset to the state of a freshly created one. The first
+   * time, and after a failed job, the state is also propagated once from a reset, which creates
+   * the states of its subcircuits, so that RAM images can also be loaded into those.
+   */
+  private CircuitState obtainState(Worker worker) {
+    final var circState = worker.state;
+    if (!worker.started) {
+      circState.getPropagator().reset();
+      circState.getPropagator().propagate();
+      worker.started = true;
+    }
+    circState.getPropagator().reset();
+    // non-volatile RAMs keep their contents on reset, but jobs must not see each other's data
+    Ram.clearContents(circState);
+    return circState;
+  }
+}
@@ -102,7 +102,9 @@ public class Startup implements AWTEventListener {
   private boolean showSplash;
   private File loadFile;
   private File saveFile;
+  private File vcdFile;
   private int ttyFormat = 0;
+  private int batchPort = 0;
   // from other sources
   private boolean initialized = false;
   private SplashScreen monitor = null;
@@ -141,6 +143,7 @@ public class Startup implements AWTEventListener {
     }
   }
 
+  private static final String ARG_BATCH_PORT_LONG = "batch-port";
   private static final String ARG_TEST_CIRCUIT_SHORT = "b";
   private static final String ARG_TEST_CIRCUIT_LONG = "test-circuit";
   private static final String ARG_TEST_FGPA_SHORT = "f";
@@ -152,6 +155,7 @@ public class Startup implements AWTEventListener {
   private static final String ARG_LOAD_SHORT = "l";
   private static final String ARG_LOAD_LONG = "load";
   private static final String ARG_SAVE_LONG = "save";
+  private static final String ARG_VCD_LONG = "vcd";
   private static final String ARG_GEOMETRY_SHORT = "m";
   private static final String ARG_GEOMETRY_LONG = "geometry";
   private static final String ARG_TEST_CIRC_GEN_SHORT = "n";
@@ -323,11 +327,13 @@ public class Startup implements AWTEventListener {
     // Note: you need to create handler for each option. See handler loop below.
     // It is assumed that evey option always has long-form switch. Short forms are optional.
     addOption(opts, "argTtyOption", ARG_TTY_LONG, ARG_TTY_SHORT, 1);
+    addOption(opts, "argBatchPortOption", ARG_BATCH_PORT_LONG, 1);
     addOption(opts, "argTestImplement", ARG_TEST_FGPA_LONG, ARG_TEST_FGPA_SHORT, Option.UNLIMITED_VALUES);  // We can have 3, 4 or 5 arguments here
     addOption(opts, "argClearOption", ARG_CLEAR_PREFS_LONG);
     addOption(opts, "argSubOption", ARG_SUBSTITUTE_LONG, ARG_SUBSTITUTE_SHORT, 2);
     addOption(opts, "argLoadOption", ARG_LOAD_LONG, ARG_LOAD_SHORT, 1);
     addOption(opts, "argSaveOption", ARG_SAVE_LONG, 1);
+    addOption(opts, "argVcdOption", ARG_VCD_LONG, 1);
     addOption(opts, "argGatesOption", ARG_GATES_LONG, ARG_GATES_SHORT, 1);
     addOption(opts, "argGeometryOption", ARG_GEOMETRY_LONG, ARG_GEOMETRY_SHORT, 1);
     addOption(opts, "argLocaleOption", ARG_LOCALE_LONG, ARG_LOCALE_SHORT, 1);
@@ -391,9 +397,11 @@ public class Startup implements AWTEventListener {
         case ARG_HELP_LONG -> printHelp(opts);
         case ARG_VERSION_LONG -> printVersion();
         case ARG_TTY_LONG -> handleArgTty(startup, opt);
+        case ARG_BATCH_PORT_LONG -> handleArgBatchPort(startup, opt);
         case ARG_SUBSTITUTE_LONG -> handleArgSubstitute(startup, opt);
         case ARG_LOAD_LONG -> handleArgLoad(startup, opt);
         case ARG_SAVE_LONG -> handleArgSave(startup, opt);
+        case ARG_VCD_LONG -> handleArgVcd(startup, opt);
         case ARG_GATES_LONG -> handleArgGates(startup, opt);
         case ARG_GEOMETRY_LONG -> handleArgGeometry(startup, opt);
         case ARG_LOCALE_LONG -> handleArgLocale(startup, opt);
@@ -436,6 +444,14 @@ public class Startup implements AWTEventListener {
       logger.error(S.get("saveNeedsTtyError"));
       return null;
     }
+    if (startup.vcdFile != null && !startup.isTty) {
+      logger.error(S.get("vcdNeedsTtyError"));
+      return null;
+    }
+    if (startup.batchPort > 0 && (startup.ttyFormat & TtyInterface.FORMAT_BATCH) == 0) {
+      logger.error(S.get("batchPortNeedsBatchError"));
+      return null;
+    }
 
     return startup;
   }
@@ -477,6 +493,7 @@ public class Startup implements AWTEventListener {
           case "hex" -> TtyInterface.FORMAT_TABLE_HEX;
           case "csv" -> TtyInterface.FORMAT_TABLE_CSV;
           case "tabs" -> TtyInterface.FORMAT_TABLE_TABBED;
+          case "batch" -> TtyInterface.FORMAT_BATCH;
           default -> 0;
         };
 
@@ -505,6 +522,19 @@ public class Startup implements AWTEventListener {
     return RC.QUIT;
   }
 
+  private static RC handleArgBatchPort(Startup startup, Option opt) {
+    try {
+      startup.batchPort = Integer.parseInt(opt.getValue());
+    } catch (NumberFormatException e) {
+      startup.batchPort = -1;
+    }
+    if (startup.batchPort <= 0 || startup.batchPort > 65535) {
+      logger.error(S.get("argBatchPortError"));
+      return RC.QUIT;
+    }
+    return RC.OK;
+  }
+
   private static RC handleArgLoad(Startup startup, Option opt) {
     if (startup.loadFile != null) {
       logger.error(S.get("loadMultipleError"));
@@ -526,6 +556,16 @@ public class Startup implements AWTEventListener {
     return RC.OK;
   }
 
+  private static RC handleArgVcd(Startup startup, Option opt) {
+    if (startup.vcdFile != null) {
+      logger.error(S.get("vcdMultipleError"));
+      return RC.WARN;
+    }
+    final var fileName = opt.getValue();
+    startup.vcdFile = new File(fileName);
+    return RC.OK;
+  }
+
   private static RC handleArgGates(Startup startup, Option opt) {
     final var gateShape = opt.getValue().toLowerCase();
     if ("ansi".equals(gateShape)) {
@@ -803,6 +843,10 @@ public class Startup implements AWTEventListener {
     return saveFile;
   }
 
+  File getVcdFile() {
+    return vcdFile;
+  }
+
   String getCircuitToTest() {
     return circuitToTest;
   }
@@ -815,6 +859,10 @@ public class Startup implements AWTEventListener {
     return ttyFormat;
   }
 
+  int getBatchPort() {
+    return batchPort;
+  }
+
   boolean isFpgaDownload() {
     return doFpgaDownload;
   }
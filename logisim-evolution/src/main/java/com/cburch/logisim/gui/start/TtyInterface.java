@@ -11,17 +11,19 @@ package com.cburch.logisim.gui.start;
 
 import static com.cburch.logisim.gui.Strings.S;
 
-import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.circuit.Analyze;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.TruthTableSimulator;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
 import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.gui.log.Model;
+import com.cburch.logisim.gui.log.VcdWriter;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
@@ -52,6 +54,7 @@ public class TtyInterface {
   public static final int FORMAT_TABLE_CSV = 64;
   public static final int FORMAT_TABLE_BIN = 128;
   public static final int FORMAT_TABLE_HEX = 256;
+  public static final int FORMAT_BATCH = 512;
   static final Logger logger = LoggerFactory.getLogger(TtyInterface.class);
   private static boolean lastIsNewline = true;
 
@@ -186,7 +189,7 @@ public class TtyInterface {
     return shouldPrint;
   }
 
-  private static String valueFormat(Value v, int format) {
+  static String valueFormat(Value v, int format) {
     if ((format & FORMAT_TABLE_BIN) != 0) {
       // everything in binary
       return v.toString();
@@ -208,7 +211,7 @@ public class TtyInterface {
     }
   }
 
-  private static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
+  static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
     if (loadFile == null) return false;
 
     var found = false;
@@ -227,7 +230,7 @@ public class TtyInterface {
     return found;
   }
 
-  private static boolean saveRam(CircuitState circState, File saveFile) throws IOException {
+  static boolean saveRam(CircuitState circState, File saveFile) throws IOException {
     if (saveFile == null) return false;
 
     var found = false;
@@ -297,6 +300,20 @@ public class TtyInterface {
     }
 
     final var pinNames = Analyze.getPinLabels(circuit);
+    if ((format & FORMAT_BATCH) != 0) {
+      final var batch = new BatchSimulator(proj, circuit, pinNames, format);
+      try {
+        if (args.getBatchPort() > 0) {
+          batch.serveSocket(args.getBatchPort());
+        } else {
+          batch.serveStdin();
+        }
+      } catch (IOException | InterruptedException e) {
+        logger.error("{}", e.getMessage());
+        System.exit(-1);
+      }
+      return;
+    }
     final var outputPins = new ArrayList<Instance>();
     final var inputPins = new ArrayList<Instance>();
     Instance haltPin = null;
@@ -339,8 +356,31 @@ public class TtyInterface {
     final var prop = circState.getPropagator();
     prop.propagate();
 
+    // the waveform is recorded by a logging model, as in the chronogram, streamed to the file
+    Model log = null;
+    VcdWriter vcd = null;
+    if (args.getVcdFile() != null) {
+      log = new Model(circState);
+      try {
+        vcd = VcdWriter.open(log, args.getVcdFile());
+      } catch (IOException e) {
+        logger.error("{}: {}", S.get("vcdIoError"), e.toString());
+        System.exit(-1);
+      }
+      log.addModelListener(vcd);
+    }
+
     final var ttyFormat = args.getTtyFormat();
-    final var simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+    final var simCode = runSimulation(circState, outputPins, haltPin, ttyFormat, log);
+
+    if (vcd != null) {
+      try {
+        vcd.close();
+      } catch (IOException e) {
+        logger.error("{}: {}", S.get("vcdIoError"), e.toString());
+        System.exit(-1);
+      }
+    }
 
     if (args.getSaveFile() != null) {
       try {
@@ -403,58 +443,29 @@ public class TtyInterface {
       }
     }
 
-    final var inputCount = inputNames.size();
-    final var rowCount = 1 << inputCount;
-
-    var needTableHeader = true;
+    final var needTableHeader = new boolean[] {true};
     final var valueMap = new HashMap<Instance, Value>();
-    for (var i = 0; i < rowCount; i++) {
+    new TruthTableSimulator(proj, circuit, inputPins, outputPins).run((row, inputs, outputs, oscillating) -> {
       valueMap.clear();
-      final var circuitState = CircuitState.createRootState(proj, circuit, Thread.currentThread());
-      final var prop = circuitState.getPropagator();
-      var incol = 0;
-      for (final var pin : inputPins) {
-        final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-        final var v = new Value[width];
-        for (var b = width - 1; b >= 0; b--) {
-          final var value = TruthTable.isInputSet(i, incol++, inputCount);
-          v[b] = value ? Value.TRUE : Value.FALSE;
-        }
-        final var pinState = circuitState.getInstanceState(pin);
-        Pin.FACTORY.driveInputPin(pinState, Value.create(v));
-        valueMap.put(pin, Value.create(v));
+      for (var i = 0; i < inputs.length; i++) {
+        valueMap.put(inputPins.get(i), inputs[i]);
       }
-
-      prop.propagate();
-      /*
-       * TODO for the SimulatorPrototype class do { prop.step(); } while
-       * (prop.isPending());
-       */
-      // TODO: Search for circuit state
-
-
-      for (final var pin : outputPins) {
-        if (prop.isOscillating()) {
-          final var width = pin.getAttributeValue(StdAttr.WIDTH);
-          valueMap.put(pin, Value.createError(width));
-        } else {
-          final var pinState = circuitState.getInstanceState(pin);
-          final var outValue = Pin.FACTORY.getValue(pinState);
-          valueMap.put(pin, outValue);
-        }
+      for (var i = 0; i < outputs.length; i++) {
+        valueMap.put(outputPins.get(i), outputs[i]);
       }
       final var currValues = new ArrayList<Value>();
       for (final var pin : pinList) {
         currValues.add(valueMap.get(pin));
       }
-      displayTableRow(needTableHeader, null, currValues, headers, formats, format);
-      needTableHeader = false;
-    }
+      displayTableRow(needTableHeader[0], null, currValues, headers, formats, format);
+      needTableHeader[0] = false;
+    });
 
     return 0;
   }
 
-  private static int runSimulation(CircuitState circState, ArrayList<Instance> outputPins, Instance haltPin, int format) {
+  private static int runSimulation(CircuitState circState, ArrayList<Instance> outputPins, Instance haltPin, int format,
+      Model log) {
     final var showTable = (format & FORMAT_TABLE) != 0;
     final var showSpeed = (format & FORMAT_SPEED) != 0;
     final var showTty = (format & FORMAT_TTY) != 0;
@@ -521,6 +532,7 @@ public class TtyInterface {
       tickCount++;
       prop.toggleClocks();
       prop.propagate();
+      if (log != null) log.propagationCompleted(true, false, true);
     }
     final var elapse = System.currentTimeMillis() - start;
     if (showTty) ensureLineTerminated();
@@ -41,6 +41,7 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     this.circuitState = this.project.getCircuitState().cloneAsNewRootState(this);
     this.vector = model.getVector();
     this.evaluator = new TestVectorEvaluator(circuitState, vector);
+    this.evaluator.setParallel(true);
     model.getCircuit().addCircuitListener(this);
   }
 
@@ -52,6 +53,7 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     this.circuitState = CircuitState.createRootState(this.project, this.circuit, Thread.currentThread());
     this.vector = vec;
     evaluator = new TestVectorEvaluator(circuitState, vector);
+    evaluator.setParallel(true);
   }
 
   // used only for automated testing via command line arguments
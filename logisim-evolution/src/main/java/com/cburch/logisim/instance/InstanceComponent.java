@@ -144,6 +144,7 @@ public final class InstanceComponent implements Component, AttributeListener, To
         }
       }
     }
+    if (attr == StdAttr.LABEL_FONT) fireBoundsChanged();
     if (widthAttrs != null && widthAttrs.contains(attr)) computeEnds();
     if (attrListenRequested) {
       factory.instanceAttributeChanged(instance, e.getAttribute());
@@ -305,6 +306,17 @@ public final class InstanceComponent implements Component, AttributeListener, To
     }
   }
 
+  private void fireBoundsChanged() {
+    final var listeners = this.listeners;
+    if (listeners != null) {
+      ComponentEvent e = null;
+      for (final var listener : listeners) {
+        if (e == null) e = new ComponentEvent(this);
+        listener.boundsChanged(e);
+      }
+    }
+  }
+
   public void fireInvalidated() {
     final var listeners = this.listeners;
     if (listeners != null) {
@@ -418,7 +430,9 @@ public final class InstanceComponent implements Component, AttributeListener, To
 
   void recomputeBounds() {
     Location p = loc;
+    final var old = bounds;
     bounds = factory.getOffsetBounds(attrs).translate(p.getX(), p.getY());
+    if (!bounds.equals(old)) fireBoundsChanged();
   }
 
   @Override
@@ -449,6 +463,7 @@ public final class InstanceComponent implements Component, AttributeListener, To
     } else {
       field.update(labelAttr, fontAttr, x, y, halign, valign);
     }
+    fireBoundsChanged();
   }
 
   @Override
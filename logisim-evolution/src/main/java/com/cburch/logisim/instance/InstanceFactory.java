@@ -52,7 +52,8 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
   private Icon icon;
   private Attribute<?>[] attrs;
   private Object[] defaults;
-  private AttributeSet defaultSet;
+  // created when first needed, possibly by several threads loading a file at once
+  private volatile AttributeSet defaultSet;
   private Bounds bounds;
   private List<Port> portList;
   private Attribute<Direction> facingAttribute;
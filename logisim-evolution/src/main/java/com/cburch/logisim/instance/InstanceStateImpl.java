@@ -124,7 +124,6 @@ public class InstanceStateImpl implements InstanceState {
 
   @Override
   public void setPort(int portIndex, Value value, int delay) {
-    final var end = component.getEnd(portIndex);
-    circuitState.setValue(end.getLocation(), value, component, delay);
+    circuitState.setPortValue(component, portIndex, value, delay);
   }
 }
@@ -41,10 +41,8 @@ public class SimulationEventReceiverImpl implements SimulationEventReceiver {
     
     @Override
     public void onCircuitChange(CircuitEvent event) {
-        // Synchroniser la scène avec les changements du circuit
-        if (event.getCircuit() != null) {
-            sceneManager.syncWithCircuit(event.getCircuit());
-        }
+        // Appliquer le changement à la scène, sans la resynchroniser entièrement
+        sceneManager.circuitChanged(event);
     }
     
     @Override
@@ -9,6 +9,9 @@ import com.cburch.logisim.plugin3d.export.JSONExporter;
 import com.cburch.logisim.plugin3d.export.XMLExporter;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitEvent;
+import com.cburch.logisim.circuit.CircuitListener;
+import com.cburch.logisim.comp.Component;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -16,8 +19,17 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * Gestionnaire principal de la scène 3D.
  * Gère tous les objets 3D et coordonne le rendu.
+ *
+ * <p>La scène n'est pas reconstruite à chaque changement : un index persistant
+ * associe chaque composant du circuit à son objet 3D, et les événements du
+ * circuit (CircuitEvent) n'ajoutent ou ne retirent que les objets concernés.
+ * Le LOD n'est recalculé pour tous les objets que lorsque la caméra s'est
+ * déplacée de plus de LOD_CAMERA_THRESHOLD.
  */
-public class SceneManager implements SceneGraphAPI, ExportAPI {
+public class SceneManager implements SceneGraphAPI, ExportAPI, CircuitListener {
+    
+    // Déplacement de la caméra au-delà duquel le LOD de tous les objets est recalculé
+    private static final float LOD_CAMERA_THRESHOLD = 5.0f;
     
     // Projet Logisim associé
     private final Project project;
@@ -34,6 +46,14 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
     // Objets de la scène
     private final Map<String, Object3D> objects = new ConcurrentHashMap<>();
     
+    // Index persistant composant -> objet 3D, et circuit suivi
+    private final Map<Component, Object3D> componentObjects = new ConcurrentHashMap<>();
+    private Circuit syncedCircuit;
+    
+    // Objets dont le LOD doit être recalculé, et position de la caméra lors du dernier calcul complet
+    private final Set<Object3D> lodPending = ConcurrentHashMap.newKeySet();
+    private float[] lodCameraPosition;
+    
     // Time Travel
     private TimeTravelManager timeTravelManager;
     
@@ -67,17 +87,37 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
         // Mettre à jour la caméra
         cameraController.update((float) deltaTime);
         
-        // Mettre à jour le LOD pour chaque objet
-        for (Object3D obj : objects.values()) {
-            float distance = cameraController.getDistanceTo(obj.getPosition());
-            LODManager.LODLevel level = lodManager.getLODLevel(distance);
-            obj.setLODLevel(level);
+        // Mettre à jour le LOD : tous les objets si la caméra a bougé, sinon les seuls objets nouveaux ou déplacés
+        float[] cameraPosition = cameraController.getPosition();
+        if (lodCameraPosition == null
+                || cameraController.getDistanceTo(lodCameraPosition) > LOD_CAMERA_THRESHOLD) {
+            lodCameraPosition = cameraPosition.clone();
+            lodPending.clear();
+            for (Object3D obj : objects.values()) {
+                updateLOD(obj);
+            }
+        } else if (!lodPending.isEmpty()) {
+            for (Iterator<Object3D> it = lodPending.iterator(); it.hasNext(); ) {
+                updateLOD(it.next());
+                it.remove();
+            }
         }
         
         // Réinitialiser le flag de rendu
         needsRender = false;
     }
     
+    /**
+     * Recalcule le niveau LOD d'un objet.
+     */
+    private void updateLOD(Object3D obj) {
+        float distance = cameraController.getDistanceTo(obj.getPosition());
+        LODManager.LODLevel level = lodManager.getLODLevel(distance);
+        if (obj.getLODLevel() != level) {
+            obj.setLODLevel(level);
+        }
+    }
+    
     /**
      * Demande un rendu de la scène.
      */
@@ -91,6 +131,7 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
     public void addObject(Object3D object) {
         if (object != null && object.getId() != null) {
             objects.put(object.getId(), object);
+            lodPending.add(object);
             needsRender = true;
         }
     }
@@ -99,6 +140,7 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
     public void removeObject(Object3D object) {
         if (object != null && object.getId() != null) {
             objects.remove(object.getId());
+            lodPending.remove(object);
             needsRender = true;
         }
     }
@@ -106,7 +148,11 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
     @Override
     public void updateObject(String id, Object3D object) {
         if (id != null && object != null) {
-            objects.put(id, object);
+            Object3D old = objects.put(id, object);
+            if (old != null && old != object) {
+                lodPending.remove(old);
+            }
+            lodPending.add(object);
             needsRender = true;
         }
     }
@@ -124,6 +170,8 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
     @Override
     public void clear() {
         objects.clear();
+        componentObjects.clear();
+        lodPending.clear();
         needsRender = true;
     }
     
@@ -132,6 +180,7 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
         Object3D obj = objects.get(id);
         if (obj != null) {
             obj.setTransformMatrix(matrix);
+            lodPending.add(obj);
             needsRender = true;
         }
     }
@@ -193,7 +242,8 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
      */
     public void updateComponentState(String componentId, int signalValue, int bitWidth) {
         Object3D obj = objects.get(componentId);
-        if (obj != null) {
+        if (obj != null
+                && (obj.getSignalValue() != signalValue || obj.getBitWidth() != bitWidth)) {
             obj.setSignalValue(signalValue);
             obj.setBitWidth(bitWidth);
             needsRender = true;
@@ -205,28 +255,90 @@ public class SceneManager implements SceneGraphAPI, ExportAPI {
     }
     
     /**
-     * Synchronise la scène avec un circuit.
+     * Synchronise complètement la scène avec un circuit, et suit ensuite ses
+     * événements. Les objets déjà présents dans l'index sont conservés.
      */
     public void syncWithCircuit(Circuit circuit) {
         if (circuit == null) return;
         
+        if (circuit != syncedCircuit) {
+            if (syncedCircuit != null) {
+                syncedCircuit.removeCircuitListener(this);
+            }
+            circuit.addCircuitListener(this);
+            syncedCircuit = circuit;
+        }
+        
         // Ajouter les nouveaux composants
-        for (var comp : circuit.getComponents()) {
-            String id = comp.getId();
-            if (!objects.containsKey(id)) {
-                Object3D obj3d = componentFactory.createFromComponent(comp);
-                if (obj3d != null) {
-                    addObject(obj3d);
+        Set<Component> components = circuit.getComponents();
+        for (var comp : components) {
+            if (!componentObjects.containsKey(comp)) {
+                addComponent(comp);
+            }
+        }
+        
+        // Supprimer les composants supprimés, s'il y en a
+        if (componentObjects.size() > components.size()) {
+            for (var comp : new ArrayList<>(componentObjects.keySet())) {
+                if (!circuit.contains(comp)) {
+                    removeComponent(comp);
                 }
             }
         }
+    }
+    
+    /**
+     * Applique un changement du circuit suivi à la scène, sans la reconstruire.
+     */
+    @Override
+    public void circuitChanged(CircuitEvent event) {
+        Circuit circuit = event.getCircuit();
+        if (circuit == null) return;
+        if (circuit != syncedCircuit) {
+            syncWithCircuit(circuit);
+            return;
+        }
         
-        // Supprimer les composants supprimés
-        Set<String> currentIds = new HashSet<>();
-        for (var comp : circuit.getComponents()) {
-            currentIds.add(comp.getId());
+        switch (event.getAction()) {
+            case CircuitEvent.ACTION_ADD:
+                if (event.getData() instanceof Component comp && !componentObjects.containsKey(comp)) {
+                    addComponent(comp);
+                }
+                break;
+            case CircuitEvent.ACTION_REMOVE:
+                if (event.getData() instanceof Component comp) {
+                    removeComponent(comp);
+                }
+                break;
+            case CircuitEvent.ACTION_CLEAR:
+                for (var comp : new ArrayList<>(componentObjects.keySet())) {
+                    removeComponent(comp);
+                }
+                break;
+            case CircuitEvent.ACTION_INVALIDATE:
+                if (event.getData() instanceof Component comp
+                        && componentObjects.containsKey(comp)) {
+                    needsRender = true;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void addComponent(Component comp) {
+        Object3D obj3d = componentFactory.createFromComponent(comp);
+        if (obj3d != null) {
+            componentObjects.put(comp, obj3d);
+            addObject(obj3d);
+        }
+    }
+    
+    private void removeComponent(Component comp) {
+        Object3D obj3d = componentObjects.remove(comp);
+        if (obj3d != null) {
+            removeObject(obj3d);
         }
-        objects.keySet().removeIf(id -> !currentIds.contains(id));
     }
     
     // Getters et setters
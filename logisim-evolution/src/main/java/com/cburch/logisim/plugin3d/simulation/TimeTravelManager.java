@@ -5,114 +5,271 @@ import java.util.*;
 /**
  * Gestionnaire Time-Travel pour la simulation.
  * Permet d'annuler/retablir les états de simulation.
+ *
+ * <p>Les états ne sont pas copiés à chaque pas : chaque composant et fil reçoit
+ * un index dense, et un pas n'enregistre que les index dont la valeur a changé
+ * (deltas), dans un tampon circulaire de tableaux primitifs. Tous les
+ * KEYFRAME_INTERVAL pas, l'état complet est conservé (keyframe). Un état est
+ * reconstruit en partant de la keyframe la plus proche et en appliquant au plus
+ * KEYFRAME_INTERVAL - 1 pas de deltas.
  */
 public class TimeTravelManager {
-    
+
     private static final int MAX_HISTORY = 10000;
-    
-    // Historique des états
-    private final Deque<SimulationSnapshot> history = new ArrayDeque<>();
-    private final Deque<SimulationSnapshot> future = new ArrayDeque<>();
-    
+
+    // Distance entre deux états complets
+    private static final int KEYFRAME_INTERVAL = 256;
+
+    // Capacité du tampon des pas : l'historique est réduit par blocs entiers
+    private static final int RECORD_CAPACITY = MAX_HISTORY + KEYFRAME_INTERVAL;
+
+    // Valeur d'un index absent de l'état
+    private static final Object ABSENT = new Object();
+
+    // Index dense de chaque composant et fil
+    private final Map<String, Integer> componentSlots = new HashMap<>();
+    private final Map<String, Integer> wireSlots = new HashMap<>();
+    private final List<String> slotNames = new ArrayList<>();
+    private final BitSet wireSlotSet = new BitSet();
+
+    // Pas enregistrés, indexés par numéro de série modulo RECORD_CAPACITY
+    private final long[] recordChangeStart = new long[RECORD_CAPACITY];
+    private final int[] recordChangeCount = new int[RECORD_CAPACITY];
+    private final long[] recordTimestamp = new long[RECORD_CAPACITY];
+    private final int[] recordStep = new int[RECORD_CAPACITY];
+    private final Object[][] recordKeyframe = new Object[RECORD_CAPACITY][];
+
+    // Plus ancien pas conservé, pas courant et nombre de pas (passé et futur)
+    private long firstRecord = 0;
+    private long cursor = -1;
+    private int recordCount = 0;
+
+    // Deltas : index et nouvelle valeur, positions absolues de changeHead à changeTail
+    private int[] changeSlot = new int[1024];
+    private Object[] changeValue = new Object[1024];
+    private long changeHead = 0;
+    private long changeTail = 0;
+
+    // État du dernier pas enregistré, base des prochains deltas
+    private Object[] latest = new Object[0];
+    private int[] seenMark = new int[0];
+    private int mark = 0;
+
     // Pas actuel
     private int currentStep = 0;
     private boolean isRecording = true;
-    
+
     /**
      * Enregistre un nouvel état de simulation.
      */
-    public void recordState(Map<String, Object> componentStates, 
+    public void recordState(Map<String, Object> componentStates,
                            Map<String, Object> wireStates) {
         if (!isRecording) return;
-        
-        SimulationSnapshot snapshot = new SimulationSnapshot(
-            new HashMap<>(componentStates),
-            new HashMap<>(wireStates),
-            System.nanoTime(),
-            currentStep++
-        );
-        
-        history.push(snapshot);
-        future.clear(); // Effacer le futur
-        
-        // Limiter la taille
-        while (history.size() > MAX_HISTORY) {
-            history.removeLast();
+
+        // Effacer le futur
+        if (recordCount > 0 && cursor < firstRecord + recordCount - 1) {
+            final int r = slot(cursor);
+            changeTail = recordChangeStart[r] + recordChangeCount[r];
+            recordCount = (int) (cursor - firstRecord + 1);
+            latest = reconstruct(cursor);
+        }
+
+        final long serial = recordCount == 0 ? firstRecord : cursor + 1;
+        final int r = slot(serial);
+        final long start = changeTail;
+        // Le pas suit celui de l'état courant, même après un retour en arrière
+        final int step = recordCount == 0 ? currentStep : recordStep[slot(cursor)] + 1;
+
+        // Deltas par rapport au dernier état
+        mark++;
+        diff(componentStates, componentSlots, false);
+        diff(wireStates, wireSlots, true);
+        for (int i = 0; i < slotNames.size(); i++) {
+            if (seenMark[i] != mark && latest[i] != ABSENT) {
+                addChange(i, ABSENT);
+            }
+        }
+
+        if (serial % KEYFRAME_INTERVAL == 0) {
+            // Un état complet remplace les deltas
+            changeTail = start;
+            recordKeyframe[r] = latest.clone();
+        } else {
+            recordKeyframe[r] = null;
+        }
+        recordChangeStart[r] = start;
+        recordChangeCount[r] = (int) (changeTail - start);
+        recordTimestamp[r] = System.nanoTime();
+        recordStep[r] = step;
+        currentStep = step + 1;
+        cursor = serial;
+        recordCount++;
+
+        // Limiter la taille, par blocs allant d'une keyframe à la suivante
+        if (recordCount > MAX_HISTORY) {
+            firstRecord += KEYFRAME_INTERVAL;
+            recordCount -= KEYFRAME_INTERVAL;
+            changeHead = recordChangeStart[slot(firstRecord)];
+        }
+    }
+
+    /**
+     * Compare les valeurs reçues à l'état du dernier pas et enregistre les changements.
+     */
+    private void diff(Map<String, Object> states, Map<String, Integer> slots, boolean wires) {
+        for (Map.Entry<String, Object> entry : states.entrySet()) {
+            Integer index = slots.get(entry.getKey());
+            if (index == null) {
+                index = newSlot(entry.getKey(), wires);
+                slots.put(entry.getKey(), index);
+            }
+            seenMark[index] = mark;
+            if (!Objects.equals(latest[index], entry.getValue())) {
+                addChange(index, entry.getValue());
+            }
         }
     }
-    
+
+    private int newSlot(String name, boolean wire) {
+        final int index = slotNames.size();
+        slotNames.add(name);
+        if (wire) wireSlotSet.set(index);
+        if (index >= latest.length) {
+            final int length = Math.max(16, latest.length * 2);
+            final int oldLength = latest.length;
+            latest = Arrays.copyOf(latest, length);
+            Arrays.fill(latest, oldLength, length, ABSENT);
+            seenMark = Arrays.copyOf(seenMark, length);
+        }
+        return index;
+    }
+
+    private void addChange(int index, Object value) {
+        if (changeTail - changeHead == changeSlot.length) {
+            growChanges();
+        }
+        final int pos = (int) (changeTail & (changeSlot.length - 1));
+        changeSlot[pos] = index;
+        changeValue[pos] = value;
+        changeTail++;
+        latest[index] = value;
+    }
+
+    /**
+     * Double la capacité du tampon des deltas, en gardant leurs positions absolues.
+     */
+    private void growChanges() {
+        final int[] slots = new int[changeSlot.length * 2];
+        final Object[] values = new Object[changeSlot.length * 2];
+        for (long p = changeHead; p < changeTail; p++) {
+            final int from = (int) (p & (changeSlot.length - 1));
+            final int to = (int) (p & (slots.length - 1));
+            slots[to] = changeSlot[from];
+            values[to] = changeValue[from];
+        }
+        changeSlot = slots;
+        changeValue = values;
+    }
+
+    private static int slot(long serial) {
+        return (int) (serial % RECORD_CAPACITY);
+    }
+
+    /**
+     * Reconstruit l'état d'un pas depuis la keyframe qui le précède.
+     */
+    private Object[] reconstruct(long serial) {
+        final long keyframe = serial - serial % KEYFRAME_INTERVAL;
+        final Object[] base = recordKeyframe[slot(keyframe)];
+        final Object[] state = Arrays.copyOf(base, latest.length);
+        Arrays.fill(state, base.length, state.length, ABSENT);
+        for (long s = keyframe + 1; s <= serial; s++) {
+            final int r = slot(s);
+            final long end = recordChangeStart[r] + recordChangeCount[r];
+            for (long p = recordChangeStart[r]; p < end; p++) {
+                final int pos = (int) (p & (changeSlot.length - 1));
+                state[changeSlot[pos]] = changeValue[pos];
+            }
+        }
+        return state;
+    }
+
     /**
      * Annule le dernier changement.
      */
     public boolean undo() {
-        if (history.size() <= 1) return false;
-        
-        SimulationSnapshot current = history.pop();
-        future.push(current);
-        
-        SimulationSnapshot previous = history.peek();
-        currentStep = previous.getStep();
-        
+        if (cursor <= firstRecord) return false;
+
+        cursor--;
+        currentStep = recordStep[slot(cursor)];
+
         return true;
     }
-    
+
     /**
      * Rétablit un changement annulé.
      */
     public boolean redo() {
-        if (future.isEmpty()) return false;
-        
-        SimulationSnapshot next = future.pop();
-        history.push(next);
-        
-        currentStep = next.getStep();
-        
+        if (cursor >= firstRecord + recordCount - 1) return false;
+
+        cursor++;
+        currentStep = recordStep[slot(cursor)];
+
         return true;
     }
-    
+
     /**
-     * Saute à un pas spécifique.
+     * Saute à un pas spécifique, compté depuis le plus ancien pas conservé.
      */
     public void jumpTo(int step) {
-        if (step < 0 || step >= history.size()) return;
-        
-        // Recréer l'historique jusqu'au pas souhaité
-        while (history.size() > step + 1) {
-            SimulationSnapshot s = history.pop();
-            future.push(s);
-        }
-        
-        currentStep = step;
+        if (step < 0 || step >= recordCount) return;
+
+        cursor = firstRecord + step;
+        currentStep = recordStep[slot(cursor)];
     }
-    
+
     /**
      * Retourne le nombre de pas dans l'historique.
      */
     public int getHistorySize() {
-        return history.size();
+        return recordCount == 0 ? 0 : (int) (cursor - firstRecord + 1);
     }
-    
+
     /**
      * Retourne le pas actuel.
      */
     public int getCurrentStep() {
         return currentStep;
     }
-    
+
     /**
      * Active/désactive l'enregistrement.
      */
     public void setRecording(boolean recording) {
         this.isRecording = recording;
     }
-    
+
     /**
-     * Retourne l'état actuel.
+     * Retourne l'état actuel, reconstruit depuis la keyframe la plus proche.
      */
     public SimulationSnapshot getCurrentState() {
-        return history.peek();
+        if (recordCount == 0) return null;
+
+        final Object[] state = reconstruct(cursor);
+        final Map<String, Object> compStates = new HashMap<>();
+        final Map<String, Object> wireStates = new HashMap<>();
+        for (int i = 0; i < slotNames.size(); i++) {
+            if (state[i] == ABSENT) continue;
+            if (wireSlotSet.get(i)) {
+                wireStates.put(slotNames.get(i), state[i]);
+            } else {
+                compStates.put(slotNames.get(i), state[i]);
+            }
+        }
+        final int r = slot(cursor);
+        return new SimulationSnapshot(compStates, wireStates, recordTimestamp[r], recordStep[r]);
     }
-    
+
     /**
      * Snapshot d'un état de simulation.
      */
@@ -121,8 +278,8 @@ public class TimeTravelManager {
         private final Map<String, Object> wireStates;
         private final long timestamp;
         private final int step;
-        
-        public SimulationSnapshot(Map<String, Object> compStates, 
+
+        public SimulationSnapshot(Map<String, Object> compStates,
                                   Map<String, Object> wireStates,
                                   long timestamp, int step) {
             this.componentStates = compStates;
@@ -130,19 +287,19 @@ public class TimeTravelManager {
             this.timestamp = timestamp;
             this.step = step;
         }
-        
+
         public Map<String, Object> getComponentStates() {
             return componentStates;
         }
-        
+
         public Map<String, Object> getWireStates() {
             return wireStates;
         }
-        
+
         public long getTimestamp() {
             return timestamp;
         }
-        
+
         public int getStep() {
             return step;
         }
@@ -1,6 +1,8 @@
 package com.cburch.logisim.plugin3d.ui;
 
 import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitEvent;
+import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.proj.Project;
@@ -29,6 +31,13 @@ public class Logisim3DPanel extends JPanel {
     // Vue 3D (Canvas Three.js dans WebView)
     private Canvas3DView canvas3D;
     
+    // Objets 3D de chaque composant du circuit affiché, mis à jour par ses événements
+    private final Map<Component, Object3D> sceneObjects = new LinkedHashMap<>();
+    private Circuit sceneCircuit;
+    private final CircuitListener circuitListener = this::circuitChanged;
+    // Une mise à jour de la scène est déjà prévue sur le thread de l'interface
+    private boolean scenePending = false;
+    
     // État
     private boolean visible = false;
     private String currentCameraMode = "Orbit";
@@ -130,12 +139,17 @@ public class Logisim3DPanel extends JPanel {
             refreshScene();
             statusLabel.setText("Vue 3D active");
         } else {
+            // Inutile de suivre le circuit tant que la vue est masquée :
+            // la scène sera reconstruite à son prochain affichage
+            detachCircuit();
             statusLabel.setText("Vue 3D masquée");
         }
     }
     
     /**
      * Met à jour la scène depuis le circuit actuel.
+     * Les objets ne sont reconstruits que si le circuit affiché a changé ; sinon,
+     * les événements du circuit ont déjà tenu la scène à jour.
      */
     public void refreshScene() {
         if (!visible) return;
@@ -146,20 +160,97 @@ public class Logisim3DPanel extends JPanel {
             return;
         }
         
-        // Convertir les composants en objets 3D
-        List<Object3D> objects = new ArrayList<>();
-        
-        for (Component comp : circuit.getComponents()) {
-            Object3D obj3d = convertComponentTo3D(comp);
-            if (obj3d != null) {
-                objects.add(obj3d);
+        if (circuit != sceneCircuit) {
+            if (sceneCircuit != null) {
+                sceneCircuit.removeCircuitListener(circuitListener);
             }
+            sceneCircuit = circuit;
+            circuit.addCircuitListener(circuitListener);
+            
+            // Convertir les composants en objets 3D
+            sceneObjects.clear();
+            for (Component comp : circuit.getComponents()) {
+                addComponent(comp);
+            }
+            
+            // Le rendu tourne sur le thread du Timer : on lui passe une copie
+            canvas3D.updateScene(List.copyOf(sceneObjects.values()));
+        }
+        
+        statusLabel.setText("Composants: " + sceneObjects.size());
+    }
+    
+    /**
+     * Ajoute ou retire les seuls objets des composants ajoutés ou retirés.
+     * La scène n'est transmise qu'une fois par passage sur le thread de l'interface,
+     * quel que soit le nombre d'événements : un chargement ou une modification en
+     * masse ne la copie donc pas à chaque composant.
+     */
+    private void circuitChanged(CircuitEvent event) {
+        if (event.getCircuit() != sceneCircuit) return;
+        
+        switch (event.getAction()) {
+            case CircuitEvent.ACTION_ADD:
+                if (event.getData() instanceof Component comp) {
+                    addComponent(comp);
+                }
+                break;
+            case CircuitEvent.ACTION_REMOVE:
+                sceneObjects.remove(event.getData());
+                break;
+            case CircuitEvent.ACTION_CLEAR:
+                sceneObjects.clear();
+                break;
+            default:
+                return;
         }
         
-        // Mettre à jour le canvas 3D
-        canvas3D.updateScene(objects);
+        if (!scenePending) {
+            scenePending = true;
+            SwingUtilities.invokeLater(this::pushScene);
+        }
+    }
+    
+    /**
+     * Transmet au rendu l'état de la scène après les derniers événements.
+     */
+    private void pushScene() {
+        scenePending = false;
+        if (sceneCircuit == null) return;
         
-        statusLabel.setText("Composants: " + objects.size());
+        canvas3D.updateScene(List.copyOf(sceneObjects.values()));
+        if (visible) {
+            statusLabel.setText("Composants: " + sceneObjects.size());
+            canvas3D.requestRender();
+        }
+    }
+    
+    /**
+     * Ne plus écouter le circuit une fois le panneau retiré de l'interface.
+     */
+    @Override
+    public void removeNotify() {
+        detachCircuit();
+        super.removeNotify();
+    }
+    
+    /**
+     * Cesse d'écouter le circuit affiché et vide la scène.
+     */
+    private void detachCircuit() {
+        if (sceneCircuit != null) {
+            sceneCircuit.removeCircuitListener(circuitListener);
+            sceneCircuit = null;
+        }
+        sceneObjects.clear();
+        canvas3D.updateScene(List.of());
+    }
+    
+    private void addComponent(Component comp) {
+        Object3D obj3d = convertComponentTo3D(comp);
+        if (obj3d != null) {
+            sceneObjects.put(comp, obj3d);
+        }
     }
     
     /**
@@ -188,13 +279,8 @@ public class Logisim3DPanel extends JPanel {
         CircuitState state = project.getSimulator().getCircuitState();
         if (state == null) return;
         
-        // Mettre à jour les couleurs des composants
-        for (Component comp : state.getCircuit().getComponents()) {
-            Object stateData = state.getComponentState(comp);
-            // Mapper l'état vers la couleur
-            // TODO: Implémenter la logique complète
-        }
-        
+        // Les changements de valeurs arrivent par SceneManager.updateComponentState,
+        // qui ne marque que les objets modifiés : inutile de parcourir tout le circuit
         canvas3D.requestRender();
     }
     
@@ -244,7 +330,7 @@ public class Logisim3DPanel extends JPanel {
 class Canvas3DView extends JPanel {
     
     private final Logisim3DPanel parent;
-    private List<Object3D> currentObjects = new ArrayList<>();
+    private volatile Collection<Object3D> currentObjects = List.of();
     private String cameraMode = "Orbit";
     private boolean showLabels = true;
     private Timer renderTimer;
@@ -416,7 +502,7 @@ class Canvas3DView extends JPanel {
         "</html>";
     }
     
-    public void updateScene(List<Object3D> objects) {
+    public void updateScene(Collection<Object3D> objects) {
         this.currentObjects = objects;
     }
     
@@ -537,6 +537,13 @@ public class AppPreferences {
   //file preferences
   public static final PrefMonitor<Boolean> REMOVE_UNUSED_LIBRARIES =
       create(new PrefMonitorBoolean("removeUnusedLibs", false));
+  public static final PrefMonitor<Boolean> PROJECT_CACHE =
+      create(new PrefMonitorBoolean("projectCache", false));
+  public static final PrefMonitor<String> PROJECT_CACHE_DIR =
+      create(
+          new PrefMonitorString(
+              "projectCacheDir",
+              System.getProperty("user.home") + "/.cache/logisim-evolution/projects"));
   // Window preferences
   public static final String TOOLBAR_HIDDEN = "hidden";
   public static final PrefMonitor<Boolean> SHOW_TICK_RATE =
@@ -829,6 +836,10 @@ public class AppPreferences {
                             SIM_QUEUE_LINKED, SIM_QUEUE_LIST_OF_QUEUES, SIM_QUEUE_TREE_OF_QUEUES},
               SIM_QUEUE_DEFAULT)
       );
+  public static final PrefMonitor<Boolean> SIMULATION_LEVELIZED =
+      create(new PrefMonitorBoolean("simLevelized", false));
+  public static final PrefMonitor<Boolean> SIMULATION_PARALLEL =
+      create(new PrefMonitorBoolean("simParallel", false));
   public static final PrefMonitor<Boolean> AntiAliassing =
       create(new PrefMonitorBoolean("AntiAliassing", true));
 
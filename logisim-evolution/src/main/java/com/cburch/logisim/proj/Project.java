@@ -518,11 +518,14 @@ public class Project {
       }
     }
     hdlModel = null;
+    if (old != null) old.releaseObserved();
     circuitState = value;
     if (circuitState.getParentState() == null) {
       recentRootState.put(newCircuit, circuitState);
     }
+    final var catchUp = circuitState.markObserved();
     simulator.setCircuitState(circuitState);
+    if (catchUp) simulator.nudge();
     if (circuitChanged) {
       fireEvent(ProjectEvent.ACTION_SET_CURRENT, oldActive, newCircuit);
       if (newCircuit != null) {
@@ -263,7 +263,7 @@ public class SocBusStateInfo extends JDialog
 
   public void initializeTransaction(SocBusTransaction trans, String busId) {
     int nrOfReponders = 0;
-    int reponder = -1;
+    SocBusSlaveInterface reponder = null;
     final var slaves = memMap.getSlaves();
     if (slaves.isEmpty()) trans.setError(SocBusTransaction.NO_SLAVES_ERROR);
     else if (trans.isReadTransaction()
@@ -271,15 +271,16 @@ public class SocBusStateInfo extends JDialog
         && !trans.isAtomicTransaction()) {
       trans.setError(SocBusTransaction.NONE_ATOMIC_READ_WRITE_ERROR);
     } else {
-      for (int i = 0; i < slaves.size(); i++) {
-        if (slaves.get(i).canHandleTransaction(trans)) {
+      /* only the slaves mapped at the address can respond */
+      for (SocBusSlaveInterface slave : memMap.getSlavesAt(trans.getAddress())) {
+        if (slave.canHandleTransaction(trans)) {
           nrOfReponders++;
-          reponder = i;
+          reponder = slave;
         }
       }
       if (nrOfReponders == 0) trans.setError(SocBusTransaction.NO_RESPONS_ERROR);
       else if (nrOfReponders != 1) trans.setError(SocBusTransaction.MULTIPLE_SLAVES_ERROR);
-      else slaves.get(reponder).handleTransaction(trans);
+      else reponder.handleTransaction(trans);
     }
     if (!trans.hasError() && !trans.isHidden()) {
       for (SocBusSnifferInterface sniffer : sniffers) sniffer.sniffTransaction(trans);
@@ -19,8 +19,10 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.TreeSet;
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JTable;
@@ -198,7 +200,54 @@ public class SocMemMapModel extends AbstractTableModel
     }
   }
 
+  /**
+   * The slaves by address, to find those that may answer a transaction without asking all of them.
+   * The address space is cut at the start and past the end of each slave, and each piece lists the
+   * slaves covering it: one, or several when slaves overlap. The index is immutable and replaced
+   * whenever a slave is added, removed or moved.
+   */
+  private static class SlaveIndex {
+    private static final SocBusSlaveInterface[] NONE = new SocBusSlaveInterface[0];
+    private final long[] starts;
+    private final SocBusSlaveInterface[][] covering;
+
+    public SlaveIndex(List<SocBusSlaveInterface> slaves) {
+      final var bounds = new TreeSet<Long>();
+      for (final var slave : slaves) {
+        bounds.add(getStart(slave));
+        bounds.add(getStart(slave) + getSize(slave));
+      }
+      starts = new long[bounds.size()];
+      covering = new SocBusSlaveInterface[starts.length][];
+      var i = 0;
+      for (final var start : bounds) {
+        final var found = new ArrayList<SocBusSlaveInterface>();
+        for (final var slave : slaves) {
+          final var slaveStart = getStart(slave);
+          if (start >= slaveStart && start < slaveStart + getSize(slave)) found.add(slave);
+        }
+        starts[i] = start;
+        covering[i++] = found.isEmpty() ? NONE : found.toArray(NONE);
+      }
+    }
+
+    private static long getStart(SocBusSlaveInterface slave) {
+      return ((long) slave.getStartAddress()) & longMask;
+    }
+
+    private static long getSize(SocBusSlaveInterface slave) {
+      return ((long) slave.getMemorySize()) & longMask;
+    }
+
+    public SocBusSlaveInterface[] get(long address) {
+      var i = Arrays.binarySearch(starts, address);
+      if (i < 0) i = -i - 2;
+      return i < 0 ? NONE : covering[i];
+    }
+  }
+
   private final ArrayList<SocBusSlaveInterface> slaves;
+  private volatile SlaveIndex slaveIndex;
   private final SlaveMap slaveMap;
   private final SlaveInfoRenderer slaveRenderer;
   private final MemoryMapHeaderRenderer headRenderer;
@@ -212,6 +261,7 @@ public class SocMemMapModel extends AbstractTableModel
     slaveRenderer = new SlaveInfoRenderer();
     headRenderer = new MemoryMapHeaderRenderer();
     marked = null;
+    slaveIndex = new SlaveIndex(slaves);
     rebuild();
   }
 
@@ -219,6 +269,7 @@ public class SocMemMapModel extends AbstractTableModel
     if (!slaves.contains(slave)) {
       slaves.add(slave);
       slave.registerListener(this);
+      slaveIndex = new SlaveIndex(slaves);
       rebuild();
     }
   }
@@ -227,6 +278,7 @@ public class SocMemMapModel extends AbstractTableModel
     if (slaves.contains(slave)) {
       slaves.remove(slave);
       slave.removeListener(this);
+      slaveIndex = new SlaveIndex(slaves);
       rebuild();
     }
   }
@@ -235,6 +287,14 @@ public class SocMemMapModel extends AbstractTableModel
     return slaves;
   }
 
+  /**
+   * Returns the slaves whose address range contains the address, found in logarithmic time. These
+   * are the only ones that may handle a transaction to it.
+   */
+  public SocBusSlaveInterface[] getSlavesAt(int address) {
+    return slaveIndex.get(((long) address) & longMask);
+  }
+
   public SlaveInfoRenderer getCellRender() {
     return slaveRenderer;
   }
@@ -281,6 +341,7 @@ public class SocMemMapModel extends AbstractTableModel
 
   @Override
   public void memoryMapChanged() {
+    slaveIndex = new SlaveIndex(slaves);
     rebuild();
   }
 
@@ -174,17 +174,25 @@ public class ProcessorReadElf {
         return false;
       }
       long startAddr = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_PADDR));
-      for (int j = 0; j < memSize; j++) {
-        int data = (j < buffer.length) ? buffer[j] : 0;
+      int j = 0;
+      while (j < memSize) {
         int addr = ElfHeader.getIntValue(ElfHeader.returnCorrectValue(startAddr + (long) j, true));
+        /* aligned words are written at once, the bytes in memory order; the rest byte by byte */
+        int size = ((addr & 3) == 0 && j + 4 <= memSize) ? 4 : 1;
+        int data = 0;
+        for (int k = 0; k < size; k++) {
+          int value = (j + k < buffer.length) ? buffer[j + k] & 0xFF : 0;
+          data |= value << (8 * k);
+        }
         SocBusTransaction trans =
             new SocBusTransaction(
                 SocBusTransaction.WRITE_TRANSACTION,
                 addr,
                 data,
-                SocBusTransaction.BYTE_ACCESS,
+                size == 4 ? SocBusTransaction.WORD_ACCESS : SocBusTransaction.BYTE_ACCESS,
                 "elf");
         cpu.insertTransaction(trans, true, cState);
+        j += size;
         if (trans.hasError()) {
           start = startAddr;
           end = startAddr + memSize - 1;
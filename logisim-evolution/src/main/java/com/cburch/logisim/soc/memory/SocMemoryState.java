@@ -19,134 +19,64 @@ import com.cburch.logisim.soc.data.SocBusTransaction;
 import com.cburch.logisim.soc.data.SocSupport;
 import com.cburch.logisim.util.StringUtil;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Random;
 
 public class SocMemoryState implements SocBusSlaveInterface {
 
+  /**
+   * The contents of a memory, in pages of words that are created on the first write to them and
+   * found in constant time from the word address, through a directory and a table of 1024 entries
+   * each. New pages are filled with random values, as uninitialized memory; words of pages never
+   * written to read as new random values.
+   */
   public class SocMemoryInfo implements InstanceData, Cloneable {
-    private class SocMemoryInfoBlock {
-      private final LinkedList<Integer> contents = new LinkedList<>();
-      private int startAddress;
-      private final Random rand = new Random();
-
-      public SocMemoryInfoBlock(int address, int data) {
-        startAddress = (address >> 2) << 2;
-        contents.add(data);
-      }
-
-      public boolean canAddBefore(int address) {
-        final var previousAddress = getStartAddress() - 4;
-        return (address >= previousAddress) && (address < getStartAddress());
-      }
-
-      public boolean canAddAfter(int address) {
-        return (address >= getEndAddress()) && (address < getEndAddress() + 4);
-      }
-
-      public boolean contains(int address) {
-        return (address >= getStartAddress()) && (address < getEndAddress());
-      }
-
-      public boolean canAdd(int address) {
-        return canAddBefore(address) || canAddAfter(address);
-      }
-
-      public boolean addInfo(int address, int data) {
-        if (canAddBefore(address)) {
-          contents.addFirst(data);
-          startAddress -= 4;
-          return true;
-        }
-        if (canAddAfter(address)) {
-          contents.add(data);
-          return true;
-        }
-        if (contains(address)) {
-          final var index = (address - startAddress) >> 2;
-          contents.set(index, data);
-          return true;
-        }
-        return false;
-      }
-
-      public int getValue(int address) {
-        final var index = (address - startAddress) >> 2;
-        if (index >= contents.size()) {
-          return rand.nextInt();
-        }
-        return contents.get(index);
-      }
-
-      public int getStartAddress() {
-        return startAddress;
-      }
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
 
-      public int getEndAddress() {
-        return startAddress + contents.size() * 4;
-      }
-    }
-
-    private final ArrayList<SocMemoryInfoBlock> memInfo;
-
-    public SocMemoryInfo() {
-      memInfo = new ArrayList<>();
-    }
+    // indexed by the 10 most significant bits of the 30-bit word address
+    private int[][][] pages = new int[PAGE_SIZE][][];
 
     @Override
     public SocMemoryInfo clone() {
       try {
-        return (SocMemoryInfo) super.clone();
+        final var ret = (SocMemoryInfo) super.clone();
+        ret.pages = pages.clone();
+        for (var i = 0; i < ret.pages.length; i++) {
+          if (ret.pages[i] == null) continue;
+          final var table = ret.pages[i].clone();
+          for (var j = 0; j < table.length; j++) {
+            if (table[j] != null) table[j] = table[j].clone();
+          }
+          ret.pages[i] = table;
+        }
+        return ret;
       } catch (CloneNotSupportedException e) {
         return null;
       }
     }
 
     public int getWord(int address) {
-      for (final var info : memInfo)
-        if (info.contains(address)) return info.getValue(address);
-      return rand.nextInt();
+      final var word = address >>> 2;
+      final var table = pages[word >>> (2 * PAGE_BITS)];
+      final var page = table == null ? null : table[(word >>> PAGE_BITS) & PAGE_MASK];
+      return page == null ? rand.nextInt() : page[word & PAGE_MASK];
     }
 
     public void writeWord(int address, int wdata) {
-      final var adders = new ArrayList<SocMemoryInfoBlock>();
-      for (final var info : memInfo) {
-        if (info.contains(address)) {
-          info.addInfo(address, wdata);
-          return;
-        }
-        if (info.canAdd(address)) adders.add(info);
-      }
-      if (adders.isEmpty()) {
-        /* we have to create a new set */
-        memInfo.add(new SocMemoryInfoBlock(address, wdata));
-        return;
-      }
-      if (adders.size() == 1) {
-        /* easy case we can add in front or at the end of an existing one */
-        adders.get(0).addInfo(address, wdata);
-        return;
-      }
-      if (adders.size() > 2) {
-        // FIXME: hardcoded string
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
-      }
-      final var addBefore = adders.get(0).canAddBefore(address)
-                            ? adders.get(0)
-                            : adders.get(1).canAddBefore(address) ? adders.get(1) : null;
-      final var addAfter = adders.get(0).canAddAfter(address)
-                           ? adders.get(0)
-                           : adders.get(1).canAddAfter(address) ? adders.get(1) : null;
-      if (addBefore == null || addAfter == null) {
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
+      final var word = address >>> 2;
+      var table = pages[word >>> (2 * PAGE_BITS)];
+      if (table == null) {
+        table = new int[PAGE_SIZE][];
+        pages[word >>> (2 * PAGE_BITS)] = table;
       }
-      addAfter.addInfo(address, wdata);
-      for (var i = addBefore.getStartAddress(); i < addBefore.getEndAddress(); i += 4) {
-        addAfter.addInfo(i, addBefore.getValue(i));
+      var page = table[(word >>> PAGE_BITS) & PAGE_MASK];
+      if (page == null) {
+        page = new int[PAGE_SIZE];
+        for (var i = 0; i < PAGE_SIZE; i++) page[i] = rand.nextInt();
+        table[(word >>> PAGE_BITS) & PAGE_MASK] = page;
       }
-      memInfo.remove(addBefore);
+      page[word & PAGE_MASK] = wdata;
     }
   }
 
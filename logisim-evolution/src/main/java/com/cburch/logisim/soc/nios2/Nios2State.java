@@ -338,7 +338,7 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
         if (visible) repaint();
         return;
       }
-      final var trace = new TraceInfo(pc, instruction, exe.getAsmInstruction(), false);
+      final var trace = new TraceInfo(pc, instruction, ASSEMBLER.getAsmInstruction(), false);
       if (!exe.execute(this, cState)) {
         final var s = new StringBuilder();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -355,7 +355,7 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
         if (visible) repaint();
         return;
       }
-      final var trace = new TraceInfo(pc, instruction, exe.getAsmInstruction(), false);
+      final var trace = new TraceInfo(pc, instruction, ASSEMBLER.getAsmInstruction(), false);
       if (!exe.execute(this, cState)) {
         final var s = new StringBuilder();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -22,13 +22,22 @@ import com.cburch.logisim.soc.file.SectionHeader;
 import com.cburch.logisim.soc.file.SymbolTable;
 import com.cburch.logisim.util.StringUtil;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 
 public abstract class AbstractAssembler implements AssemblerInterface {
 
   private static final int nrOfBytesPerLine = 16;
+  private static final int DECODE_CACHE_BITS = 12;
+
+  /* An instruction word as decoded: the unit executing it, or null, and its assembly text */
+  private record Decoded(int instruction, AssemblerExecutionInterface exeUnit, String asm) {}
+
   private final ArrayList<AssemblerExecutionInterface> exeUnits = new ArrayList<>();
+  private final Decoded[] decodeCache = new Decoded[1 << DECODE_CACHE_BITS];
+  private AssemblerExecutionInterface exeUnit;
+  private Decoded lastDecoded;
   private final HashSet<Integer> acceptedParameterTypes;
 
   public AbstractAssembler() {
@@ -55,22 +64,49 @@ public abstract class AbstractAssembler implements AssemblerInterface {
 
   public void addAssemblerExecutionUnit(AssemblerExecutionInterface exe) {
     exeUnits.add(exe);
+    Arrays.fill(decodeCache, null);
   }
 
+  /**
+   * Decodes an instruction word. The unit executing a word is remembered in a direct-mapped cache,
+   * so that when a program runs, only that unit decodes the words seen before instead of all of
+   * them. The other units may then hold an older instruction, which is never visible, as
+   * getExeUnit returns the unit found here.
+   */
   @Override
   public void decode(int instruction) {
-    for (AssemblerExecutionInterface exe : exeUnits)
-      exe.setBinInstruction(instruction);
+    final var slot = (instruction * 0x9E3779B9) >>> (32 - DECODE_CACHE_BITS);
+    var decoded = decodeCache[slot];
+    if (decoded != null && decoded.instruction() == instruction) {
+      if (decoded.exeUnit() != null) decoded.exeUnit().setBinInstruction(instruction);
+    } else {
+      for (AssemblerExecutionInterface exe : exeUnits)
+        exe.setBinInstruction(instruction);
+      final var exe = findValidExeUnit();
+      decoded = new Decoded(instruction, exe, exe == null ? null : exe.getAsmInstruction());
+      decodeCache[slot] = decoded;
+    }
+    exeUnit = decoded.exeUnit();
+    lastDecoded = decoded;
   }
 
-  @Override
-  public AssemblerExecutionInterface getExeUnit() {
+  private AssemblerExecutionInterface findValidExeUnit() {
     for (AssemblerExecutionInterface exe : exeUnits)
       if (exe.isValid())
         return exe;
     return null;
   }
 
+  @Override
+  public AssemblerExecutionInterface getExeUnit() {
+    return exeUnit;
+  }
+
+  @Override
+  public String getAsmInstruction() {
+    return lastDecoded == null ? null : lastDecoded.asm();
+  }
+
   @Override
   public ArrayList<String> getOpcodes() {
     ArrayList<String> opcodes = new ArrayList<>();
@@ -94,6 +130,8 @@ public abstract class AbstractAssembler implements AssemblerInterface {
     for (AssemblerExecutionInterface exe : exeUnits) {
       found |= exe.setAsmInstruction(instruction);
     }
+    exeUnit = findValidExeUnit();
+    lastDecoded = null;
     if (!found)
       instruction.setError(instruction.getInstruction(), S.getter("AssemblerUnknownOpcode"));
     return !instruction.hasErrors();
@@ -25,6 +25,9 @@ public interface AssemblerInterface {
 
   AssemblerExecutionInterface getExeUnit();
 
+  /** Returns the assembly text of the instruction last decoded, or null if it is not valid. */
+  String getAsmInstruction();
+
   ArrayList<String> getOpcodes();
 
   int getInstructionSize(String opcode);
@@ -184,6 +184,11 @@ public class Text extends InstanceFactory {
     g2.dispose();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {}
 }
@@ -539,6 +539,11 @@ abstract class AbstractGate extends InstanceFactory {
 
   protected abstract void paintShape(InstancePainter painter, int width, int height);
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var attrs = (GateAttributes) state.getAttributeSet();
@@ -217,6 +217,11 @@ class Buffer extends InstanceFactory {
     painter.drawLabel();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var in = Buffer.repair(state, state.getPortValue(1));
@@ -241,6 +241,11 @@ class ControlledBuffer extends InstanceFactory {
     g.translate(-x, -y);
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var control = state.getPortValue(2);
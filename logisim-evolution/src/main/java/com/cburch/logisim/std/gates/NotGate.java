@@ -259,6 +259,11 @@ class NotGate extends InstanceFactory {
     GraphicsUtil.switchToWidth(g, 1);
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var in = state.getPortValue(1);
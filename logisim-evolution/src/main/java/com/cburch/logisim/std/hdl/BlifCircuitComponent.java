@@ -18,6 +18,7 @@ import com.cburch.logisim.data.Value;
 import com.cburch.logisim.gui.icons.ArithmeticIcon;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceState;
+import java.util.List;
 
 /**
  * Represents a BLIF circuit.
@@ -79,6 +80,66 @@ public class BlifCircuitComponent extends HdlCircuitComponent<BlifContentCompone
     readOutOutputs(inputsLen, content.outputs, content.compiledOutputPinsO, id, state);
   }
 
+  /**
+   * Evaluates a BLIF circuit for each of the given input vectors, each time from the initial
+   * state, as the first propagation of a new component would.
+   * This can be used without a circuit state, for exhaustive checks and the like.
+   * The vectors are simulated DenseLogicCircuit.LANES at a time, with the same results as when
+   * simulated one by one.
+   *
+   * @param inputs the values of the input ports, for each vector.
+   * @return the values of the output ports, for each vector, or null if the content didn't compile.
+   */
+  public static Value[][] evaluate(BlifContentComponent content, List<Value[]> inputs) {
+    final var circuit = content.compiled;
+    if (circuit == null) {
+      return null;
+    }
+    final var results = new Value[inputs.size()][];
+    for (int first = 0; first < inputs.size(); first += DenseLogicCircuit.LANES) {
+      final var count = Math.min(DenseLogicCircuit.LANES, inputs.size() - first);
+      final var lanes = circuit.newLanes();
+      for (int lane = 0; lane < count; lane++) {
+        final var values = inputs.get(first + lane);
+        for (int i = 0; i < content.inputs.length; i++) {
+          final var pinX = content.compiledInputPinsX[i];
+          for (int j = 0; j < pinX.length; j++) {
+            if (pinX[j] != -1) {
+              circuit.setCellLane(pinX[j], lane, toLevel(values[i].get(j)), lanes);
+            }
+          }
+        }
+      }
+      circuit.simulateLanes(lanes);
+      for (int lane = 0; lane < count; lane++) {
+        final var outputs = new Value[content.outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+          final var pinO = content.compiledOutputPinsO[i];
+          final var translated = new Value[content.outputs[i].getWidthInt()];
+          for (int j = 0; j < translated.length; j++) {
+            translated[j] = pinO[j] == -1
+                ? Value.UNKNOWN
+                : DenseLogicCircuit.LEV_TO_LS[circuit.getCellLane(pinO[j], lane, lanes)];
+          }
+          outputs[i] = Value.create(translated);
+        }
+        results[first + lane] = outputs;
+      }
+    }
+    return results;
+  }
+
+  private static byte toLevel(Value bit) {
+    if (bit == Value.FALSE) {
+      return DenseLogicCircuit.LEV_LOW;
+    } else if (bit == Value.TRUE) {
+      return DenseLogicCircuit.LEV_HIGH;
+    } else if (bit == Value.ERROR) {
+      return DenseLogicCircuit.LEV_ERR;
+    }
+    return DenseLogicCircuit.LEV_NONE;
+  }
+
   private void loadInInputs(int base, HdlModel.PortDescription[] set, int[][] pinX,
       BlifCircuitState id, InstanceState state) {
     for (int i = 0; i < set.length; i++) {
@@ -89,16 +150,7 @@ public class BlifCircuitComponent extends HdlCircuitComponent<BlifContentCompone
         if (cellId == -1) {
           continue;
         }
-        byte b = DenseLogicCircuit.LEV_NONE;
-        Value bit = v.get(j);
-        if (bit == Value.FALSE) {
-          b = DenseLogicCircuit.LEV_LOW;
-        } else if (bit == Value.TRUE) {
-          b = DenseLogicCircuit.LEV_HIGH;
-        } else if (bit == Value.ERROR) {
-          b = DenseLogicCircuit.LEV_ERR;
-        }
-        id.circuit.setCell(cellId, b, id.cells, id.auxData);
+        id.circuit.setCell(cellId, toLevel(v.get(j)), id.cells, id.auxData);
       }
     }
   }
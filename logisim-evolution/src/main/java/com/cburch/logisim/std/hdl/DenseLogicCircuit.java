@@ -76,6 +76,11 @@ public final class DenseLogicCircuit {
    */
   public static final int SQOP_LATCH = 1;
 
+  /**
+   * The amount of simulations run side by side by simulateLanes, one per bit of a long.
+   */
+  public static final int LANES = 64;
+
   /**
    * The amount of cells in the circuit.
    * Each cell has an update list.
@@ -104,6 +109,10 @@ public final class DenseLogicCircuit {
    * The amount of auxillary data (contains the update queue and sequential logic data).
    */
   private final int auxDataSize;
+  /**
+   * The amount of sequential logic data.
+   */
+  private final int seqDataSize;
   /**
    * The amount and types of combinatorial gates.
    */
@@ -133,6 +142,12 @@ public final class DenseLogicCircuit {
    * Doesn't necessarily cover all cells.
    */
   public final Map<String, Integer> symbolTable;
+  /**
+   * True if the result of a tick may depend on the order the gates are evaluated in,
+   *  because of a combinatorial loop or a cell driven by several gates.
+   * The lanes of such a circuit are simulated one at a time.
+   */
+  private final boolean orderDependent;
 
   /**
    * Creates the DenseLogicCircuit.
@@ -148,6 +163,7 @@ public final class DenseLogicCircuit {
     this.gateCount = gateTypes.length;
     this.updateQueueSize = gateCount + 1;
     this.auxDataSize = updateQueueSize + seqDataSize;
+    this.seqDataSize = seqDataSize;
     this.cellUpdateNotifiesGate = cellUpdateNotifiesGate;
     this.gateTypes = gateTypes;
     this.gateCellA = gateCellA;
@@ -155,6 +171,43 @@ public final class DenseLogicCircuit {
     this.gateCellO = gateCellO;
     this.sequentialScript = seq;
     this.symbolTable = symbolTable;
+    this.orderDependent = isOrderDependent();
+  }
+
+  /**
+   * Looks for cells driven by several gates, then for loops by removing gates without inputs
+   *  driven by other gates until none are left.
+   */
+  private boolean isOrderDependent() {
+    int[] drivers = new int[cellCount];
+    for (int g = 0; g < gateCount; g++) {
+      if (++drivers[gateCellO[g]] > 1) {
+        return true;
+      }
+    }
+    int[] inputsDriven = new int[gateCount];
+    for (int g = 0; g < gateCount; g++) {
+      for (int h : cellUpdateNotifiesGate[gateCellO[g]]) {
+        inputsDriven[h]++;
+      }
+    }
+    int[] ready = new int[gateCount];
+    int readyCount = 0;
+    for (int g = 0; g < gateCount; g++) {
+      if (inputsDriven[g] == 0) {
+        ready[readyCount++] = g;
+      }
+    }
+    int removed = 0;
+    while (removed < readyCount) {
+      int g = ready[removed++];
+      for (int h : cellUpdateNotifiesGate[gateCellO[g]]) {
+        if (--inputsDriven[h] == 0) {
+          ready[readyCount++] = h;
+        }
+      }
+    }
+    return removed < gateCount;
   }
 
   /**
@@ -348,4 +401,288 @@ public final class DenseLogicCircuit {
       }
     }
   }
+
+  /**
+   * The state of LANES simulations of the circuit run side by side, bit i of each word belonging
+   * to simulation ('lane') i.
+   * The level of a cell is split over two words, one per bit of the level.
+   */
+  public static final class Lanes {
+    /**
+     * Bit 0 of the level of each cell (set for LEV_LOW and LEV_ERR).
+     */
+    final long[] cellBit0;
+    /**
+     * Bit 1 of the level of each cell (set for LEV_HIGH and LEV_ERR).
+     */
+    final long[] cellBit1;
+    /**
+     * The lanes in which each gate has to be evaluated.
+     * A gate is in the update queue as long as this is not 0.
+     */
+    final long[] gatePending;
+    /**
+     * Update queue: the gate following each queued gate, then the first gate, -1 ending the list.
+     */
+    final int[] gateNext;
+    int gateFirst;
+    /**
+     * Sequential logic data: the lanes in which the clock of each D-flipflop was high.
+     */
+    final long[] seqHigh;
+    /**
+     * For circuits simulated one lane at a time, the cells and aux. data of each lane.
+     * The other fields are then unused.
+     */
+    final byte[][] laneCells;
+    final int[][] laneAuxData;
+
+    Lanes(long[] cellBit0, long[] cellBit1, int gateCount, int seqDataSize) {
+      this.cellBit0 = cellBit0;
+      this.cellBit1 = cellBit1;
+      this.gatePending = new long[gateCount];
+      this.gateNext = new int[gateCount];
+      this.seqHigh = new long[seqDataSize];
+      this.laneCells = null;
+      this.laneAuxData = null;
+    }
+
+    Lanes(byte[][] laneCells, int[][] laneAuxData) {
+      this.cellBit0 = null;
+      this.cellBit1 = null;
+      this.gatePending = null;
+      this.gateNext = null;
+      this.seqHigh = null;
+      this.laneCells = laneCells;
+      this.laneAuxData = laneAuxData;
+    }
+  }
+
+  /**
+   * Creates the state of LANES new simulations, each one as newCells and newAuxData would.
+   */
+  public final Lanes newLanes() {
+    if (orderDependent) {
+      byte[][] laneCells = new byte[LANES][];
+      int[][] laneAuxData = new int[LANES][];
+      for (int i = 0; i < LANES; i++) {
+        laneCells[i] = newCells();
+        laneAuxData[i] = newAuxData();
+      }
+      return new Lanes(laneCells, laneAuxData);
+    }
+    long[] bit0 = new long[cellCount];
+    long[] bit1 = new long[cellCount];
+    for (int i = 0; i < cellCount; i++) {
+      bit0[i] = (cellPull[i] & LEV_LOW) != 0 ? -1L : 0;
+      bit1[i] = (cellPull[i] & LEV_HIGH) != 0 ? -1L : 0;
+    }
+    Lanes lanes = new Lanes(bit0, bit1, gateCount, seqDataSize);
+    // same initial queue as newAuxData, in all lanes
+    for (int i = 0; i < gateCount; i++) {
+      lanes.gateNext[i] = i + 1 < gateCount ? i + 1 : -1;
+      lanes.gatePending[i] = -1L;
+    }
+    lanes.gateFirst = gateCount != 0 ? 0 : -1;
+    return lanes;
+  }
+
+  /**
+   * Updates a cell in one lane.
+   */
+  public final void setCellLane(int cell, int lane, byte value, Lanes lanes) {
+    if (lanes.laneCells != null) {
+      setCell(cell, value, lanes.laneCells[lane], lanes.laneAuxData[lane]);
+      return;
+    }
+    long bit = 1L << lane;
+    long bit0 = (value & LEV_LOW) != 0 ? bit : 0;
+    long bit1 = (value & LEV_HIGH) != 0 ? bit : 0;
+    long changed = ((lanes.cellBit0[cell] & bit) ^ bit0) | ((lanes.cellBit1[cell] & bit) ^ bit1);
+    if (changed == 0) {
+      return;
+    }
+    lanes.cellBit0[cell] ^= (lanes.cellBit0[cell] & bit) ^ bit0;
+    lanes.cellBit1[cell] ^= (lanes.cellBit1[cell] & bit) ^ bit1;
+    markLanes(cell, changed, lanes);
+  }
+
+  /**
+   * Returns the level of a cell in one lane.
+   */
+  public final byte getCellLane(int cell, int lane, Lanes lanes) {
+    if (lanes.laneCells != null) {
+      return lanes.laneCells[lane][cell];
+    }
+    int bit0 = (int) (lanes.cellBit0[cell] >>> lane) & 1;
+    int bit1 = (int) (lanes.cellBit1[cell] >>> lane) & 1;
+    return (byte) (bit0 | (bit1 << 1));
+  }
+
+  /**
+   * Simulates a tick in all lanes, with the same result in each lane as simulate.
+   * Gates are evaluated once for all the lanes in which they are queued.
+   * As the lanes then share the order of evaluation, circuits whose result could depend on it
+   *  are simulated one lane at a time instead.
+   */
+  public final void simulateLanes(Lanes lanes) {
+    if (lanes.laneCells != null) {
+      for (int i = 0; i < LANES; i++) {
+        simulate(lanes.laneCells[i], lanes.laneAuxData[i]);
+      }
+      return;
+    }
+    simulateCombinatorialLanes(lanes);
+    simulateSequentialLanes(lanes);
+    simulateCombinatorialLanes(lanes);
+  }
+
+  /**
+   * Queues the gates notified by a cell in the lanes where it changed.
+   */
+  private void markLanes(int cell, long changed, Lanes lanes) {
+    for (int g : cellUpdateNotifiesGate[cell]) {
+      if (lanes.gatePending[g] == 0) {
+        lanes.gateNext[g] = lanes.gateFirst;
+        lanes.gateFirst = g;
+      }
+      lanes.gatePending[g] |= changed;
+    }
+  }
+
+  /**
+   * Sets the level of a cell in the given lanes.
+   */
+  private void storeLanes(int cell, long bit0, long bit1, long mask, Lanes lanes) {
+    long[] c0 = lanes.cellBit0;
+    long[] c1 = lanes.cellBit1;
+    long changed = ((bit0 ^ c0[cell]) | (bit1 ^ c1[cell])) & mask;
+    if (changed != 0) {
+      c0[cell] = (c0[cell] & ~changed) | (bit0 & changed);
+      c1[cell] = (c1[cell] & ~changed) | (bit1 & changed);
+      markLanes(cell, changed, lanes);
+    }
+  }
+
+  /**
+   * The lanes in which a cell is LEV_HIGH.
+   */
+  private static long highLanes(int cell, Lanes lanes) {
+    return lanes.cellBit1[cell] & ~lanes.cellBit0[cell];
+  }
+
+  /**
+   * The combinatorial part of simulateLanes, see simulateCombinatorial.
+   */
+  private final void simulateCombinatorialLanes(Lanes lanes) {
+    long maxIterationCount = (long) gateCount;
+    maxIterationCount *= maxIterationCount;
+    long[] c0 = lanes.cellBit0;
+    long[] c1 = lanes.cellBit1;
+    while (maxIterationCount > 0) {
+      maxIterationCount--;
+      int gateToEval = lanes.gateFirst;
+      if (gateToEval == -1) {
+        break;
+      }
+      lanes.gateFirst = lanes.gateNext[gateToEval];
+      long mask = lanes.gatePending[gateToEval];
+      lanes.gatePending[gateToEval] = 0;
+      // run gate
+      int ca = gateCellA[gateToEval];
+      int cb = gateCellB[gateToEval];
+      long ha = c1[ca] & ~c0[ca];
+      long hb = c1[cb] & ~c0[cb];
+      long vo0;
+      long vo1;
+      long h;
+      switch (gateTypes[gateToEval]) {
+        case GATE_BUS:
+          vo0 = c0[ca] | c0[cb];
+          vo1 = c1[ca] | c1[cb];
+          break;
+        case GATE_TRIS:
+          vo0 = c0[ca] & hb;
+          vo1 = c1[ca] & hb;
+          break;
+        case GATE_TRISI:
+          vo0 = c0[ca] & ~hb;
+          vo1 = c1[ca] & ~hb;
+          break;
+        default:
+          switch (gateTypes[gateToEval]) {
+            case GATE_AND:
+              h = ha & hb;
+              break;
+            case GATE_OR:
+              h = ha | hb;
+              break;
+            case GATE_XOR:
+              h = ha ^ hb;
+              break;
+            case GATE_NAND:
+              h = ~(ha & hb);
+              break;
+            case GATE_NOR:
+              h = ~(ha | hb);
+              break;
+            case GATE_NXOR:
+              h = ~(ha ^ hb);
+              break;
+            case GATE_ANDNOT:
+              h = ha & ~hb;
+              break;
+            case GATE_ORNOT:
+              h = ha | ~hb;
+              break;
+            default:
+              throw new RuntimeException("invalid gate opcode " + gateTypes[gateToEval]);
+          }
+          // either LEV_HIGH or LEV_LOW
+          vo0 = ~h;
+          vo1 = h;
+      }
+      int outCell = gateCellO[gateToEval];
+      long none = ~(vo0 | vo1);
+      if ((cellPull[outCell] & LEV_LOW) != 0) {
+        vo0 |= none;
+      }
+      if ((cellPull[outCell] & LEV_HIGH) != 0) {
+        vo1 |= none;
+      }
+      storeLanes(outCell, vo0, vo1, mask, lanes);
+    }
+  }
+
+  /**
+   * The sequential part of simulateLanes, see simulateSequential.
+   */
+  private final void simulateSequentialLanes(Lanes lanes) {
+    int ptr = 0;
+    while (ptr < sequentialScript.length) {
+      int seqType = sequentialScript[ptr++];
+      switch (seqType) {
+        case SQOP_DFF: {
+          int d = sequentialScript[ptr++];
+          int c = sequentialScript[ptr++];
+          int q = sequentialScript[ptr++];
+          int x = sequentialScript[ptr++];
+          long high = highLanes(c, lanes);
+          long rising = high & ~lanes.seqHigh[x];
+          lanes.seqHigh[x] = high;
+          long newValue = (rising & highLanes(d, lanes)) | (~rising & highLanes(q, lanes));
+          storeLanes(q, ~newValue, newValue, -1L, lanes);
+        } break;
+        case SQOP_LATCH: {
+          int d = sequentialScript[ptr++];
+          int e = sequentialScript[ptr++];
+          int q = sequentialScript[ptr++];
+          long newValue = highLanes(d, lanes);
+          storeLanes(q, ~newValue, newValue, highLanes(e, lanes), lanes);
+        } break;
+        default:
+          throw new RuntimeException("invalid seq. opcode " + seqType);
+      }
+    }
+  }
 }
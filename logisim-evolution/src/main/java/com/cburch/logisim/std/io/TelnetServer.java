@@ -11,30 +11,73 @@ import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceState;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A Telnet server for one port. The sockets of all servers are served by a single shared thread,
+ * see {@link EventLoop}, so that a design with many Telnet components does not need threads for
+ * each of them and their clients.
+ */
 public class TelnetServer implements InstanceData {
-  private final ServerSocket serverSocket;
-  private ByteBuffer buffer;
-  private final ServerThread serverThread;
-  private boolean telnetEscape;
-  private ClientThread client;
+  private static final int ECHO = 1;
+  private static final int SGA = 3;
+  private static final int WILL = 251;
+  private static final int IAC = 255;
+
+  private final ServerSocketChannel serverChannel;
+  private final int port;
+  private final EventLoop loop;
+  private volatile ByteBuffer buffer;
+  private volatile boolean telnetEscape;
+  private volatile Client client;
+  private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+  private volatile boolean dead;
+  private boolean closed; // guarded by this
   private Value lastClock;
   private InstanceState instanceState;
 
   TelnetServer(int port, int bufferSize) throws IOException {
     buffer = new ByteBuffer(bufferSize);
-    serverSocket = new ServerSocket(port);
-    serverThread = new ServerThread();
-    serverThread.start();
+    serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.bind(new InetSocketAddress(port));
+      serverChannel.configureBlocking(false);
+      loop = EventLoop.get();
+    } catch (IOException e) {
+      serverChannel.close();
+      throw e;
+    }
+    this.port = serverChannel.socket().getLocalPort();
+    loop.execute(() -> loop.register(serverChannel, SelectionKey.OP_ACCEPT, new Handler() {
+      @Override
+      public void ready(SelectionKey key) throws IOException {
+        accept();
+      }
+
+      @Override
+      public void failed(IOException e) {
+        e.printStackTrace();
+        dead = true;
+        try {
+          serverChannel.close();
+        } catch (IOException ignored) {
+          // already failed
+        }
+      }
+    }));
   }
 
   public int getPort() {
-    return serverSocket.getLocalPort();
+    return port;
   }
 
   public Value setLastClock(Value newClock) {
@@ -44,8 +87,9 @@ public class TelnetServer implements InstanceData {
   }
 
   void send(int value) {
-    if (client != null) {
-      client.send(value);
+    final var cl = client;
+    if (cl != null) {
+      cl.send(value);
     }
   }
 
@@ -65,10 +109,6 @@ public class TelnetServer implements InstanceData {
     return buffer.hasData();
   }
 
-  private void setClient(ClientThread client) {
-    this.client = client;
-  }
-
   void setTelnetEscape(boolean telnetEscape) {
     this.telnetEscape = telnetEscape;
   }
@@ -81,15 +121,39 @@ public class TelnetServer implements InstanceData {
     buffer = new ByteBuffer(bufferSize);
   }
 
-  private void dataReceived(int data) {
-    buffer.put((byte) data);
-    if (instanceState != null) {
-      instanceState.fireInvalidated();
-    }
+  boolean isDead() {
+    return dead || !loop.isAlive();
   }
 
-  boolean isDead() {
-    return !serverThread.isAlive();
+  /**
+   * Closes the port and the connections of its clients. The thread serving the sockets ends, and
+   * this waits for it, once no server is left open.
+   */
+  public void close() {
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+    }
+    dead = true;
+    try {
+      serverChannel.close();
+    } catch (IOException ignored) {
+      // closing anyway
+    }
+    for (final var cl : clients) {
+      try {
+        cl.close();
+      } catch (IOException ignored) {
+        // closing anyway
+      }
+    }
+    if (EventLoop.release(loop) && Thread.currentThread() != loop) {
+      try {
+        loop.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
   @Override
@@ -105,93 +169,226 @@ public class TelnetServer implements InstanceData {
     this.instanceState = instanceState;
   }
 
-  private final class ServerThread extends Thread {
+  /** Accepts the pending connections; the newest client is the one that receives the output. */
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = serverChannel.accept()) != null) {
+      channel.configureBlocking(false);
+      final var cl = new Client(channel);
+      cl.key = loop.register(channel, SelectionKey.OP_READ, cl);
+      if (cl.key == null) continue;
+      clients.add(cl);
+      if (telnetEscape) {
+        for (final var value : new int[] {IAC, WILL, SGA, IAC, WILL, ECHO}) cl.send(value);
+      }
+      client = cl;
+    }
+  }
+
+  /** What is done when the channel of a key is ready; called on the event loop thread only. */
+  private interface Handler {
+    void ready(SelectionKey key) throws IOException;
+
+    void failed(IOException e);
+  }
+
+  /**
+   * The thread serving the sockets of all Telnet servers. It waits on a single selector, accepts
+   * connections, moves what clients send into the receive buffers, and writes what was queued for
+   * them as soon as their sockets can take it, in as few writes as possible. The registrations are
+   * only changed by this thread: other threads pass it tasks.
+   */
+  private static final class EventLoop extends Thread {
+    private static EventLoop instance;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private int servers; // guarded by EventLoop.class
+    private volatile boolean stopping;
 
-    private ServerThread() {
+    private EventLoop() throws IOException {
+      super("Telnet server");
       setDaemon(true);
+      selector = Selector.open();
+    }
+
+    static synchronized EventLoop get() throws IOException {
+      if (instance == null || !instance.isAlive()) {
+        instance = new EventLoop();
+        instance.start();
+      }
+      instance.servers++;
+      return instance;
+    }
+
+    /**
+     * Called when a server using the loop is closed. Once none is left, the loop stops.
+     *
+     * @return true if the loop is stopping.
+     */
+    static synchronized boolean release(EventLoop loop) {
+      if (--loop.servers > 0) return false;
+      if (instance == loop) instance = null;
+      loop.stopping = true;
+      loop.selector.wakeup();
+      return true;
+    }
+
+    void execute(Runnable task) {
+      tasks.add(task);
+      selector.wakeup();
+    }
+
+    SelectionKey register(SelectableChannel channel, int ops, Handler handler) {
+      try {
+        return channel.register(selector, ops, handler);
+      } catch (IOException e) {
+        handler.failed(e);
+        return null;
+      }
     }
 
     @Override
     public void run() {
       try {
-        while (true) {
-          Socket client = serverSocket.accept();
-          ClientThread cl = new ClientThread(client, TelnetServer.this);
-          cl.start();
-          setClient(cl);
+        while (!stopping) {
+          selector.select();
+          Runnable task;
+          while ((task = tasks.poll()) != null) task.run();
+          final var keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            final var key = keys.next();
+            keys.remove();
+            final var handler = (Handler) key.attachment();
+            try {
+              if (key.isValid()) handler.ready(key);
+            } catch (IOException e) {
+              handler.failed(e);
+            }
+          }
         }
       } catch (IOException e) {
         e.printStackTrace();
+      } finally {
+        // the servers are then dead: free their ports so that they can be opened again
+        for (final var key : selector.keys()) {
+          try {
+            key.channel().close();
+          } catch (IOException ignored) {
+            // closing anyway
+          }
+        }
+        try {
+          selector.close();
+        } catch (IOException ignored) {
+          // closing anyway
+        }
       }
     }
-
   }
 
-  private static final class ClientThread extends Thread {
-
-    private static final int ECHO = 1;
-    private static final int SGA = 3;
-    private static final int WILL = 251;
-    private static final int WONT = 252;
-    private static final int DO = 253;
-    private static final int DONT = 254;
-    private static final int IAC = 255;
-
-    private final InputStream in;
-    private final OutputStream out;
-    private final Socket client;
-    private final TelnetServer server;
+  /** A connection, with the bytes queued to be sent to it. */
+  private final class Client implements Handler {
+    private static final int READ_SIZE = 4096;
+    private static final int MAX_QUEUED = 1 << 20;
+
+    private final SocketChannel channel;
+    private final java.nio.ByteBuffer in = java.nio.ByteBuffer.allocate(READ_SIZE);
+    private SelectionKey key;
+    private int toSkip; // bytes of a telnet command still to be ignored
+    // guarded by this
+    private java.nio.ByteBuffer out = java.nio.ByteBuffer.allocate(256);
+    private boolean writing;
+    private boolean closed;
+
+    private Client(SocketChannel channel) {
+      this.channel = channel;
+    }
 
-    private ClientThread(Socket client, TelnetServer server) throws IOException {
-      setDaemon(true);
-      in = client.getInputStream();
-      out = client.getOutputStream();
-      if (server.telnetEscape) {
-        out.write(IAC);
-        out.write(WILL);
-        out.write(SGA);
-        out.write(IAC);
-        out.write(WILL);
-        out.write(ECHO);
-        out.flush();
+    /**
+     * Queues a byte. The event loop is only woken for the first byte of a batch; the following
+     * ones are written together with it. Bytes are dropped when a client does not read them.
+     */
+    void send(int value) {
+      synchronized (this) {
+        if (closed) return;
+        if (!out.hasRemaining()) {
+          if (out.capacity() >= MAX_QUEUED) return;
+          final var larger = java.nio.ByteBuffer.allocate(out.capacity() * 2);
+          larger.put(out.flip());
+          out = larger;
+        }
+        out.put((byte) value);
+        if (writing) return;
+        writing = true;
       }
-      this.client = client;
-      this.server = server;
+      loop.execute(() -> {
+        if (key != null && key.isValid()) {
+          key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+      });
     }
 
     @Override
-    public void run() {
-      try {
-        while (true) {
-          int data = in.read();
-          if (data < 0) {
-            break;
-          }
-          if (data == IAC && server.telnetEscape) {
-            int command = in.read();
-            int option = in.read();
-          } else {
-            server.dataReceived(data);
-          }
+    public void ready(SelectionKey key) throws IOException {
+      if (key.isReadable()) read();
+      if (key.isValid() && key.isWritable()) write();
+    }
+
+    private void read() throws IOException {
+      in.clear();
+      if (channel.read(in) < 0) {
+        close();
+        return;
+      }
+      in.flip();
+      final var rx = buffer;
+      var received = false;
+      while (in.hasRemaining()) {
+        final var data = in.get() & 0xff;
+        if (toSkip > 0) {
+          toSkip--;
+        } else if (data == IAC && telnetEscape) {
+          toSkip = 2; // command and option
+        } else {
+          rx.put((byte) data);
+          received = true;
         }
-      } catch (IOException e) {
-        e.printStackTrace();
       }
-      try {
-        client.close();
-      } catch (IOException e) {
-        e.printStackTrace();
+      final var state = instanceState;
+      if (received && state != null) {
+        state.fireInvalidated();
       }
     }
 
-    public void send(int value) {
+    private synchronized void write() throws IOException {
+      out.flip();
+      channel.write(out);
+      out.compact();
+      if (out.position() == 0) {
+        writing = false;
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+    @Override
+    public void failed(IOException e) {
+      e.printStackTrace();
       try {
-        out.write(value);
-        out.flush();
-      } catch (IOException e) {
-        e.printStackTrace();
-        // not really a problem
+        close();
+      } catch (IOException ignored) {
+        // already failed
+      }
+    }
+
+    private void close() throws IOException {
+      synchronized (this) {
+        closed = true;
       }
+      clients.remove(this);
+      if (client == this) client = null;
+      if (key != null) key.cancel();
+      channel.close();
     }
   }
 
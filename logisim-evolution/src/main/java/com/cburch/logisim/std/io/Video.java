@@ -19,6 +19,7 @@ package com.cburch.logisim.std.io;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.IndexColorModel;
 import java.util.Arrays;
@@ -91,6 +92,9 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     COLOR_VGA256
   };
 
+  // the value of a cleared pixel
+  private static final int BLACK = opaque(0);
+
   public static final VideoAttributeOption RESOLUTION_CUSTOM = new VideoAttributeOption(0, 0);
 
   // RESOLUTION_OPTIONS may be modified (adding or removing) without breaking old projects.
@@ -216,24 +220,21 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     final var h = attrs.getValue(HEIGHT_OPTION);
 
     if (state.tick(val(circuitState, P_CLK)) && val(circuitState, P_WE) == Value.TRUE) {
-      final var g = state.img.getGraphics();
-      g.setColor(new Color(cm.getRGB(color)));
-      g.fillRect(x, y, 1, 1);
+      if (x >= 0 && x < w && y >= 0 && y < h) state.pixels[y * w + x] = opaque(cm.getRGB(color));
       if (RESET_SYNC.equals(resetOption) && val(circuitState, P_RST) == Value.TRUE) {
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, w, h);
+        Arrays.fill(state.pixels, BLACK);
       }
-      g.dispose();
     }
 
     if (!RESET_SYNC.equals(resetOption) && val(circuitState, P_RST) == Value.TRUE) {
-      final var g = state.img.getGraphics();
-      g.setColor(Color.BLACK);
-      g.fillRect(0, 0, w, h);
-      g.dispose();
+      Arrays.fill(state.pixels, BLACK);
     }
   }
 
+  private static int opaque(int rgb) {
+    return 0xff000000 | rgb;
+  }
+
   @Override
   public void draw(ComponentDrawContext context) {
     final var loc = getLocation();
@@ -470,19 +471,21 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
   private static class State implements ComponentState, Cloneable {
     public Value lastClock = null;
     public final BufferedImage img;
+    // the pixels of img, one ARGB value per pixel, row by row
+    public final int[] pixels;
     public int lastX;
     public int lastY;
     public int color;
 
     State(int width, int height, BufferedImage oldImage) {
       img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-      final var g = img.getGraphics();
-      g.setColor(Color.BLACK);
-      g.fillRect(0, 0, img.getWidth(), img.getHeight());
+      pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+      Arrays.fill(pixels, BLACK);
       if (oldImage != null) {
+        final var g = img.getGraphics();
         g.drawImage(oldImage, 0, 0, null);
+        g.dispose();
       }
-      g.dispose();
     }
 
     @Override
@@ -180,6 +180,21 @@ public class Ram extends Mem {
     return getState(ramState).getContents();
   }
 
+  /**
+   * Empties all RAMs of the state and of its substates. Non-volatile RAMs keep their contents on
+   * reset, so this is needed to reuse a state as if it were new.
+   */
+  public static void clearContents(CircuitState state) {
+    for (final var comp : state.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Ram ram) {
+        ram.getContents(state.getInstanceState(comp)).clear();
+      }
+    }
+    for (final var sub : state.getSubstates()) {
+      clearContents(sub);
+    }
+  }
+
   @Override
   MemState getState(Instance instance, CircuitState state) {
     return getState(state.getInstanceState(instance));
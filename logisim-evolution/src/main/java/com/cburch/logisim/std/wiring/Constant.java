@@ -269,6 +269,11 @@ public class Constant extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
@@ -107,6 +107,11 @@ public class Ground extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
@@ -1196,6 +1196,11 @@ public class Pin extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     PinAttributes attrs = (PinAttributes) state.getAttributeSet();
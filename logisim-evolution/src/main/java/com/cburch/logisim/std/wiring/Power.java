@@ -117,6 +117,11 @@ public class Power extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
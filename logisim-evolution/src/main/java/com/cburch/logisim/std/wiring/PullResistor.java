@@ -177,6 +177,11 @@ public class PullResistor extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // nothing to do - handled by CircuitWires
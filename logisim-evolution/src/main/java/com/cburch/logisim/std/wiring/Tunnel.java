@@ -223,6 +223,11 @@ public class Tunnel extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // nothing to do - handled by circuit
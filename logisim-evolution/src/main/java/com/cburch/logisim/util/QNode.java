@@ -10,7 +10,8 @@
 package com.cburch.logisim.util;
 
 public class QNode implements Comparable<QNode> {
-  public final int timeKey, serialNumber;
+  /** Only modified through {@link #reinit(int, int)}, while the node is not in any queue. */
+  public int timeKey, serialNumber;
   QNode left, right;
 
   public QNode(int timeKey, int serialNumber) {
@@ -18,6 +19,16 @@ public class QNode implements Comparable<QNode> {
     this.serialNumber = serialNumber;
   }
 
+  /**
+   * Gives a node that was removed from its queue new keys so that it can be added to a queue
+   * again. The links are cleared, as not every QNodeQueue implementation resets them on add.
+   */
+  protected void reinit(int timeKey, int serialNumber) {
+    this.timeKey = timeKey;
+    this.serialNumber = serialNumber;
+    left = right = null;
+  }
+
   @Override
   public int compareTo(QNode other) {
     // Yes, these subtractions may overflow. This is intentional, as it
@@ -9,7 +9,12 @@
 
 package com.cburch.logisim.util;
 
-/** QNodeQueue is a simplified version of the Java PriorityQueue interface. */
+/**
+ * QNodeQueue is a simplified version of the Java PriorityQueue interface.
+ *
+ * <p>Implementations must not hold on to a node once it has been removed (or the queue has been
+ * cleared): Propagator recycles its SimulatorEvents and re-adds them with new keys.
+ */
 public interface QNodeQueue<T extends QNode> {
   /**
    * Adds an item to the queue.
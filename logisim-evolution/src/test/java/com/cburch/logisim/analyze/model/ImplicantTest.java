@@ -1,13 +1,23 @@
 package com.cburch.logisim.analyze.model;
 
+import static com.cburch.logisim.analyze.Strings.S;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Stream;
 
 import javax.swing.JTextArea;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -92,4 +102,156 @@ public class ImplicantTest {
     assertEquals(cost, res.size(),
         "The amount of primes in the result does not match the expected value.");
   }
-}
\ No newline at end of file
+
+  /** Creates a model with the given number of inputs and one output, whose column is given. */
+  private static AnalyzerModel createModel(int inputs, Entry[] column) {
+    final var model = new AnalyzerModel();
+    for (var i = 0; i < inputs; i++) {
+      final var name = "i" + i;
+      assertDoesNotThrow(() -> model.getInputs().add(Var.parse(name)));
+    }
+    assertDoesNotThrow(() -> model.getOutputs().add(Var.parse("x")));
+    model.getTruthTable().setOutputColumn(0, column);
+    return model;
+  }
+
+  /** Creates a random column, with the given odds of ones and of don't cares. */
+  private static Entry[] randomColumn(Random random, int inputs, double ones, double dontCares) {
+    final var column = new Entry[1 << inputs];
+    for (var row = 0; row < column.length; row++) {
+      final var r = random.nextDouble();
+      column[row] = r < dontCares ? Entry.DONT_CARE : r < dontCares + ones ? Entry.ONE : Entry.ZERO;
+    }
+    return column;
+  }
+
+  /** Checks that the implicants cover all ones of the column, and no zero. */
+  private static void assertCovers(Entry[] column, List<Implicant> cover) {
+    final var covered = new boolean[column.length];
+    for (final var implicant : cover) {
+      for (final var term : implicant.getTerms()) {
+        assertFalse(column[term.getRow()] == Entry.ZERO, "row " + term.getRow() + " is a zero");
+        covered[term.getRow()] = true;
+      }
+    }
+    for (var row = 0; row < column.length; row++) {
+      if (column[row] == Entry.ONE) assertTrue(covered[row], "row " + row + " is not covered");
+    }
+  }
+
+  /** Returns the least number of implicants that cover the ones of the column, by search. */
+  private static int minimalCoverSize(Entry[] column) {
+    final var implicants = new ArrayList<int[]>(); // rows covered by each allowed implicant
+    for (var unknowns = 0; unknowns < column.length; unknowns++) {
+      for (var values = 0; values < column.length; values++) {
+        if ((values & unknowns) != 0) continue;
+        final var rows = new ArrayList<Integer>();
+        var allowed = true;
+        for (var sub = unknowns; allowed; sub = (sub - 1) & unknowns) {
+          allowed = column[values | sub] != Entry.ZERO;
+          rows.add(values | sub);
+          if (sub == 0) break;
+        }
+        if (allowed) implicants.add(rows.stream().mapToInt(Integer::intValue).toArray());
+      }
+    }
+    for (var size = 0; ; size++) {
+      if (canCover(column, implicants, new boolean[column.length], size)) return size;
+    }
+  }
+
+  private static boolean canCover(Entry[] column, List<int[]> implicants, boolean[] covered,
+      int size) {
+    var first = -1;
+    for (var row = 0; row < column.length && first < 0; row++) {
+      if (column[row] == Entry.ONE && !covered[row]) first = row;
+    }
+    if (first < 0) return true;
+    if (size == 0) return false;
+    for (final var rows : implicants) {
+      var coversFirst = false;
+      for (final var row : rows) coversFirst |= row == first;
+      if (!coversFirst) continue;
+      final var before = covered.clone();
+      for (final var row : rows) covered[row] = true;
+      if (canCover(column, implicants, covered, size - 1)) return true;
+      System.arraycopy(before, 0, covered, 0, covered.length);
+    }
+    return false;
+  }
+
+  /** Tests the exact method against a search for the smallest cover, with don't cares. */
+  @Test
+  public void testExactMinimalCoverSize() {
+    final var random = new Random(1);
+    for (var i = 0; i < 200; i++) {
+      final var inputs = 2 + i % 3;
+      final var column = randomColumn(random, inputs, 0.4, 0.2);
+      final var model = createModel(inputs, column);
+      final var cover = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "x",
+          null, true);
+      assertCovers(column, cover);
+      assertEquals(minimalCoverSize(column), cover.size(), "function " + i);
+    }
+  }
+
+  /** Tests the heuristic used beyond the exact method, on wide functions. */
+  @Test
+  public void testHeuristicCover() {
+    final var inputs = Implicant.MAXIMAL_NR_OF_INPUTS_FOR_EXACT_MINIMAL_FORM + 2;
+    final var random = new Random(2);
+    final var column = randomColumn(random, inputs, 0.05, 0.05);
+    final var cover = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS,
+        createModel(inputs, column), "x", null, true);
+    assertCovers(column, cover);
+
+    // i0 i1 + i2 i3', whatever the other inputs, is found as such
+    final var product = new Entry[1 << inputs];
+    for (var row = 0; row < product.length; row++) {
+      final var i0 = TruthTable.isInputSet(row, 0, inputs);
+      final var i1 = TruthTable.isInputSet(row, 1, inputs);
+      final var i2 = TruthTable.isInputSet(row, 2, inputs);
+      final var i3 = TruthTable.isInputSet(row, 3, inputs);
+      product[row] = (i0 && i1) || (i2 && !i3) ? Entry.ONE : Entry.ZERO;
+    }
+    final var sum = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS,
+        createModel(inputs, product), "x", null, true);
+    assertCovers(product, sum);
+    assertEquals(2, sum.size());
+  }
+
+  /** Tests that an interrupted minimization gives no result, and says so. */
+  @Test
+  public void testInterruptedMinimization() {
+    final var inputs = Implicant.MAXIMAL_NR_OF_INPUTS_FOR_EXACT_MINIMAL_FORM + 2;
+    final var column = randomColumn(new Random(3), inputs, 0.3, 0.1);
+    final var model = createModel(inputs, column);
+    final var progress = new StringBuilder();
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(CancellationException.class, () -> Implicant.computeMinimal(
+          AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "x", progress::append, true));
+    } finally {
+      Thread.interrupted();
+    }
+    assertTrue(progress.toString().contains(S.get("implicantCanceled")));
+  }
+
+  /** Tests that an interrupted optimization leaves the minimal expression as it was. */
+  @Test
+  public void testInterruptedOptimizationKeepsExpression() {
+    final var inputs = Implicant.MAXIMAL_NR_OF_INPUTS_FOR_EXACT_MINIMAL_FORM + 2;
+    final var model = createModel(inputs, randomColumn(new Random(4), inputs, 0.3, 0.1));
+    final var expressions = model.getOutputExpressions();
+    final var before = expressions.getMinimalExpression("x");
+    final var implicantsBefore = expressions.getMinimalImplicants("x");
+    Thread.currentThread().interrupt();
+    try {
+      expressions.forcedOptimize(new JTextArea(), AnalyzerModel.FORMAT_SUM_OF_PRODUCTS);
+    } finally {
+      Thread.interrupted();
+    }
+    assertSame(before, expressions.getMinimalExpression("x"));
+    assertSame(implicantsBefore, expressions.getMinimalImplicants("x"));
+  }
+}
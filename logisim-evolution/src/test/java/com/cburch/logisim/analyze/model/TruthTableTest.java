@@ -0,0 +1,188 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that merging and splitting visible rows keeps them a partition of the input indexes, with
+ * the outputs of each row all equal, whether the rows were all visible or already stored.
+ */
+public class TruthTableTest {
+
+  private static final Entry O = Entry.ZERO;
+  private static final Entry I = Entry.ONE;
+
+  private static AnalyzerModel createModel(int inputs, String... outputs) {
+    final var model = new AnalyzerModel();
+    for (var i = 0; i < inputs; i++) {
+      final var name = "i" + i;
+      assertDoesNotThrow(() -> model.getInputs().add(Var.parse(name)));
+    }
+    for (final var output : outputs) {
+      assertDoesNotThrow(() -> model.getOutputs().add(Var.parse(output)));
+    }
+    return model;
+  }
+
+  /** Records the cell changes reported by a table. */
+  private static List<TruthTableEvent> recordCellChanges(TruthTable table) {
+    final var events = new ArrayList<TruthTableEvent>();
+    table.addTruthTableListener(new TruthTableListener() {
+      @Override
+      public void cellsChanged(TruthTableEvent event) {
+        events.add(event);
+      }
+
+      @Override
+      public void rowsChanged(TruthTableEvent event) {}
+
+      @Override
+      public void structureChanged(TruthTableEvent event) {}
+    });
+    return events;
+  }
+
+  /**
+   * Checks that the visible rows are sorted, that they cover each index once, that the index of
+   * each row agrees with its inputs, and that the outputs are the same for all of its indexes.
+   */
+  private static void assertConsistent(TruthTable table) {
+    final var covered = new int[table.getRowCount()];
+    var lastBase = -1;
+    for (var row = 0; row < table.getVisibleRowCount(); row++) {
+      final var base = table.getVisibleRowIndex(row);
+      final var dc = table.getVisibleRowDcMask(row);
+      assertTrue(base > lastBase, "row " + row + " out of order");
+      assertEquals(0, base & dc, "row " + row);
+      lastBase = base;
+      final var inputs = table.getInputColumnCount();
+      for (var col = 0; col < inputs; col++) {
+        final var bit = 1 << (inputs - 1 - col);
+        final var expected = (dc & bit) != 0 ? Entry.DONT_CARE : (base & bit) != 0 ? I : O;
+        assertEquals(expected, table.getVisibleInputEntry(row, col), "row " + row);
+      }
+      for (final var idx : table.getVisibleRowIndexes(row)) {
+        covered[idx]++;
+        assertEquals(row, table.findVisibleRowContaining(idx));
+        for (var col = 0; col < table.getOutputColumnCount(); col++) {
+          assertEquals(table.getOutputEntry(base, col), table.getOutputEntry(idx, col),
+              "row " + row + ", index " + idx + ", output " + col);
+        }
+      }
+    }
+    for (var idx = 0; idx < covered.length; idx++) assertEquals(1, covered[idx], "index " + idx);
+  }
+
+  @Test
+  public void testDontCareFromAllVisibleRows() {
+    final var model = createModel(3, "x", "y");
+    final var table = model.getTruthTable();
+    table.setOutputColumn(0, new Entry[] {O, I, I, I, O, O, I, O});
+    final var events = recordCellChanges(table);
+
+    // rows 0 and 1 have different outputs
+    assertFalse(table.setVisibleInputEntry(0, 2, Entry.DONT_CARE, false));
+    assertEquals(8, table.getVisibleRowCount());
+    // rows 2 and 3 have the same outputs, and nothing changes in the columns
+    assertTrue(table.setVisibleInputEntry(2, 2, Entry.DONT_CARE, false));
+    assertEquals(7, table.getVisibleRowCount());
+    assertEquals(2, table.getVisibleRowIndex(2));
+    assertEquals(1, table.getVisibleRowDcMask(2));
+    assertEquals(4, table.getVisibleRowIndex(3));
+    assertEquals(2, table.findVisibleRowContaining(3));
+    assertTrue(events.isEmpty());
+    assertConsistent(table);
+
+    // forced, the outputs of the base index replace the others, in the column that was written
+    table.expandVisibleRows();
+    assertEquals(8, table.getVisibleRowCount());
+    assertTrue(table.setVisibleInputEntry(0, 2, Entry.DONT_CARE, true));
+    assertEquals(O, table.getOutputEntry(1, 0));
+    assertEquals(1, events.size());
+    assertEquals(0, events.get(0).getColumn());
+    assertEquals(0, events.get(0).getIndex());
+    assertEquals(1, events.get(0).getDcMask());
+    assertConsistent(table);
+  }
+
+  @Test
+  public void testMergeAndSplitStoredRows() {
+    final var model = createModel(3, "x");
+    final var table = model.getTruthTable();
+    table.setOutputColumn(0, new Entry[] {I, I, I, I, O, O, I, O});
+
+    assertTrue(table.setVisibleInputEntry(0, 2, Entry.DONT_CARE, false)); // 00-
+    assertTrue(table.setVisibleInputEntry(1, 2, Entry.DONT_CARE, false)); // 01-
+    assertEquals(6, table.getVisibleRowCount());
+    // 0-- takes in both rows
+    assertTrue(table.setVisibleInputEntry(0, 1, Entry.DONT_CARE, false));
+    assertEquals(5, table.getVisibleRowCount());
+    assertEquals(3, table.getVisibleRowDcMask(0));
+    assertConsistent(table);
+    // -00 would take in part of 0--, whose outputs differ from those of 100
+    assertFalse(table.setVisibleInputEntry(1, 0, Entry.DONT_CARE, false));
+    // forced, 0-- is split so that -00 can be made
+    assertTrue(table.setVisibleInputEntry(1, 0, Entry.DONT_CARE, true));
+    assertEquals(I, table.getOutputEntry(4, 0));
+    assertConsistent(table);
+
+    // splitting a row back and changing an entry of a row
+    assertTrue(table.setVisibleInputEntry(0, 0, Entry.ONE, false));
+    assertConsistent(table);
+    table.setOutputEntry(2, 0, O);
+    assertEquals(O, table.getOutputEntry(2, 0));
+    assertConsistent(table);
+    table.expandVisibleRows();
+    assertEquals(8, table.getVisibleRowCount());
+    assertConsistent(table);
+  }
+
+  /** Tests random edits, then adds and removes inputs while rows are merged. */
+  @Test
+  public void testRandomEdits() {
+    final var random = new Random(3);
+    final var values = new Entry[] {O, I, Entry.DONT_CARE, Entry.BUS_ERROR};
+    for (var run = 0; run < 20; run++) {
+      final var inputs = 2 + random.nextInt(4);
+      final var model = createModel(inputs, "x", "y");
+      final var table = model.getTruthTable();
+      final var column = new Entry[1 << inputs];
+      for (var i = 0; i < column.length; i++) column[i] = random.nextBoolean() ? O : I;
+      table.setOutputColumn(0, column);
+      for (var edit = 0; edit < 50; edit++) {
+        final var row = random.nextInt(table.getVisibleRowCount());
+        final var col = random.nextInt(inputs);
+        switch (random.nextInt(4)) {
+          case 0 -> table.setVisibleInputEntry(row, col, Entry.DONT_CARE, random.nextBoolean());
+          case 1 -> table.setVisibleInputEntry(row, col, random.nextBoolean() ? O : I, false);
+          case 2 -> table.setVisibleOutputEntry(row, random.nextInt(2), values[random.nextInt(4)]);
+          default -> table.setOutputEntry(
+              random.nextInt(1 << inputs), random.nextInt(2), values[random.nextInt(4)]);
+        }
+        assertConsistent(table);
+      }
+      assertDoesNotThrow(() -> model.getInputs().add(Var.parse("n")));
+      assertEquals(inputs + 1, table.getInputColumnCount());
+      assertConsistent(table);
+      model.getInputs().remove(model.getInputs().vars.get(0));
+      assertEquals(inputs, table.getInputColumnCount());
+      assertConsistent(table);
+    }
+  }
+}
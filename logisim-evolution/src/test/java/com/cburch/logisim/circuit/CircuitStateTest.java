@@ -0,0 +1,174 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the values read at points of a circuit are the values published on its buses, near
+ * the origin as well as far out on the canvas, in cloned states, and while propagating.
+ */
+public class CircuitStateTest {
+
+  /** An 8-bit input a, wired far out to an output x, and inverted there into an output y. */
+  private static final String CIRCUIT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <main name="main"/>
+      <circuit name="main">
+        <a name="circuit" val="main"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+          <a name="width" val="8"/>
+        </comp>
+        <comp lib="0" loc="(4000,4000)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="x"/>
+          <a name="type" val="output"/>
+          <a name="width" val="8"/>
+        </comp>
+        <comp lib="0" loc="(4100,4000)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="y"/>
+          <a name="type" val="output"/>
+          <a name="width" val="8"/>
+        </comp>
+        <comp lib="1" loc="(4100,4000)" name="NOT Gate">
+          <a name="width" val="8"/>
+        </comp>
+        <wire from="(100,100)" to="(4000,100)"/>
+        <wire from="(4000,100)" to="(4000,4000)"/>
+        <wire from="(4000,4000)" to="(4070,4000)"/>
+      </circuit>
+      </project>
+      """;
+
+  private static final Location A = Location.create(100, 100, false);
+  private static final Location CORNER = Location.create(4000, 100, false);
+  private static final Location X = Location.create(4000, 4000, false);
+  private static final Location Y = Location.create(4100, 4000, false);
+  private static final Location UNCONNECTED = Location.create(2000, 2000, false);
+
+  private static CircuitState createState() throws Exception {
+    final var in = new ByteArrayInputStream(CIRCUIT.getBytes(StandardCharsets.UTF_8));
+    final var file = LogisimFile.load(in, new Loader(null));
+    assertNotNull(file);
+    final var circuit = file.getCircuit("main");
+    return CircuitState.createRootState(new Project(file), circuit, Thread.currentThread());
+  }
+
+  private static Instance pin(CircuitState state, String label) {
+    for (final var comp : state.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Pin
+          && label.equals(comp.getAttributeSet().getValue(StdAttr.LABEL))) {
+        return Instance.getInstanceFor(comp);
+      }
+    }
+    throw new AssertionError("no pin " + label);
+  }
+
+  private static void drive(CircuitState state, int a) {
+    final var pin = pin(state, "a");
+    Pin.FACTORY.driveInputPin(state.getInstanceState(pin), Value.createKnown(8, a));
+    state.markComponentAsDirty(pin.getComponent());
+    state.getPropagator().propagate();
+  }
+
+  private static void checkValues(CircuitState state, int a) {
+    final var where = "a = " + a;
+    final var value = Value.createKnown(8, a);
+    assertEquals(value, state.getValue(A), where);
+    assertEquals(value, state.getValue(CORNER), where);
+    assertEquals(value, state.getValue(X), where);
+    assertEquals(value.not(), state.getValue(Y), where);
+    assertEquals(value, Pin.FACTORY.getValue(state.getInstanceState(pin(state, "x"))), where);
+    assertEquals(Value.NIL, state.getValue(UNCONNECTED), where);
+  }
+
+  @Test
+  public void testValuesAnywhereOnCanvas() throws Exception {
+    final var state = createState();
+    // nothing has been propagated yet
+    assertEquals(Value.NIL, state.getValue(X));
+    for (var a = 0; a < 256; a += 17) {
+      drive(state, a);
+      checkValues(state, a);
+    }
+    // after a reset, the values are computed again from scratch
+    state.reset();
+    drive(state, 0x5a);
+    checkValues(state, 0x5a);
+  }
+
+  @Test
+  public void testClonedStateShowsSourceValues() throws Exception {
+    final var state = createState();
+    drive(state, 0x3c);
+    final var clone = state.cloneAsNewRootState(Thread.currentThread());
+    // before the clone has propagated anything
+    checkValues(clone, 0x3c);
+
+    // each then goes its own way
+    drive(clone, 0x81);
+    checkValues(clone, 0x81);
+    checkValues(state, 0x3c);
+    drive(state, 0x42);
+    checkValues(state, 0x42);
+    checkValues(clone, 0x81);
+  }
+
+  @Test
+  public void testReadWhilePropagating() throws Exception {
+    final var state = createState();
+    drive(state, 0x0f);
+    final var done = new AtomicBoolean();
+    final var failure = new AtomicReference<String>();
+    final var reader = new Thread(() -> {
+      final var low = Value.createKnown(8, 0x0f);
+      final var high = Value.createKnown(8, 0xf0);
+      while (!done.get() && failure.get() == null) {
+        // each point only ever shows one of the values driven, never a missing one
+        for (final var p : new Location[] {A, CORNER, X, Y}) {
+          final var v = state.getValue(p);
+          if (!v.equals(low) && !v.equals(high)) failure.set(p + " showed " + v);
+        }
+      }
+    });
+    reader.start();
+    try {
+      for (var k = 0; k < 2000 && failure.get() == null; k++) {
+        drive(state, (k & 1) == 0 ? 0xf0 : 0x0f);
+      }
+    } finally {
+      done.set(true);
+      reader.join();
+    }
+    assertNull(failure.get());
+    checkValues(state, 0x0f);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.cburch.logisim.comp.AbstractComponent;
+import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSets;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a circuit whose wire connectivity could only be partly built is simulated from a
+ * consistently numbered map, and that it recovers once the map can be built again.
+ */
+public class CircuitWiresTest {
+
+  private static final String CIRCUIT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <main name="main"/>
+      <circuit name="main">
+        <a name="circuit" val="main"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(200,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="x"/>
+          <a name="type" val="output"/>
+        </comp>
+        <wire from="(100,100)" to="(200,100)"/>
+      </circuit>
+      </project>
+      """;
+
+  private static final Location PROBED = Location.create(200, 100, false);
+
+  /**
+   * A component with a single input, whose ends can be listed but not looked up by index while it
+   * is broken, so that computing the connectivity fails while numbering the connections.
+   */
+  private static class Probe extends AbstractComponent {
+    volatile boolean broken;
+    private final List<EndData> ends =
+        new ArrayList<>(List.of(new EndData(PROBED, BitWidth.ONE, EndData.INPUT_ONLY))) {
+          @Override
+          public EndData get(int index) {
+            if (broken) throw new IllegalStateException("probe is broken");
+            return super.get(index);
+          }
+        };
+
+    @Override
+    public List<EndData> getEnds() {
+      return ends;
+    }
+
+    @Override
+    public AttributeSet getAttributeSet() {
+      return AttributeSets.EMPTY;
+    }
+
+    @Override
+    public Location getLocation() {
+      return PROBED;
+    }
+
+    @Override
+    public Bounds getBounds() {
+      return Bounds.create(PROBED);
+    }
+
+    @Override
+    public void draw(ComponentDrawContext context) {}
+
+    @Override
+    public ComponentFactory getFactory() {
+      return null;
+    }
+
+    @Override
+    public Object getFeature(Object key) {
+      return null;
+    }
+  }
+
+  private static Instance pin(Circuit circuit, String label) {
+    for (final var comp : circuit.getNonWires()) {
+      if (comp.getFactory() instanceof Pin
+          && label.equals(comp.getAttributeSet().getValue(StdAttr.LABEL))) {
+        return Instance.getInstanceFor(comp);
+      }
+    }
+    throw new AssertionError("no pin " + label);
+  }
+
+  private static void drive(CircuitState state, Instance pin, Value value) {
+    Pin.FACTORY.driveInputPin(state.getInstanceState(pin), value);
+    state.markComponentAsDirty(pin.getComponent());
+    state.getPropagator().propagate();
+  }
+
+  @Test
+  public void testInvalidatedConnectivity() throws Exception {
+    final var file = LogisimFile.load(
+        new ByteArrayInputStream(CIRCUIT.getBytes(StandardCharsets.UTF_8)), new Loader(null));
+    assertNotNull(file);
+    final var circuit = file.getCircuit("main");
+    final var probe = new Probe();
+    circuit.wires.add(probe);
+    final var state =
+        CircuitState.createRootState(new Project(file), circuit, Thread.currentThread());
+    final var a = pin(circuit, "a");
+    final var x = pin(circuit, "x");
+
+    // every map computed fails while numbering; the wire then carries no value
+    probe.broken = true;
+    drive(state, a, Value.TRUE);
+    assertEquals(Value.NIL, CircuitWires.getBusValue(state, PROBED));
+    drive(state, a, Value.FALSE);
+    assertEquals(Value.NIL, CircuitWires.getBusValue(state, PROBED));
+
+    // a map that failed isn't kept, so the next one is computed from scratch
+    probe.broken = false;
+    drive(state, a, Value.TRUE);
+    assertEquals(Value.TRUE, CircuitWires.getBusValue(state, PROBED));
+    assertEquals(Value.TRUE, Pin.FACTORY.getValue(state.getInstanceState(x)));
+    drive(state, a, Value.FALSE);
+    assertEquals(Value.FALSE, Pin.FACTORY.getValue(state.getInstanceState(x)));
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.comp.AbstractComponent;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSets;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.StdAttr;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the components found by a ComponentGrid are exactly those a linear scan finds, in the
+ * order they were added, as components are added, moved and removed.
+ */
+public class ComponentGridTest {
+
+  /** A component whose bounds can be changed. */
+  private static class Box extends AbstractComponent {
+    final AttributeSet attrs;
+    Bounds bounds;
+
+    Box(Bounds bounds, AttributeSet attrs) {
+      this.bounds = bounds;
+      this.attrs = attrs;
+    }
+
+    @Override
+    public List<EndData> getEnds() {
+      return List.of();
+    }
+
+    @Override
+    public AttributeSet getAttributeSet() {
+      return attrs;
+    }
+
+    @Override
+    public Location getLocation() {
+      return Location.create(bounds.getX(), bounds.getY(), false);
+    }
+
+    @Override
+    public Bounds getBounds() {
+      return bounds;
+    }
+
+    @Override
+    public void draw(ComponentDrawContext context) {}
+
+    @Override
+    public ComponentFactory getFactory() {
+      return null;
+    }
+
+    @Override
+    public Object getFeature(Object key) {
+      return null;
+    }
+  }
+
+  /** Whether the rectangles meet, touching edges included, as the grid counts them. */
+  private static boolean meets(Bounds a, Bounds b) {
+    return a.getX() <= b.getX() + b.getWidth()
+        && b.getX() <= a.getX() + a.getWidth()
+        && a.getY() <= b.getY() + b.getHeight()
+        && b.getY() <= a.getY() + a.getHeight();
+  }
+
+  private static List<Component> scan(List<Component> comps, Bounds bds) {
+    final var ret = new ArrayList<Component>();
+    for (final var comp : comps) {
+      if (meets(comp.getBounds(), bds)) ret.add(comp);
+    }
+    return ret;
+  }
+
+  private static Bounds randomBounds(Random random) {
+    final var x = random.nextInt(4000) - 500;
+    final var y = random.nextInt(4000) - 500;
+    return switch (random.nextInt(20)) {
+      // larger than the grid takes cell by cell
+      case 0 -> Bounds.create(x, y, 2000 + random.nextInt(3000), 2000 + random.nextInt(3000));
+      // a single point
+      case 1 -> Bounds.create(x, y, 0, 0);
+      default -> Bounds.create(x, y, random.nextInt(300), random.nextInt(300));
+    };
+  }
+
+  private static Component randomComponent(Random random) {
+    if (random.nextInt(3) > 0) return new Box(randomBounds(random), AttributeSets.EMPTY);
+    final var x = random.nextInt(400) * 10 - 500;
+    final var y = random.nextInt(400) * 10 - 500;
+    final var length = 10 + random.nextInt(100) * 10;
+    final var end = random.nextBoolean()
+        ? Location.create(x + length, y, false)
+        : Location.create(x, y + length, false);
+    return Wire.create(Location.create(x, y, false), end);
+  }
+
+  private static Bounds randomQuery(Random random) {
+    final var x = random.nextInt(4400) - 700;
+    final var y = random.nextInt(4400) - 700;
+    return switch (random.nextInt(10)) {
+      // as Circuit.getAllContaining() asks
+      case 0, 1, 2 -> Bounds.create(Location.create(x, y, false)).expand(1);
+      // more cells than are occupied
+      case 3 -> Bounds.create(-1000, -1000, 8000, 8000);
+      default -> Bounds.create(x, y, random.nextInt(1000), random.nextInt(1000));
+    };
+  }
+
+  @Test
+  public void testMatchesLinearScan() {
+    final var random = new Random(1);
+    final var grid = new ComponentGrid();
+    // the components in the grid, in the order they were added
+    final var comps = new ArrayList<Component>();
+    final var removed = new ArrayList<Component>();
+    for (var k = 0; k < 10000; k++) {
+      final var op = random.nextInt(100);
+      if (op < 40 || comps.isEmpty()) {
+        // wires are equal if their ends are, and the grid keeps only one of them
+        final var comp = randomComponent(random);
+        grid.add(comp);
+        if (!comps.contains(comp)) comps.add(comp);
+      } else if (op < 45) {
+        // adding a component again changes nothing
+        grid.add(comps.get(random.nextInt(comps.size())));
+      } else if (op < 50 && !removed.isEmpty()) {
+        // a removed component comes back as the last one added
+        final var comp = removed.remove(random.nextInt(removed.size()));
+        grid.add(comp);
+        if (!comps.contains(comp)) comps.add(comp);
+      } else if (op < 70) {
+        final var comp = comps.remove(random.nextInt(comps.size()));
+        grid.remove(comp);
+        removed.add(comp);
+      } else if (op < 90) {
+        final var comp = comps.get(random.nextInt(comps.size()));
+        if (comp instanceof Box box) {
+          box.bounds = random.nextBoolean()
+              ? randomBounds(random)
+              : box.bounds.translate(random.nextInt(300) - 150, random.nextInt(300) - 150);
+          grid.update(box);
+        }
+      } else if (op < 92) {
+        // components not in the grid are left out
+        final var box = new Box(randomBounds(random), AttributeSets.EMPTY);
+        grid.update(box);
+        grid.remove(box);
+      } else if (op == 99 && random.nextInt(20) == 0) {
+        grid.clear();
+        removed.addAll(comps);
+        comps.clear();
+      }
+      for (var q = 0; q < 3; q++) {
+        final var query = randomQuery(random);
+        assertEquals(scan(comps, query), grid.find(query), "step " + k + ", query " + query);
+      }
+    }
+  }
+
+  @Test
+  public void testLabelsAreFound() {
+    final var grid = new ComponentGrid();
+    final var attrs = AttributeSets.fixedSet(
+        new Attribute<?>[] {StdAttr.LABEL}, new Object[] {"a long label"});
+    final var labeled = new Box(Bounds.create(1000, 1000, 30, 30), attrs);
+    final var plain = new Box(Bounds.create(1000, 2000, 30, 30), AttributeSets.EMPTY);
+    grid.add(labeled);
+    grid.add(plain);
+
+    // a label can be drawn, and clicked, beside or above its component
+    final var size = StdAttr.DEFAULT_LABEL_FONT.getSize();
+    final var right = Bounds.create(Location.create(1030 + size * 6, 1015, false));
+    final var above = Bounds.create(Location.create(1015, 1000 - size, false));
+    assertEquals(List.of(labeled), grid.find(right));
+    assertEquals(List.of(labeled), grid.find(above));
+    assertTrue(grid.find(Bounds.create(Location.create(1030 + size * 6, 2015, false))).isEmpty());
+
+    // the area follows a change of label
+    attrs.setValue(StdAttr.LABEL, "");
+    grid.update(labeled);
+    assertTrue(grid.find(right).isEmpty());
+    assertFalse(grid.find(Bounds.create(1000, 1000, 0, 0)).isEmpty());
+  }
+}
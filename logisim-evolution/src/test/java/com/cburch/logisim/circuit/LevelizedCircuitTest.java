@@ -0,0 +1,417 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the levelized engine computes the same outputs as the event-driven Propagator, and
+ * that it rejects the circuits it can't represent.
+ */
+public class LevelizedCircuitTest {
+
+  private static final String CIRCUITS = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <lib desc="#Memory" name="4"/>
+      <main name="Logic"/>
+      <circuit name="Logic">
+        <a name="circuit" val="Logic"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(100,200)" name="Pin">
+          <a name="label" val="b"/>
+        </comp>
+        <comp lib="0" loc="(100,300)" name="Pin">
+          <a name="label" val="c"/>
+        </comp>
+        <comp lib="0" loc="(200,420)" name="Pin">
+          <a name="label" val="d"/>
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="0" loc="(200,460)" name="Pin">
+          <a name="label" val="e"/>
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="0" loc="(400,120)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="x"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(400,220)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="y"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(400,300)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="z"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(260,440)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="w"/>
+          <a name="type" val="output"/>
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="1" loc="(300,120)" name="OR Gate">
+          <a name="negate1" val="true"/>
+        </comp>
+        <comp lib="1" loc="(200,220)" name="AND Gate"/>
+        <comp lib="1" loc="(200,300)" name="NOT Gate"/>
+        <comp lib="1" loc="(260,440)" name="XOR Gate">
+          <a name="width" val="3"/>
+        </comp>
+        <wire from="(100,100)" to="(250,100)"/>
+        <wire from="(100,200)" to="(130,200)"/>
+        <wire from="(130,200)" to="(150,200)"/>
+        <wire from="(130,140)" to="(130,200)"/>
+        <wire from="(130,140)" to="(240,140)"/>
+        <wire from="(100,300)" to="(140,300)"/>
+        <wire from="(140,300)" to="(170,300)"/>
+        <wire from="(140,240)" to="(140,300)"/>
+        <wire from="(140,240)" to="(150,240)"/>
+        <wire from="(300,120)" to="(400,120)"/>
+        <wire from="(200,220)" to="(400,220)"/>
+        <wire from="(200,300)" to="(400,300)"/>
+      </circuit>
+      <circuit name="Tristate">
+        <a name="circuit" val="Tristate"/>
+        <comp lib="0" loc="(250,80)" name="Pin">
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(250,120)" name="Pin">
+          <a name="label" val="b"/>
+        </comp>
+        <comp lib="0" loc="(300,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="q"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="1" loc="(300,100)" name="AND Gate">
+          <a name="out" val="0Z"/>
+        </comp>
+      </circuit>
+      <circuit name="Latch">
+        <a name="circuit" val="Latch"/>
+        <comp lib="0" loc="(240,80)" name="Pin">
+          <a name="label" val="s"/>
+        </comp>
+        <comp lib="0" loc="(240,220)" name="Pin">
+          <a name="label" val="r"/>
+        </comp>
+        <comp lib="0" loc="(300,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="q"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="1" loc="(300,100)" name="NOR Gate"/>
+        <comp lib="1" loc="(300,200)" name="NOR Gate"/>
+        <wire from="(300,100)" to="(320,100)"/>
+        <wire from="(320,100)" to="(320,150)"/>
+        <wire from="(220,150)" to="(320,150)"/>
+        <wire from="(220,150)" to="(220,180)"/>
+        <wire from="(220,180)" to="(240,180)"/>
+        <wire from="(300,200)" to="(330,200)"/>
+        <wire from="(330,140)" to="(330,200)"/>
+        <wire from="(230,140)" to="(330,140)"/>
+        <wire from="(230,120)" to="(230,140)"/>
+        <wire from="(230,120)" to="(240,120)"/>
+      </circuit>
+      <circuit name="Register">
+        <a name="circuit" val="Register"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="d"/>
+        </comp>
+        <comp lib="0" loc="(400,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="q"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="4" loc="(200,80)" name="D Flip-Flop"/>
+      </circuit>
+      <circuit name="Nested">
+        <a name="circuit" val="Nested"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(400,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="q"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp loc="(300,300)" name="Logic"/>
+      </circuit>
+      </project>
+      """;
+
+  /** Port values of a subcircuit instance, standing in for its state in the parent circuit. */
+  private static class Ports implements InstanceState {
+    final Value[] values;
+
+    Ports(int n) {
+      values = new Value[n];
+    }
+
+    @Override
+    public Value getPortValue(int portIndex) {
+      return values[portIndex];
+    }
+
+    @Override
+    public void setPort(int portIndex, Value value, int delay) {
+      values[portIndex] = value;
+    }
+
+    @Override
+    public void fireInvalidated() {}
+
+    @Override
+    public AttributeSet getAttributeSet() {
+      return null;
+    }
+
+    @Override
+    public <E> E getAttributeValue(Attribute<E> attr) {
+      return null;
+    }
+
+    @Override
+    public InstanceData getData() {
+      return null;
+    }
+
+    @Override
+    public InstanceFactory getFactory() {
+      return null;
+    }
+
+    @Override
+    public Instance getInstance() {
+      return null;
+    }
+
+    @Override
+    public int getPortIndex(Port port) {
+      return -1;
+    }
+
+    @Override
+    public Project getProject() {
+      return null;
+    }
+
+    @Override
+    public int getTickCount() {
+      return 0;
+    }
+
+    @Override
+    public boolean isCircuitRoot() {
+      return false;
+    }
+
+    @Override
+    public boolean isPortConnected(int portIndex) {
+      return true;
+    }
+
+    @Override
+    public CircuitState createCircuitSubstateFor(Circuit circ) {
+      return null;
+    }
+
+    @Override
+    public void setData(InstanceData value) {}
+  }
+
+  private static LogisimFile load() throws Exception {
+    final var in = new ByteArrayInputStream(CIRCUITS.getBytes(StandardCharsets.UTF_8));
+    final var file = LogisimFile.load(in, new Loader(null));
+    assertNotNull(file);
+    return file;
+  }
+
+  /** Compiles on the AWT thread, where the wire connectivity can be computed if needed. */
+  private static LevelizedCircuit compileOnAwt(Circuit circuit) throws Exception {
+    final var result = new LevelizedCircuit[1];
+    SwingUtilities.invokeAndWait(() -> result[0] = LevelizedCircuit.compile(circuit));
+    return result[0];
+  }
+
+  /** The pins of the circuit, inputs first, each group sorted by label. */
+  private static Instance[] pinsOf(Circuit circuit) {
+    final var pins = new ArrayList<Instance>();
+    for (final var comp : circuit.getNonWires()) {
+      if (comp.getFactory() instanceof Pin) pins.add(Instance.getInstanceFor(comp));
+    }
+    pins.sort(
+        Comparator.comparing((Instance pin) -> !Pin.FACTORY.isInputPin(pin))
+            .thenComparing(pin -> pin.getAttributeValue(StdAttr.LABEL)));
+    return pins.toArray(new Instance[0]);
+  }
+
+  @Test
+  public void testCombinationalMatchesPropagator() throws Exception {
+    final var file = load();
+    final var circuit = file.getCircuit("Logic");
+    final var proj = new Project(file);
+    final var state = CircuitState.createRootState(proj, circuit, Thread.currentThread());
+    final var prop = state.getPropagator();
+    prop.propagate();
+
+    final var levelized = compileOnAwt(circuit);
+    assertNotNull(levelized);
+    assertTrue(levelized != LevelizedCircuit.NOT_COMBINATIONAL);
+
+    final var pins = pinsOf(circuit);
+    var inputBits = 0;
+    for (final var pin : pins) {
+      if (Pin.FACTORY.isInputPin(pin)) inputBits += pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+    }
+    for (var combo = 0; combo < 1 << inputBits; combo++) {
+      final var ports = new Ports(pins.length);
+      var shift = 0;
+      for (var i = 0; i < pins.length; i++) {
+        if (!Pin.FACTORY.isInputPin(pins[i])) continue;
+        final var width = pins[i].getAttributeValue(StdAttr.WIDTH).getWidth();
+        final var value = Value.createKnown(width, (combo >>> shift) & ((1 << width) - 1));
+        shift += width;
+        ports.values[i] = value;
+        Pin.FACTORY.driveInputPin(state.getInstanceState(pins[i]), value);
+        state.markComponentAsDirty(pins[i].getComponent());
+      }
+      prop.propagate();
+
+      assertTrue(levelized.propagate(ports, pins));
+      for (var i = 0; i < pins.length; i++) {
+        if (Pin.FACTORY.isInputPin(pins[i])) continue;
+        final var expected = Pin.FACTORY.getValue(state.getInstanceState(pins[i]));
+        assertTrue(expected.isFullyDefined());
+        assertEquals(expected, ports.values[i], "combination " + combo + ", output " + i);
+      }
+    }
+  }
+
+  @Test
+  public void testUndefinedInputFallsBack() throws Exception {
+    final var circuit = load().getCircuit("Logic");
+    final var levelized = compileOnAwt(circuit);
+    final var pins = pinsOf(circuit);
+    final var ports = new Ports(pins.length);
+    for (var i = 0; i < pins.length; i++) {
+      final var width = pins[i].getAttributeValue(StdAttr.WIDTH).getWidth();
+      ports.values[i] = Pin.FACTORY.isInputPin(pins[i]) ? Value.createKnown(width, 0) : null;
+    }
+    ports.values[0] = Value.UNKNOWN;
+    assertFalse(levelized.propagate(ports, pins));
+    for (var i = 0; i < pins.length; i++) {
+      if (!Pin.FACTORY.isInputPin(pins[i])) assertNull(ports.values[i]);
+    }
+  }
+
+  @Test
+  public void testRejectsWhatItCannotRepresent() throws Exception {
+    final var file = load();
+    for (final var name : new String[] {"Tristate", "Latch", "Register", "Nested"}) {
+      assertSame(LevelizedCircuit.NOT_COMBINATIONAL, compileOnAwt(file.getCircuit(name)), name);
+      assertNull(file.getCircuit(name).getLevelizedCircuit(), name);
+    }
+  }
+
+  @Test
+  public void testObservationIsReleased() throws Exception {
+    final var file = load();
+    final var state = CircuitState.createRootState(
+        new Project(file), file.getCircuit("Nested"), Thread.currentThread());
+    state.getPropagator().propagate();
+    final var sub = state.getSubstates().iterator().next();
+    assertFalse(sub.isObserved());
+    // looking inside takes the substate off the levelized engine, once
+    assertTrue(sub.markObserved());
+    assertFalse(sub.markObserved());
+    assertTrue(sub.isObserved());
+    // and looking away puts it back, until it is looked at again
+    sub.releaseObserved();
+    assertFalse(sub.isObserved());
+    assertTrue(sub.markObserved());
+    // the root state has no subcircuit to accelerate
+    assertFalse(state.markObserved());
+  }
+
+  @Test
+  public void testNeverWaitsForAwtThread() throws Exception {
+    // a freshly loaded circuit has no wire connectivity yet, and only the AWT thread can compute it
+    final var circuit = load().getCircuit("Logic");
+    final var release = new CountDownLatch(1);
+    final var blocked = new CountDownLatch(1);
+    SwingUtilities.invokeLater(
+        () -> {
+          blocked.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    blocked.await();
+    try {
+      assertNull(circuit.getLevelizedCircuit());
+    } finally {
+      release.countDown();
+    }
+    // not cached, so it compiles once the connectivity is available
+    assertNotNull(compileOnAwt(circuit));
+    assertNotNull(circuit.getLevelizedCircuit());
+  }
+
+  @Test
+  public void testCombinationalIsAlwaysAnswered() throws Exception {
+    final var file = load();
+    final var circuit = file.getCircuit("Logic");
+    // the simulation may not compile the circuit yet, lacking the wire connectivity
+    assertNull(circuit.getLevelizedCircuit());
+    // but whether it is combinational does not depend on that
+    assertTrue(circuit.isCombinational());
+    assertNotNull(circuit.getLevelizedCircuit());
+    for (final var name : new String[] {"Tristate", "Latch", "Register", "Nested"}) {
+      assertFalse(file.getCircuit(name).isCombinational(), name);
+    }
+  }
+}
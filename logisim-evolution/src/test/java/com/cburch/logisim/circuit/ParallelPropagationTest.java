@@ -0,0 +1,263 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that processing sibling substates on the parallel workers gives the same values, after the
+ * same number of steps, as processing them one after the other on the propagation thread.
+ */
+public class ParallelPropagationTest {
+
+  /** The number of cell instances in the main circuit, enough to be handed out to the workers. */
+  private static final int CELLS = 6;
+
+  /**
+   * A cell computes x = NAND(a, b), through a leaf subcircuit inverting an AND gate, and
+   * y = XOR(a, b). Its ports are at (-30,0) and (-30,10) for a and b, (0,0) and (0,10) for x and y.
+   */
+  private static final String CELL = """
+      <circuit name="cell">
+        <a name="circuit" val="cell"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(100,200)" name="Pin">
+          <a name="label" val="b"/>
+        </comp>
+        <comp lib="0" loc="(400,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="x"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(400,220)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="y"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="1" loc="(200,120)" name="AND Gate"/>
+        <comp lib="1" loc="(200,220)" name="XOR Gate"/>
+        <comp loc="(260,120)" name="leaf"/>
+        <wire from="(100,100)" to="(110,100)"/>
+        <wire from="(110,100)" to="(150,100)"/>
+        <wire from="(110,100)" to="(110,240)"/>
+        <wire from="(110,240)" to="(150,240)"/>
+        <wire from="(100,200)" to="(130,200)"/>
+        <wire from="(130,200)" to="(150,200)"/>
+        <wire from="(130,140)" to="(130,200)"/>
+        <wire from="(130,140)" to="(150,140)"/>
+        <wire from="(200,120)" to="(230,120)"/>
+        <wire from="(260,120)" to="(300,120)"/>
+        <wire from="(300,100)" to="(300,120)"/>
+        <wire from="(300,100)" to="(400,100)"/>
+        <wire from="(200,220)" to="(400,220)"/>
+      </circuit>
+      <circuit name="leaf">
+        <a name="circuit" val="leaf"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="i"/>
+        </comp>
+        <comp lib="0" loc="(250,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="o"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="1" loc="(200,100)" name="NOT Gate"/>
+        <wire from="(100,100)" to="(170,100)"/>
+        <wire from="(200,100)" to="(250,100)"/>
+      </circuit>
+      """;
+
+  /** The main circuit, with pins directly on the ports of each cell. */
+  private static String project() {
+    return project(CELL);
+  }
+
+  private static String project(String cell) {
+    final var ret = new StringBuilder("""
+        <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+        <project source="4.0.0dev" version="1.0">
+        <lib desc="#Wiring" name="0"/>
+        <lib desc="#Gates" name="1"/>
+        <main name="main"/>
+        <circuit name="main">
+          <a name="circuit" val="main"/>
+        """);
+    for (var k = 0; k < CELLS; k++) {
+      final var y = 100 + 60 * k;
+      ret.append(String.format("""
+            <comp loc="(300,%d)" name="cell"/>
+            <comp lib="0" loc="(270,%d)" name="Pin"><a name="label" val="a%d"/></comp>
+            <comp lib="0" loc="(270,%d)" name="Pin"><a name="label" val="b%d"/></comp>
+            <comp lib="0" loc="(300,%d)" name="Pin">
+              <a name="facing" val="west"/><a name="label" val="x%d"/><a name="type" val="output"/>
+            </comp>
+            <comp lib="0" loc="(300,%d)" name="Pin">
+              <a name="facing" val="west"/><a name="label" val="y%d"/><a name="type" val="output"/>
+            </comp>
+          """, y, y, k, y + 10, k, y, k, y + 10, k));
+    }
+    return ret.append("</circuit>\n").append(cell).append("</project>\n").toString();
+  }
+
+  private static LogisimFile load(String project) throws Exception {
+    final var in = new ByteArrayInputStream(project.getBytes(StandardCharsets.UTF_8));
+    final var file = LogisimFile.load(in, new Loader(null));
+    assertNotNull(file);
+    return file;
+  }
+
+  private static CircuitState createState(boolean parallel) throws Exception {
+    final var file = load(project());
+    final var circuit = file.getCircuit("main");
+    final var state =
+        CircuitState.createRootState(new Project(file), circuit, Thread.currentThread());
+    state.getPropagator().setParallel(parallel);
+    return state;
+  }
+
+  private static HashMap<String, Instance> pinsOf(CircuitState state) {
+    final var pins = new HashMap<String, Instance>();
+    for (final var comp : state.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Pin) {
+        pins.put(comp.getAttributeSet().getValue(StdAttr.LABEL), Instance.getInstanceFor(comp));
+      }
+    }
+    return pins;
+  }
+
+  /** Drives the inputs of cell k with the given bits, without propagating. */
+  private static void setInputs(CircuitState state, int k, int bits) {
+    final var pins = pinsOf(state);
+    for (final var name : new String[] {"a", "b"}) {
+      final var pin = pins.get(name + k);
+      Pin.FACTORY.driveInputPin(state.getInstanceState(pin), Value.createKnown(1, bits & 1));
+      state.markComponentAsDirty(pin.getComponent());
+      bits >>= 1;
+    }
+  }
+
+  private static Value output(CircuitState state, String name) {
+    return Pin.FACTORY.getValue(state.getInstanceState(pinsOf(state).get(name)));
+  }
+
+  /**
+   * Propagates one step at a time until nothing is left to do, and describes the outputs along
+   * with the number of steps, so that events merged out of order would show.
+   */
+  private static String resultOf(CircuitState state) {
+    var steps = 0;
+    while (state.getPropagator().step(null)) steps++;
+    final var ret = new StringBuilder(steps + " steps:");
+    for (var k = 0; k < CELLS; k++) {
+      ret.append(' ').append(output(state, "x" + k)).append(output(state, "y" + k));
+    }
+    return ret.toString();
+  }
+
+  @Test
+  public void testParallelMatchesSerial() throws Exception {
+    final var serial = createState(false);
+    final var parallel = createState(true);
+    serial.getPropagator().propagate();
+    parallel.getPropagator().propagate();
+
+    final var random = new Random(1);
+    final var inputs = new int[CELLS];
+    for (var round = 0; round < 400; round++) {
+      // change the inputs of all cells, of some of them, or of a single one
+      final var changed = random.nextInt(3) == 0 ? CELLS : 1 + random.nextInt(CELLS);
+      for (var n = 0; n < changed; n++) {
+        final var k = changed == CELLS ? n : random.nextInt(CELLS);
+        inputs[k] = random.nextInt(4);
+        setInputs(serial, k, inputs[k]);
+        setInputs(parallel, k, inputs[k]);
+      }
+      final var expected = resultOf(serial);
+      assertEquals(expected, resultOf(parallel), "round " + round);
+
+      for (var k = 0; k < CELLS; k++) {
+        final var a = inputs[k] & 1;
+        final var b = inputs[k] >> 1;
+        final var where = "round " + round + ", cell " + k;
+        assertEquals(Value.createKnown(1, 1 - (a & b)), output(parallel, "x" + k), where);
+        assertEquals(Value.createKnown(1, a ^ b), output(parallel, "y" + k), where);
+      }
+    }
+  }
+
+  @Test
+  public void testSwitchingModesKeepsValues() throws Exception {
+    final var state = createState(true);
+    final var prop = state.getPropagator();
+    prop.propagate();
+    for (var bits = 0; bits < 1 << (2 * CELLS); bits += 37) {
+      // alternate between the engines at each change of the inputs
+      prop.setParallel((bits & 1) == 0);
+      for (var k = 0; k < CELLS; k++) setInputs(state, k, bits >> (2 * k));
+      prop.propagate();
+      for (var k = 0; k < CELLS; k++) {
+        final var a = (bits >> (2 * k)) & 1;
+        final var b = (bits >> (2 * k + 1)) & 1;
+        assertEquals(Value.createKnown(1, 1 - (a & b)), output(state, "x" + k), "inputs " + bits);
+        assertEquals(Value.createKnown(1, a ^ b), output(state, "y" + k), "inputs " + bits);
+      }
+    }
+  }
+
+  @Test
+  public void testOnlyThreadSafeCircuitsInParallel() throws Exception {
+    // gates, pins and subcircuits of them are simulated on the workers
+    final var file = load(project());
+    assertTrue(file.getCircuit("leaf").isThreadSafe());
+    assertTrue(file.getCircuit("cell").isThreadSafe());
+
+    // a probe keeps its width in its attributes, which all instances of the leaf share
+    final var probe = """
+        <comp lib="0" loc="(250,100)" name="Probe"/>
+        <comp lib="1" loc="(200,100)" name="NOT Gate"/>""";
+    final var unsafe = load(project(CELL.replace("""
+        <comp lib="1" loc="(200,100)" name="NOT Gate"/>""", probe)));
+    assertFalse(unsafe.getCircuit("leaf").isThreadSafe());
+    assertFalse(unsafe.getCircuit("cell").isThreadSafe());
+    assertFalse(unsafe.getCircuit("main").isThreadSafe());
+
+    // such cells are processed on the propagation thread, with the same results
+    final var state = CircuitState.createRootState(
+        new Project(unsafe), unsafe.getCircuit("main"), Thread.currentThread());
+    state.getPropagator().setParallel(true);
+    state.getPropagator().propagate();
+    for (var k = 0; k < CELLS; k++) setInputs(state, k, k);
+    state.getPropagator().propagate();
+    for (var k = 0; k < CELLS; k++) {
+      final var a = k & 1;
+      final var b = (k >> 1) & 1;
+      assertEquals(Value.createKnown(1, 1 - (a & b)), output(state, "x" + k), "cell " + k);
+      assertEquals(Value.createKnown(1, a ^ b), output(state, "y" + k), "cell " + k);
+    }
+  }
+}
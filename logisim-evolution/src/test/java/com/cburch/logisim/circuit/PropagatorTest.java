@@ -0,0 +1,249 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that events taken from a propagator's free list give the same results as newly allocated
+ * ones, and that a cloned state recycles its events apart from the state it was cloned from.
+ */
+public class PropagatorTest {
+
+  private static final String CIRCUIT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <main name="main"/>
+      <circuit name="main">
+        <a name="circuit" val="main"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(100,200)" name="Pin">
+          <a name="label" val="b"/>
+        </comp>
+        <comp lib="0" loc="(100,300)" name="Pin">
+          <a name="label" val="c"/>
+        </comp>
+        <comp lib="0" loc="(200,420)" name="Pin">
+          <a name="label" val="d"/>
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="0" loc="(200,460)" name="Pin">
+          <a name="label" val="e"/>
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="0" loc="(240,500)" name="Pin">
+          <a name="label" val="f"/>
+        </comp>
+        <comp lib="0" loc="(520,500)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="v"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(400,120)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="x"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(400,220)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="y"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(400,300)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="z"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(260,440)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="w"/>
+          <a name="type" val="output"/>
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="1" loc="(300,120)" name="OR Gate">
+          <a name="negate1" val="true"/>
+        </comp>
+        <comp lib="1" loc="(200,220)" name="AND Gate"/>
+        <comp lib="1" loc="(200,300)" name="NOT Gate"/>
+        <comp lib="1" loc="(260,440)" name="XOR Gate">
+          <a name="width" val="3"/>
+        </comp>
+        <comp lib="1" loc="(300,500)" name="NOT Gate"/>
+        <comp lib="1" loc="(360,500)" name="NOT Gate"/>
+        <comp lib="1" loc="(420,500)" name="NOT Gate"/>
+        <comp lib="1" loc="(480,500)" name="NOT Gate"/>
+        <wire from="(100,100)" to="(250,100)"/>
+        <wire from="(100,200)" to="(130,200)"/>
+        <wire from="(130,200)" to="(150,200)"/>
+        <wire from="(130,140)" to="(130,200)"/>
+        <wire from="(130,140)" to="(240,140)"/>
+        <wire from="(100,300)" to="(140,300)"/>
+        <wire from="(140,300)" to="(170,300)"/>
+        <wire from="(140,240)" to="(140,300)"/>
+        <wire from="(140,240)" to="(150,240)"/>
+        <wire from="(300,120)" to="(400,120)"/>
+        <wire from="(200,220)" to="(400,220)"/>
+        <wire from="(200,300)" to="(400,300)"/>
+        <wire from="(240,500)" to="(270,500)"/>
+        <wire from="(300,500)" to="(330,500)"/>
+        <wire from="(360,500)" to="(390,500)"/>
+        <wire from="(420,500)" to="(450,500)"/>
+        <wire from="(480,500)" to="(520,500)"/>
+      </circuit>
+      </project>
+      """;
+
+  /** The number of input combinations: four 1-bit and two 3-bit inputs. */
+  private static final int COMBINATIONS = 1 << 10;
+
+  private static CircuitState createState() throws Exception {
+    final var in = new ByteArrayInputStream(CIRCUIT.getBytes(StandardCharsets.UTF_8));
+    final var file = LogisimFile.load(in, new Loader(null));
+    assertNotNull(file);
+    final var circuit = file.getCircuit("main");
+    return CircuitState.createRootState(new Project(file), circuit, Thread.currentThread());
+  }
+
+  /** The pins of the circuit, inputs first, each group sorted by label. */
+  private static Instance[] pinsOf(CircuitState state) {
+    final var pins = new ArrayList<Instance>();
+    for (final var comp : state.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Pin) pins.add(Instance.getInstanceFor(comp));
+    }
+    pins.sort(
+        Comparator.comparing((Instance pin) -> !Pin.FACTORY.isInputPin(pin))
+            .thenComparing(pin -> pin.getAttributeValue(StdAttr.LABEL)));
+    return pins.toArray(new Instance[0]);
+  }
+
+  /** Drives the input pins with the bits of combo, without propagating. */
+  private static void setInputs(CircuitState state, int combo) {
+    var shift = 0;
+    for (final var pin : pinsOf(state)) {
+      if (!Pin.FACTORY.isInputPin(pin)) continue;
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      final var value = Value.createKnown(width, (combo >>> shift) & ((1 << width) - 1));
+      shift += width;
+      Pin.FACTORY.driveInputPin(state.getInstanceState(pin), value);
+      state.markComponentAsDirty(pin.getComponent());
+    }
+  }
+
+  private static String outputsOf(CircuitState state) {
+    final var ret = new StringBuilder();
+    for (final var pin : pinsOf(state)) {
+      if (Pin.FACTORY.isInputPin(pin)) continue;
+      final var value = Pin.FACTORY.getValue(state.getInstanceState(pin));
+      assertTrue(value.isFullyDefined());
+      ret.append(value).append(' ');
+    }
+    return ret.toString();
+  }
+
+  /**
+   * Propagates one step at a time until nothing is left to do, and describes the outputs along
+   * with the number of steps, so that events taken from the free list with a stale time would show.
+   */
+  private static String resultOf(CircuitState state) {
+    var steps = 0;
+    while (state.getPropagator().step(null)) steps++;
+    return steps + " steps: " + outputsOf(state);
+  }
+
+  /** Propagates the initial state, then the last combination, which comes before the first one. */
+  private static void prime(CircuitState state) {
+    state.getPropagator().propagate();
+    setInputs(state, COMBINATIONS - 1);
+    resultOf(state);
+  }
+
+  @Test
+  public void testReusedEventsGiveSameResults() throws Exception {
+    final var state = createState();
+    final var prop = state.getPropagator();
+    prime(state);
+    final var first = new String[COMBINATIONS];
+    for (var combo = 0; combo < COMBINATIONS; combo++) {
+      setInputs(state, combo);
+      first[combo] = resultOf(state);
+    }
+    assertTrue(prop.getEventReuseCount() > 0);
+
+    // the second time around, all events come from the free list
+    final var allocated = prop.getEventAllocationCount();
+    final var reused = prop.getEventReuseCount();
+    for (var combo = 0; combo < COMBINATIONS; combo++) {
+      setInputs(state, combo);
+      assertEquals(first[combo], resultOf(state), "combination " + combo);
+    }
+    assertEquals(allocated, prop.getEventAllocationCount());
+    assertTrue(prop.getEventReuseCount() > reused);
+
+    // and a fresh propagator, with a free list of its own, agrees
+    final var fresh = createState();
+    prime(fresh);
+    for (var combo = 0; combo < COMBINATIONS; combo++) {
+      setInputs(fresh, combo);
+      assertEquals(first[combo], resultOf(fresh), "combination " + combo);
+    }
+  }
+
+  @Test
+  public void testClonedStateHasItsOwnFreeList() throws Exception {
+    final var state = createState();
+    final var prop = state.getPropagator();
+    prop.propagate();
+    for (var combo = 0; combo < 64; combo++) {
+      setInputs(state, combo);
+      prop.propagate();
+    }
+
+    // cloning may happen on any thread, so it touches neither propagator's events
+    final var allocated = prop.getEventAllocationCount();
+    final var reused = prop.getEventReuseCount();
+    final var clone = state.cloneAsNewRootState(Thread.currentThread());
+    final var cloneProp = clone.getPropagator();
+    assertEquals(allocated, prop.getEventAllocationCount());
+    assertEquals(reused, prop.getEventReuseCount());
+    assertEquals(0, cloneProp.getEventAllocationCount());
+    assertEquals(0, cloneProp.getEventReuseCount());
+    assertEquals(outputsOf(state), outputsOf(clone));
+
+    // both go on the same way, each recycling its own events
+    for (var combo = 64; combo < 128; combo++) {
+      setInputs(state, combo);
+      setInputs(clone, combo);
+      prop.propagate();
+      cloneProp.propagate();
+      assertEquals(outputsOf(state), outputsOf(clone), "combination " + combo);
+    }
+    assertTrue(cloneProp.getEventReuseCount() > 0);
+    assertTrue(prop.getEventReuseCount() > reused);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the rows of a truth table spread over several blocks are all computed and reported in
+ * order, and that interrupting the caller stops the simulation.
+ */
+public class TruthTableSimulatorTest {
+
+  private static final String INVERTER = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <main name="Inverter"/>
+      <circuit name="Inverter">
+        <a name="circuit" val="Inverter"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="a"/>
+          <a name="width" val="10"/>
+        </comp>
+        <comp lib="0" loc="(300,100)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="y"/>
+          <a name="type" val="output"/>
+          <a name="width" val="10"/>
+        </comp>
+        <comp lib="1" loc="(200,100)" name="NOT Gate">
+          <a name="width" val="10"/>
+        </comp>
+        <wire from="(100,100)" to="(170,100)"/>
+        <wire from="(200,100)" to="(300,100)"/>
+      </circuit>
+      </project>
+      """;
+
+  private static TruthTableSimulator createSimulator() throws Exception {
+    final var file = LogisimFile.load(
+        new ByteArrayInputStream(INVERTER.getBytes(StandardCharsets.UTF_8)), new Loader(null));
+    final var circuit = file.getCircuit("Inverter");
+    final var project = new Project(file);
+    final var inputs = new ArrayList<Instance>();
+    final var outputs = new ArrayList<Instance>();
+    for (final var comp : circuit.getNonWires()) {
+      if (comp.getFactory() instanceof Pin) {
+        final var pin = Instance.getInstanceFor(comp);
+        (Pin.FACTORY.isInputPin(pin) ? inputs : outputs).add(pin);
+      }
+    }
+    return new TruthTableSimulator(project, circuit, inputs, outputs);
+  }
+
+  @Test
+  public void testAllRowsInOrder() throws Exception {
+    final var simulator = createSimulator();
+    assertEquals(1024, simulator.getRowCount());
+    final var next = new int[] {0};
+    simulator.run((row, inputs, outputs, oscillating) -> {
+      assertEquals(next[0]++, row);
+      assertFalse(oscillating);
+      assertEquals(row, inputs[0].toLongValue());
+      assertEquals(~row & 0x3ff, outputs[0].toLongValue());
+    });
+    assertEquals(1024, next[0]);
+    simulator.dispose();
+  }
+
+  @Test
+  public void testInterruptCancels() throws Exception {
+    final var simulator = createSimulator();
+    final var rows = new int[] {0};
+    try {
+      assertThrows(CancellationException.class,
+          () -> simulator.run((row, inputs, outputs, oscillating) -> {
+            if (rows[0]++ == 300) Thread.currentThread().interrupt();
+          }));
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+    assertTrue(rows[0] > 300 && rows[0] < 1024);
+    simulator.dispose();
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.TestVectorEvaluator;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test for parallel test vector evaluation.
+ *
+ * The rows are spread over worker threads, but must still be reported in order, with the same
+ * results as when they are evaluated one after another.
+ */
+public class ParallelTestVectorTest {
+
+  private static final String AND_CIRCUIT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <main name="And"/>
+      <circuit name="And">
+        <a name="appearance" val="logisim_evolution"/>
+        <a name="circuit" val="And"/>
+        <comp lib="0" loc="(210,150)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="label" val="a"/>
+        </comp>
+        <comp lib="0" loc="(210,190)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="label" val="b"/>
+        </comp>
+        <comp lib="0" loc="(670,170)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="facing" val="west"/>
+          <a name="label" val="y"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="1" loc="(390,170)" name="AND Gate"/>
+        <wire from="(210,150)" to="(340,150)"/>
+        <wire from="(210,190)" to="(340,190)"/>
+        <wire from="(390,170)" to="(670,170)"/>
+      </circuit>
+      </project>
+      """;
+
+  private static final String DLATCH_CIRCUIT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <lib desc="#Memory" name="4"/>
+      <main name="DLatch"/>
+      <circuit name="DLatch">
+        <a name="appearance" val="logisim_evolution"/>
+        <a name="circuit" val="DLatch"/>
+        <a name="circuitnamedboxfixedsize" val="true"/>
+        <a name="simulationFrequency" val="1.0"/>
+        <comp lib="0" loc="(210,150)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="label" val="data"/>
+        </comp>
+        <comp lib="0" loc="(210,250)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="label" val="write"/>
+        </comp>
+        <comp lib="0" loc="(670,170)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="facing" val="west"/>
+          <a name="label" val="Q"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="0" loc="(670,210)" name="Pin">
+          <a name="appearance" val="NewPins"/>
+          <a name="facing" val="west"/>
+          <a name="label" val="NQ"/>
+          <a name="type" val="output"/>
+        </comp>
+        <comp lib="1" loc="(290,210)" name="NOT Gate"/>
+        <comp lib="1" loc="(390,170)" name="AND Gate"/>
+        <comp lib="1" loc="(390,230)" name="AND Gate"/>
+        <comp lib="1" loc="(480,200)" name="OR Gate"/>
+        <comp lib="4" loc="(550,160)" name="S-R Flip-Flop">
+          <a name="appearance" val="logisim_evolution"/>
+        </comp>
+        <wire from="(210,150)" to="(220,150)"/>
+        <wire from="(210,190)" to="(210,250)"/>
+        <wire from="(210,190)" to="(340,190)"/>
+        <wire from="(210,250)" to="(340,250)"/>
+        <wire from="(220,150)" to="(220,210)"/>
+        <wire from="(220,150)" to="(340,150)"/>
+        <wire from="(220,210)" to="(260,210)"/>
+        <wire from="(290,210)" to="(340,210)"/>
+        <wire from="(390,170)" to="(410,170)"/>
+        <wire from="(390,230)" to="(410,230)"/>
+        <wire from="(410,170)" to="(410,180)"/>
+        <wire from="(410,170)" to="(540,170)"/>
+        <wire from="(410,180)" to="(430,180)"/>
+        <wire from="(410,220)" to="(410,230)"/>
+        <wire from="(410,220)" to="(430,220)"/>
+        <wire from="(410,230)" to="(520,230)"/>
+        <wire from="(480,200)" to="(530,200)"/>
+        <wire from="(520,190)" to="(520,230)"/>
+        <wire from="(520,190)" to="(540,190)"/>
+        <wire from="(530,200)" to="(530,210)"/>
+        <wire from="(530,210)" to="(540,210)"/>
+        <wire from="(600,170)" to="(670,170)"/>
+        <wire from="(600,210)" to="(670,210)"/>
+      </circuit>
+      </project>
+      """;
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  public void testParallelCombinationalRowsReportedInOrder() throws Exception {
+    final var rows = 500;
+    final var failingRow = 321;
+    File testFile = new File(tempDir, "and_test.txt");
+    try (FileWriter writer = new FileWriter(testFile)) {
+      writer.write("a b y\n");
+      for (var i = 0; i < rows; i++) {
+        final var a = i & 1;
+        final var b = (i >> 1) & 1;
+        final var y = (i == failingRow) ? 1 - (a & b) : (a & b);
+        writer.write(a + " " + b + " " + y + "\n");
+      }
+    }
+
+    Loader loader = new Loader(null);
+    LogisimFile logisimFile = LogisimFile.load(
+        new ByteArrayInputStream(AND_CIRCUIT.getBytes(StandardCharsets.UTF_8)), loader);
+    assertNotNull(logisimFile, "Circuit should load successfully");
+    Circuit circuit = logisimFile.getCircuit("And");
+    Project project = new Project(logisimFile);
+    project.setCurrentCircuit(circuit);
+
+    TestVector vector = new TestVector(testFile.getAbsolutePath());
+    CircuitState state = CircuitState.createRootState(project, circuit, Thread.currentThread());
+    TestVectorEvaluator evaluator = new TestVectorEvaluator(state, vector);
+    evaluator.setParallel(true);
+
+    final var reportedRows = new ArrayList<Integer>();
+    final var failedRows = new ArrayList<Integer>();
+    final var passFail = evaluator.evaluate((row, report) -> {
+      reportedRows.add(row);
+      if (!report.isEmpty()) failedRows.add(row);
+    });
+
+    assertEquals(rows, reportedRows.size());
+    for (var i = 0; i < rows; i++) {
+      assertEquals(i, reportedRows.get(i), "rows must be reported in order");
+    }
+    assertEquals(1, failedRows.size());
+    assertEquals(failingRow, failedRows.get(0));
+    assertEquals(rows - 1, passFail[0]);
+    assertEquals(1, passFail[1]);
+  }
+
+  /**
+   * Tests that sequential sets, mixed with combinational rows, give in parallel the same report
+   * for every row as when evaluated one after another.
+   */
+  @Test
+  public void testParallelSequentialSetsMatchSerial() throws Exception {
+    final var latch = new String[] {"0 0 0 1", "1 0 0 1", "1 1 1 0", "0 0 1 0", "0 1 0 1"};
+    File testFile = new File(tempDir, "dlatch_sets.txt");
+    try (FileWriter writer = new FileWriter(testFile)) {
+      writer.write("<set> <seq> data write Q NQ\n");
+      for (var i = 0; i < 40; i++) {
+        writer.write("0 0 " + (i & 1) + " 1 " + (i & 1) + " " + (1 - (i & 1)) + "\n");
+      }
+      for (var set = 1; set <= 40; set++) {
+        for (var seq = 1; seq <= latch.length; seq++) {
+          // Every seventh set expects the wrong value on its third step.
+          final var row = (set % 7 == 0 && seq == 3) ? "1 1 0 1" : latch[seq - 1];
+          writer.write(set + " " + seq + " " + row + "\n");
+        }
+      }
+    }
+
+    final var serial = evaluate(DLATCH_CIRCUIT, "DLatch", testFile, false, true);
+    final var parallel = evaluate(DLATCH_CIRCUIT, "DLatch", testFile, true, true);
+    assertEquals(40 * (latch.length + 1), serial.size());
+    assertEquals(serial, parallel);
+    assertEquals(5, serial.stream().filter(line -> line.contains("Q")).count());
+  }
+
+  /**
+   * Tests that with propagateOnLast off only the very last step is left unpropagated, and not the
+   * last step of every block handed to a worker.
+   */
+  @Test
+  public void testParallelPropagateOnLast() throws Exception {
+    final var rows = 500;
+    File testFile = new File(tempDir, "and_last.txt");
+    try (FileWriter writer = new FileWriter(testFile)) {
+      writer.write("a b y\n");
+      for (var i = 0; i < rows; i++) {
+        final var a = i & 1;
+        final var b = (i >> 1) & 1;
+        writer.write(a + " " + b + " " + (a & b) + "\n");
+      }
+      // The last row only passes if its inputs don't reach y.
+      writer.write("0 0 0\n");
+      writer.write("1 1 0\n");
+    }
+
+    final var serial = evaluate(AND_CIRCUIT, "And", testFile, false, false);
+    final var parallel = evaluate(AND_CIRCUIT, "And", testFile, true, false);
+    assertEquals(serial, parallel);
+    assertEquals(0, parallel.stream().filter(line -> line.contains("y")).count());
+
+    final var propagated = evaluate(AND_CIRCUIT, "And", testFile, true, true);
+    assertEquals(List.of((rows + 1) + ": y"), propagated.stream().filter(line -> line.contains("y")).toList());
+  }
+
+  /** Evaluates the vector on a new state of the circuit, and returns one line per reported row. */
+  private static List<String> evaluate(String xml, String name, File testFile, boolean parallel,
+      boolean propagateOnLast) throws Exception {
+    LogisimFile logisimFile = LogisimFile.load(
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), new Loader(null));
+    Circuit circuit = logisimFile.getCircuit(name);
+    Project project = new Project(logisimFile);
+    project.setCurrentCircuit(circuit);
+
+    TestVector vector = new TestVector(testFile.getAbsolutePath());
+    CircuitState state = CircuitState.createRootState(project, circuit, Thread.currentThread());
+    TestVectorEvaluator evaluator = new TestVectorEvaluator(state, vector);
+    evaluator.setParallel(parallel);
+    evaluator.setPropagateOnLast(propagateOnLast);
+
+    final var lines = new ArrayList<String>();
+    evaluator.evaluate((row, report) -> {
+      final var line = new StringBuilder(row + ":");
+      for (final var failure : report) line.append(' ').append(failure.columnName());
+      lines.add(line.toString());
+    });
+    return lines;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.util.XmlUtil;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Tests that a cached project reads back as the document it was parsed from, that entries which no
+ * longer match are dropped, and that the least recently used entries are evicted first.
+ */
+public class ProjectCacheTest {
+
+  private static final String PROJECT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+        This file is intended to be loaded by Logisim-evolution v4.0.0dev.
+        <lib desc="#Wiring" name="0">
+          <tool name="Pin">
+            <a name="appearance" val="classic"/>
+          </tool>
+        </lib>
+        <main name="main"/>
+        <circuit name="main">
+          <a name="circuit" val="main"/>
+          <a name="circuitvhdlpath" val=""/>
+          <comp lib="0" loc="(100,100)" name="Pin">
+            <a name="label" val="a &lt;&amp;&gt; &#233;&#x1F600;"/>
+          </comp>
+          <appear>
+            <rect height="3" stroke="none" width="10" x="50" y="59"/>
+            <text font-family="SansSerif" x="60" y="64"><![CDATA[x < y]]> &amp; more</text>
+          </appear>
+        </circuit>
+      </project>
+      """;
+
+  private File dir;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("cache").toFile();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    final var entries = dir.listFiles();
+    if (entries != null) for (final var entry : entries) entry.delete();
+    dir.delete();
+  }
+
+  private static Element parse(String xml) throws Exception {
+    return XmlUtil.getHardenedBuilderFactory()
+        .newDocumentBuilder()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))
+        .getDocumentElement();
+  }
+
+  private static byte[] key(String content) {
+    return ProjectCache.getKey(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Asserts that two trees have the same elements, attributes and text, in the same order. */
+  private static void assertSameTree(Element expected, Element actual) {
+    assertEquals(expected.getTagName(), actual.getTagName());
+    final var attrs = expected.getAttributes();
+    assertEquals(attrs.getLength(), actual.getAttributes().getLength(), expected.getTagName());
+    for (var i = 0; i < attrs.getLength(); i++) {
+      final var name = attrs.item(i).getNodeName();
+      assertEquals(attrs.item(i).getNodeValue(), actual.getAttribute(name), name);
+    }
+    final var expectedChildren = childrenOf(expected);
+    final var actualChildren = childrenOf(actual);
+    assertEquals(expectedChildren.size(), actualChildren.size(), expected.getTagName());
+    for (var i = 0; i < expectedChildren.size(); i++) {
+      final var child = expectedChildren.get(i);
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        assertEquals(Node.ELEMENT_NODE, actualChildren.get(i).getNodeType());
+        assertSameTree((Element) child, (Element) actualChildren.get(i));
+      } else {
+        assertEquals(Node.TEXT_NODE, actualChildren.get(i).getNodeType());
+        assertEquals(child.getNodeValue(), actualChildren.get(i).getNodeValue());
+      }
+    }
+  }
+
+  private static ArrayList<Node> childrenOf(Element elt) {
+    final var ret = new ArrayList<Node>();
+    for (var child = elt.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() != Node.COMMENT_NODE
+          && child.getNodeType() != Node.PROCESSING_INSTRUCTION_NODE) {
+        ret.add(child);
+      }
+    }
+    return ret;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final var key = key(PROJECT);
+    assertNull(ProjectCache.read(dir, key));
+    ProjectCache.write(dir, key, parse(PROJECT));
+    final var cached = ProjectCache.read(dir, key);
+    assertNotNull(cached);
+    assertSameTree(parse(PROJECT), cached);
+    // the entry can be read again, and its document is a fresh one each time
+    final var again = ProjectCache.read(dir, key);
+    assertNotNull(again);
+    assertFalse(cached.getOwnerDocument() == again.getOwnerDocument());
+    assertSameTree(parse(PROJECT), again);
+  }
+
+  @Test
+  public void testStaleEntriesAreDropped() throws Exception {
+    final var key = key(PROJECT);
+    ProjectCache.write(dir, key, parse(PROJECT));
+    final var entry = ProjectCache.getEntry(dir, key);
+    final var content = Files.readAllBytes(entry.toPath());
+
+    // an entry filed under another key, as if its content had changed
+    final var otherKey = key(PROJECT + " ");
+    final var other = ProjectCache.getEntry(dir, otherKey);
+    Files.copy(entry.toPath(), other.toPath());
+    assertNull(ProjectCache.read(dir, otherKey));
+    assertFalse(other.exists());
+
+    // an entry written by another build; the build follows the magic number, version and length
+    final var otherBuild = content.clone();
+    otherBuild[12] ^= 1;
+    Files.write(entry.toPath(), otherBuild);
+    assertNull(ProjectCache.read(dir, key));
+    assertFalse(entry.exists());
+
+    // a truncated entry
+    Files.write(entry.toPath(), Arrays.copyOf(content, content.length - 1));
+    assertNull(ProjectCache.read(dir, key));
+    assertFalse(entry.exists());
+
+    // once written again, the entry is used
+    ProjectCache.write(dir, key, parse(PROJECT));
+    assertNotNull(ProjectCache.read(dir, key));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+    final var keys = new byte[4][];
+    final var entries = new File[keys.length];
+    final var now = System.currentTimeMillis();
+    for (var i = 0; i < keys.length; i++) {
+      keys[i] = key(PROJECT + i);
+      ProjectCache.write(dir, keys[i], parse(PROJECT));
+      entries[i] = ProjectCache.getEntry(dir, keys[i]);
+      assertTrue(entries[i].setLastModified(now - 60_000 * (keys.length - i)));
+    }
+    // a temporary file left behind is not an entry
+    final var temp = new File(dir, "entry.tmp");
+    Files.copy(entries[0].toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    // using the oldest entry makes it the most recent
+    assertNotNull(ProjectCache.read(dir, keys[0]));
+    final var size = entries[0].length();
+    ProjectCache.evict(dir, 2 * size);
+    assertTrue(entries[0].exists());
+    assertFalse(entries[1].exists());
+    assertFalse(entries[2].exists());
+    assertTrue(entries[3].exists());
+    assertTrue(temp.exists());
+
+    // nothing is evicted while the entries fit
+    ProjectCache.evict(dir, 2 * size);
+    assertEquals(3, dir.list().length);
+  }
+}
@@ -12,7 +12,17 @@ package com.cburch.logisim.file;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 public class XmlReaderTest {
@@ -79,4 +89,126 @@ public class XmlReaderTest {
     assertFalse(XmlReader.labelVHDLInvalid("A13566356aA"));
     assertFalse(XmlReader.labelVHDLInvalid("a_B_c"));
   }
+
+  private static final String[] COMPONENTS = {
+    "lib=\"0\" name=\"Pin\"><a name=\"width\" val=\"%3$d\"/><a name=\"label\" val=\"p%4$d\"/>",
+    "lib=\"0\" name=\"Pin\"><a name=\"type\" val=\"output\"/><a name=\"facing\" val=\"west\"/>",
+    "lib=\"0\" name=\"Constant\"><a name=\"width\" val=\"%3$d\"/><a name=\"value\" val=\"0x1\"/>",
+    "lib=\"0\" name=\"Tunnel\"><a name=\"label\" val=\"t%4$d\"/>",
+    "lib=\"1\" name=\"AND Gate\"><a name=\"inputs\" val=\"3\"/><a name=\"size\" val=\"30\"/>",
+    "lib=\"1\" name=\"XOR Gate\"><a name=\"width\" val=\"%3$d\"/>",
+    "lib=\"1\" name=\"NOT Gate\"><a name=\"facing\" val=\"north\"/>",
+    "lib=\"2\" name=\"Multiplexer\"><a name=\"select\" val=\"2\"/>",
+    "lib=\"3\" name=\"Adder\"><a name=\"width\" val=\"%3$d\"/>",
+    "lib=\"4\" name=\"Register\"><a name=\"width\" val=\"%3$d\"/>",
+  };
+
+  /** Writes a project of the given circuits, each a list of component elements. */
+  private static String project(List<String> names, List<List<String>> circuits) {
+    final var xml = new StringBuilder("""
+        <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+        <project source="4.0.0dev" version="1.0">
+        <lib desc="#Wiring" name="0"/>
+        <lib desc="#Gates" name="1"/>
+        <lib desc="#Plexers" name="2"/>
+        <lib desc="#Arithmetic" name="3"/>
+        <lib desc="#Memory" name="4"/>
+        """);
+    xml.append("<main name=\"").append(names.get(0)).append("\"/>\n");
+    for (var i = 0; i < names.size(); i++) {
+      xml.append("<circuit name=\"").append(names.get(i)).append("\">\n");
+      for (final var comp : circuits.get(i)) xml.append(comp).append('\n');
+      xml.append("</circuit>\n");
+    }
+    return xml.append("</project>\n").toString();
+  }
+
+  /** Describes the components of a circuit, in an order independent of how they were loaded. */
+  @SuppressWarnings("unchecked")
+  private static List<String> describe(LogisimFile file, String circuit) {
+    final var ret = new ArrayList<String>();
+    for (final var comp : file.getCircuit(circuit).getNonWires()) {
+      final var desc = new StringBuilder(comp.getFactory().getName() + comp.getLocation());
+      final var attrs = comp.getAttributeSet();
+      for (final var attr : attrs.getAttributes()) {
+        final var value = attrs.getValue(attr);
+        desc.append(' ').append(attr.getName()).append('=')
+            .append(value == null ? null : ((Attribute<Object>) attr).toStandardString(value));
+      }
+      ret.add(desc.toString());
+    }
+    ret.sort(null);
+    return ret;
+  }
+
+  /**
+   * Tests that loading a file with enough components to create them on several threads gives the
+   * same components as loading them from files small enough to be loaded on a single thread.
+   */
+  @Test
+  public final void testParallelLoadMatchesSequentialLoad() throws Exception {
+    final var random = new Random(1);
+    final var names = List.of("main", "other");
+    final var circuits = new ArrayList<List<String>>();
+    for (var c = 0; c < names.size(); c++) {
+      final var comps = new ArrayList<String>();
+      for (var i = 0; i < 800; i++) {
+        final var kind = COMPONENTS[random.nextInt(COMPONENTS.length)];
+        comps.add(String.format("<comp loc=\"(%d,%d)\" " + kind + "</comp>",
+            100 * (i % 40 + 1), 100 * (i / 40 + 1), 1 + random.nextInt(8), i));
+      }
+      circuits.add(comps);
+    }
+    final var all = load(project(names, circuits));
+
+    for (var c = 0; c < names.size(); c++) {
+      final var expected = new ArrayList<String>();
+      final var comps = circuits.get(c);
+      for (var start = 0; start < comps.size(); start += 100) {
+        final var part = comps.subList(start, Math.min(comps.size(), start + 100));
+        expected.addAll(describe(load(project(List.of(names.get(c)), List.of(part))), names.get(c)));
+      }
+      expected.sort(null);
+      assertEquals(comps.size(), expected.size());
+      assertEquals(expected, describe(all, names.get(c)));
+    }
+  }
+
+  /**
+   * Tests that only the components of factories known to touch nothing but the component they
+   * create are created on several threads.
+   */
+  @Test
+  public final void testOnlyStatelessFactoriesInParallel() throws Exception {
+    final var file = load(project(List.of("main"), List.of(List.of(
+        "<comp lib=\"1\" loc=\"(100,100)\" name=\"AND Gate\"/>"))));
+    final var gates = file.getLibrary("Gates");
+    assertTrue(XmlReader.isCreatedInParallel(factory(gates, "AND Gate")));
+    assertTrue(XmlReader.isCreatedInParallel(factory(gates, "NOT Gate")));
+    assertTrue(XmlReader.isCreatedInParallel(factory(gates, "Controlled Buffer")));
+    assertFalse(XmlReader.isCreatedInParallel(factory(gates, "PLA")));
+    final var wiring = file.getLibrary("Wiring");
+    assertTrue(XmlReader.isCreatedInParallel(factory(wiring, "Constant")));
+    assertTrue(XmlReader.isCreatedInParallel(factory(wiring, "Splitter")));
+    assertTrue(XmlReader.isCreatedInParallel(factory(wiring, "Ground")));
+    // pins and probes listen to the preferences
+    assertFalse(XmlReader.isCreatedInParallel(factory(wiring, "Pin")));
+    assertFalse(XmlReader.isCreatedInParallel(factory(wiring, "Probe")));
+    assertFalse(XmlReader.isCreatedInParallel(factory(file.getLibrary("Memory"), "Register")));
+    assertFalse(XmlReader.isCreatedInParallel(factory(file, "main")));
+  }
+
+  private static ComponentFactory factory(Library lib, String name) {
+    return ((AddTool) lib.getTool(name)).getFactory();
+  }
+
+  private static LogisimFile load(String xml) throws Exception {
+    final var loader = new Loader(null) {
+      @Override
+      public void showError(String description) {
+        fail(description);
+      }
+    };
+    return LogisimFile.load(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), loader);
+  }
 }
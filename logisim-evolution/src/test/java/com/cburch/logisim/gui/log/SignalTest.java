@@ -0,0 +1,286 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that finding the value at a given time, and summarizing a time range, agree with a plain
+ * list of the values and their durations, as values are added, the oldest ones are dropped on
+ * wrapping around, the most recent one is replaced, and the history limit changes.
+ */
+public class SignalTest {
+
+  private static final String PIN = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <main name="main"/>
+      <circuit name="main">
+        <a name="circuit" val="main"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="width" val="4"/>
+        </comp>
+      </circuit>
+      </project>
+      """;
+
+  private static final BitWidth WIDTH = BitWidth.create(4);
+
+  private SignalInfo info;
+
+  /** The values of the signal and their durations, oldest first, starting at start. */
+  private final ArrayList<Value> values = new ArrayList<>();
+  private final ArrayList<Long> durations = new ArrayList<>();
+  private long start;
+  private int limit;
+  private Signal signal;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    final var file = LogisimFile.load(
+        new ByteArrayInputStream(PIN.getBytes(StandardCharsets.UTF_8)), new Loader(null));
+    final var circuit = file.getCircuit("main");
+    info = new SignalInfo(circuit, circuit.getNonWires().toArray(new Component[0]), null);
+  }
+
+  private void create(Value v, long duration, long timeStart, int maxSize) {
+    signal = new Signal(0, info, v, duration, timeStart, maxSize);
+    values.clear();
+    durations.clear();
+    values.add(v);
+    durations.add(duration);
+    start = timeStart;
+    limit = maxSize;
+  }
+
+  private int last() {
+    return values.size() - 1;
+  }
+
+  private void extend(Value v, long duration) {
+    signal.extend(v, duration);
+    if (values.get(last()).equals(v)) {
+      durations.set(last(), durations.get(last()) + duration);
+      return;
+    }
+    values.add(v);
+    durations.add(duration);
+    truncate(limit);
+  }
+
+  private void extend(long duration) {
+    signal.extend(duration);
+    durations.set(last(), durations.get(last()) + duration);
+  }
+
+  private void replaceRecent(Value v, long duration) {
+    signal.replaceRecent(v, duration);
+    final var d = durations.get(last());
+    if (d > duration) {
+      durations.set(last(), d - duration);
+      values.add(v);
+      durations.add(duration);
+      if (values.get(last() - 1).equals(v)) {
+        // merged back into the value before
+        final var i = last();
+        values.remove(i);
+        durations.remove(i);
+        durations.set(i - 1, d);
+      }
+      truncate(limit);
+    } else {
+      final var i = last();
+      values.set(i, v);
+      if (i > 0 && values.get(i - 1).equals(v)) {
+        durations.set(i - 1, durations.get(i - 1) + duration);
+        values.remove(i);
+        durations.remove(i);
+      }
+    }
+  }
+
+  private void resize(int maxSize) {
+    signal.resize(maxSize);
+    limit = maxSize;
+    truncate(maxSize);
+  }
+
+  private void truncate(int maxSize) {
+    while (maxSize > 0 && values.size() > maxSize) {
+      values.remove(0);
+      start += durations.remove(0);
+    }
+  }
+
+  private long end() {
+    var end = start;
+    for (final var d : durations) end += d;
+    return end;
+  }
+
+  /** Checks the value at time t, and the iterator started at t. */
+  private void checkTime(long t) {
+    final var end = end();
+    if (t < start || t >= end) {
+      assertNull(signal.getValue(t), "time " + t);
+      return;
+    }
+    var i = 0;
+    var time = start;
+    while (time + durations.get(i) <= t) time += durations.get(i++);
+    assertEquals(values.get(i), signal.getValue(t), "time " + t);
+    final var it = signal.new Iterator(t);
+    assertEquals(values.get(i), it.value, "time " + t);
+    assertEquals(t, it.time, "time " + t);
+    assertEquals(time + durations.get(i) - t, it.duration, "time " + t);
+    // the iterator then goes through the values that follow
+    for (var j = i + 1; j < values.size() && j < i + 3; j++) {
+      assertTrue(it.advance());
+      assertEquals(values.get(j), it.value, "time " + t + ", value " + j);
+      assertEquals(durations.get(j), it.duration, "time " + t + ", value " + j);
+    }
+  }
+
+  /** Checks the summary of the values from t0 to t1. */
+  private void checkSummary(long t0, long t1) {
+    final var summary = new Signal.Summary();
+    final var from = Math.max(t0, start);
+    final var to = Math.min(t1, end());
+    assertEquals(from < to, signal.summarize(t0, t1, summary));
+    var known = false;
+    var unknown = false;
+    var error = false;
+    var min = 0L;
+    var max = 0L;
+    var time = start;
+    for (var i = 0; i < values.size(); time += durations.get(i++)) {
+      if (time + durations.get(i) <= from || time >= to) continue;
+      final var v = values.get(i);
+      if (v.isFullyDefined()) {
+        final var x = v.toLongValue();
+        min = known ? Math.min(min, x) : x;
+        max = known ? Math.max(max, x) : x;
+        known = true;
+      } else if (v.isErrorValue()) {
+        error = true;
+      } else {
+        unknown = true;
+      }
+    }
+    final var range = "range " + t0 + " to " + t1;
+    assertEquals(known, summary.known, range);
+    assertEquals(unknown, summary.unknown, range);
+    assertEquals(error, summary.error, range);
+    if (known) {
+      assertEquals(min, summary.min, range);
+      assertEquals(max, summary.max, range);
+    }
+  }
+
+  private void checkAll(Random random) {
+    final var end = end();
+    assertEquals(end, signal.getEndTime());
+    for (var t = start - 2; t <= end + 1; t++) checkTime(t);
+    for (var k = 0; k < 50; k++) {
+      final var t0 = start - 1 + (long) (random.nextDouble() * (end - start + 2));
+      checkSummary(t0, t0 + 1 + random.nextInt(random.nextBoolean() ? 10 : 2000));
+    }
+  }
+
+  private static Value randomValue(Random random) {
+    return switch (random.nextInt(12)) {
+      case 0 -> Value.createUnknown(WIDTH);
+      case 1 -> Value.createError(WIDTH);
+      default -> Value.createKnown(WIDTH, random.nextInt(16));
+    };
+  }
+
+  private void randomEdits(Random random, int count) {
+    for (var k = 0; k < count; k++) {
+      final var r = random.nextInt(10);
+      if (r < 7) {
+        extend(randomValue(random), 1 + random.nextInt(5));
+      } else if (r < 8) {
+        extend(1 + random.nextInt(3));
+      } else {
+        final long d = durations.get(last());
+        replaceRecent(randomValue(random), 1 + random.nextInt((int) d));
+      }
+      if (k % 7 == 0) {
+        checkTime(signal.getEndTime() - 1);
+        checkTime(start + random.nextInt((int) (end() - start)));
+      }
+    }
+    checkAll(random);
+  }
+
+  @Test
+  public void testUnlimited() {
+    final var random = new Random(1);
+    create(Value.createKnown(WIDTH, 3), 2, 10, 0);
+    checkAll(random);
+    // enough values to fill several chunks and to grow the tree of durations
+    randomEdits(random, 1500);
+  }
+
+  @Test
+  public void testWrapAround() {
+    final var random = new Random(2);
+    create(Value.createKnown(WIDTH, 0), 1, 0, 700);
+    randomEdits(random, 1200);
+    assertEquals(700, values.size());
+    // adding to the most recent value, just before the oldest position of the arrays
+    extend(5);
+    checkAll(random);
+    // the oldest value is replaced at each new value, all around the arrays
+    for (var round = 0; round < 3; round++) randomEdits(random, 400);
+  }
+
+  @Test
+  public void testResize() {
+    final var random = new Random(3);
+    create(Value.createKnown(WIDTH, 1), 3, 5, 600);
+    randomEdits(random, 1000);
+
+    // truncated to the most recent values, while wrapped around
+    resize(250);
+    assertEquals(250, values.size());
+    checkAll(random);
+    randomEdits(random, 300);
+
+    // grown and then unlimited, keeping all data
+    resize(800);
+    checkAll(random);
+    randomEdits(random, 700);
+    resize(0);
+    checkAll(random);
+    randomEdits(random, 300);
+    resize(100);
+    checkAll(random);
+    randomEdits(random, 200);
+    assertFalse(values.size() > 100);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests the value changes written to a Value Change Dump for scalar and bus signals. */
+public class VcdWriterTest {
+
+  private static final String PINS = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <main name="Pins"/>
+      <circuit name="Pins">
+        <a name="circuit" val="Pins"/>
+        <comp lib="0" loc="(100,100)" name="Pin">
+          <a name="label" val="s"/>
+        </comp>
+        <comp lib="0" loc="(100,200)" name="Pin">
+          <a name="label" val="bus"/>
+          <a name="width" val="4"/>
+        </comp>
+      </circuit>
+      </project>
+      """;
+
+  private CircuitState state;
+  private final Map<String, Instance> pins = new HashMap<>();
+  private Model model;
+  private ByteArrayOutputStream bytes;
+  private VcdWriter writer;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    final var file = LogisimFile.load(
+        new ByteArrayInputStream(PINS.getBytes(StandardCharsets.UTF_8)), new Loader(null));
+    final var circuit = file.getCircuit("Pins");
+    state = CircuitState.createRootState(new Project(file), circuit, Thread.currentThread());
+    for (final var comp : circuit.getNonWires()) {
+      final var pin = Instance.getInstanceFor(comp);
+      pins.put(pin.getAttributeValue(StdAttr.LABEL), pin);
+    }
+    model = new Model(state);
+    bytes = new ByteArrayOutputStream();
+    writer = new VcdWriter(model, bytes);
+    writer.flush();
+    model.addModelListener(writer);
+  }
+
+  /** Drives the pins, then records one step of the model, and returns the lines it wrote. */
+  private String step(Value s, Value bus) throws Exception {
+    Pin.FACTORY.driveInputPin(state.getInstanceState(pins.get("s")), s);
+    Pin.FACTORY.driveInputPin(state.getInstanceState(pins.get("bus")), bus);
+    state.markComponentAsDirty(pins.get("s").getComponent());
+    state.markComponentAsDirty(pins.get("bus").getComponent());
+    state.getPropagator().propagate();
+    writer.flush();
+    final var before = bytes.size();
+    model.propagationCompleted(false, true, true);
+    writer.flush();
+    return bytes.toString(StandardCharsets.US_ASCII).substring(before);
+  }
+
+  /** Returns the identifier declared for the named signal, whose bit range may follow the name. */
+  private String id(String name) {
+    for (final var line : bytes.toString(StandardCharsets.US_ASCII).split("\n")) {
+      final var fields = line.split(" ");
+      if (fields.length >= 5 && fields[0].equals("$var")
+          && (fields[4].equals(name) || fields[4].startsWith(name + "["))) {
+        return fields[3];
+      }
+    }
+    return null;
+  }
+
+  /** Creates a bus value from its bits, most significant first. */
+  private static Value bits(Value... msbFirst) {
+    final var lsbFirst = new Value[msbFirst.length];
+    for (var i = 0; i < msbFirst.length; i++) lsbFirst[i] = msbFirst[msbFirst.length - 1 - i];
+    return Value.create(lsbFirst);
+  }
+
+  @Test
+  public void testScalarsAndBuses() throws Exception {
+    final var s = id("s");
+    final var bus = id("bus");
+    assertNotNull(s);
+    assertNotNull(bus);
+
+    final var t0 = model.getEndTime();
+    assertEquals("#" + t0 + "\n1" + s + "\nb10 " + bus + "\n",
+        step(Value.TRUE, Value.createKnown(4, 2)));
+    // unchanged values are left out, and a bus keeps a single digit for zero
+    final var t1 = model.getEndTime();
+    assertEquals("#" + t1 + "\nb0 " + bus + "\n", step(Value.TRUE, Value.createKnown(4, 0)));
+    assertEquals("#" + model.getEndTime() + "\n0" + s + "\nb1111 " + bus + "\n",
+        step(Value.FALSE, Value.createKnown(4, 15)));
+    assertEquals("", step(Value.FALSE, Value.createKnown(4, 15)));
+    assertNull(writer.getError());
+  }
+
+  @Test
+  public void testUnknownAndErrorBits() throws Exception {
+    final var s = id("s");
+    final var bus = id("bus");
+    final var f = Value.FALSE;
+
+    // a leading 0 is kept before x or z, else the reader would extend the value with x or z
+    assertEquals("#" + model.getEndTime() + "\nz" + s + "\nb0z1 " + bus + "\n",
+        step(Value.UNKNOWN, bits(f, f, Value.UNKNOWN, Value.TRUE)));
+    assertEquals("#" + model.getEndTime() + "\nx" + s + "\nb0x0z " + bus + "\n",
+        step(Value.ERROR, bits(f, Value.ERROR, f, Value.UNKNOWN)));
+    // a value that starts with x or z is written in full
+    assertEquals("#" + model.getEndTime() + "\nbz0x1 " + bus + "\n",
+        step(Value.ERROR, bits(Value.UNKNOWN, f, Value.ERROR, Value.TRUE)));
+    assertEquals("#" + model.getEndTime() + "\nbzzzz " + bus + "\n",
+        step(Value.ERROR, Value.createUnknown(BitWidth.create(4))));
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.start;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that batch simulation jobs get their results in the order they were given, and that each
+ * job starts from a freshly reset state, whichever worker runs it and whatever ran there before.
+ */
+public class BatchSimulatorTest {
+
+  /**
+   * An 8-bit counter q counting the rising edges of a clock, a 4-bit input a inverted into an
+   * output na, and an input stop wired to the halt pin.
+   */
+  private static final String CIRCUIT = """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.0.0dev" version="1.0">
+      <lib desc="#Wiring" name="0"/>
+      <lib desc="#Gates" name="1"/>
+      <lib desc="#Memory" name="4"/>
+      <main name="main"/>
+      <circuit name="main">
+        <a name="circuit" val="main"/>
+        <comp lib="0" loc="(100,380)" name="Clock"/>
+        <comp lib="4" loc="(300,300)" name="Counter"/>
+        <comp lib="0" loc="(490,410)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="q"/>
+          <a name="type" val="output"/>
+          <a name="width" val="8"/>
+        </comp>
+        <comp lib="0" loc="(100,500)" name="Pin">
+          <a name="label" val="a"/>
+          <a name="width" val="4"/>
+        </comp>
+        <comp lib="1" loc="(200,500)" name="NOT Gate">
+          <a name="width" val="4"/>
+        </comp>
+        <comp lib="0" loc="(200,500)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="na"/>
+          <a name="type" val="output"/>
+          <a name="width" val="4"/>
+        </comp>
+        <comp lib="0" loc="(100,600)" name="Pin">
+          <a name="label" val="stop"/>
+        </comp>
+        <comp lib="0" loc="(200,600)" name="Pin">
+          <a name="facing" val="west"/>
+          <a name="label" val="halt"/>
+          <a name="type" val="output"/>
+        </comp>
+        <wire from="(100,380)" to="(300,380)"/>
+        <wire from="(100,500)" to="(170,500)"/>
+        <wire from="(100,600)" to="(200,600)"/>
+      </circuit>
+      </project>
+      """;
+
+  private BatchSimulator batch;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    final var in = new ByteArrayInputStream(CIRCUIT.getBytes(StandardCharsets.UTF_8));
+    final var file = LogisimFile.load(in, new Loader(null));
+    assertNotNull(file);
+    final var circuit = file.getMainCircuit();
+    batch = new BatchSimulator(new Project(file), circuit, Analyze.getPinLabels(circuit),
+        TtyInterface.FORMAT_BATCH);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    batch.close();
+  }
+
+  /** Runs the given jobs, one per line, and returns the result lines. */
+  private String[] run(String jobs) throws Exception {
+    final var out = new ByteArrayOutputStream();
+    batch.serve(new ByteArrayInputStream(jobs.getBytes(StandardCharsets.UTF_8)), out);
+    final var results = out.toString(StandardCharsets.UTF_8);
+    return results.isEmpty() ? new String[0] : results.split("\\R");
+  }
+
+  /** The id, stop reason and tick count of a result line, then its outputs by name. */
+  private static HashMap<String, String> parse(String result) {
+    final var ret = new HashMap<String, String>();
+    final var fields = result.split(" ");
+    ret.put("id", fields[0]);
+    ret.put("reason", fields[1]);
+    ret.put("ticks", fields[2]);
+    for (var i = 3; i < fields.length; i++) {
+      final var eq = fields[i].indexOf('=');
+      ret.put(fields[i].substring(0, eq), fields[i].substring(eq + 1));
+    }
+    return ret;
+  }
+
+  /** The counter counts once every two ticks, on the rising edges of the clock. */
+  private static String count(int ticks) {
+    return String.format("0x%02x", (ticks + 1) / 2 % 256);
+  }
+
+  private static String bits4(int value) {
+    return String.format("%4s", Integer.toBinaryString(value & 15)).replace(' ', '0');
+  }
+
+  @Test
+  public void testResultsInJobOrder() throws Exception {
+    // many more jobs than workers, long ones before short ones, so that each worker reuses its
+    // state and later jobs finish first
+    final var jobs = new StringBuilder();
+    final var count = 60;
+    for (var k = 0; k < count; k++) {
+      final var ticks = k % 3 == 0 ? 400 - k : k % 7;
+      jobs.append(String.format("id=job%d a=0x%x ticks=%d%n", k, k % 16, ticks));
+    }
+    final var results = run(jobs.toString());
+    assertEquals(count, results.length);
+    for (var k = 0; k < count; k++) {
+      final var ticks = k % 3 == 0 ? 400 - k : k % 7;
+      final var result = parse(results[k]);
+      assertEquals("job" + k, result.get("id"), results[k]);
+      assertEquals("ticks", result.get("reason"), results[k]);
+      assertEquals(Integer.toString(ticks), result.get("ticks"), results[k]);
+      assertEquals(count(ticks), result.get("q"), results[k]);
+      assertEquals(bits4(~k), result.get("na"), results[k]);
+    }
+  }
+
+  @Test
+  public void testHaltAndErrors() throws Exception {
+    final var results = run("""
+        ticks=9 stop=1 a=3
+        # comments and blank lines are skipped, but counted
+
+        ticks=5 nosuch=1
+        ticks=many
+        ticks=5 halt=a
+        id=last ticks=3 a=0xf
+        """);
+    assertEquals(5, results.length);
+
+    var result = parse(results[0]);
+    assertEquals("1", result.get("id"));
+    assertEquals("halt", result.get("reason"));
+    assertEquals("0", result.get("ticks"));
+    assertEquals("1100", result.get("na"));
+
+    assertTrue(results[1].startsWith("4 error "), results[1]);
+    assertTrue(results[1].contains("nosuch"), results[1]);
+    assertTrue(results[2].startsWith("5 error "), results[2]);
+    // a halt pin has to be an output pin
+    assertTrue(results[3].startsWith("6 error "), results[3]);
+
+    // nothing is left over from the jobs before, failed or halted
+    result = parse(results[4]);
+    assertEquals("last", result.get("id"));
+    assertEquals("ticks", result.get("reason"));
+    assertEquals("3", result.get("ticks"));
+    assertEquals(count(3), result.get("q"));
+    assertEquals("0000", result.get("na"));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.plugin3d.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that jumping in the history restores the state and step that were recorded, including once
+ * the oldest steps were dropped, and that recording after a jump continues from there.
+ */
+public class TimeTravelManagerTest {
+
+  /** Records the state of step i: component a holds i, component b is only there on even steps. */
+  private static void record(TimeTravelManager manager, int i) {
+    final Map<String, Object> components = new HashMap<>();
+    components.put("a", i);
+    if (i % 2 == 0) components.put("b", "even");
+    manager.recordState(components, Map.of("w", i % 3));
+  }
+
+  private static void assertState(TimeTravelManager manager, int i, int step) {
+    final var state = manager.getCurrentState();
+    assertEquals(i, state.getComponentStates().get("a"));
+    assertEquals(i % 2 == 0 ? "even" : null, state.getComponentStates().get("b"));
+    assertEquals(i % 3, state.getWireStates().get("w"));
+    assertEquals(step, state.getStep());
+    assertEquals(step, manager.getCurrentStep());
+  }
+
+  @Test
+  public void testJumpThenRecord() {
+    final var manager = new TimeTravelManager();
+    for (var i = 0; i < 5; i++) record(manager, i);
+    assertEquals(5, manager.getCurrentStep());
+
+    manager.jumpTo(2);
+    assertState(manager, 2, 2);
+    assertEquals(3, manager.getHistorySize());
+
+    // the steps after the jump are dropped, and the new step follows the one jumped to
+    record(manager, 10);
+    assertEquals(4, manager.getHistorySize());
+    assertEquals(3, manager.getCurrentState().getStep());
+    assertEquals(4, manager.getCurrentStep());
+    assertFalse(manager.redo());
+    assertTrue(manager.undo());
+    assertState(manager, 2, 2);
+    assertTrue(manager.redo());
+    assertEquals(10, manager.getCurrentState().getComponentStates().get("a"));
+  }
+
+  @Test
+  public void testJumpInTrimmedHistory() {
+    final var manager = new TimeTravelManager();
+    // enough steps to drop the oldest twice, by blocks of 256 steps
+    final var count = 10300;
+    for (var i = 0; i < count; i++) record(manager, i);
+    final var first = 512;
+    assertEquals(count - first, manager.getHistorySize());
+
+    manager.jumpTo(0);
+    assertState(manager, first, first);
+    assertFalse(manager.undo());
+    manager.jumpTo(1000);
+    assertState(manager, first + 1000, first + 1000);
+    // steps between two keyframes are rebuilt from the one before
+    manager.jumpTo(1000 + 255);
+    assertState(manager, first + 1255, first + 1255);
+
+    record(manager, 7);
+    assertEquals(1257, manager.getHistorySize());
+    final var state = manager.getCurrentState();
+    assertEquals(7, state.getComponentStates().get("a"));
+    assertNull(state.getComponentStates().get("b"));
+    assertEquals(first + 1256, state.getStep());
+    assertTrue(manager.undo());
+    assertState(manager, first + 1255, first + 1255);
+  }
+}
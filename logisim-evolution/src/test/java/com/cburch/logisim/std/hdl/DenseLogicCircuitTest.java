@@ -0,0 +1,118 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.std.hdl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that simulating 64 lanes side by side gives, in every lane and for every cell, the same
+ * levels as 64 separate scalar simulations, on random netlists with and without loops.
+ */
+public class DenseLogicCircuitTest {
+
+  private static final int GATE_TYPES = DenseLogicCircuit.GATE_TYPE_NAMES.length;
+  private static final int TICKS = 12;
+
+  /** A random netlist, with the cells driven from outside. */
+  private record Netlist(DenseLogicCircuit circuit, int[] inputs) {}
+
+  /**
+   * Builds a random netlist. Unless cyclic, each gate only reads inputs, constants and the outputs
+   * of the gates before it; otherwise it may read any cell, and some cells get several drivers.
+   */
+  private static Netlist randomNetlist(Random random, boolean cyclic) {
+    final var builder = new DenseLogicCircuitBuilder();
+    final var inputs = new int[2 + random.nextInt(6)];
+    final var cells = new ArrayList<Integer>();
+    for (var i = 0; i < DenseLogicCircuit.LEV_COUNT; i++) cells.add(i);
+    for (var i = 0; i < inputs.length; i++) {
+      inputs[i] = builder.addCell(true);
+      cells.add(inputs[i]);
+    }
+    final var gateCount = 5 + random.nextInt(cyclic ? 15 : 40);
+    final var outputs = new int[gateCount];
+    for (var g = 0; g < gateCount; g++) {
+      outputs[g] = builder.addCell(false);
+      if (random.nextInt(4) == 0) builder.setCellPull(outputs[g], random.nextInt(4));
+    }
+    for (var g = 0; g < gateCount; g++) {
+      final var readable = cells.size() + (cyclic ? gateCount : g);
+      final var a = pick(random, cells, outputs, readable);
+      final var b = pick(random, cells, outputs, readable);
+      final var out = cyclic && g > 0 && random.nextInt(5) == 0
+          ? outputs[random.nextInt(g)] : outputs[g];
+      builder.attachGate(random.nextInt(GATE_TYPES), a, b, out);
+      cells.add(outputs[g]);
+    }
+    // flip-flops and latches read cells driven by gates, and gates read them in turn
+    for (var i = random.nextInt(4); i > 0; i--) {
+      final var d = outputs[random.nextInt(gateCount)];
+      final var c = cells.get(random.nextInt(cells.size()));
+      final var q = random.nextBoolean() ? builder.addDff(c, d) : builder.addLatch(d, c);
+      builder.attachGate(random.nextInt(GATE_TYPES), q, inputs[0], builder.addCell(false));
+    }
+    return new Netlist(builder.build(), inputs);
+  }
+
+  private static int pick(Random random, ArrayList<Integer> cells, int[] outputs, int readable) {
+    final var i = random.nextInt(readable);
+    return i < cells.size() ? cells.get(i) : outputs[i - cells.size()];
+  }
+
+  private static void assertLanesMatchScalarRuns(Netlist netlist, Random random, String name) {
+    final var circuit = netlist.circuit();
+    final var lanes = circuit.newLanes();
+    final var cells = new byte[DenseLogicCircuit.LANES][];
+    final var auxData = new int[DenseLogicCircuit.LANES][];
+    for (var lane = 0; lane < DenseLogicCircuit.LANES; lane++) {
+      cells[lane] = circuit.newCells();
+      auxData[lane] = circuit.newAuxData();
+    }
+    for (var tick = 0; tick < TICKS; tick++) {
+      for (var lane = 0; lane < DenseLogicCircuit.LANES; lane++) {
+        for (final var input : netlist.inputs()) {
+          // most ticks leave some inputs alone
+          if (tick > 0 && random.nextInt(3) == 0) continue;
+          final var level = (byte) random.nextInt(DenseLogicCircuit.LEV_COUNT);
+          circuit.setCell(input, level, cells[lane], auxData[lane]);
+          circuit.setCellLane(input, lane, level, lanes);
+        }
+        circuit.simulate(cells[lane], auxData[lane]);
+      }
+      circuit.simulateLanes(lanes);
+      for (var lane = 0; lane < DenseLogicCircuit.LANES; lane++) {
+        for (var cell = 0; cell < circuit.cellCount; cell++) {
+          assertEquals(cells[lane][cell], circuit.getCellLane(cell, lane, lanes),
+              name + ", tick " + tick + ", lane " + lane + ", cell " + cell);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testAcyclicNetlists() {
+    for (var seed = 0; seed < 100; seed++) {
+      final var random = new Random(seed);
+      assertLanesMatchScalarRuns(randomNetlist(random, false), random, "acyclic netlist " + seed);
+    }
+  }
+
+  @Test
+  public void testCyclicNetlists() {
+    for (var seed = 0; seed < 100; seed++) {
+      final var random = new Random(seed);
+      assertLanesMatchScalarRuns(randomNetlist(random, true), random, "cyclic netlist " + seed);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.std.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.instance.InstanceState;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TelnetServerTest {
+  private static final int TIMEOUT_SECONDS = 10;
+
+  private TelnetServer server;
+
+  @AfterEach
+  public void tearDown() {
+    if (server != null) server.close();
+  }
+
+  private static boolean isLoopRunning() {
+    for (final var thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("Telnet server") && thread.isAlive()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Counts the times the server tells its component that data was received, which it does after
+   * buffering the data.
+   */
+  private static Semaphore watch(TelnetServer server) {
+    final var received = new Semaphore(0);
+    server.setInstanceState((InstanceState) Proxy.newProxyInstance(
+        InstanceState.class.getClassLoader(), new Class<?>[] {InstanceState.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("fireInvalidated")) received.release();
+          return null;
+        }));
+    return received;
+  }
+
+  private static void awaitData(Semaphore received) throws InterruptedException {
+    assertTrue(received.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS), "no data received");
+  }
+
+  /**
+   * Tests that bytes from a loopback client are buffered, with telnet commands left out, and that
+   * bytes sent by the component reach the client in order.
+   */
+  @Test
+  public void testLoopbackClient() throws IOException, InterruptedException {
+    server = new TelnetServer(0, 16);
+    server.setTelnetEscape(true);
+    final var receiving = watch(server);
+    try (final var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      socket.setSoTimeout(TIMEOUT_SECONDS * 1000);
+      final var in = socket.getInputStream();
+      final var out = socket.getOutputStream();
+      // IAC WILL SGA, IAC WILL ECHO
+      assertArrayEquals(new byte[] {-1, -5, 3, -1, -5, 1}, in.readNBytes(6));
+
+      out.write(new byte[] {'a', (byte) 255, (byte) 253, 1, 'b'});
+      out.flush();
+      // the bytes may arrive in several reads
+      final var received = new StringBuilder();
+      while (received.length() < 2) {
+        awaitData(receiving);
+        while (server.hasData()) {
+          received.append((char) server.getData());
+          server.deleteOldest();
+        }
+      }
+      assertEquals("ab", received.toString());
+
+      final var count = 10000;
+      for (var i = 0; i < count; i++) server.send('0' + i % 10);
+      final var sent = in.readNBytes(count);
+      for (var i = 0; i < count; i++) assertEquals('0' + i % 10, sent[i]);
+    }
+  }
+
+  /**
+   * Tests that closing a server drops its clients, frees its port, and ends the thread serving
+   * the sockets once no other server is open.
+   */
+  @Test
+  public void testClose() throws IOException, InterruptedException {
+    server = new TelnetServer(0, 16);
+    var receiving = watch(server);
+    final var other = new TelnetServer(0, 16);
+    final var port = server.getPort();
+    try (final var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setSoTimeout(TIMEOUT_SECONDS * 1000);
+      // once something was received, the client was accepted
+      socket.getOutputStream().write('x');
+      awaitData(receiving);
+      assertEquals('x', server.getData());
+
+      other.close();
+      // still served while this one is open
+      server.send('y');
+      assertEquals('y', socket.getInputStream().read());
+
+      server.close();
+      assertTrue(server.isDead());
+      assertFalse(isLoopRunning());
+      // the client was disconnected
+      assertEquals(-1, socket.getInputStream().read());
+    }
+    assertThrows(IOException.class, () -> new Socket(InetAddress.getLoopbackAddress(), port));
+    // closing again does nothing
+    server.close();
+
+    // the port can be opened again, with a new thread to serve it
+    server = new TelnetServer(port, 16);
+    receiving = watch(server);
+    try (final var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.getOutputStream().write('z');
+      awaitData(receiving);
+      assertEquals('z', server.getData());
+    }
+  }
+}